@@ -52,8 +52,17 @@ import uk.q3c.krail.core.validation.KrailValidationModule;
 import uk.q3c.krail.core.view.ViewModule;
 import uk.q3c.krail.core.view.component.DefaultComponentModule;
 import uk.q3c.krail.i18n.I18NModule;
-
+import uk.q3c.krail.i18n.PatternMetrics;
+import uk.q3c.krail.i18n.PatternMetricsMXBean;
+import uk.q3c.krail.i18n.PatternSourceWatcher;
+import uk.q3c.krail.i18n.PatternWarmupService;
+import uk.q3c.krail.i18n.PatternWriteQueue;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
 import javax.servlet.ServletContextEvent;
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -87,12 +96,29 @@ public abstract class DefaultBindingManager extends GuiceServletContextListener
         } catch (Exception e) {
             log.error("Exception while stopping services", e);
         }
+        flushPatternWrites();
+        unregisterPatternMetrics();
         //context may not have been crated, and super does not check for it
         if (servletContextEvent.getServletContext() != null) {
             super.contextDestroyed(servletContextEvent);
         }
     }
 
+    /**
+     * Shuts down the {@link PatternWriteQueue}, so that queued pattern writes (for example auto-stubs) are not lost when the application is stopped.  A
+     * failure is logged but does not prevent the application from stopping
+     */
+    protected void flushPatternWrites() {
+        try {
+            if (injector != null) {
+                injector.getInstance(PatternWriteQueue.class)
+                        .shutdown();
+            }
+        } catch (Exception e) {
+            log.error("Exception while writing queued patterns", e);
+        }
+    }
+
     /**
      * Module instances for the core should be added in {@link #getModules()}. Module instances for the app using Krail
      * should be added to {@link #addAppModules(List)}
@@ -117,6 +143,71 @@ public abstract class DefaultBindingManager extends GuiceServletContextListener
         SecurityManager securityManager = injector.getInstance(SecurityManager.class);
         SecurityUtils.setSecurityManager(securityManager);
 
+        warmupPatterns();
+        watchPatterns();
+        registerPatternMetrics();
+    }
+
+    /**
+     * Starts the {@link PatternWarmupService}, so that I18N bundles are loaded before the servlet accepts any requests.  A failure is logged but does
+     * not prevent the application from starting, as patterns are loaded on demand anyway.  Override this method with an empty implementation if you do
+     * not want patterns pre-loaded
+     */
+    protected void warmupPatterns() {
+        try {
+            injector.getInstance(PatternWarmupService.class)
+                    .start();
+        } catch (Exception e) {
+            log.error("Pattern warm-up failed, patterns will be loaded on demand", e);
+        }
+    }
+
+    /**
+     * Starts the {@link PatternSourceWatcher}, so that changes to I18N patterns are picked up while the application is running.  A failure is logged but
+     * does not prevent the application from starting.  Override this method with an empty implementation if you do not want patterns to be reloaded
+     */
+    protected void watchPatterns() {
+        try {
+            injector.getInstance(PatternSourceWatcher.class)
+                    .start();
+        } catch (Exception e) {
+            log.error("Pattern watcher failed to start, changes to patterns will not be picked up until the cache is cleared", e);
+        }
+    }
+
+    /**
+     * Registers the {@link PatternMetrics} with the platform MBeanServer, replacing any previous registration (there may be one from a previous
+     * deployment of the application in the same JVM).  A failure is logged but does not prevent the application from starting.  Override this method
+     * with an empty implementation if you do not want the metrics available through JMX
+     */
+    protected void registerPatternMetrics() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(PatternMetrics.OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(new StandardMBean(injector.getInstance(PatternMetrics.class), PatternMetricsMXBean.class, true), name);
+        } catch (Exception e) {
+            log.error("Unable to register I18N pattern metrics with JMX", e);
+        }
+    }
+
+    /**
+     * Removes the {@link PatternMetrics} registration made by {@link #registerPatternMetrics()}, so that the platform MBeanServer does not hold on to
+     * the metrics (and through them the application class loader) after the application has stopped.  A failure is logged but does not prevent the
+     * application from stopping
+     */
+    protected void unregisterPatternMetrics() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(PatternMetrics.OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (Exception e) {
+            log.error("Unable to unregister I18N pattern metrics from JMX", e);
+        }
     }
 
     private List<Module> getModules() {
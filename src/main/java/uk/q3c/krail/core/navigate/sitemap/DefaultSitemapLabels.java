@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.core.navigate.sitemap;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.q3c.krail.core.user.opt.LowestRankedOption;
+import uk.q3c.krail.core.user.opt.Option;
+import uk.q3c.krail.i18n.CollatorCache;
+import uk.q3c.krail.i18n.DefaultPatternCacheLoader;
+import uk.q3c.krail.i18n.I18NKey;
+import uk.q3c.krail.i18n.PatternCacheIndex;
+import uk.q3c.krail.i18n.PatternCacheKey;
+import uk.q3c.krail.i18n.PatternCacheLoader;
+import uk.q3c.krail.i18n.PatternChangeLog;
+import uk.q3c.krail.i18n.PatternMetrics;
+import uk.q3c.krail.i18n.PatternSource;
+import uk.q3c.krail.i18n.PatternSourceProvider;
+import uk.q3c.krail.i18n.PatternWriteQueue;
+import uk.q3c.krail.i18n.PatternsChangedBusMessage;
+import uk.q3c.krail.i18n.Translate;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Default implementation of {@link SitemapLabels}.  A snapshot is created from all the nodes of the {@link MasterSitemap} which have a label key
+ * (including the standard pages), with all the labels translated as a single batch.  A snapshot is also replaced if the number of nodes in the
+ * MasterSitemap has changed since it was created, or if I18N patterns have changed since then (see {@link PatternChangeLog}).
+ * <p>
+ * A snapshot is shared by all users, so its labels are not taken from the {@link PatternSource} of the session which requests it.  They are loaded
+ * through a {@link PatternCacheLoader} whose options are resolved at the lowest (system) rank by a {@link LowestRankedOption}, so that the loader's
+ * pattern options are the application's, and not those of whichever user first requests a Locale.  Loaded labels are held for all Locales, and indexed
+ * by {@link PatternCacheIndex}, so that when patterns change only the affected labels are loaded again.  A label which cannot be loaded is given the
+ * name of its key, and is not held, so that the load is tried again for the next snapshot.  Two sessions which request a new Locale at the same time
+ * may both create a snapshot - the last one is kept, and both are valid.
+ * <p>
+ * A node which is not held by a snapshot is translated directly by {@link #applyTo}, with the {@link Translate} of the current session.
+ * <p>
+ * Created by David Sowerby on 16/10/15.
+ */
+@Singleton
+@ThreadSafe
+public class DefaultSitemapLabels implements SitemapLabels {
+    private static Logger log = LoggerFactory.getLogger(DefaultSitemapLabels.class);
+    private final PatternChangeLog changeLog;
+    private final CollatorCache collatorCache;
+    // labels loaded for snapshots, guarded by this
+    private final Map<PatternCacheKey, String> labels = new HashMap<>();
+    private final PatternCacheIndex labelIndex = new PatternCacheIndex();
+    private final MasterSitemap masterSitemap;
+    private final PatternMetrics metrics;
+    private final Provider<Option> optionProvider;
+    private final Provider<PatternSourceProvider> patternSourceProviderProvider;
+    private final ConcurrentMap<Locale, HeldSnapshot> snapshots = new ConcurrentHashMap<>();
+    private final Provider<Translate> translateProvider;
+    private final PatternWriteQueue writeQueue;
+    // the PatternChangeLog epoch which labels has caught up with, guarded by this
+    private long labelEpoch;
+
+    @Inject
+    protected DefaultSitemapLabels(MasterSitemap masterSitemap, Provider<Translate> translateProvider, Provider<PatternSourceProvider>
+            patternSourceProviderProvider, Provider<Option> optionProvider, PatternWriteQueue writeQueue, PatternMetrics metrics, CollatorCache
+                                           collatorCache, PatternChangeLog changeLog) {
+        this.masterSitemap = masterSitemap;
+        this.translateProvider = translateProvider;
+        this.patternSourceProviderProvider = patternSourceProviderProvider;
+        this.optionProvider = optionProvider;
+        this.writeQueue = writeQueue;
+        this.metrics = metrics;
+        this.collatorCache = collatorCache;
+        this.changeLog = changeLog;
+        this.labelEpoch = changeLog.epoch();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Nonnull
+    @Override
+    public SitemapLabelSnapshot snapshot(@Nonnull Locale locale) {
+        checkNotNull(locale);
+        HeldSnapshot held = snapshots.get(locale);
+        if (held == null || held.snapshot.getMasterNodeCount() != masterSitemap.getNodeCount() || held.patternEpoch != changeLog.epoch()) {
+            // read the epoch first, so that a change made while translating causes the snapshot to be replaced again
+            long patternEpoch = changeLog.epoch();
+            held = new HeldSnapshot(createSnapshot(locale), patternEpoch);
+            snapshots.put(locale, held);
+        }
+        return held.snapshot;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void applyTo(@Nonnull UserSitemapNode node, @Nonnull SitemapLabelSnapshot snapshot) {
+        checkNotNull(node);
+        checkNotNull(snapshot);
+        node.setLabels(snapshot);
+        if (!snapshot.contains(node.getMasterNode())) {
+            log.debug("sitemap label snapshot has no label for {}, translating it directly", node.getMasterNode());
+            String label = translateProvider.get()
+                                            .from(node.getLabelKey(), snapshot.getLocale());
+            node.setLabel(label);
+            node.setCollationKey(collatorCache.collationKey(snapshot.getLocale(), label));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void invalidate() {
+        log.debug("discarding sitemap label snapshots");
+        snapshots.clear();
+        synchronized (this) {
+            labels.clear();
+            labelIndex.clear();
+        }
+    }
+
+    protected SitemapLabelSnapshot createSnapshot(Locale locale) {
+        log.debug("creating sitemap label snapshot for {}", locale);
+        int masterNodeCount = masterSitemap.getNodeCount();
+        // MasterSitemapNode does not override hashCode, so nodes are identified by id
+        Map<Integer, MasterSitemapNode> allNodes = new LinkedHashMap<>();
+        for (MasterSitemapNode node : masterSitemap.getAllNodes()) {
+            allNodes.putIfAbsent(node.getId(), node);
+        }
+        for (MasterSitemapNode node : masterSitemap.getStandardPages()
+                                                   .values()) {
+            allNodes.putIfAbsent(node.getId(), node);
+        }
+        List<MasterSitemapNode> nodes = new ArrayList<>(allNodes.size());
+        List<I18NKey> labelKeys = new ArrayList<>(allNodes.size());
+        for (MasterSitemapNode node : allNodes.values()) {
+            if (node.getLabelKey() != null) {
+                nodes.add(node);
+                labelKeys.add(node.getLabelKey());
+            }
+        }
+        return new SitemapLabelSnapshot(locale, nodes, loadLabels(labelKeys, locale), masterNodeCount, collatorCache);
+    }
+
+    /**
+     * Returns the labels for {@code labelKeys}, loading only those which are not already held
+     */
+    private synchronized List<String> loadLabels(List<I18NKey> labelKeys, Locale locale) {
+        catchUp();
+        PatternCacheLoader patternCacheLoader = null;
+        List<String> result = new ArrayList<>(labelKeys.size());
+        for (I18NKey labelKey : labelKeys) {
+            PatternCacheKey cacheKey = new PatternCacheKey(labelKey, locale);
+            String label = labels.get(cacheKey);
+            if (label == null) {
+                if (patternCacheLoader == null) {
+                    patternCacheLoader = newPatternCacheLoader();
+                }
+                label = loadLabel(patternCacheLoader, cacheKey);
+            }
+            result.add(label);
+        }
+        return result;
+    }
+
+    private String loadLabel(PatternCacheLoader patternCacheLoader, PatternCacheKey cacheKey) {
+        try {
+            String label = patternCacheLoader.load(cacheKey);
+            labels.put(cacheKey, label);
+            labelIndex.add(cacheKey, cacheKey.getSource());
+            return label;
+        } catch (Exception e) {
+            log.warn("Unable to load the sitemap label for {}, using the key name", cacheKey.getKey(), e);
+            return cacheKey.getKey()
+                           .name();
+        }
+    }
+
+    /**
+     * Creates the loader for labels, with its options resolved at the lowest rank.  Override to provide a different loader
+     *
+     * @return a new PatternCacheLoader
+     */
+    protected PatternCacheLoader newPatternCacheLoader() {
+        return new DefaultPatternCacheLoader(patternSourceProviderProvider.get(), new LowestRankedOption(optionProvider.get()), writeQueue, metrics);
+    }
+
+    /**
+     * Discards the held labels affected by changes recorded in the {@link PatternChangeLog} since {@link #labelEpoch}, or all of them if those changes
+     * are no longer known
+     */
+    private void catchUp() {
+        long current = changeLog.epoch();
+        if (current == labelEpoch) {
+            return;
+        }
+        Optional<PatternsChangedBusMessage> changes = changeLog.changesSince(labelEpoch);
+        if (changes.isPresent()) {
+            labelIndex.removeChanged(changes.get())
+                      .forEach(labels::remove);
+            labelEpoch = changes.get()
+                               .getEpoch();
+        } else {
+            labels.clear();
+            labelIndex.clear();
+            labelEpoch = current;
+        }
+    }
+
+    /**
+     * A snapshot, with the {@link PatternChangeLog} epoch it was translated at
+     */
+    private static class HeldSnapshot {
+        private final long patternEpoch;
+        private final SitemapLabelSnapshot snapshot;
+
+        private HeldSnapshot(SitemapLabelSnapshot snapshot, long patternEpoch) {
+            this.snapshot = snapshot;
+            this.patternEpoch = patternEpoch;
+        }
+    }
+}
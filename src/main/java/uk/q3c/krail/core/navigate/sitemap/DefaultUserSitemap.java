@@ -11,21 +11,25 @@
 package uk.q3c.krail.core.navigate.sitemap;
 
 import com.google.inject.Inject;
+import com.vaadin.server.VaadinSession;
 import net.engio.mbassy.bus.common.PubSubSupport;
 import net.engio.mbassy.listener.Handler;
 import net.engio.mbassy.listener.Listener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.q3c.krail.core.eventbus.BusMessage;
+import uk.q3c.krail.core.eventbus.GlobalBus;
 import uk.q3c.krail.core.eventbus.SessionBus;
+import uk.q3c.krail.core.eventbus.SubscribeTo;
 import uk.q3c.krail.core.guice.vsscope.VaadinSessionScoped;
 import uk.q3c.krail.core.navigate.URIFragmentHandler;
 import uk.q3c.krail.i18n.CurrentLocale;
 import uk.q3c.krail.i18n.LocaleChangeBusMessage;
+import uk.q3c.krail.i18n.PatternsChangedBusMessage;
 import uk.q3c.krail.i18n.Translate;
 
-import java.text.Collator;
 import java.util.List;
+import java.util.Locale;
 
 /**
  * The {@link MasterSitemap} provides the overall structure of the site, and is Singleton scoped. This class refines
@@ -42,36 +46,76 @@ import java.util.List;
  */
 @VaadinSessionScoped
 @Listener
+@SubscribeTo({SessionBus.class, GlobalBus.class})
 public class DefaultUserSitemap extends DefaultSitemapBase<UserSitemapNode> implements UserSitemap {
     private static Logger log = LoggerFactory.getLogger(DefaultUserSitemap.class);
 
     private final Translate translate;
     private final PubSubSupport<BusMessage> eventBus;
+    private final SitemapLabels sitemapLabels;
+    private final VaadinSession session;
 
 
     @Inject
-    public DefaultUserSitemap(Translate translate, URIFragmentHandler uriHandler, @SessionBus PubSubSupport<BusMessage> eventBus) {
+    public DefaultUserSitemap(Translate translate, URIFragmentHandler uriHandler, @SessionBus PubSubSupport<BusMessage> eventBus, SitemapLabels
+            sitemapLabels) {
         super(uriHandler);
         this.translate = translate;
+        this.sitemapLabels = sitemapLabels;
         this.eventBus = eventBus;
+        this.session = VaadinSession.getCurrent();
     }
 
 
     /**
      * Iterates through contained nodes and resets the label and collation key properties to reflect a change in
      * {@link CurrentLocale}. There is no need to reload all the nodes, no change of page authorisation is dealt with
-     * here}
+     * here}.  The labels are taken from the application wide {@link SitemapLabelSnapshot} for the new Locale, so are only translated if no other
+     * session has already used that Locale
      */
     @Handler
     public synchronized void localeChanged(LocaleChangeBusMessage busMessage) {
         log.debug("responding to locale change to {}", busMessage.getNewLocale());
-        List<UserSitemapNode> nodeList = getAllNodes();
-        Collator collator = translate.collator();
-        for (UserSitemapNode userNode : nodeList) {
-            String label = translate.from(userNode.getMasterNode()
-                                                  .getLabelKey());
-            userNode.setLabel(label);
-            userNode.setCollationKey(collator.getCollationKey(userNode.getLabel()));
+        SitemapLabelSnapshot labels = sitemapLabels.snapshot(busMessage.getNewLocale());
+        for (UserSitemapNode userNode : getAllNodes()) {
+            sitemapLabels.applyTo(userNode, labels);
+        }
+        eventBus.publish(new UserSitemapLabelChangeMessage());
+    }
+
+    /**
+     * Responds to a change of I18N patterns by re-labelling the nodes from a current {@link SitemapLabelSnapshot}, in the Locale they are already
+     * labelled in.  The message is received from the GlobalBus, on the thread which detected the change, so the nodes are re-labelled with the lock of
+     * the session this sitemap belongs to
+     *
+     * @param busMessage the message from the event bus.  Not actually used, as {@link SitemapLabels} knows whether its snapshots are current
+     */
+    @SuppressWarnings("UnusedParameters")
+    @Handler
+    public void patternsChanged(PatternsChangedBusMessage busMessage) {
+        if (session == null) {
+            relabel();
+        } else {
+            session.access(this::relabel);
+        }
+    }
+
+    private synchronized void relabel() {
+        Locale locale = null;
+        for (UserSitemapNode userNode : getAllNodes()) {
+            if (userNode.getLabels() != null) {
+                locale = userNode.getLabels()
+                                 .getLocale();
+                break;
+            }
+        }
+        if (locale == null) {
+            return;
+        }
+        log.debug("responding to a change of patterns for {}", locale);
+        SitemapLabelSnapshot labels = sitemapLabels.snapshot(locale);
+        for (UserSitemapNode userNode : getAllNodes()) {
+            sitemapLabels.applyTo(userNode, labels);
         }
         eventBus.publish(new UserSitemapLabelChangeMessage());
     }
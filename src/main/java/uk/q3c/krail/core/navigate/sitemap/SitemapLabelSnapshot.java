@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.core.navigate.sitemap;
+
+import com.google.common.collect.ImmutableMap;
+import uk.q3c.krail.i18n.CollatorCache;
+import uk.q3c.krail.i18n.I18NKey;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import java.text.CollationKey;
+import java.util.List;
+import java.util.Locale;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * An immutable set of translated labels, with their collation keys, for the nodes of the {@link MasterSitemap} in a single Locale.  A snapshot is
+ * shared by all the {@link UserSitemapNode}s of that Locale, in every session (see {@link SitemapLabels}), so that each label is translated and
+ * collated only once for the application, rather than once for each session.
+ * <p>
+ * Entries are held by node id, together with the label key they were translated from, so that a node which has been replaced by one with a different
+ * label key is not given a stale label.
+ * <p>
+ * Created by David Sowerby on 16/10/15.
+ */
+@Immutable
+public class SitemapLabelSnapshot {
+
+    private final ImmutableMap<Integer, Entry> entries;
+    private final Locale locale;
+    private final int masterNodeCount;
+
+    /**
+     * @param locale
+     *         the Locale of the labels
+     * @param nodes
+     *         the master nodes to hold labels for, each of which must have a label key
+     * @param labels
+     *         the translated label for each of {@code nodes}, in the same order
+     * @param masterNodeCount
+     *         the number of nodes in the {@link MasterSitemap} when the labels were translated
+     * @param collatorCache
+     *         the source of collation keys
+     */
+    public SitemapLabelSnapshot(@Nonnull Locale locale, @Nonnull List<MasterSitemapNode> nodes, @Nonnull List<String> labels, int masterNodeCount,
+                                @Nonnull CollatorCache collatorCache) {
+        checkNotNull(locale);
+        checkNotNull(nodes);
+        checkNotNull(labels);
+        checkNotNull(collatorCache);
+        checkArgument(nodes.size() == labels.size(), "There must be a label for each node");
+        this.locale = locale;
+        this.masterNodeCount = masterNodeCount;
+        ImmutableMap.Builder<Integer, Entry> builder = ImmutableMap.builder();
+        for (int i = 0; i < nodes.size(); i++) {
+            MasterSitemapNode node = nodes.get(i);
+            String label = labels.get(i);
+            builder.put(node.getId(), new Entry(node.getLabelKey(), label, collatorCache.collationKey(locale, label)));
+        }
+        this.entries = builder.build();
+    }
+
+    @Nullable
+    private Entry entryFor(@Nonnull MasterSitemapNode node) {
+        Entry entry = entries.get(node.getId());
+        return (entry != null && entry.labelKey.equals(node.getLabelKey())) ? entry : null;
+    }
+
+    /**
+     * Returns true if this snapshot holds a label for {@code node}
+     *
+     * @param node
+     *         the node to check
+     *
+     * @return true if this snapshot holds a label for {@code node}
+     */
+    public boolean contains(@Nonnull MasterSitemapNode node) {
+        return entryFor(node) != null;
+    }
+
+    /**
+     * Returns the translated label for {@code node}, or null if this snapshot holds no label for it
+     *
+     * @param node
+     *         the node to get the label for
+     *
+     * @return the translated label for {@code node}, or null if this snapshot holds no label for it
+     */
+    @Nullable
+    public String label(@Nonnull MasterSitemapNode node) {
+        Entry entry = entryFor(node);
+        return (entry == null) ? null : entry.label;
+    }
+
+    /**
+     * Returns the collation key for the label of {@code node}, or null if this snapshot holds no label for it
+     *
+     * @param node
+     *         the node to get the collation key for
+     *
+     * @return the collation key for the label of {@code node}, or null if this snapshot holds no label for it
+     */
+    @Nullable
+    public CollationKey collationKey(@Nonnull MasterSitemapNode node) {
+        Entry entry = entryFor(node);
+        return (entry == null) ? null : entry.collationKey;
+    }
+
+    @Nonnull
+    public Locale getLocale() {
+        return locale;
+    }
+
+    /**
+     * Returns the number of nodes in the {@link MasterSitemap} when this snapshot was created, so that a snapshot which pre-dates a change to the
+     * MasterSitemap can be identified
+     *
+     * @return the number of nodes in the {@link MasterSitemap} when this snapshot was created
+     */
+    public int getMasterNodeCount() {
+        return masterNodeCount;
+    }
+
+    /**
+     * Returns the number of labels held
+     *
+     * @return the number of labels held
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private static class Entry {
+        private final CollationKey collationKey;
+        private final String label;
+        private final I18NKey labelKey;
+
+        private Entry(I18NKey labelKey, String label, CollationKey collationKey) {
+            this.labelKey = labelKey;
+            this.label = label;
+            this.collationKey = collationKey;
+        }
+    }
+}
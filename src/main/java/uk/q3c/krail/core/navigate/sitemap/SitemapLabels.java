@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.core.navigate.sitemap;
+
+import javax.annotation.Nonnull;
+import java.util.Locale;
+
+/**
+ * Provides the application wide {@link SitemapLabelSnapshot} for each Locale, so that the labels of the {@link MasterSitemap} are translated once for
+ * each Locale, rather than once for each {@link UserSitemap}
+ * <p>
+ * Created by David Sowerby on 16/10/15.
+ */
+public interface SitemapLabels {
+
+    /**
+     * Returns the snapshot of labels for {@code locale}, creating it if there is no current snapshot for {@code locale}
+     *
+     * @param locale
+     *         the Locale of the labels
+     *
+     * @return the snapshot of labels for {@code locale}
+     */
+    @Nonnull
+    SitemapLabelSnapshot snapshot(@Nonnull Locale locale);
+
+    /**
+     * Sets {@code snapshot} as the source of the label and collation key of {@code node}.  If {@code snapshot} holds no label for the node (for example,
+     * because the node was added to the {@link MasterSitemap} after the snapshot was created), the node is translated directly, in the Locale of the
+     * snapshot, so that it always has a label and collation key
+     *
+     * @param node
+     *         the node to label
+     * @param snapshot
+     *         the snapshot to label it from, usually obtained from {@link #snapshot(Locale)}
+     */
+    void applyTo(@Nonnull UserSitemapNode node, @Nonnull SitemapLabelSnapshot snapshot);
+
+    /**
+     * Discards all current snapshots, usually because the I18N patterns have changed.  A new snapshot is created by the next call to {@link
+     * #snapshot(Locale)} for each Locale, and replaces the old one atomically - nodes which refer to an old snapshot continue to use it until they are
+     * given a new one
+     */
+    void invalidate();
+}
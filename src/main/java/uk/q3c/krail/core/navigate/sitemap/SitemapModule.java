@@ -34,6 +34,14 @@ public class SitemapModule extends AbstractModule {
     private void bindUserSitemap() {
         bind(UserSitemap.class).to(DefaultUserSitemap.class);
         bind(UserSitemapSorters.class).to(DefaultUserSitemapSorters.class);
+        bindLabels();
+    }
+
+    /**
+     * See javadoc for {@link DefaultSitemapLabels} for an explanation of what this is for.  Override this method if you provide your own implementation
+     */
+    protected void bindLabels() {
+        bind(SitemapLabels.class).to(DefaultSitemapLabels.class);
     }
 
     protected void bindService() {
@@ -16,13 +16,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.q3c.krail.core.navigate.LoginNavigationRule;
 import uk.q3c.krail.i18n.CurrentLocale;
-import uk.q3c.krail.i18n.Translate;
 import uk.q3c.util.SourceTreeWrapper;
 import uk.q3c.util.TargetTreeWrapper;
 import uk.q3c.util.TreeCopy;
 import uk.q3c.util.TreeCopyExtension;
 
-import java.text.Collator;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -37,14 +35,14 @@ public class UserSitemapCopyExtension implements TreeCopyExtension<MasterSitemap
     private static Logger log = LoggerFactory.getLogger(UserSitemapCopyExtension.class);
     private final MasterSitemap masterSitemap;
     private final UserSitemap userSitemap;
+    private final SitemapLabels sitemapLabels;
     private CurrentLocale currentLocale;
-    private Translate translate;
 
     @Inject
-    protected UserSitemapCopyExtension(MasterSitemap masterSitemap, UserSitemap userSitemap, Translate translate, CurrentLocale currentLocale) {
+    protected UserSitemapCopyExtension(MasterSitemap masterSitemap, UserSitemap userSitemap, CurrentLocale currentLocale, SitemapLabels sitemapLabels) {
         this.masterSitemap = masterSitemap;
+        this.sitemapLabels = sitemapLabels;
         this.userSitemap = userSitemap;
-        this.translate = translate;
         this.currentLocale = currentLocale;
     }
 
@@ -66,13 +64,10 @@ public class UserSitemapCopyExtension implements TreeCopyExtension<MasterSitemap
     private void copyStandardPages() {
         log.debug("copying standard pages");
         ImmutableMap<StandardPageKey, MasterSitemapNode> sourcePages = masterSitemap.getStandardPages();
-        Collator collator = Collator.getInstance(currentLocale.getLocale());
-
-        for (StandardPageKey spk : sourcePages.keySet()) {
-            MasterSitemapNode masterNode = sourcePages.get(spk);
+        SitemapLabelSnapshot labels = sitemapLabels.snapshot(currentLocale.getLocale());
+        for (MasterSitemapNode masterNode : sourcePages.values()) {
             UserSitemapNode userNode = new UserSitemapNode(masterNode);
-            userNode.setLabel(translate.from(masterNode.getLabelKey()));
-            userNode.setCollationKey(collator.getCollationKey(userNode.getLabel()));
+            sitemapLabels.applyTo(userNode, labels);
             userSitemap.addStandardPage(userNode, masterSitemap.uri(masterNode));
         }
 
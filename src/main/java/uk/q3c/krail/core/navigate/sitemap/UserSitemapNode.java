@@ -21,6 +21,11 @@ import java.util.List;
 import java.util.Locale;
 
 /**
+ * The label and collation key of a node are normally taken from the {@link SitemapLabelSnapshot} set by {@link #setLabels(SitemapLabelSnapshot)},
+ * which is shared by all the nodes in the same Locale, across all sessions.  A label or collation key set directly (by {@link #setLabel(String)},
+ * {@link #setCollationKey(CollationKey)} or {@link #translate(Translate, Locale, Collator)}) overrides the snapshot until another snapshot is set.
+ * Snapshots should be set through {@link SitemapLabels#applyTo}, which also labels the node directly if the snapshot holds no label for it.
+ * <p>
  * To enable locale sensitive sorting of nodes - for example within a UserNavigationTree - a collation key from
  * {@link Collator} is added by the {@link #translate(Translate, Locale, Collator)} method. This means the collation key
  * is generally created only once, but is available for sorting as often as needed. The collation key will only need to
@@ -36,6 +41,7 @@ public class UserSitemapNode implements SitemapNode, Comparable<UserSitemapNode>
     private final MasterSitemapNode masterNode;
     private CollationKey collationKey;
     private String label;
+    private SitemapLabelSnapshot labels;
     private int positionIndex = 1;//visible by default;
 
 
@@ -59,6 +65,9 @@ public class UserSitemapNode implements SitemapNode, Comparable<UserSitemapNode>
     }
 
     public String getLabel() {
+        if (label == null && labels != null) {
+            return labels.label(masterNode);
+        }
         return label;
     }
 
@@ -67,9 +76,29 @@ public class UserSitemapNode implements SitemapNode, Comparable<UserSitemapNode>
     }
 
     public CollationKey getCollationKey() {
+        if (collationKey == null && labels != null) {
+            return labels.collationKey(masterNode);
+        }
         return collationKey;
     }
 
+    public SitemapLabelSnapshot getLabels() {
+        return labels;
+    }
+
+    /**
+     * Sets the snapshot from which the label and collation key are taken, and clears any label or collation key set directly.  If the snapshot holds no
+     * label for this node, the label and collation key are null until set directly - see {@link SitemapLabels#applyTo}
+     *
+     * @param labels
+     *         the snapshot for the Locale of this node
+     */
+    public void setLabels(SitemapLabelSnapshot labels) {
+        this.labels = labels;
+        this.label = null;
+        this.collationKey = null;
+    }
+
     public void setCollationKey(CollationKey collationKey) {
         this.collationKey = collationKey;
     }
@@ -105,12 +134,12 @@ public class UserSitemapNode implements SitemapNode, Comparable<UserSitemapNode>
 
     @Override
     public String toString() {
-        return label;
+        return getLabel();
     }
 
     @Override
     public int compareTo(UserSitemapNode otherNode) {
-        return collationKey.compareTo(otherNode.collationKey);
+        return getCollationKey().compareTo(otherNode.getCollationKey());
     }
 
     @Override
@@ -17,10 +17,8 @@ import uk.q3c.krail.core.guice.vsscope.VaadinSessionScoped;
 import uk.q3c.krail.core.shiro.PageAccessController;
 import uk.q3c.krail.core.shiro.SubjectProvider;
 import uk.q3c.krail.i18n.CurrentLocale;
-import uk.q3c.krail.i18n.Translate;
 import uk.q3c.util.NodeModifier;
 
-import java.text.Collator;
 import java.util.Comparator;
 
 public class UserSitemapNodeModifier implements NodeModifier<MasterSitemapNode, UserSitemapNode> {
@@ -29,19 +27,19 @@ public class UserSitemapNodeModifier implements NodeModifier<MasterSitemapNode,
     private final SubjectProvider subjectProvider;
     private final MasterSitemap masterSitemap;
     private final PageAccessController pageAccessController;
-    private final Collator collator;
-    private final Translate translate;
+    private final CurrentLocale currentLocale;
+    private final SitemapLabels sitemapLabels;
 
     @Inject
     public UserSitemapNodeModifier(SubjectProvider subjectProvider, CurrentLocale currentLocale,
                                    MasterSitemap masterSitemap, PageAccessController pageAccessController,
-                                   Translate translate) {
+                                   SitemapLabels sitemapLabels) {
         super();
         this.subjectProvider = subjectProvider;
         this.masterSitemap = masterSitemap;
         this.pageAccessController = pageAccessController;
-        this.collator = Collator.getInstance(currentLocale.getLocale());
-        this.translate = translate;
+        this.currentLocale = currentLocale;
+        this.sitemapLabels = sitemapLabels;
     }
 
     /**
@@ -83,8 +81,7 @@ public class UserSitemapNodeModifier implements NodeModifier<MasterSitemapNode,
         if (pageAccessController.isAuthorised(subjectProvider.get(), masterNode)) {
             log.debug("User is authorised for page {}, creating a node for it", masterSitemap.uri(masterNode));
             UserSitemapNode userNode = new UserSitemapNode(masterNode);
-            userNode.setLabel(translate.from(masterNode.getLabelKey()));
-            userNode.setCollationKey(collator.getCollationKey(userNode.getLabel()));
+            sitemapLabels.applyTo(userNode, sitemapLabels.snapshot(currentLocale.getLocale()));
             return userNode;
         } else {
             log.debug("User is NOT authorised for page {}, returning null", masterSitemap.uri(masterNode));
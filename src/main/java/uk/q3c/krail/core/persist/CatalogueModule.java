@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.core.persist;
+
+import com.google.inject.AbstractModule;
+import uk.q3c.krail.i18n.*;
+
+/**
+ * A persistence module which provides a read-only {@link PatternDao} for large translation catalogues, reading patterns from a memory mapped {@link
+ * PatternCatalogue} file.  The path to the file is set with {@link #connectionUrl(String)} - the file is usually produced by {@link
+ * PatternUtility#exportCatalogue}.
+ * <p>
+ * This module does not provide an {@link uk.q3c.krail.core.user.opt.OptionDao}
+ * <p>
+ * Created by David Sowerby on 16/10/15.
+ */
+public class CatalogueModule extends AbstractModule implements KrailPersistenceUnit<CatalogueModule> {
+
+    private String connectionUrl = "patterns.kpc";
+    private I18NKey description = DescriptionKey.Data_is_held_in_a_read_only_pattern_catalogue;
+    private I18NKey name = LabelKey.Pattern_Catalogue;
+    private boolean providePatternDao;
+    private boolean volatilePersistence = false;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void configure() {
+        bindPatternDao();
+    }
+
+    /**
+     * binds {@link PatternDao} annotated with {@link CataloguePatternSource}, and the catalogue path, but only if {@link #providePatternDao} has been set
+     * by a previous call to {@link #providePatternDao()}
+     */
+    protected void bindPatternDao() {
+        if (providePatternDao) {
+            bindConstant().annotatedWith(CataloguePatternSource.class)
+                          .to(connectionUrl);
+            bind(PatternDao.class).annotatedWith(CataloguePatternSource.class)
+                                  .to(CataloguePatternDao.class);
+            KrailPersistenceUnitHelper.patternDaoProviders(binder())
+                                      .addBinding(CataloguePatternSource.class)
+                                      .toInstance(new DefaultPersistenceInfo(this));
+        }
+    }
+
+    /**
+     * Not supported - a pattern catalogue holds only I18N patterns
+     *
+     * @throws UnsupportedOperationException
+     *         always
+     */
+    @Override
+    public CatalogueModule provideOptionDao() {
+        throw new UnsupportedOperationException("A pattern catalogue cannot provide an OptionDao");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CatalogueModule providePatternDao() {
+        providePatternDao = true;
+        return this;
+    }
+
+    @Override
+    public I18NKey getName() {
+        return name;
+    }
+
+    @Override
+    public String getConnectionUrl() {
+        return connectionUrl;
+    }
+
+    @Override
+    public I18NKey getDescription() {
+        return description;
+    }
+
+    @Override
+    public boolean isVolatilePersistence() {
+        return volatilePersistence;
+    }
+
+    @Override
+    public CatalogueModule name(final I18NKey name) {
+        this.name = name;
+        return this;
+    }
+
+    @Override
+    public CatalogueModule description(final I18NKey description) {
+        this.description = description;
+        return this;
+    }
+
+    /**
+     * Sets the path to the catalogue file
+     *
+     * @param connectionUrl
+     *         the path to the catalogue file
+     *
+     * @return this for fluency
+     */
+    @Override
+    public CatalogueModule connectionUrl(final String connectionUrl) {
+        this.connectionUrl = connectionUrl;
+        return this;
+    }
+
+    @Override
+    public CatalogueModule volatilePersistence(final boolean volatilePersistence) {
+        this.volatilePersistence = volatilePersistence;
+        return this;
+    }
+}
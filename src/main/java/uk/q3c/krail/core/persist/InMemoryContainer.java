@@ -11,12 +11,10 @@
 
 package uk.q3c.krail.core.persist;
 
-import com.google.common.collect.ImmutableMap;
 import com.vaadin.data.util.BeanItemContainer;
 import uk.q3c.krail.core.user.opt.InMemoryOptionStore;
 import uk.q3c.krail.core.user.opt.OptionEntity;
 import uk.q3c.krail.i18n.InMemoryPatternStore;
-import uk.q3c.krail.i18n.PatternCacheKey;
 import uk.q3c.krail.i18n.PatternEntity;
 
 import java.util.List;
@@ -56,8 +54,7 @@ public class InMemoryContainer<E> extends BeanItemContainer<E> {
     }
 
     private void refreshPatterns() {
-        ImmutableMap<PatternCacheKey, String> store = patternStore.getAsMap();
-        store.forEach((k, v) -> {
+        patternStore.forEach((k, v) -> {
             PatternEntity entity = new PatternEntity(k, v);
             this.addItem(entity);
         });
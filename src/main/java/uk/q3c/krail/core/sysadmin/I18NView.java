@@ -16,6 +16,7 @@ import com.google.inject.Inject;
 import com.google.inject.Injector;
 import com.vaadin.ui.Button;
 import com.vaadin.ui.Label;
+import com.vaadin.ui.Table;
 import com.vaadin.ui.TextArea;
 import com.vaadin.ui.VerticalLayout;
 import net.engio.mbassy.listener.Handler;
@@ -24,27 +25,35 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.q3c.krail.core.eventbus.SessionBus;
 import uk.q3c.krail.core.eventbus.SubscribeTo;
+import uk.q3c.krail.core.eventbus.UIBus;
+import uk.q3c.krail.core.user.opt.AnnotationOptionList;
 import uk.q3c.krail.core.user.notify.UserNotifier;
 import uk.q3c.krail.core.view.Grid3x3ViewBase;
+import uk.q3c.krail.core.validation.ValidationKey;
 import uk.q3c.krail.core.view.component.ViewChangeBusMessage;
 import uk.q3c.krail.i18n.*;
 import uk.q3c.krail.util.Experimental;
 
 import javax.annotation.Nonnull;
+import java.lang.annotation.Annotation;
 import java.util.*;
 
 /**
- * Enables the export of I18NKeys to a database
+ * Enables the export of the Krail core I18NKeys to the selected pattern targets, and displays the {@link PatternMetrics} for I18N pattern lookups.  The
+ * export is run in the background by a {@link PatternExportJob}, which reports its progress on the {@code @UIBus}
  * Created by David Sowerby on 13/07/15.
  */
 @Experimental
 @Listener
-@SubscribeTo(SessionBus.class)
+@SubscribeTo({SessionBus.class, UIBus.class})
 public class I18NView extends Grid3x3ViewBase {
 
     private static Logger log = LoggerFactory.getLogger(I18NView.class);
+    @Caption(caption = LabelKey.Cancel, description = DescriptionKey.Cancel_the_export)
+    private Button cancelExportButton;
     @Caption(caption = LabelKey.Export, description = DescriptionKey.Start_the_export_for_the_chosen_Locales)
     private Button exportButton;
+    private PatternExportJob exportJob;
     @Caption(caption = LabelKey.Progress, description = DescriptionKey.Export_progress)
     private Label exportStatus;
     private Injector injector;
@@ -52,13 +61,23 @@ public class I18NView extends Grid3x3ViewBase {
     private Label instructions2;
     @Caption(caption = LabelKey.Locales, description = DescriptionKey.List_of_Locales_to_export)
     private TextArea localeList;
+    @Caption(caption = LabelKey.Pattern_Metrics, description = DescriptionKey.Pattern_Metrics)
+    private Table metricsTable;
+    private PatternMetrics patternMetrics;
+    private PatternSourceProvider patternSourceProvider;
     private PatternUtility patternUtility;
+    @Caption(caption = LabelKey.Refresh, description = DescriptionKey.Refresh_the_pattern_metrics)
+    private Button refreshMetricsButton;
     private Translate translate;
     private UserNotifier userNotifier;
 
     @Inject
-    protected I18NView(PatternUtility patternUtility, UserNotifier userNotifier, Injector injector, Translate translate) {
+    protected I18NView(PatternUtility patternUtility, UserNotifier userNotifier, Injector injector, Translate translate, PatternMetrics
+            patternMetrics, PatternExportJob exportJob, PatternSourceProvider patternSourceProvider) {
         this.patternUtility = patternUtility;
+        this.patternMetrics = patternMetrics;
+        this.exportJob = exportJob;
+        this.patternSourceProvider = patternSourceProvider;
         this.userNotifier = userNotifier;
         this.injector = injector;
         this.translate = translate;
@@ -75,34 +94,126 @@ public class I18NView extends Grid3x3ViewBase {
         localeList = new TextArea();
         exportButton = new Button();
         exportButton.addClickListener(event -> export());
+        cancelExportButton = new Button();
+        cancelExportButton.addClickListener(event -> exportJob.cancel());
+        cancelExportButton.setEnabled(false);
         exportStatus = new Label();
-        VerticalLayout layout1 = new VerticalLayout(exportButton, exportStatus);
+        VerticalLayout layout1 = new VerticalLayout(exportButton, cancelExportButton, exportStatus);
 
         setTopLeft(new VerticalLayout(instructions1, instructions2, localeList));
         setMiddleLeft(layout1);
+
+        metricsTable = new Table();
+        metricsTable.addContainerProperty(LabelKey.Metric, String.class, null);
+        metricsTable.addContainerProperty(LabelKey.Item, String.class, null);
+        metricsTable.addContainerProperty(LabelKey.Count, Long.class, null);
+        refreshMetricsButton = new Button();
+        refreshMetricsButton.addClickListener(event -> refreshMetrics());
+        setTopRight(new VerticalLayout(metricsTable, refreshMetricsButton));
+        refreshMetrics();
         localeChanged(null);
     }
 
+    /**
+     * Reloads {@link #metricsTable} from the current {@link PatternMetrics}.  The metric names are those of the JMX attributes, so that the same values
+     * can be found easily in a JMX console
+     */
+    protected void refreshMetrics() {
+        metricsTable.removeAllItems();
+        addMetric("TableHits", "", patternMetrics.getTableHits());
+        addMetric("CacheLookups", "", patternMetrics.getCacheLookups());
+        addMetric("CacheHits", "", patternMetrics.getCacheHits());
+        addMetric("Loads", "", patternMetrics.getLoads());
+        addMetric("Evictions", "", patternMetrics.getEvictions());
+        addMetric("Probes", "", patternMetrics.getProbes());
+        addMetric("Fallbacks", "", patternMetrics.getFallbacks());
+        addMetric("KeyNameReturns", "", patternMetrics.getKeyNameReturns());
+        addMetric("MeanLoadMicros", "", patternMetrics.getMeanLoadMicros());
+        patternMetrics.getEvictionsByCause()
+                      .forEach((item, count) -> addMetric("EvictionsByCause", item, count));
+        patternMetrics.getLoadsBySource()
+                      .forEach((item, count) -> addMetric("LoadsBySource", item, count));
+        patternMetrics.getLoadTimeHistogram()
+                      .forEach((item, count) -> addMetric("LoadTimeHistogram", item, count));
+        patternMetrics.getLoadTimeHistogramBySource()
+                      .forEach((item, count) -> addMetric("LoadTimeHistogramBySource", item, count));
+        patternMetrics.getLoadTimeHistogramByBundleAndLocale()
+                      .forEach((item, count) -> addMetric("LoadTimeHistogramByBundleAndLocale", item, count));
+        patternMetrics.getFallbacksByBundleAndLocale()
+                      .forEach((item, count) -> addMetric("FallbacksByBundleAndLocale", item, count));
+        patternMetrics.getKeyNameReturnsByBundleAndLocale()
+                      .forEach((item, count) -> addMetric("KeyNameReturnsByBundleAndLocale", item, count));
+    }
 
+    private void addMetric(String metric, String item, long count) {
+        metricsTable.addItem(new Object[]{metric, item, count}, metric + ":" + item);
+    }
+
+
+    /**
+     * Starts a background export of the Krail core keys, for the Locales entered by the user, to all the selected pattern targets.  Progress is
+     * reported to {@link #exportProgress}
+     */
     protected void export() {
-        //        exportStatus.setValue("");
-        //        Optional<DatabaseBundleWriter> writerOpt = findWriter();
-        //        Set<Locale> locales = retrieveLocales();
-        //        if (locales.isEmpty()) {
-        //            userNotifier.notifyInformation(MessageKey.There_are_no_Locales_to_process);
-        //            return;
-        //        }
-        //        if (writerOpt.isPresent()) {
-        //            try {
-        //                patternUtility.writeExclusive(locales, writerOpt.get());
-        //                exportStatus.setValue(translate.from(MessageKey.Keys_exported, writerOpt.get()
-        //                                                                                        .count(), locales.size()));
-        //                userNotifier.notifyInformation(LabelKey.Export_complete);
-        //            } catch (Exception e) {
-        //                log.info("Export I18NKeys failed due to exception", e);
-        //                userNotifier.notifyError(MessageKey.I18NKey_export_failed, e.getMessage());
-        //            }
-        //        }
+        exportStatus.setValue("");
+        Set<Locale> locales = retrieveLocales();
+        if (locales.isEmpty()) {
+            userNotifier.notifyInformation(MessageKey.There_are_no_Locales_to_process);
+            return;
+        }
+        List<PatternDao> targets = new ArrayList<>();
+        AnnotationOptionList selectedTargets = patternSourceProvider.selectedTargets();
+        for (Class<? extends Annotation> target : selectedTargets.getList()) {
+            patternSourceProvider.targetFor(target)
+                                 .ifPresent(targets::add);
+        }
+        if (targets.isEmpty()) {
+            userNotifier.notifyWarning(MessageKey.There_are_no_Pattern_Targets_selected);
+            return;
+        }
+        if (exportJob.isRunning()) {
+            return;
+        }
+        exportJob.start(targets, coreBundles(), locales);
+        exportButton.setEnabled(false);
+        cancelExportButton.setEnabled(true);
+    }
+
+    /**
+     * The bundles exported by {@link #export()}
+     *
+     * @return the bundles exported by {@link #export()}
+     */
+    protected Set<Class<? extends I18NKey>> coreBundles() {
+        Set<Class<? extends I18NKey>> bundles = new LinkedHashSet<>();
+        bundles.add(LabelKey.class);
+        bundles.add(DescriptionKey.class);
+        bundles.add(MessageKey.class);
+        bundles.add(ValidationKey.class);
+        return bundles;
+    }
+
+    @Handler
+    public void exportProgress(PatternExportProgressMessage progress) {
+        switch (progress.getStatus()) {
+            case RUNNING:
+                exportStatus.setValue(translate.from(MessageKey.Pattern_export_progress, progress.getExported(), progress.getTotal(), progress
+                        .getLocalesCompleted(), progress.getLocaleCount()));
+                return;
+            case COMPLETE:
+                exportStatus.setValue(translate.from(MessageKey.Keys_exported, progress.getExported(), progress.getLocaleCount()));
+                userNotifier.notifyInformation(LabelKey.Export_complete);
+                break;
+            case CANCELLED:
+                exportStatus.setValue(translate.from(LabelKey.Export_cancelled));
+                break;
+            default:
+                log.info("Export I18NKeys failed: {}", progress.getFailure());
+                userNotifier.notifyError(MessageKey.I18NKey_export_failed, progress.getFailure());
+        }
+        exportButton.setEnabled(true);
+        cancelExportButton.setEnabled(false);
+        refreshMetrics();
     }
 
     @Handler
@@ -112,23 +223,6 @@ public class I18NView extends Grid3x3ViewBase {
         instructions2.setValue("\n" + translate.from(MessageKey.All_Keys_exported));
     }
 
-    //    private Optional<DatabaseBundleWriter> findWriter() {
-    //        exportStatus.setValue(translate.from(LabelKey.Looking_for_Database_Writer));
-    //        Reflections reflections = new Reflections();
-    //        final Set<Class<? extends DatabaseBundleWriter>> writers = reflections.getSubTypesOf(DatabaseBundleWriter.class);
-    //        writers.remove(DatabaseBundleWriterBase.class);
-    //        if (writers.size() == 1) {
-    //            return Optional.of(injector.getInstance(writers.iterator()
-    //                                                           .next()));
-    //        }
-    //        if (writers.size() == 0) {
-    //            userNotifier.notifyWarning(MessageKey.Needs_at_least_one_database_writer);
-    //            return Optional.empty();
-    //        }
-    //        userNotifier.notifyWarning(MessageKey.Currently_limited_to_supporting_one_database_writer);
-    //        return Optional.empty();
-    //    }
-
     @Nonnull
     protected Set<Locale> retrieveLocales() {
         exportStatus.setValue(translate.from(LabelKey.Retrieving_Locales));
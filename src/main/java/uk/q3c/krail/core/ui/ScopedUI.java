@@ -20,11 +20,15 @@ import com.vaadin.ui.AbstractOrderedLayout;
 import com.vaadin.ui.Component;
 import com.vaadin.ui.Panel;
 import com.vaadin.ui.UI;
+import com.vaadin.ui.UIDetachedException;
 import net.engio.mbassy.listener.Handler;
 import net.engio.mbassy.listener.Listener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.q3c.krail.core.config.ConfigurationException;
+import uk.q3c.krail.core.eventbus.GlobalBus;
+import uk.q3c.krail.core.eventbus.SessionBus;
+import uk.q3c.krail.core.eventbus.SubscribeTo;
 import uk.q3c.krail.core.guice.uiscope.UIKey;
 import uk.q3c.krail.core.guice.uiscope.UIScope;
 import uk.q3c.krail.core.guice.uiscope.UIScoped;
@@ -47,6 +51,7 @@ import uk.q3c.krail.i18n.*;
  * @date modified 31 Mar 2014
  */
 @Listener
+@SubscribeTo({SessionBus.class, GlobalBus.class})
 public abstract class ScopedUI extends UI implements KrailViewHolder, BroadcastListener {
     private static Logger log = LoggerFactory.getLogger(ScopedUI.class);
     protected final CurrentLocale currentLocale;
@@ -57,6 +62,7 @@ public abstract class ScopedUI extends UI implements KrailViewHolder, BroadcastL
     private final ApplicationTitle applicationTitle;
     private final Translate translate;
     private final I18NProcessor translator;
+    private final I18NBindingRegistry bindingRegistry = new I18NBindingRegistry();
     private UIKey instanceKey;
     private AbstractOrderedLayout screenLayout;
     private UIScope uiScope;
@@ -99,6 +105,7 @@ public abstract class ScopedUI extends UI implements KrailViewHolder, BroadcastL
         if (uiScope != null) {
             uiScope.releaseScope(instanceKey);
         }
+        bindingRegistry.clear();
         super.detach();
     }
 
@@ -127,7 +134,7 @@ public abstract class ScopedUI extends UI implements KrailViewHolder, BroadcastL
         }
 
         Component content = toView.getRootComponent();
-        translator.translate(toView);
+        translator.translate(toView, bindingRegistry);
         content.setSizeFull();
         getViewDisplayPanel().setContent(content);
         this.view = toView;
@@ -171,7 +178,7 @@ public abstract class ScopedUI extends UI implements KrailViewHolder, BroadcastL
 
         // now that browser is active, and user sitemap loaded, and UI constructed, set up currentLocale
         currentLocale.readFromEnvironment();
-        translator.translate(this);
+        translator.translate(this, bindingRegistry);
         // Navigate to the correct start point
         String fragment = getPage().getUriFragment();
         getKrailNavigator().navigateTo(fragment);
@@ -242,17 +249,34 @@ public abstract class ScopedUI extends UI implements KrailViewHolder, BroadcastL
 
     /**
      * Responds to a locale change from {@link CurrentLocale} and updates the translation for this UI and the current
-     * KrailView
+     * KrailView, by re-applying the bindings recorded when they were translated.  During initial set up the view has
+     * not been created, but the registry then just holds the bindings for this UI.  Components created after their
+     * container has been translated should be translated with {@link I18NProcessor#translate(Object, I18NBindingRegistry)},
+     * using {@link #getBindingRegistry()}, to be included
      *
      * @param busMessage the message from the event bus.  Not actually used, as translate looks up the current locale
      */
     @SuppressWarnings("UnusedParameters")
     @Handler
     public void localeChanged(LocaleChangeBusMessage busMessage) {
-        translator.translate(this);
-        //during initial set up view has not been created but locale change gets called for other components
-        if (getView() != null) {
-            translator.translate(getView());
+        translator.retranslate(bindingRegistry);
+    }
+
+    /**
+     * Responds to a change of I18N patterns, published on the GlobalBus by {@link PatternSourceWatcher}, by re-applying the recorded bindings in the
+     * same way as {@link #localeChanged}.  Only the changed patterns are reloaded by the {@link PatternSource}, so this is mostly a re-application of
+     * cached values.  The message is received on the thread which detected the change, so the translation is made with this UI's lock, and is seen by
+     * the user on their next request, or immediately if the UI uses {@link Push}
+     *
+     * @param busMessage the message from the event bus.  Not actually used, as the changes have already been recorded for the PatternSource
+     */
+    @SuppressWarnings("UnusedParameters")
+    @Handler
+    public void patternsChanged(PatternsChangedBusMessage busMessage) {
+        try {
+            access(() -> translator.retranslate(bindingRegistry));
+        } catch (UIDetachedException e) {
+            log.debug("UI detached, patterns will not be re-applied");
         }
     }
 
@@ -260,5 +284,14 @@ public abstract class ScopedUI extends UI implements KrailViewHolder, BroadcastL
         return view;
     }
 
+    /**
+     * The bindings applied by the {@link I18NProcessor} to the components of this UI and its current view
+     *
+     * @return the bindings applied by the {@link I18NProcessor} to the components of this UI and its current view
+     */
+    public I18NBindingRegistry getBindingRegistry() {
+        return bindingRegistry;
+    }
+
 
 }
\ No newline at end of file
@@ -19,6 +19,7 @@ import uk.q3c.krail.core.shiro.SubjectProvider;
 import uk.q3c.krail.core.user.opt.cache.DefaultOptionCacheLoader;
 import uk.q3c.krail.core.user.opt.cache.OptionCache;
 import uk.q3c.krail.core.user.profile.DefaultUserHierarchy;
+import uk.q3c.krail.core.user.profile.RankContextProvider;
 import uk.q3c.krail.core.user.profile.UserHierarchy;
 
 import javax.annotation.Nonnull;
@@ -32,8 +33,8 @@ public class DefaultOption extends OptionBase {
     private static Logger log = LoggerFactory.getLogger(DefaultOption.class);
 
     @Inject
-    protected DefaultOption(@Nonnull OptionCache optionCache, @Nonnull @DefaultUserHierarchy UserHierarchy hierarchy, SubjectProvider subjectProvider,
-                            SubjectIdentifier subjectIdentifier) {
-        super(optionCache, hierarchy, subjectProvider, subjectIdentifier);
+    protected DefaultOption(@Nonnull OptionCache optionCache, @Nonnull @DefaultUserHierarchy UserHierarchy hierarchy, @Nonnull RankContextProvider
+            rankContextProvider, SubjectProvider subjectProvider, SubjectIdentifier subjectIdentifier) {
+        super(optionCache, hierarchy, rankContextProvider, subjectProvider, subjectIdentifier);
     }
 }
@@ -24,7 +24,9 @@ import uk.q3c.util.ID;
 
 import javax.annotation.Nonnull;
 import java.lang.reflect.Field;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -76,12 +78,21 @@ public class DefaultOptionPopup implements OptionPopup {
             baseLayout.addComponent(label, 0, 0);
         } else {
             calculateWindowSize(window, keys.size());
+            // translate all captions and descriptions in one batch
+            List<I18NKey> i18NKeys = new ArrayList<>(keys.size() * 2 + 1);
+            for (OptionKey key : keys.keySet()) {
+                i18NKeys.add(key.getKey());
+                i18NKeys.add(key.getDescriptionKey());
+            }
+            i18NKeys.add(LabelKey.Reset_to_Default);
+            List<String> translations = translate.fromAll(i18NKeys);
+            String resetCaption = translations.get(translations.size() - 1);
             int row = 0;
             for (OptionKey key : keys.keySet()) {
                 Object value = option.get(key);
                 AbstractField uiField = dataTypeToUI.componentFor(value);
-                uiField.setCaption(translate.from(key.getKey()));
-                uiField.setDescription(translate.from(key.getDescriptionKey()));
+                uiField.setCaption(translations.get(row * 2));
+                uiField.setDescription(translations.get(row * 2 + 1));
                 uiField.setId(ID.getId(Optional.of(((Enum) key.getKey()).name()), this, uiField));
                 log.debug("Component id for '{}' set to: '{}'", uiField.getCaption(), uiField.getId());
                 //noinspection unchecked
@@ -91,7 +102,7 @@ public class DefaultOptionPopup implements OptionPopup {
                     context.optionValueChanged(event);
                 });
 
-                Button defaultsButton = new Button(translate.from(LabelKey.Reset_to_Default));
+                Button defaultsButton = new Button(resetCaption);
                 defaultsButton.setId(ID.getId(Optional.of(((Enum) key.getKey()).name()), this, defaultsButton));
                 defaultsButton.addClickListener((event -> {
                     option.delete(0, key);
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.core.user.opt;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.inject.Inject;
+import net.engio.mbassy.listener.Handler;
+import net.engio.mbassy.listener.Listener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.q3c.krail.core.eventbus.GlobalBus;
+import uk.q3c.krail.core.eventbus.SessionBus;
+import uk.q3c.krail.core.eventbus.SubscribeTo;
+import uk.q3c.krail.core.user.opt.cache.OptionCache;
+import uk.q3c.krail.core.user.opt.cache.OptionCacheKey;
+import uk.q3c.krail.core.user.opt.cache.OptionChangeBusMessage;
+import uk.q3c.krail.core.user.profile.RankContext;
+import uk.q3c.krail.core.user.profile.RankContextProvider;
+import uk.q3c.krail.core.user.profile.UserHierarchy;
+import uk.q3c.krail.core.user.status.UserStatusBusMessage;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static uk.q3c.krail.core.user.profile.RankOption.SPECIFIC_RANK;
+
+/**
+ * Default implementation of {@link SessionOptionSnapshot}.  Values are held in an {@link ImmutableMap}, replaced (copy on write) when a value is added or
+ * removed, so that a read is a single map lookup without any locking.  Sessions typically use a few dozen options, so the cost of copying is small.
+ * <p>
+ * An {@link OptionChangeBusMessage} (from the {@code @GlobalBus}, so that changes made in other sessions are seen) invalidates the value if it is for
+ * the same hierarchy and one of the ranks of this session's user.  The {@link RankContext} is captured when values are resolved, as a message from
+ * another session is delivered on the publishing session's thread, where {@link UserHierarchy#ranksForCurrentUser()} would return the other user's
+ * ranks.  A value resolved while an invalidation is in progress is not held, so a stale value cannot replace the invalidation.
+ * <p>
+ * Every write and delete in the application is delivered to every snapshot, on the writer's thread, so a message is discarded as cheaply as possible: a
+ * snapshot which has resolved nothing, or which is for another hierarchy, or which has not got the changed rank, touches no cache.
+ * <p>
+ * Values are resolved through this session's {@link OptionCache}, which knows nothing of a change made through another session's cache.  The same
+ * message therefore invalidates the option in this session's {@link OptionCache} as well, before the snapshot, so that the value resolved next is the
+ * changed one.  The keys invalidated are built from the captured {@link RankContext}, so that they are equal to those this session's {@link Option}
+ * puts in its cache.
+ * <p>
+ * A {@link UserStatusBusMessage} (login or logout) clears all values, as the user's ranks change
+ * <p>
+ * Created by David Sowerby on 16/10/15.
+ */
+@ThreadSafe
+@Listener
+@SubscribeTo({SessionBus.class, GlobalBus.class})
+public class DefaultSessionOptionSnapshot implements SessionOptionSnapshot {
+    private static Logger log = LoggerFactory.getLogger(DefaultSessionOptionSnapshot.class);
+    private final Option option;
+    private final OptionCache optionCache;
+    private final RankContextProvider rankContextProvider;
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    // incremented by every invalidation, guarded by this
+    private long version;
+
+    @Inject
+    protected DefaultSessionOptionSnapshot(Option option, OptionCache optionCache, RankContextProvider rankContextProvider) {
+        this.option = option;
+        this.optionCache = optionCache;
+        this.rankContextProvider = rankContextProvider;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Nonnull
+    @Override
+    public <T> T get(@Nonnull OptionKey<T> optionKey) {
+        checkNotNull(optionKey);
+        @SuppressWarnings("unchecked") T value = (T) snapshot.values.get(optionKey);
+        return (value != null) ? value : resolve(optionKey);
+    }
+
+    private <T> T resolve(OptionKey<T> optionKey) {
+        long startVersion;
+        synchronized (this) {
+            startVersion = version;
+        }
+        // resolved outside the lock, as it may need to load from persistence
+        T value = option.get(optionKey);
+        RankContext rankContext = rankContextProvider.get(option.getHierarchy());
+        synchronized (this) {
+            if (version == startVersion) {
+                Map<OptionKey<?>, Object> values = new HashMap<>(snapshot.values);
+                values.put(optionKey, value);
+                snapshot = new Snapshot(ImmutableMap.copyOf(values), rankContext);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void invalidate(@Nonnull OptionKey<?> optionKey) {
+        checkNotNull(optionKey);
+        version++;
+        Snapshot current = snapshot;
+        if (current.values.containsKey(optionKey)) {
+            Map<OptionKey<?>, Object> values = new HashMap<>(current.values);
+            values.remove(optionKey);
+            snapshot = new Snapshot(ImmutableMap.copyOf(values), current.rankContext);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void clear() {
+        version++;
+        snapshot = Snapshot.EMPTY;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        return snapshot.values.size();
+    }
+
+    /**
+     * Invalidates the value for the changed option, in this session's {@link OptionCache} and then in the snapshot, if the change was made to the same
+     * hierarchy, at one of the ranks of this session's user.  Only the entries which the change affects are invalidated in the {@link OptionCache} - the
+     * changed rank, and the highest and lowest ranked values.
+     * <p>
+     * If no values have been resolved yet, nothing is invalidated, but a value being resolved is not held, as the ranks it is for are not yet known
+     *
+     * @param busMessage
+     *         the message describing the change
+     */
+    @Handler
+    public void optionChanged(OptionChangeBusMessage busMessage) {
+        RankContext rankContext = snapshot.rankContext;
+        if (rankContext == null) {
+            synchronized (this) {
+                version++;
+            }
+            return;
+        }
+        OptionCacheKey cacheKey = busMessage.getCacheKey();
+        if (!rankContext.getHierarchy()
+                        .persistenceName()
+                        .equals(cacheKey.getHierarchy()
+                                        .persistenceName())) {
+            return;
+        }
+        int rank = rankContext.getRanks()
+                              .indexOf(cacheKey.getRequestedRankName());
+        if (rank < 0) {
+            return;
+        }
+        OptionKey<?> optionKey = cacheKey.getOptionKey();
+        log.debug("invalidating session option cache and snapshot for {} at rank {}", optionKey, cacheKey.getRequestedRankName());
+        optionCache.invalidate(new OptionCacheKey(rankContext, SPECIFIC_RANK, rank, optionKey));
+        invalidate(optionKey);
+    }
+
+    @Handler
+    public void userStatusChanged(UserStatusBusMessage busMessage) {
+        log.debug("user status changed, clearing session option snapshot");
+        clear();
+    }
+
+    /**
+     * The values and the {@link RankContext} they were resolved for, replaced together.  The context is null until a value has been resolved
+     */
+    private static class Snapshot {
+        private static final Snapshot EMPTY = new Snapshot(ImmutableMap.of(), null);
+        private final RankContext rankContext;
+        private final ImmutableMap<OptionKey<?>, Object> values;
+
+        private Snapshot(ImmutableMap<OptionKey<?>, Object> values, @Nullable RankContext rankContext) {
+            this.values = values;
+            this.rankContext = rankContext;
+        }
+    }
+}
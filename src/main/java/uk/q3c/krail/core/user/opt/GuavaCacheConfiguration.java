@@ -190,6 +190,19 @@ public class GuavaCacheConfiguration {
     }
 
     public CacheBuilder<Object, Object> builder() {
+        return builder(removalListener);
+    }
+
+    /**
+     * Returns a builder configured as {@link #builder()}, but using {@code removalListener} in place of the configured removal listener.  This allows a
+     * cache owner which needs its own listener to combine it with the configured one (Guava allows only one)
+     *
+     * @param removalListener
+     *         the listener to use, or null for none
+     *
+     * @return a configured builder
+     */
+    public CacheBuilder<Object, Object> builder(RemovalListener removalListener) {
         CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder();
         if (initialCapacity != null) {
             builder.initialCapacity(initialCapacity);
@@ -208,8 +221,8 @@ public class GuavaCacheConfiguration {
         }
 
         if (weakValues) {
+            builder.weakValues();
         }
-        builder.weakValues();
         if (softValues) {
             builder.softValues();
         }
@@ -104,8 +104,7 @@ public class InMemoryOptionDao implements OptionDao {
     @Override
     public Optional<?> getHighestRankedValue(@Nonnull OptionCacheKey cacheKey) {
         checkRankOption(cacheKey, RankOption.HIGHEST_RANK);
-        ImmutableList<String> ranks = cacheKey.getHierarchy()
-                                              .ranksForCurrentUser();
+        ImmutableList<String> ranks = cacheKey.getRanks();
         LinkedHashMap<String, Optional<?>> values = getValuesForRanks(cacheKey, ranks);
         for (String rank : ranks) {
             if (values.containsKey(rank)) {
@@ -149,8 +148,7 @@ public class InMemoryOptionDao implements OptionDao {
     @Override
     public Optional<?> getLowestRankedValue(@Nonnull OptionCacheKey cacheKey) {
         checkRankOption(cacheKey, RankOption.LOWEST_RANK);
-        ImmutableList<String> ranks = cacheKey.getHierarchy()
-                                              .ranksForCurrentUser();
+        ImmutableList<String> ranks = cacheKey.getRanks();
         LinkedHashMap<String, Optional<?>> values = getValuesForRanks(cacheKey, ranks);
         ImmutableList<String> reversedRanks = ranks.reverse();
         for (String rank : reversedRanks) {
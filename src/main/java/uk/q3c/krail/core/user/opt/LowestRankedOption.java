@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.core.user.opt;
+
+import uk.q3c.krail.core.user.profile.UserHierarchy;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * An {@link Option} which resolves {@link #get(OptionKey)} at the lowest rank of its hierarchy with a value (usually the system rank), through {@link
+ * Option#getLowestRanked(OptionKey)} of the Option it wraps.  Give this to anything which creates a result shared by all users, so that the result does
+ * not reflect the options of the user whose session happens to create it.
+ * <p>
+ * {@link #set(Object, OptionKey)} is not supported, as it would set a value at the highest rank, which this Option never reads.  All other calls are
+ * passed to the wrapped Option
+ * <p>
+ * Created by David Sowerby on 16/10/15.
+ */
+public class LowestRankedOption implements Option {
+
+    private final Option option;
+
+    public LowestRankedOption(@Nonnull Option option) {
+        checkNotNull(option);
+        this.option = option;
+    }
+
+    /**
+     * Returns the lowest rank value for {@code optionKey}, see {@link Option#getLowestRanked(OptionKey)}
+     */
+    @Nonnull
+    @Override
+    public <T> T get(@Nonnull OptionKey<T> optionKey) {
+        return option.getLowestRanked(optionKey);
+    }
+
+    @Nonnull
+    @Override
+    public <T> T getLowestRanked(@Nonnull OptionKey<T> optionKey) {
+        return option.getLowestRanked(optionKey);
+    }
+
+    @Nonnull
+    @Override
+    public <T> T getSpecificRanked(int hierarchyRank, @Nonnull OptionKey<T> optionKey) {
+        return option.getSpecificRanked(hierarchyRank, optionKey);
+    }
+
+    @Override
+    public UserHierarchy getHierarchy() {
+        return option.getHierarchy();
+    }
+
+    /**
+     * Not supported, use {@link #set(Object, int, OptionKey)} instead
+     *
+     * @throws UnsupportedOperationException
+     *         always
+     */
+    @Override
+    public <T> void set(T value, @Nonnull OptionKey<T> optionKey) {
+        throw new UnsupportedOperationException("A LowestRankedOption does not set values at the highest rank");
+    }
+
+    @Override
+    public <T> void set(@Nonnull T value, int hierarchyRank, @Nonnull OptionKey<T> optionKey) {
+        option.set(value, hierarchyRank, optionKey);
+    }
+
+    @Nullable
+    @Override
+    public <T> T delete(int hierarchyRank, @Nonnull OptionKey<T> optionKey) {
+        return option.delete(hierarchyRank, optionKey);
+    }
+}
@@ -18,6 +18,8 @@ import uk.q3c.krail.core.user.opt.cache.DefaultOptionCacheLoader;
 import uk.q3c.krail.core.user.opt.cache.OptionCache;
 import uk.q3c.krail.core.user.opt.cache.OptionCacheKey;
 import uk.q3c.krail.core.user.opt.cache.OptionPermission;
+import uk.q3c.krail.core.user.profile.RankContext;
+import uk.q3c.krail.core.user.profile.RankContextProvider;
 import uk.q3c.krail.core.user.profile.UserHierarchy;
 
 import javax.annotation.Nonnull;
@@ -41,6 +43,10 @@ import static uk.q3c.krail.core.user.profile.RankOption.*;
  * Permission is required to execute {@link #set(Object, int, OptionKey)}, {@link #set(Object, OptionKey)} or {@link #delete(int, OptionKey)}.  Permission
  * required is represented by an instance of {@link OptionPermission}.  If permissions are required to view, these would need to be applied at the user
  * interface.<br>
+ * The rank names used to construct each {@link OptionCacheKey} are taken from a {@link RankContext}, provided by {@link RankContextProvider}, rather than
+ * being resolved from {@link #hierarchy} for every call.<br>
+ * To resolve {@link #get(OptionKey)} at the lowest (system) rank instead, for a result shared by all users, wrap the Option in a {@link
+ * LowestRankedOption}.<br>
  * <b>NOTE:</b> All values to and from {@link Option} are natively typed.  All values to and from {@link OptionCache}, {@link DefaultOptionCacheLoader} and
  * {@link OptionDao} are wrapped in Optional.
  * </p>
@@ -51,12 +57,15 @@ public abstract class OptionBase implements Option {
 
     private UserHierarchy hierarchy;
     private OptionCache optionCache;
+    private RankContextProvider rankContextProvider;
     private SubjectIdentifier subjectIdentifier;
     private SubjectProvider subjectProvider;
 
-    protected OptionBase(OptionCache optionCache, UserHierarchy hierarchy, SubjectProvider subjectProvider, SubjectIdentifier subjectIdentifier) {
+    protected OptionBase(OptionCache optionCache, UserHierarchy hierarchy, RankContextProvider rankContextProvider, SubjectProvider subjectProvider,
+                         SubjectIdentifier subjectIdentifier) {
         this.hierarchy = hierarchy;
         this.optionCache = optionCache;
+        this.rankContextProvider = rankContextProvider;
         this.subjectProvider = subjectProvider;
         this.subjectIdentifier = subjectIdentifier;
     }
@@ -66,19 +75,23 @@ public abstract class OptionBase implements Option {
         return hierarchy;
     }
 
+    private RankContext rankContext() {
+        return rankContextProvider.get(hierarchy);
+    }
+
     @Override
     public <T> void set(T value, @Nonnull OptionKey<T> optionKey) {
         set(value, 0, optionKey);
     }
 
     @Override
-    public synchronized <T> void set(@Nonnull T value, int hierarchyRank, @Nonnull OptionKey<T> optionKey) {
+    public <T> void set(@Nonnull T value, int hierarchyRank, @Nonnull OptionKey<T> optionKey) {
         checkArgument(hierarchyRank >= 0);
         checkNotNull(optionKey);
         OptionPermission permission = new OptionPermission(Action.EDIT, hierarchy, hierarchyRank, optionKey, subjectIdentifier.userId());
         if (subjectProvider.get()
                            .isPermitted(permission)) {
-            optionCache.write(new OptionCacheKey(hierarchy, SPECIFIC_RANK, hierarchyRank, optionKey), Optional.of(value));
+            optionCache.write(new OptionCacheKey(rankContext(), SPECIFIC_RANK, hierarchyRank, optionKey), Optional.of(value));
         } else {
             throw new UnauthorizedException();
         }
@@ -87,10 +100,10 @@ public abstract class OptionBase implements Option {
 
     @Override
     @Nonnull
-    public synchronized <T> T get(@Nonnull OptionKey<T> optionKey) {
+    public <T> T get(@Nonnull OptionKey<T> optionKey) {
         checkNotNull(optionKey);
         T defaultValue = optionKey.getDefaultValue();
-        Optional<T> optionalValue = optionCache.get(Optional.of(defaultValue), new OptionCacheKey(hierarchy, HIGHEST_RANK, 0, optionKey));
+        Optional<T> optionalValue = optionCache.get(Optional.of(defaultValue), new OptionCacheKey(rankContext(), HIGHEST_RANK, 0, optionKey));
         if (optionalValue == null) {
             return defaultValue;
         }
@@ -104,9 +117,9 @@ public abstract class OptionBase implements Option {
 
     @Nonnull
     @Override
-    public synchronized <T> T getLowestRanked(@Nonnull OptionKey<T> optionKey) {
+    public <T> T getLowestRanked(@Nonnull OptionKey<T> optionKey) {
         checkNotNull(optionKey);
-        Optional<T> optionalValue = optionCache.get(Optional.of(optionKey.getDefaultValue()), new OptionCacheKey(hierarchy, LOWEST_RANK, 0, optionKey));
+        Optional<T> optionalValue = optionCache.get(Optional.of(optionKey.getDefaultValue()), new OptionCacheKey(rankContext(), LOWEST_RANK, 0, optionKey));
         if (optionalValue == null) {
             return optionKey.getDefaultValue();
         }
@@ -120,10 +133,10 @@ public abstract class OptionBase implements Option {
 
     @Nonnull
     @Override
-    public synchronized <T> T getSpecificRanked(int hierarchyRank, @Nonnull OptionKey<T> optionKey) {
+    public <T> T getSpecificRanked(int hierarchyRank, @Nonnull OptionKey<T> optionKey) {
         checkNotNull(optionKey);
         T defaultValue = optionKey.getDefaultValue();
-        Optional<T> optionalValue = optionCache.get(Optional.of(defaultValue), new OptionCacheKey(hierarchy, SPECIFIC_RANK, hierarchyRank, optionKey));
+        Optional<T> optionalValue = optionCache.get(Optional.of(defaultValue), new OptionCacheKey(rankContext(), SPECIFIC_RANK, hierarchyRank, optionKey));
 
         if (optionalValue == null) {
             return defaultValue;
@@ -145,7 +158,7 @@ public abstract class OptionBase implements Option {
         if (subjectProvider.get()
                            .isPermitted(permission)) {
             //noinspection unchecked
-            return (T) optionCache.delete(new OptionCacheKey(hierarchy, SPECIFIC_RANK, hierarchyRank, optionKey));
+            return (T) optionCache.delete(new OptionCacheKey(rankContext(), SPECIFIC_RANK, hierarchyRank, optionKey));
         } else {
             throw new UnauthorizedException();
         }
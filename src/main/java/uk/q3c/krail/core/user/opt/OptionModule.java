@@ -19,6 +19,8 @@ import uk.q3c.krail.core.persist.DefaultOptionSource;
 import uk.q3c.krail.core.persist.KrailPersistenceUnitHelper;
 import uk.q3c.krail.core.persist.OptionSource;
 import uk.q3c.krail.core.user.opt.cache.*;
+import uk.q3c.krail.core.user.profile.DefaultRankContextProvider;
+import uk.q3c.krail.core.user.profile.RankContextProvider;
 
 import java.lang.annotation.Annotation;
 
@@ -40,6 +42,8 @@ public class OptionModule extends AbstractModule {
         bindOption();
         bindOptionCacheConfiguration();
         bindOptionCache();
+        bindSessionOptionSnapshot();
+        bindRankContextProvider();
         bindOptionCacheProvider();
         bindOptionPopup();
         bindDefaultActiveSource();
@@ -86,6 +90,24 @@ public class OptionModule extends AbstractModule {
                                .in(VaadinSessionScoped.class);
     }
 
+    /**
+     * Override this method to provide your own {@link SessionOptionSnapshot} implementation.  It is intended to hold values for a user session, so should
+     * remain {@link VaadinSessionScoped}.  It is used only by components which inject it, see {@link SessionOptionSnapshot}
+     */
+    protected void bindSessionOptionSnapshot() {
+        bind(SessionOptionSnapshot.class).to(DefaultSessionOptionSnapshot.class)
+                                         .in(VaadinSessionScoped.class);
+    }
+
+    /**
+     * Override this method to provide your own {@link RankContextProvider} implementation.  The contexts it provides belong to the session's user, so it
+     * should remain {@link VaadinSessionScoped}
+     */
+    protected void bindRankContextProvider() {
+        bind(RankContextProvider.class).to(DefaultRankContextProvider.class)
+                                       .in(VaadinSessionScoped.class);
+    }
+
     protected void bindOptionCacheConfiguration() {
         bind(GuavaCacheConfiguration.class).annotatedWith(OptionCacheConfig.class)
                                            .toInstance(configureCache());
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.core.user.opt;
+
+import javax.annotation.Nonnull;
+
+/**
+ * An optional, per session view of {@link Option}, for components which read options frequently (in constructors, builders or event handlers).  The
+ * highest ranked value of each {@link OptionKey} is resolved through {@link Option#get(OptionKey)} the first time it is requested in the session, and
+ * then read from an immutable map until it is invalidated - by a change to the option at one of the user's ranks, or by the user logging in or out.
+ * <p>
+ * Values set with {@link Option#set} are therefore seen by the next call to {@link #get} once the change has been notified.  Only the highest ranked value
+ * is held - use {@link Option} directly for {@link Option#getLowestRanked} and {@link Option#getSpecificRanked}
+ * <p>
+ * {@link Option#get(OptionKey)} does not read through the snapshot - a component opts in by injecting a SessionOptionSnapshot, and reading the options it
+ * uses frequently through {@link #get}, while still using {@link Option} to set them.  The snapshot is bound in {@link OptionModule} as
+ * VaadinSessionScoped, and is subscribed to the session and global buses when it is injected, so it must be injected in the session it serves, and not
+ * held beyond it.  Until it has resolved a value it does nothing with the option changes it receives.
+ * <p>
+ * Created by David Sowerby on 16/10/15.
+ */
+public interface SessionOptionSnapshot {
+
+    /**
+     * Returns the highest ranked value for {@code optionKey}, for the current user, in the same way as {@link Option#get(OptionKey)}
+     *
+     * @param optionKey
+     *         the key for the option
+     * @param <T>
+     *         the type of the option value
+     *
+     * @return the highest ranked value for {@code optionKey}, or its default value if none has been set
+     */
+    @Nonnull
+    <T> T get(@Nonnull OptionKey<T> optionKey);
+
+    /**
+     * Removes the value for {@code optionKey}, so that it is resolved again on the next call to {@link #get}
+     *
+     * @param optionKey
+     *         the key for the option
+     */
+    void invalidate(@Nonnull OptionKey<?> optionKey);
+
+    /**
+     * Removes all values, so that each is resolved again on the next call to {@link #get}
+     */
+    void clear();
+
+    /**
+     * Returns the number of option values currently held
+     *
+     * @return the number of option values currently held
+     */
+    int size();
+}
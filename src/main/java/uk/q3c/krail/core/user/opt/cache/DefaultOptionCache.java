@@ -13,20 +13,28 @@ package uk.q3c.krail.core.user.opt.cache;
 
 import com.google.common.cache.CacheStats;
 import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.Striped;
 import com.google.inject.Inject;
+import net.engio.mbassy.bus.common.PubSubSupport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uk.q3c.krail.core.eventbus.BusMessage;
+import uk.q3c.krail.core.eventbus.GlobalBus;
 import uk.q3c.krail.core.persist.OptionSource;
 import uk.q3c.krail.core.user.opt.Option;
 import uk.q3c.krail.core.user.opt.OptionDao;
+import uk.q3c.krail.core.user.opt.OptionKey;
 import uk.q3c.krail.core.user.opt.OptionModule;
+import uk.q3c.krail.core.user.opt.SessionOptionSnapshot;
 import uk.q3c.krail.core.user.profile.RankOption;
 import uk.q3c.krail.core.user.profile.UserHierarchy;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.locks.Lock;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -35,6 +43,13 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * UserHierarchy} to use, and whether to take the lowest, highest or specific ranked value.
  * <p>
  * Scope is set in {@link OptionModule} but it is assumed that this class needs to be thread safe.
+ * <p>
+ * Reads which find a value in the cache take no lock.  Writes, deletes and cache loads take one of {@link #lockStripes()} locks, chosen by the {@link
+ * OptionKey}, so that for any one option they happen one at a time and in order.  A load cannot therefore read a value from the {@link OptionDao} which a
+ * concurrent write is about to replace, and put it into the cache after the write has invalidated the entry.  Different options seldom share a lock.
+ * <p>
+ * Each write and delete is published as an {@link OptionChangeBusMessage} on the {@code @GlobalBus}, so that holders of resolved values, such as {@link
+ * SessionOptionSnapshot}, can invalidate them.
  *
  * <b>NOTE:</b> All values to and from {@link Option} are natively typed.  All values to and from {@link OptionCache}, {@link DefaultOptionCacheLoader} and
  * {@link OptionDao} are wrapped in Optional.
@@ -49,11 +64,31 @@ public class DefaultOptionCache implements OptionCache {
     private static Logger log = LoggerFactory.getLogger(DefaultOptionCache.class);
     private final LoadingCache<OptionCacheKey, Optional<?>> cache;
     private final OptionSource daoProvider;
+    private final PubSubSupport<BusMessage> globalBus;
+    private final Striped<Lock> locks;
 
     @Inject
-    public DefaultOptionCache(OptionSource daoProvider, OptionCacheProvider cacheProvider) {
+    public DefaultOptionCache(OptionSource daoProvider, OptionCacheProvider cacheProvider, @GlobalBus PubSubSupport<BusMessage> globalBus) {
         this.daoProvider = daoProvider;
+        this.globalBus = globalBus;
         cache = cacheProvider.get();
+        locks = Striped.lock(lockStripes());
+    }
+
+    /**
+     * The number of locks used to order writes, deletes and loads.  Override to change the default of 64
+     *
+     * @return the number of locks used to order writes, deletes and loads
+     */
+    protected int lockStripes() {
+        return 64;
+    }
+
+    /**
+     * Returns the lock for the option identified by {@code cacheKey} - the lock is the same for all hierarchies and ranks of the option
+     */
+    private Lock lockFor(OptionCacheKey cacheKey) {
+        return locks.getAt(Math.floorMod(Objects.hashCode(cacheKey.getOptionKey()), locks.size()));
     }
 
     @Override
@@ -72,29 +107,39 @@ public class DefaultOptionCache implements OptionCache {
      *         the type of the value
      */
     @Override
-    public synchronized <T> void write(@Nonnull OptionCacheKey cacheKey, @Nonnull Optional<T> value) {
+    public <T> void write(@Nonnull OptionCacheKey cacheKey, @Nonnull Optional<T> value) {
         checkNotNull(cacheKey);
         checkNotNull(value);
-        // write to store first just in case there's a problem
-        log.debug("writing value {} for cacheKey {} via option dao ", value, cacheKey);
-        daoProvider.getActiveDao()
-                   .write(cacheKey, value);
-
-        //invalidate highest / lowest first - cache does clean up as part of write
-        cache.invalidate(new OptionCacheKey(cacheKey, RankOption.HIGHEST_RANK));
-        cache.invalidate(new OptionCacheKey(cacheKey, RankOption.LOWEST_RANK));
-        cache.put(cacheKey, value);
+        Lock lock = lockFor(cacheKey);
+        lock.lock();
+        try {
+            // write to store first just in case there's a problem
+            log.debug("writing value {} for cacheKey {} via option dao ", value, cacheKey);
+            daoProvider.getActiveDao()
+                       .write(cacheKey, value);
+
+            //invalidate highest / lowest first - cache does clean up as part of write
+            cache.invalidate(new OptionCacheKey(cacheKey, RankOption.HIGHEST_RANK));
+            cache.invalidate(new OptionCacheKey(cacheKey, RankOption.LOWEST_RANK));
+            cache.put(cacheKey, value);
+        } finally {
+            lock.unlock();
+        }
+        globalBus.publish(new OptionChangeBusMessage(cacheKey));
     }
 
     @Override
     @Nonnull
-    public synchronized <T> Optional<T> get(@Nonnull Optional<T> defaultValue, @Nonnull OptionCacheKey optionCacheKey) {
+    public <T> Optional<T> get(@Nonnull Optional<T> defaultValue, @Nonnull OptionCacheKey optionCacheKey) {
         checkNotNull(optionCacheKey);
         checkNotNull(defaultValue);
-        //this will trigger the cacheLoader if not already in the cache
         Optional<T> optionalValue;
         try {
-            optionalValue = (Optional<T>) cache.getUnchecked(optionCacheKey);
+            Optional<?> cachedValue = cache.getIfPresent(optionCacheKey);
+            if (cachedValue == null) {
+                cachedValue = load(optionCacheKey);
+            }
+            optionalValue = (Optional<T>) cachedValue;
             if (!optionalValue.isPresent()) {
                 return defaultValue;
             }
@@ -115,35 +160,73 @@ public class DefaultOptionCache implements OptionCache {
     }
 
 
+    /**
+     * Triggers the cacheLoader for {@code optionCacheKey}, unless another thread has loaded it while this one was waiting for the lock
+     */
+    private Optional<?> load(OptionCacheKey optionCacheKey) {
+        Lock lock = lockFor(optionCacheKey);
+        lock.lock();
+        try {
+            return cache.getUnchecked(optionCacheKey);
+        } finally {
+            lock.unlock();
+        }
+    }
+
     @Override
     @Nullable
-    public synchronized Optional<?> delete(@Nonnull OptionCacheKey optionCacheKey) {
+    public Optional<?> delete(@Nonnull OptionCacheKey optionCacheKey) {
         checkNotNull(optionCacheKey);
-        // delete from store first just in case there's a problem
-        Optional<?> result = daoProvider.getActiveDao()
-                                   .deleteValue(optionCacheKey);
+        Optional<?> result;
+        Lock lock = lockFor(optionCacheKey);
+        lock.lock();
+        try {
+            // delete from store first just in case there's a problem
+            result = daoProvider.getActiveDao()
+                                .deleteValue(optionCacheKey);
 
-        //invalidate highest / lowest & specific as these are all now invalid
-        cache.invalidate(new OptionCacheKey(optionCacheKey, RankOption.HIGHEST_RANK));
-        cache.invalidate(new OptionCacheKey(optionCacheKey, RankOption.LOWEST_RANK));
-        cache.invalidate(optionCacheKey);
+            //invalidate highest / lowest & specific as these are all now invalid
+            cache.invalidate(new OptionCacheKey(optionCacheKey, RankOption.HIGHEST_RANK));
+            cache.invalidate(new OptionCacheKey(optionCacheKey, RankOption.LOWEST_RANK));
+            cache.invalidate(optionCacheKey);
+        } finally {
+            lock.unlock();
+        }
 
         // explicit call, there is no write called to trigger clean up
         cache.cleanUp();
+        globalBus.publish(new OptionChangeBusMessage(optionCacheKey));
 
         return result;
     }
 
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void invalidate(@Nonnull OptionCacheKey optionCacheKey) {
+        checkNotNull(optionCacheKey);
+        Lock lock = lockFor(optionCacheKey);
+        lock.lock();
+        try {
+            cache.invalidate(new OptionCacheKey(optionCacheKey, RankOption.HIGHEST_RANK));
+            cache.invalidate(new OptionCacheKey(optionCacheKey, RankOption.LOWEST_RANK));
+            cache.invalidate(optionCacheKey);
+        } finally {
+            lock.unlock();
+        }
+    }
+
     @Nullable
     @Override
-    public synchronized Optional<?> getIfPresent(@Nonnull OptionCacheKey optionCacheKey) {
+    public Optional<?> getIfPresent(@Nonnull OptionCacheKey optionCacheKey) {
         checkNotNull(optionCacheKey);
         return cache.getIfPresent(optionCacheKey);
     }
 
     @Override
-    public synchronized CacheStats stats() {
+    public CacheStats stats() {
         return cache.stats();
     }
 
@@ -156,18 +239,18 @@ public class DefaultOptionCache implements OptionCache {
      * {@inheritDoc}
      */
     @Override
-    public synchronized void clear() {
+    public void clear() {
         flush();
         cleanup();
     }
 
     @Override
-    public synchronized void flush() {
+    public void flush() {
         cache.invalidateAll();
     }
 
     @Override
-    public synchronized void cleanup() {
+    public void cleanup() {
         cache.cleanUp();
     }
 
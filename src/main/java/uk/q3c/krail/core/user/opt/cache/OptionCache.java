@@ -75,6 +75,16 @@ public interface OptionCache {
     @Nullable
     Optional<?> delete(@Nonnull OptionCacheKey optionCacheKey);
 
+    /**
+     * Removes the entry for {@code optionCacheKey}, and the highest and lowest ranked entries for the same option, hierarchy and user, without changing
+     * persistence.  Use this when the option has been changed through another cache (for example by another session), so that the values affected by
+     * the change are loaded again when next required
+     *
+     * @param optionCacheKey
+     *         the specific rank entry to invalidate, built from this cache's own hierarchy and ranks
+     */
+    void invalidate(@Nonnull OptionCacheKey optionCacheKey);
+
     /**
      * Returns a value from the cache only if it is present in the cache (that is, no attempt is made to load the cache
      * with a value if it is not present)
@@ -11,12 +11,16 @@
 
 package uk.q3c.krail.core.user.opt.cache;
 
+import com.google.common.collect.ImmutableList;
 import uk.q3c.krail.core.user.opt.Option;
+import uk.q3c.krail.core.user.opt.OptionDao;
 import uk.q3c.krail.core.user.opt.OptionKey;
+import uk.q3c.krail.core.user.profile.RankContext;
 import uk.q3c.krail.core.user.profile.RankOption;
 import uk.q3c.krail.core.user.profile.UserHierarchy;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
 
 import static com.google.common.base.Preconditions.checkArgument;
@@ -25,6 +29,10 @@ import static com.google.common.base.Preconditions.checkNotNull;
 /**
  * Provides a unique identifier for cached {@link Option}
  * <p>
+ * A key constructed from a {@link RankContext} takes its rank names from the context, and carries them (see {@link #getRanks()}), so that neither the key
+ * nor an {@link OptionDao} needs to ask the {@link UserHierarchy} for them again.  A key constructed from a {@link UserHierarchy} resolves them from the
+ * hierarchy.
+ * <p>
  * Created by David Sowerby on 19/02/15.
  */
 @Immutable
@@ -36,6 +44,8 @@ public class OptionCacheKey {
     private final String requestedRankName;
     private final OptionKey optionKey;
     private final RankOption rankOption;
+    @Nullable
+    private final ImmutableList<String> ranks;
 
     /**
      * Calls {@link OptionCacheKey#OptionCacheKey(UserHierarchy, RankOption, int, OptionKey)} with the requested rank assumed to be 0 (highest)
@@ -68,6 +78,41 @@ public class OptionCacheKey {
         this.requestedRankName = requestedRankName(requestedRank);
         this.optionKey = optionKey;
         this.userId = hierarchy.highestRankName();
+        this.ranks = null;
+    }
+
+    /**
+     * Takes the rank names from {@code rankContext} rather than from its hierarchy
+     *
+     * @param rankContext
+     *         the rank names of the hierarchy to use, for the current user
+     * @param rankOption
+     *         determines whether this key represents the lowest or highest in a hierarchy, or a specific rank
+     * @param requestedRank
+     *         which rank to look for - only used if {@code rankOption} is {@link RankOption#SPECIFIC_RANK}
+     * @param optionKey
+     *         an object representing a unique key for the option within its context
+     */
+    public OptionCacheKey(@Nonnull RankContext rankContext, @Nonnull RankOption rankOption, int requestedRank, @Nonnull OptionKey optionKey) {
+        checkNotNull(rankContext);
+        checkNotNull(rankOption);
+        checkNotNull(optionKey);
+        checkArgument(requestedRank >= 0);
+        this.rankOption = rankOption;
+        this.hierarchy = rankContext.getHierarchy();
+        this.optionKey = optionKey;
+        this.userId = rankContext.highestRankName();
+        this.ranks = rankContext.getRanks();
+        switch (rankOption) {
+            case HIGHEST_RANK:
+                this.requestedRankName = userId;
+                break;
+            case LOWEST_RANK:
+                this.requestedRankName = rankContext.lowestRankName();
+                break;
+            default:
+                this.requestedRankName = rankContext.rankName(requestedRank);
+        }
     }
 
     @Nonnull
@@ -107,6 +152,7 @@ public class OptionCacheKey {
         this.requestedRankName = cacheKey.getRequestedRankName();
         this.optionKey = cacheKey.getOptionKey();
         this.userId = cacheKey.getUserId();
+        this.ranks = cacheKey.ranks;
     }
 
     public UserHierarchy getHierarchy() {
@@ -125,6 +171,17 @@ public class OptionCacheKey {
         return userId;
     }
 
+    /**
+     * Returns the rank names of the hierarchy for the current user, ordered by rank with the highest rank at index 0.  These are the names captured by
+     * the {@link RankContext} this key was constructed from, or if it was constructed from a {@link UserHierarchy}, are resolved from the hierarchy
+     *
+     * @return the rank names of the hierarchy for the current user, ordered by rank with the highest rank at index 0
+     */
+    @Nonnull
+    public ImmutableList<String> getRanks() {
+        return (ranks != null) ? ranks : hierarchy.ranksForCurrentUser();
+    }
+
     /**
      * Constructs a copy with {@link #requestedRankName} changed to {@code rankName}.  The {@link #rankOption} may be forced to {@link
      * RankOption#SPECIFIC_RANK}
@@ -145,6 +202,7 @@ public class OptionCacheKey {
         this.hierarchy = cacheKey.getHierarchy();
         this.rankOption = rankOption;
         this.userId = cacheKey.getUserId();
+        this.ranks = cacheKey.ranks;
     }
 
     public RankOption getRankOption() {
@@ -171,7 +229,7 @@ public class OptionCacheKey {
         if (rankOption != that.rankOption) {
             return false;
         }
-        if (userId != that.userId) {
+        if (!userId.equals(that.userId)) {
             return false;
         }
 
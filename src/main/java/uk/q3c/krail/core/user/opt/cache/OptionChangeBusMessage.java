@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.core.user.opt.cache;
+
+import uk.q3c.krail.core.eventbus.BusMessage;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Published on the {@code @GlobalBus} by {@link OptionCache} when an option value is written or deleted.  The {@link OptionCacheKey} identifies the
+ * option, the hierarchy and the rank which changed, so that a subscriber can decide whether the change affects the user it holds values for.
+ * <p>
+ * Created by David Sowerby on 16/10/15.
+ */
+@Immutable
+public class OptionChangeBusMessage implements BusMessage {
+
+    private final OptionCacheKey cacheKey;
+
+    public OptionChangeBusMessage(@Nonnull OptionCacheKey cacheKey) {
+        checkNotNull(cacheKey);
+        this.cacheKey = cacheKey;
+    }
+
+    @Nonnull
+    public OptionCacheKey getCacheKey() {
+        return cacheKey;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.core.user.profile;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import net.engio.mbassy.listener.Handler;
+import net.engio.mbassy.listener.Listener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.q3c.krail.core.user.opt.OptionModule;
+import uk.q3c.krail.core.user.status.UserStatusBusMessage;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Default implementation for {@link RankContextProvider}, which holds a {@link RankContext} for each {@link UserHierarchy} it is asked for, and
+ * discards them all when a {@link UserStatusBusMessage} is received.  It is bound in {@link OptionModule} as VaadinSessionScoped, so the contexts it holds
+ * always belong to the session's user.
+ * <p>
+ * Contexts are held by {@link UserHierarchy#persistenceName()}, so that every instance of a hierarchy in the session shares the context captured from
+ * the first.  Once a context has been captured, an option can therefore be read without resolving the user again, even by a newly constructed
+ * {@link uk.q3c.krail.core.user.opt.Option}, or from a thread which does not hold the session lock.
+ * <p>
+ * Created by David Sowerby on 16/10/15.
+ */
+@ThreadSafe
+@Listener
+public class DefaultRankContextProvider implements RankContextProvider {
+    private static Logger log = LoggerFactory.getLogger(DefaultRankContextProvider.class);
+    private final Cache<String, RankContext> contexts = CacheBuilder.newBuilder()
+                                                                    .build();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Nonnull
+    @Override
+    public RankContext get(@Nonnull UserHierarchy hierarchy) {
+        checkNotNull(hierarchy);
+        String name = hierarchy.persistenceName();
+        RankContext context = contexts.getIfPresent(name);
+        if (context == null) {
+            // a race here just captures the same ranks twice
+            context = RankContext.of(hierarchy);
+            contexts.put(name, context);
+        }
+        return context;
+    }
+
+    @Handler
+    public void userStatusChanged(UserStatusBusMessage busMessage) {
+        log.debug("user status changed, discarding rank contexts");
+        contexts.invalidateAll();
+    }
+}
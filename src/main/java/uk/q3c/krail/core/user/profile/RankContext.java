@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.core.user.profile;
+
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The rank names of a {@link UserHierarchy} for the current user, captured once with a single call to {@link UserHierarchy#ranksForCurrentUser()}.
+ * Reading a rank name from a RankContext needs no subject lookup, locking or allocation, which a call to the hierarchy itself may need.
+ * <p>
+ * A RankContext is only valid for as long as the user it was captured for - see {@link RankContextProvider} for how it is kept up to date
+ * <p>
+ * Created by David Sowerby on 16/10/15.
+ */
+@Immutable
+public class RankContext {
+
+    private final UserHierarchy hierarchy;
+    private final ImmutableList<String> ranks;
+
+    public RankContext(@Nonnull UserHierarchy hierarchy, @Nonnull ImmutableList<String> ranks) {
+        checkNotNull(hierarchy);
+        checkNotNull(ranks);
+        checkArgument(!ranks.isEmpty(), "a hierarchy must have at least one rank");
+        this.hierarchy = hierarchy;
+        this.ranks = ranks;
+    }
+
+    /**
+     * Captures the ranks of {@code hierarchy} for the current user
+     *
+     * @param hierarchy
+     *         the hierarchy to capture
+     *
+     * @return a RankContext for {@code hierarchy} and the current user
+     */
+    @Nonnull
+    public static RankContext of(@Nonnull UserHierarchy hierarchy) {
+        checkNotNull(hierarchy);
+        return new RankContext(hierarchy, hierarchy.ranksForCurrentUser());
+    }
+
+    @Nonnull
+    public UserHierarchy getHierarchy() {
+        return hierarchy;
+    }
+
+    /**
+     * The rank names, ordered by rank, with the highest rank at index 0
+     *
+     * @return the rank names, ordered by rank, with the highest rank at index 0
+     */
+    @Nonnull
+    public ImmutableList<String> getRanks() {
+        return ranks;
+    }
+
+    /**
+     * Returns the name of the rank at {@code hierarchyRank}
+     *
+     * @param hierarchyRank
+     *         the rank (index) which is required.
+     *
+     * @return the name of the rank at {@code hierarchyRank}
+     *
+     * @throws IllegalArgumentException
+     *         if {@code hierarchyRank} is out of bounds
+     */
+    @Nonnull
+    public String rankName(int hierarchyRank) {
+        checkArgument(hierarchyRank >= 0, "hierarchyRank must be 0 or greater");
+        if (hierarchyRank >= ranks.size()) {
+            throw new IllegalArgumentException("Hierarchy level of " + hierarchyRank + " is too high");
+        }
+        return ranks.get(hierarchyRank);
+    }
+
+    @Nonnull
+    public String highestRankName() {
+        return ranks.get(0);
+    }
+
+    @Nonnull
+    public String lowestRankName() {
+        return ranks.get(ranks.size() - 1);
+    }
+
+    @Override
+    public String toString() {
+        return "RankContext{" +
+                "hierarchy=" + hierarchy +
+                ", ranks=" + ranks +
+                '}';
+    }
+}
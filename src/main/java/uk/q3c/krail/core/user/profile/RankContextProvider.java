@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.core.user.profile;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Provides a {@link RankContext} for a {@link UserHierarchy}, so that the ranks of the current user need not be resolved from the hierarchy on every
+ * option read.  Implementations must provide a new RankContext when the user changes.
+ * <p>
+ * Created by David Sowerby on 16/10/15.
+ */
+public interface RankContextProvider {
+
+    /**
+     * Returns the RankContext for {@code hierarchy} and the current user
+     *
+     * @param hierarchy
+     *         the hierarchy to return the context for
+     *
+     * @return the RankContext for {@code hierarchy} and the current user
+     */
+    @Nonnull
+    RankContext get(@Nonnull UserHierarchy hierarchy);
+}
@@ -22,14 +22,20 @@ import uk.q3c.krail.core.config.ConfigurationException;
 import uk.q3c.krail.i18n.CurrentLocale;
 import uk.q3c.krail.i18n.I18NKey;
 import uk.q3c.krail.i18n.Translate;
+import uk.q3c.util.CompiledMessage;
 import uk.q3c.util.MessageFormat;
 
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
 import javax.validation.MessageInterpolator;
 import javax.validation.constraints.Min;
 import java.lang.annotation.Annotation;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Krail specific implementation of {@link MessageInterpolator}.  This implementation supports the following uses of the JSR303 annotation message
@@ -46,14 +52,20 @@ import java.util.Optional;
  * see also: http://krail.readthedocs.org/en/latest/tutorial14/ and <br>
  * http://krail.readthedocs.org/en/latest/devguide14/
  * <p>
- * <p>
+ * Deciding which of these applies involves package name comparisons, a reflective read of the annotation's default message and possibly a class
+ * lookup, so the decision is made once for each combination of annotation type and message template, and held as an {@link InterpolationPlan}.  The
+ * message templates come from annotation instances, so there is a limited number of them.
  * <p>
  * Created by David Sowerby on 04/02/15.
  */
 public class KrailInterpolator implements MessageInterpolator {
+    private static final String bvalPackageName = ClassUtils.getPackageCanonicalName(Email.class);
+    private static final String javaxPackageName = ClassUtils.getPackageCanonicalName(Min.class);
     private static Logger log = LoggerFactory.getLogger(KrailInterpolator.class);
     private final CurrentLocale currentLocale;
+    private final ConcurrentMap<Class<? extends Annotation>, ConcurrentMap<String, InterpolationPlan>> plans = new ConcurrentHashMap<>();
     private final Translate translate;
+    private final Map<String, CompiledMessage> compiledPatterns = new ConcurrentHashMap<>();
 
     private Map<Class<? extends Annotation>, I18NKey> javaxValidationSubstitutes;
 
@@ -100,18 +112,53 @@ public class KrailInterpolator implements MessageInterpolator {
      */
     @Override
     public String interpolate(String patternOrKey, Context context, Locale locale) {
+        Class<? extends Annotation> annotationClass = annotationClass(context);
+        ConcurrentMap<String, InterpolationPlan> templatePlans = plans.get(annotationClass);
+        if (templatePlans == null) {
+            templatePlans = plans.computeIfAbsent(annotationClass, a -> new ConcurrentHashMap<>());
+        }
+        InterpolationPlan plan = templatePlans.get(patternOrKey);
+        if (plan == null) {
+            plan = templatePlans.computeIfAbsent(patternOrKey, t -> plan(t, context));
+        }
+        switch (plan.getBranch()) {
+            case PATTERN:
+                return plan.getPattern()
+                           .format(context.getConstraintDescriptor()
+                                          .getAttributes()
+                                          .get("value"));
+            case KEY:
+                return translateKey(plan.getKey(), context, locale);
+            default:
+                return processCustomAnnotation(patternOrKey, context, locale);
+        }
+    }
 
-
+    /**
+     * Decides how {@code patternOrKey} should be interpolated for the annotation in {@code context}.  The result depends only on the annotation type and
+     * {@code patternOrKey}, and is cached by {@link #interpolate(String, Context, Locale)}
+     *
+     * @param patternOrKey
+     *         The message pattern, or if it enclosed in "{}", the key to a message pattern
+     * @param context
+     *         contextual information related to the interpolation
+     *
+     * @return the plan for interpolating {@code patternOrKey}
+     */
+    protected InterpolationPlan plan(String patternOrKey, Context context) {
         //standard annotation with substituted key unless it has a custom message
         if (isJavaxAnnotation(context) || isBValAnnotation(context)) {
             if (isCustomMessage(patternOrKey, context)) {
-                return processStandardAnnotationWithCustomMessage(patternOrKey, context, locale);
+                if (isPattern(patternOrKey)) {
+                    return InterpolationPlan.pattern(compiledPattern(patternOrKey));
+                }
+                return InterpolationPlan.key(findI18NKey(patternOrKey));
             } else {
-                I18NKey i18NKey = krailSubstitute(patternOrKey, context).get();
-                return translateKey(i18NKey, context, locale);
+                return InterpolationPlan.key(krailSubstitute(patternOrKey, context).get());
             }
         }
-        return processCustomAnnotation(patternOrKey, context, locale);
+        // the messageKey is an attribute of the annotation instance, so has to be read each time
+        return InterpolationPlan.CUSTOM;
     }
 
 
@@ -151,9 +198,9 @@ public class KrailInterpolator implements MessageInterpolator {
      */
     protected String processStandardAnnotationWithCustomMessage(String patternOrKey, Context context, Locale locale) {
         if (isPattern(patternOrKey)) {
-            return MessageFormat.format(patternOrKey, context.getConstraintDescriptor()
-                                                             .getAttributes()
-                                                             .get("value"));
+            return compiledPattern(patternOrKey).format(context.getConstraintDescriptor()
+                                                               .getAttributes()
+                                                               .get("value"));
         }
 
         I18NKey i18NKey = findI18NKey(patternOrKey);
@@ -230,7 +277,6 @@ public class KrailInterpolator implements MessageInterpolator {
      */
     protected boolean isJavaxAnnotation(Context context) {
         String annotationClassName = annotationClass(context).getName();
-        String javaxPackageName = ClassUtils.getPackageCanonicalName(Min.class);
         return annotationClassName.startsWith(javaxPackageName);
     }
 
@@ -258,7 +304,6 @@ public class KrailInterpolator implements MessageInterpolator {
      */
     protected boolean isBValAnnotation(Context context) {
         String annotationClassName = annotationClass(context).getName();
-        String bvalPackageName = ClassUtils.getPackageCanonicalName(Email.class);
         return annotationClassName.startsWith(bvalPackageName);
     }
 
@@ -302,7 +347,19 @@ public class KrailInterpolator implements MessageInterpolator {
      * @return
      */
     private String formatPattern(String patternOrKey) {
-        return MessageFormat.format(patternOrKey);
+        return compiledPattern(patternOrKey).format();
+    }
+
+    /**
+     * Custom patterns come from annotation instances, so there is a limited number of them - each is parsed once and held for re-use
+     *
+     * @param pattern
+     *         the pattern to parse
+     *
+     * @return the parsed pattern
+     */
+    protected CompiledMessage compiledPattern(String pattern) {
+        return compiledPatterns.computeIfAbsent(pattern, MessageFormat::compile);
     }
 
     /**
@@ -339,5 +396,50 @@ public class KrailInterpolator implements MessageInterpolator {
         return false;
     }
 
+    /**
+     * The outcome of deciding how to interpolate a message template for an annotation type - either a custom pattern (already parsed), an I18NKey to
+     * translate, or a custom Krail annotation whose messageKey is read from the annotation instance
+     */
+    @Immutable
+    protected static class InterpolationPlan {
+        public static final InterpolationPlan CUSTOM = new InterpolationPlan(Branch.CUSTOM, null, null);
+        private final Branch branch;
+        private final I18NKey key;
+        private final CompiledMessage pattern;
+
+        private InterpolationPlan(Branch branch, @Nullable CompiledMessage pattern, @Nullable I18NKey key) {
+            this.branch = branch;
+            this.pattern = pattern;
+            this.key = key;
+        }
+
+        public static InterpolationPlan pattern(@Nonnull CompiledMessage pattern) {
+            return new InterpolationPlan(Branch.PATTERN, pattern, null);
+        }
 
+        /**
+         * @param key
+         *         the key to translate.  This may be null if a custom key could not be found, in which case the warning from {@link
+         *         KrailInterpolator#findI18NKey} is logged only once
+         */
+        public static InterpolationPlan key(@Nullable I18NKey key) {
+            return new InterpolationPlan(Branch.KEY, null, key);
+        }
+
+        public Branch getBranch() {
+            return branch;
+        }
+
+        @Nullable
+        public I18NKey getKey() {
+            return key;
+        }
+
+        @Nullable
+        public CompiledMessage getPattern() {
+            return pattern;
+        }
+
+        public enum Branch {PATTERN, KEY, CUSTOM}
+    }
 }
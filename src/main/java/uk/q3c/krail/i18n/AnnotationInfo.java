@@ -11,24 +11,75 @@
 
 package uk.q3c.krail.i18n;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
 
 /**
+ * Holds the I18N annotations for a Field, and the values resolved from them.  An instance is created once for each annotated field of a class (see
+ * {@link I18NScanPlan}) and shared by every scan of an instance of that class, so the values are resolved from the annotations only once, when first
+ * requested.
+ * <p>
+ * There is no guarantee of evaluation order, so if a field has, for example, two annotations with a caption() value, it is uncertain which will be selected
+ * <p>
  * Created by David Sowerby on 15/05/15.
  */
 public class AnnotationInfo {
 
-    private final Field field;
+    private static Logger log = LoggerFactory.getLogger(AnnotationInfo.class);
     private final List<Annotation> annotations;
+    private final Field field;
+    private volatile Values values;
 
     public AnnotationInfo(Field field) {
         this.field = field;
         this.annotations = new ArrayList<>();
     }
 
+    /**
+     * Returns an I18NKey value for the {@code annotationMethod} or Optional.empty() if none is found (which could be either the method not being present
+     * or present but not returning a value.
+     */
+    static Optional<I18NKey> retrieveKey(Annotation i18NAnnotation, String annotationMethod) {
+        try {
+            Method method = i18NAnnotation.annotationType()
+                                          .getDeclaredMethod(annotationMethod);
+            return Optional.ofNullable((I18NKey) method.invoke(i18NAnnotation));
+        } catch (NoSuchMethodException e) {
+            return Optional.empty();
+        } catch (Exception e) {
+            log.error("Unable to read annotation", e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Returns a locale from {@code i18NAnnotation} if it has one, or Optional.empty() if it has not
+     */
+    static Optional<Locale> retrieveLocale(Annotation i18NAnnotation) {
+        try {
+            Method method = i18NAnnotation.annotationType()
+                                          .getDeclaredMethod("locale");
+            String tag = (String) method.invoke(i18NAnnotation);
+            if ((tag == null) || (tag.isEmpty())) {
+                return Optional.empty();
+            }
+            return Optional.of(Locale.forLanguageTag(tag));
+        } catch (NoSuchMethodException e) {
+            return Optional.empty();
+        } catch (Exception e) {
+            log.error("Unable to read annotation", e);
+            return Optional.empty();
+        }
+    }
+
     public List<Annotation> getAnnotations() {
         return annotations;
     }
@@ -36,4 +87,66 @@ public class AnnotationInfo {
     public Field getField() {
         return field;
     }
+
+    public Optional<I18NKey> getCaptionKey() {
+        return values().captionKey;
+    }
+
+    public Optional<I18NKey> getDescriptionKey() {
+        return values().descriptionKey;
+    }
+
+    public Optional<I18NKey> getValueKey() {
+        return values().valueKey;
+    }
+
+    /**
+     * Returns the Locale specified by the annotations, or Optional.empty() if none is specified
+     *
+     * @return the Locale specified by the annotations, or Optional.empty() if none is specified
+     */
+    public Optional<Locale> getLocale() {
+        return values().locale;
+    }
+
+    private Values values() {
+        Values current = values;
+        if (current == null) {
+            // a race just means the values are resolved twice, with the same result
+            current = new Values(annotations);
+            values = current;
+        }
+        return current;
+    }
+
+    /**
+     * The values resolved from the annotations.  If there is a value, it is used, but an existing value is not overwritten with empty
+     */
+    private static class Values {
+        private Optional<I18NKey> captionKey = Optional.empty();
+        private Optional<I18NKey> descriptionKey = Optional.empty();
+        private Optional<Locale> locale = Optional.empty();
+        private Optional<I18NKey> valueKey = Optional.empty();
+
+        private Values(List<Annotation> annotations) {
+            for (Annotation annotation : annotations) {
+                Optional<I18NKey> optKey = retrieveKey(annotation, "caption");
+                if (optKey.isPresent()) {
+                    captionKey = optKey;
+                }
+                optKey = retrieveKey(annotation, "description");
+                if (optKey.isPresent()) {
+                    descriptionKey = optKey;
+                }
+                optKey = retrieveKey(annotation, "value");
+                if (optKey.isPresent()) {
+                    valueKey = optKey;
+                }
+                Optional<Locale> optLocale = retrieveLocale(annotation);
+                if (optLocale.isPresent()) {
+                    locale = optLocale;
+                }
+            }
+        }
+    }
 }
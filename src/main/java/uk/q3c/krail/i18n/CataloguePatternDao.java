@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.i18n;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A read-only {@link PatternDao} for large translation catalogues, which reads patterns from a {@link PatternCatalogue} file (usually produced by
+ * {@link PatternUtility#exportCatalogue}).  The file is memory mapped, so patterns are neither loaded nor decoded until they are requested.
+ * <p>
+ * The catalogue is opened when first used.  If the file is missing or is not a valid catalogue, an error is logged once, and this DAO then behaves as if it
+ * were empty.  A catalogue cannot be modified, so {@link #write} and {@link #deleteValue} throw an UnsupportedOperationException - a new catalogue must
+ * be exported instead.
+ * <p>
+ * {@link #version()} is the last modified time of the file, so that {@link PatternSourceWatcher} detects a newly exported catalogue, and {@link
+ * #refresh()} then causes the new file to be opened when next used.
+ * <p>
+ * Created by David Sowerby on 16/10/15.
+ */
+@Singleton
+@ThreadSafe
+public class CataloguePatternDao implements PatternDao {
+    private static Logger log = LoggerFactory.getLogger(CataloguePatternDao.class);
+    private final String path;
+    private volatile Optional<PatternCatalogue> catalogue;
+
+    @Inject
+    public CataloguePatternDao(@CataloguePatternSource String path) {
+        this.path = path;
+    }
+
+    /**
+     * Not supported, a catalogue is read-only
+     *
+     * @throws UnsupportedOperationException
+     *         always
+     */
+    @Override
+    public void write(@Nonnull PatternCacheKey cacheKey, @Nonnull String value) {
+        throw new UnsupportedOperationException("A pattern catalogue is read-only");
+    }
+
+    /**
+     * Not supported, a catalogue is read-only
+     *
+     * @throws UnsupportedOperationException
+     *         always
+     */
+    @Nonnull
+    @Override
+    public Optional<String> deleteValue(@Nonnull PatternCacheKey cacheKey) {
+        throw new UnsupportedOperationException("A pattern catalogue is read-only");
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Nonnull
+    @Override
+    public Optional<String> getValue(@Nonnull PatternCacheKey cacheKey) {
+        checkNotNull(cacheKey);
+        Optional<PatternCatalogue> current = catalogue();
+        if (!current.isPresent()) {
+            return Optional.empty();
+        }
+        return current.get()
+                      .get((Enum<?>) cacheKey.getKey(), cacheKey.getActualLocale());
+    }
+
+    private Optional<PatternCatalogue> catalogue() {
+        Optional<PatternCatalogue> current = catalogue;
+        if (current == null) {
+            synchronized (this) {
+                current = catalogue;
+                if (current == null) {
+                    current = open();
+                    catalogue = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private Optional<PatternCatalogue> open() {
+        try {
+            PatternCatalogue opened = PatternCatalogue.open(Paths.get(path));
+            log.debug("Pattern catalogue {} opened with {} patterns", path, opened.entryCount());
+            return Optional.of(opened);
+        } catch (IOException | I18NException e) {
+            log.error("Unable to open pattern catalogue {}, no patterns will be provided from it", path, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Returns the path to the catalogue file
+     *
+     * @return the path to the catalogue file
+     */
+    @Override
+    public String connectionUrl() {
+        return path;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long count() {
+        return catalogue().map(PatternCatalogue::entryCount)
+                          .orElse(0L);
+    }
+
+    /**
+     * Returns the last modified time of the catalogue file, or 0 if it cannot be read
+     *
+     * @return the last modified time of the catalogue file, or 0 if it cannot be read
+     */
+    @Override
+    public long version() {
+        Path file = Paths.get(path);
+        try {
+            return Files.getLastModifiedTime(file)
+                        .toMillis();
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+
+    /**
+     * Discards the opened catalogue, so that the file is opened again when next used.  A mapping of the previous file remains valid for as long as it is
+     * referenced
+     */
+    @Override
+    public synchronized void refresh() {
+        catalogue = null;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.i18n;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ResourceBundle;
+
+/**
+ * An application wide store of the values of class based bundles ({@link EnumResourceBundle}), used by {@link DefaultClassPatternDao}.  A DAO is
+ * created for each pattern load, so the values it uses are held here, where they can be shared by all DAO instances and all sessions.
+ * <p>
+ * Values are held by bundle name - that is, the expanded base name (which reflects the path options of the DAO) combined with the Locale - so a user with
+ * different path options finds different values, rather than those loaded for another user.
+ * <p>
+ * Created by David Sowerby on 16/10/15.
+ */
+public interface ClassBundleCache {
+
+    /**
+     * Returns the values of the bundle for {@code expandedBaseName}, {@code keyClass} and {@code locale}, loading them on first use
+     *
+     * @param expandedBaseName
+     *         the base name of the bundle, including its package
+     * @param keyClass
+     *         the I18NKey class of the bundle
+     * @param locale
+     *         the Locale of the bundle
+     * @param control
+     *         the control used to locate and load the bundle
+     *
+     * @return the values of the bundle, empty if there is no bundle, or null if the bundle could not be loaded
+     */
+    @Nullable
+    Map<? extends Enum<?>, String> values(@Nonnull String expandedBaseName, @Nonnull Class<? extends Enum<?>> keyClass, @Nonnull Locale locale,
+                                          @Nonnull ResourceBundle.Control control);
+
+    /**
+     * Returns true if a bundle for {@code expandedBaseName} and {@code locale} can be loaded by {@code control}.  The result is held until {@link
+     * #refresh()} is called
+     *
+     * @param expandedBaseName
+     *         the base name of the bundle, including its package
+     * @param locale
+     *         the Locale of the bundle
+     * @param control
+     *         the control used to locate the bundle
+     *
+     * @return true if a bundle for {@code expandedBaseName} and {@code locale} can be loaded
+     */
+    boolean bundleExists(@Nonnull String expandedBaseName, @Nonnull Locale locale, @Nonnull ResourceBundle.Control control);
+
+    /**
+     * Counts a request for a value which was not found
+     */
+    void recordMiss();
+
+    /**
+     * Returns the number of requests for a value which was not found, see {@link #recordMiss()}
+     *
+     * @return the number of requests for a value which was not found
+     */
+    long getMissCount();
+
+    /**
+     * Clears the bundle values held, so that they are loaded again when next required
+     */
+    void clear();
+
+    /**
+     * Clears the bundle values held, the record of which bundles exist, and the {@link ResourceBundle} cache, so that bundles which have been changed,
+     * added or removed are loaded again when next required
+     */
+    void refresh();
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.i18n;
+
+import javax.annotation.Nonnull;
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.Locale;
+
+/**
+ * An application wide cache of {@link Collator} instances for each Locale, and of the {@link CollationKey} for each Locale and label, so that labels
+ * which are sorted in many sessions (for example those of the user sitemap) need only have their collation keys calculated once.
+ * <p>
+ * Created by David Sowerby on 16/10/15.
+ */
+public interface CollatorCache {
+
+    /**
+     * Returns a Collator for {@code locale}, which belongs to the caller and may be modified.  The Collator used to create CollationKeys (see {@link
+     * #collationKey}) is not returned, so that changing the settings of a returned Collator cannot affect sorting elsewhere
+     *
+     * @param locale
+     *         the Locale for the Collator
+     *
+     * @return a new Collator for {@code locale}
+     */
+    @Nonnull
+    Collator collator(@Nonnull Locale locale);
+
+    /**
+     * Returns the CollationKey for {@code label}, created by the Collator for {@code locale}.  Keys for the same Locale can be compared with each other
+     *
+     * @param locale
+     *         the Locale for the Collator
+     * @param label
+     *         the label to create a CollationKey for
+     *
+     * @return the CollationKey for {@code label}
+     */
+    @Nonnull
+    CollationKey collationKey(@Nonnull Locale locale, @Nonnull String label);
+
+    /**
+     * Returns the number of CollationKeys currently held
+     *
+     * @return the number of CollationKeys currently held
+     */
+    long size();
+
+    /**
+     * Removes all the CollationKeys held
+     */
+    void clear();
+}
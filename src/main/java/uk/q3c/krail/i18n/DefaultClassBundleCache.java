@@ -0,0 +1,224 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.i18n;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Default implementation of {@link ClassBundleCache}.
+ * <p>
+ * A missing bundle is not an error - there may well be no bundle for some of the candidate Locales.  Whether a bundle exists is therefore determined
+ * (once for each bundle name) by looking for its class or properties file, rather than by letting {@link ResourceBundle#getBundle} throw a
+ * MissingResourceException.
+ * <p>
+ * The values of each bundle are copied, once for each bundle name and key class, into an immutable map, so that a pattern lookup is a single map read,
+ * and the {@link EnumResourceBundle} instance (which is shared through the ResourceBundle cache) is not modified concurrently.
+ * <p>
+ * Created by David Sowerby on 16/10/15.
+ */
+@Singleton
+@ThreadSafe
+public class DefaultClassBundleCache implements ClassBundleCache {
+
+    private static Logger log = LoggerFactory.getLogger(DefaultClassBundleCache.class);
+    // keyed by the bundle name, which is unique for each expanded base name and Locale
+    private final ConcurrentMap<String, Boolean> bundleExists = new ConcurrentHashMap<>();
+    // a bundle which could not be loaded is not held, so that it is tried again when next required
+    private final ConcurrentMap<BundleKey, Map<? extends Enum<?>, String>> bundleValues = new ConcurrentHashMap<>();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Nullable
+    @Override
+    public Map<? extends Enum<?>, String> values(@Nonnull String expandedBaseName, @Nonnull Class<? extends Enum<?>> keyClass, @Nonnull Locale
+            locale, @Nonnull ResourceBundle.Control control) {
+        checkNotNull(expandedBaseName);
+        checkNotNull(keyClass);
+        checkNotNull(locale);
+        checkNotNull(control);
+        BundleKey bundleKey = new BundleKey(control.toBundleName(expandedBaseName, locale), keyClass);
+        return bundleValues.computeIfAbsent(bundleKey, k -> loadValues(expandedBaseName, keyClass, locale, control));
+    }
+
+    /**
+     * Loads the values of the bundle for {@code expandedBaseName}, {@code keyClass} and {@code locale}
+     *
+     * @return an immutable copy of the bundle values, empty if there is no bundle, or null if the bundle could not be loaded
+     */
+    protected Map<? extends Enum<?>, String> loadValues(@Nonnull String expandedBaseName, @Nonnull Class<? extends Enum<?>> keyClass, @Nonnull Locale
+            locale, @Nonnull ResourceBundle.Control control) {
+        log.debug("loading values for bundle {}, key class {}, Locale {}, using control: {}", expandedBaseName, keyClass, locale, control.getClass()
+                                                                                                                                     .getSimpleName());
+        if (!bundleExists(expandedBaseName, locale, control)) {
+            return ImmutableMap.of();
+        }
+        try {
+            ResourceBundle bundle = ResourceBundle.getBundle(expandedBaseName, locale, classLoader(), control);
+            return bundleValues(bundle, keyClass);
+        } catch (Exception e) {
+            log.warn("returning empty value, as loading bundle {} returned exception {} with message '{}'", expandedBaseName, e, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Returns an immutable copy of the values in {@code bundle}.  The bundle instance is shared through the ResourceBundle cache, so it is locked while
+     * it is loaded and copied
+     */
+    @SuppressWarnings("unchecked")
+    protected Map<? extends Enum<?>, String> bundleValues(@Nonnull ResourceBundle bundle, @Nonnull Class<?> keyClass) {
+        EnumResourceBundle enumBundle = (EnumResourceBundle) bundle;
+        synchronized (enumBundle) {
+            enumBundle.setKeyClass(keyClass);
+            enumBundle.load();
+            return Maps.immutableEnumMap(enumBundle.getMap());
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The fallback Locale used by {@link ResourceBundle#getBundle} is also checked
+     */
+    @Override
+    public boolean bundleExists(@Nonnull String expandedBaseName, @Nonnull Locale locale, @Nonnull ResourceBundle.Control control) {
+        checkNotNull(expandedBaseName);
+        checkNotNull(locale);
+        checkNotNull(control);
+        return bundleExists.computeIfAbsent(control.toBundleName(expandedBaseName, locale), bundleName -> {
+            boolean exists = findBundle(control, expandedBaseName, locale);
+            if (!exists) {
+                Locale fallback = control.getFallbackLocale(expandedBaseName, locale);
+                exists = fallback != null && !fallback.equals(locale) && findBundle(control, expandedBaseName, fallback);
+            }
+            log.debug("bundle '{}' exists: {}", bundleName, exists);
+            return exists;
+        });
+    }
+
+    /**
+     * Looks for the class or properties file of a bundle for each of the candidate Locales, without loading anything.  A format other than the standard
+     * ones is assumed to be present, and left to {@link ResourceBundle#getBundle} to find
+     */
+    private boolean findBundle(ResourceBundle.Control control, String expandedBaseName, Locale locale) {
+        ClassLoader classLoader = classLoader();
+        for (Locale candidate : control.getCandidateLocales(expandedBaseName, locale)) {
+            String bundleName = control.toBundleName(expandedBaseName, candidate);
+            for (String format : control.getFormats(expandedBaseName)) {
+                String suffix;
+                if (format.equals("java.class")) {
+                    suffix = "class";
+                } else if (format.equals("java.properties")) {
+                    suffix = "properties";
+                } else {
+                    return true;
+                }
+                if (classLoader.getResource(control.toResourceName(bundleName, suffix)) != null) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The class loader used to find and load bundles.  It is passed explicitly to {@link ResourceBundle#getBundle}, so that the bundle loaded is the one
+     * found by {@link #findBundle}
+     */
+    private ClassLoader classLoader() {
+        ClassLoader classLoader = DefaultClassBundleCache.class.getClassLoader();
+        return (classLoader == null) ? ClassLoader.getSystemClassLoader() : classLoader;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void recordMiss() {
+        misses.increment();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear() {
+        bundleValues.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void refresh() {
+        bundleExists.clear();
+        clear();
+        ResourceBundle.clearCache(classLoader());
+    }
+
+    /**
+     * Identifies the values of a bundle - the bundle name alone is not enough, as the values are loaded for a specific key class
+     */
+    private static class BundleKey {
+        private final String bundleName;
+        private final Class<?> keyClass;
+
+        private BundleKey(String bundleName, Class<?> keyClass) {
+            this.bundleName = bundleName;
+            this.keyClass = keyClass;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            BundleKey other = (BundleKey) o;
+            return bundleName.equals(other.bundleName) && keyClass.equals(other.keyClass);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(bundleName, keyClass);
+        }
+    }
+}
@@ -11,6 +11,9 @@
 
 package uk.q3c.krail.i18n;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.Striped;
 import com.google.inject.Inject;
 import com.vaadin.data.Property;
 import org.apache.commons.lang3.ClassUtils;
@@ -29,8 +32,12 @@ import java.lang.annotation.Annotation;
 import java.nio.charset.Charset;
 import java.nio.charset.CharsetEncoder;
 import java.nio.charset.CodingErrorAction;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 import java.util.ResourceBundle;
+import java.util.concurrent.locks.Lock;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -38,6 +45,11 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * A {@link PatternDao} implementation used with {@link EnumResourceBundle} instances held within code.  Writing back to source code is clearly not an option,
  * but this implementation can be set up to write source code files to a defined external directory.
  * <p>
+ * An instance of this DAO is created for each pattern load, so bundle values are not held here, but by the application wide {@link ClassBundleCache}.
+ * The bundle location depends on {@link #optionKeyUseKeyPath} and {@link #optionPathToValues}, which are resolved for the current user on each call, and
+ * the expanded bundle name is used to identify the values in the {@link ClassBundleCache}.  A missing bundle is not an error, and is counted (see {@link
+ * #getMissCount()}) rather than logged.
+ * <p>
  * Created by David Sowerby on 27/07/15.
  */
 public class DefaultClassPatternDao implements ClassPatternDao, OptionContext {
@@ -46,17 +58,21 @@ public class DefaultClassPatternDao implements ClassPatternDao, OptionContext {
     public static final OptionKey<Boolean> optionKeyUseKeyPath = new OptionKey<>(true, DefaultClassPatternDao.class, LabelKey.Use_Key_Path, DescriptionKey
             .Use_Key_Path);
     private static Logger log = LoggerFactory.getLogger(DefaultClassPatternDao.class);
+    // instances are not scoped, so writes to the same file are serialised across all of them
+    private static final Striped<Lock> writeLocks = Striped.lock(16);
     protected Class<? extends Annotation> source;
+    private ClassBundleCache bundleCache;
     private ClassBundleControl control;
     private Option option;
     private File writeFile;
 
 
     @Inject
-    protected DefaultClassPatternDao(ClassBundleControl control, Option option) {
+    protected DefaultClassPatternDao(ClassBundleControl control, Option option, ClassBundleCache bundleCache) {
         super();
         this.control = control;
         this.option = option;
+        this.bundleCache = bundleCache;
         source = ClassPatternSource.class;
     }
 
@@ -84,6 +100,19 @@ public class DefaultClassPatternDao implements ClassPatternDao, OptionContext {
     public void write(@Nonnull PatternCacheKey cacheKey, @Nonnull String value) {
         checkNotNull(cacheKey);
         checkNotNull(value);
+        writeAll(ImmutableList.of(Maps.immutableEntry(cacheKey, value)));
+    }
+
+    /**
+     * Appends a line for each entry to {@link #getWriteFile()}, with a single open of the file.  Concurrent calls which write to the same file, from this
+     * or any other instance, are made one at a time, so that their lines are not interleaved
+     *
+     * @param entries
+     *         the cacheKey and value of each entry to write, in the order they should be written
+     */
+    @Override
+    public void writeAll(@Nonnull List<Map.Entry<PatternCacheKey, String>> entries) {
+        checkNotNull(entries);
         if (writeFile == null) {
             throw new PatternWriteException("Write file must be set");
         }
@@ -92,13 +121,17 @@ public class DefaultClassPatternDao implements ClassPatternDao, OptionContext {
         }
         String indent = "    ";
         String indent2 = indent + indent;
-        StringBuilder buf = new StringBuilder(indent2);
-        buf.append("put(")
-           .append(cacheKey.getKey()
-                           .name())
-           .append(", \"")
-           .append(value)
-           .append("\");\n");
+        StringBuilder buf = new StringBuilder();
+        for (Map.Entry<PatternCacheKey, String> entry : entries) {
+            buf.append(indent2)
+               .append("put(")
+               .append(entry.getKey()
+                            .getKey()
+                            .name())
+               .append(", \"")
+               .append(entry.getValue())
+               .append("\");\n");
+        }
 
 
         CharsetEncoder encoder = Charset.forName("UTF-8")
@@ -107,10 +140,15 @@ public class DefaultClassPatternDao implements ClassPatternDao, OptionContext {
         encoder.onUnmappableCharacter(CodingErrorAction.REPORT);
 
 
-        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(writeFile), encoder))) {
+        // append, so that earlier entries are not lost
+        Lock lock = writeLocks.get(writeFile.getAbsoluteFile());
+        lock.lock();
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(writeFile, true), encoder))) {
             writer.write(buf.toString());
         } catch (Exception e) {
             throw new PatternWriteException("failed to write pattern", e);
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -130,27 +168,48 @@ public class DefaultClassPatternDao implements ClassPatternDao, OptionContext {
     @Override
     public Optional<String> getValue(@Nonnull PatternCacheKey cacheKey) {
         checkNotNull(cacheKey);
-        // source is used to qualify the Option
-        log.debug("getValue for cacheKey {}, source '{}', using control: " + getControl().getClass()
-                                                                                         .getSimpleName(), cacheKey, source);
-        I18NKey key = (I18NKey) cacheKey.getKey();
-        String expandedBaseName = expandFromKey(key);
-        try {
-            ResourceBundle bundle = ResourceBundle.getBundle(expandedBaseName, cacheKey.getActualLocale(), getControl());
-            return Optional.of(getValue(bundle, cacheKey.getKey()));
-        } catch (Exception e) {
-            log.warn("returning empty value, as getValue() returned exception {} with message '{}'", e, e.getMessage());
-            return Optional.empty();
+        Enum<?> key = cacheKey.getKey();
+        Locale locale = cacheKey.getActualLocale();
+        String value = null;
+        if (locale != null) {
+            // source is used to qualify the Option
+            log.debug("getValue for cacheKey {}, source '{}', using control: {}", cacheKey, source, getControl().getClass()
+                                                                                                                .getSimpleName());
+            //noinspection unchecked
+            Map<? extends Enum<?>, String> values = bundleCache.values(expandFromKey((I18NKey) key), (Class<? extends Enum<?>>) key.getDeclaringClass(),
+                    locale, getControl());
+            value = (values == null) ? null : values.get(key);
         }
+        if (value == null) {
+            bundleCache.recordMiss();
+        }
+        return Optional.ofNullable(value);
+    }
+
+    /**
+     * Clears the bundle values held by the {@link ClassBundleCache}, so that they are loaded again when next required
+     */
+    public void clearCache() {
+        bundleCache.clear();
+    }
+
+    /**
+     * Clears the bundle values held by the {@link ClassBundleCache}, its record of which bundles exist, and the {@link ResourceBundle} cache, so that
+     * bundles which have been changed, added or removed are loaded again when next required
+     */
+    @Override
+    public void refresh() {
+        bundleCache.refresh();
     }
 
-    protected String getValue(@Nonnull ResourceBundle bundle, @Nonnull Enum<?> key) {
-        EnumResourceBundle enumBundle = (EnumResourceBundle) bundle;
-        //noinspection unchecked
-        enumBundle.setKeyClass(key.getClass());
-        enumBundle.load();
-        //noinspection unchecked
-        return enumBundle.getValue(key);
+    /**
+     * Returns the number of calls to {@link #getValue(PatternCacheKey)}, by any instance, which found no value, either because there is no bundle for the
+     * key and Locale, or because the bundle has no entry for the key
+     *
+     * @return the number of calls to {@link #getValue(PatternCacheKey)} which found no value
+     */
+    public long getMissCount() {
+        return bundleCache.getMissCount();
     }
 
     /**
@@ -169,19 +228,34 @@ public class DefaultClassPatternDao implements ClassPatternDao, OptionContext {
      */
     protected String expandFromKey(@Nonnull I18NKey sampleKey) {
         checkNotNull(sampleKey);
+        //use source to qualify the options, so they get their own, and not the base class
+        boolean useKeyPath = option.get(optionKeyUseKeyPath.qualifiedWith(getSourceString()));
+        String pathToValues = useKeyPath ? "" : option.get(optionPathToValues.qualifiedWith(getSourceString()));
+        return expandFromKey(sampleKey, useKeyPath, pathToValues);
+    }
+
+    /**
+     * Expands the bundle name in the same way as {@link #expandFromKey(I18NKey)}, but from the option values given, rather than those of the current
+     * user.  This is used where there is no user - for example by the {@link PatternWarmupService}, which uses the default option values
+     *
+     * @param sampleKey
+     *         any key from the I18NKey class, to give access to bundleName()
+     * @param useKeyPath
+     *         the value of {@link #optionKeyUseKeyPath}
+     * @param pathToValues
+     *         the value of {@link #optionPathToValues}
+     *
+     * @return a path constructed from the {@code sampleKey} and option values
+     */
+    public static String expandFromKey(@Nonnull I18NKey sampleKey, boolean useKeyPath, @Nonnull String pathToValues) {
+        checkNotNull(sampleKey);
+        checkNotNull(pathToValues);
         String baseName = sampleKey.bundleName();
         String packageName;
-        //use source to qualify the options, so they get their own, and not the base class
-        if (option.get(optionKeyUseKeyPath.qualifiedWith(getSourceString()))) {
+        if (useKeyPath || pathToValues.isEmpty() || pathToValues.equals(".")) {
             packageName = ClassUtils.getPackageCanonicalName(sampleKey.getClass());
-
         } else {
-            String pathOptionValue = option.get(optionPathToValues.qualifiedWith(getSourceString()));
-            if (pathOptionValue.isEmpty() || pathOptionValue.equals(".")) {
-                packageName = ClassUtils.getPackageCanonicalName(sampleKey.getClass());
-            } else {
-                packageName = pathOptionValue;
-            }
+            packageName = pathToValues;
         }
 
         return packageName.isEmpty() ? baseName : packageName + "." + baseName;
@@ -215,7 +289,7 @@ public class DefaultClassPatternDao implements ClassPatternDao, OptionContext {
 
     @Override
     public void optionValueChanged(Property.ValueChangeEvent event) {
-        //does nothing, option values are called as required
+        //does nothing, option values are called as required, and the bundle location is part of the key to held values
     }
 
     /**
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.i18n;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Maps;
+import com.google.inject.Singleton;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Default implementation of {@link CollatorCache}.  One Collator is held for each Locale requested - there are only ever as many of these as there are
+ * supported Locales.  CollationKeys are held in a Guava cache, keyed by Locale and label, and bounded by {@link #maximumSize()} with least recently used
+ * entries evicted first.
+ * <p>
+ * The JDK Collator implementations synchronise {@link Collator#getCollationKey(String)} and {@link Collator#compare(String, String)}, so a shared instance
+ * is safe to use from many threads, and a CollationKey is immutable.  The shared instance is only used to create CollationKeys - {@link #collator(Locale)}
+ * returns a copy, so that a caller can neither change the settings used for the held keys nor contend for the shared instance when sorting.
+ * <p>
+ * Created by David Sowerby on 16/10/15.
+ */
+@Singleton
+@ThreadSafe
+public class DefaultCollatorCache implements CollatorCache {
+
+    private final Cache<Map.Entry<Locale, String>, CollationKey> collationKeys;
+    private final ConcurrentMap<Locale, Collator> collators = new ConcurrentHashMap<>();
+
+    public DefaultCollatorCache() {
+        collationKeys = CacheBuilder.newBuilder()
+                                    .maximumSize(maximumSize())
+                                    .build();
+    }
+
+    /**
+     * The maximum number of CollationKeys held.  Override to change it
+     *
+     * @return the maximum number of CollationKeys held
+     */
+    protected long maximumSize() {
+        return 10000;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Nonnull
+    @Override
+    public Collator collator(@Nonnull Locale locale) {
+        checkNotNull(locale);
+        return (Collator) sharedCollator(locale).clone();
+    }
+
+    private Collator sharedCollator(Locale locale) {
+        return collators.computeIfAbsent(locale, Collator::getInstance);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Nonnull
+    @Override
+    public CollationKey collationKey(@Nonnull Locale locale, @Nonnull String label) {
+        checkNotNull(locale);
+        checkNotNull(label);
+        Map.Entry<Locale, String> key = Maps.immutableEntry(locale, label);
+        CollationKey collationKey = collationKeys.getIfPresent(key);
+        if (collationKey == null) {
+            // a concurrent miss may calculate the same key twice, which is harmless
+            collationKey = sharedCollator(locale).getCollationKey(label);
+            collationKeys.put(key, collationKey);
+        }
+        return collationKey;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long size() {
+        return collationKeys.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear() {
+        collationKeys.invalidateAll();
+    }
+}
@@ -25,7 +25,6 @@ import uk.q3c.krail.core.ui.ScopedUI;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.lang.annotation.Annotation;
-import java.lang.reflect.Method;
 import java.util.*;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -38,7 +37,9 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * When a locale change occurs in {@link CurrentLocale}, {@link ScopedUI} updates itself and its current view. Other views, which may have already been
  * constructed, are updated as they become active.
  * <p>
- * <p>A {@link I18NFieldScanner} is used to read metadata (the annotations) from the target's fields
+ * <p>If an {@link I18NBinder} has been generated for the target's class at build time, that is used to apply the annotation values, without reflection.
+ * Otherwise a {@link I18NFieldScanner} is used to read metadata (the annotations) from the target's fields.  The same choice is made again for each object
+ * drilled down into, whichever way it was found
  * <p>
  * For a full description see https://sites.google.com/site/q3cjava/internationalisation-i18n
  *
@@ -46,16 +47,58 @@ import static com.google.common.base.Preconditions.checkNotNull;
  */
 public class DefaultI18NProcessor implements I18NProcessor {
     private static Logger log = LoggerFactory.getLogger(DefaultI18NProcessor.class);
+    // the generated binder for a class, if there is one
+    private static final ClassValue<Optional<I18NBinder<Object>>> binders = new ClassValue<Optional<I18NBinder<Object>>>() {
+        @Override
+        protected Optional<I18NBinder<Object>> computeValue(Class<?> type) {
+            return loadBinder(type);
+        }
+    };
     private final Translate translate;
     private CurrentLocale currentLocale;
+    private I18NHostClassIdentifier i18NHostClassIdentifier;
     private Provider<I18NFieldScanner> i18NFieldScannerProvider;
 
     @Inject
-    protected DefaultI18NProcessor(CurrentLocale currentLocale, Translate translate, Provider<I18NFieldScanner> i18NFieldScannerProvider) {
+    protected DefaultI18NProcessor(CurrentLocale currentLocale, Translate translate, Provider<I18NFieldScanner> i18NFieldScannerProvider,
+                                   I18NHostClassIdentifier i18NHostClassIdentifier) {
         super();
         this.currentLocale = currentLocale;
         this.translate = translate;
         this.i18NFieldScannerProvider = i18NFieldScannerProvider;
+        this.i18NHostClassIdentifier = i18NHostClassIdentifier;
+    }
+
+    /**
+     * @deprecated use the constructor which also takes an {@link I18NHostClassIdentifier}.  This one uses a {@link DefaultI18NHostClassIdentifier}, so
+     * a different binding of {@link I18NHostClassIdentifier} is not used to find generated binders
+     */
+    @Deprecated
+    protected DefaultI18NProcessor(CurrentLocale currentLocale, Translate translate, Provider<I18NFieldScanner> i18NFieldScannerProvider) {
+        this(currentLocale, translate, i18NFieldScannerProvider, new DefaultI18NHostClassIdentifier());
+    }
+
+    /**
+     * Looks for a generated {@link I18NBinder} for {@code type}
+     *
+     * @param type
+     *         the class to find a binder for
+     *
+     * @return the binder for {@code type}, or Optional.empty() if there is none
+     */
+    private static Optional<I18NBinder<Object>> loadBinder(Class<?> type) {
+        String binderName = type.getName()
+                                .replace('$', '_') + I18NBinder.SUFFIX;
+        try {
+            Class<?> binderClass = Class.forName(binderName, true, type.getClassLoader());
+            //noinspection unchecked
+            return Optional.of((I18NBinder<Object>) binderClass.newInstance());
+        } catch (ClassNotFoundException e) {
+            return Optional.empty();
+        } catch (InstantiationException | IllegalAccessException | ClassCastException e) {
+            log.warn("Unable to use {} as an I18NBinder, reflection will be used instead", binderName, e);
+            return Optional.empty();
+        }
     }
 
     /**
@@ -75,84 +118,203 @@ public class DefaultI18NProcessor implements I18NProcessor {
             return;
         }
         log.debug("scanning class '{}' for I18N annotations", target.getClass());
-        List<Object> processedFields = new ArrayList<Object>();
-        translate(processedFields, target);
+        Set<Object> processedFields = Collections.newSetFromMap(new IdentityHashMap<>());
+        translate(processedFields, null, target);
+    }
+
+    /**
+     * The same as {@link #translate(Object)}, but also records the binding applied to each component in {@code registry}
+     *
+     * @param target
+     *         the object to process for I18N annotation.  If null, is just ignored
+     * @param registry
+     *         the registry to record bindings in
+     */
+    @Override
+    public void translate(@Nullable Object target, @Nonnull I18NBindingRegistry registry) {
+        checkNotNull(registry);
+        if (target == null) {
+            return;
+        }
+        log.debug("scanning class '{}' for I18N annotations", target.getClass());
+        Set<Object> processedFields = Collections.newSetFromMap(new IdentityHashMap<>());
+        translate(processedFields, registry, target);
     }
 
     /**
-     * Translates {@code target} and keeps a running list of processed fields (or more accurately, the object contained by a Field).  The latter is to ensure
+     * Re-applies the bindings recorded in {@code registry} for the current Locale, with a single batch translation of all their keys.  Components with a
+     * Locale fixed by annotation are unaffected by a change of Locale, and are left alone.
+     *
+     * @param registry
+     *         the registry holding the bindings to re-apply
+     */
+    @Override
+    public void retranslate(@Nonnull I18NBindingRegistry registry) {
+        checkNotNull(registry);
+        Locale locale = currentLocale.getLocale();
+        Map<AbstractComponent, I18NBinding> bindings = registry.currentLocaleBindings();
+        log.debug("re-applying {} I18N bindings for Locale {}", bindings.size(), locale);
+        List<I18NKey> keys = new ArrayList<>();
+        for (I18NBinding binding : bindings.values()) {
+            binding.addKeysTo(keys);
+        }
+        Iterator<String> translations = translate.fromAll(keys, locale)
+                                                 .iterator();
+        for (Map.Entry<AbstractComponent, I18NBinding> entry : bindings.entrySet()) {
+            AbstractComponent component = entry.getKey();
+            I18NBinding binding = entry.getValue();
+            component.setLocale(locale);
+            if (binding.getCaptionKey() != null) {
+                component.setCaption(translations.next());
+            }
+            if (binding.getDescriptionKey() != null) {
+                component.setDescription(translations.next());
+            }
+            if (binding.getValueKey() != null) {
+                //noinspection unchecked
+                ((Property) component).setValue(translations.next());
+            }
+            processColumns(component, locale);
+        }
+    }
+
+    /**
+     * Translates {@code target} and keeps a running set of processed fields (or more accurately, the object contained by a Field).  The latter is to ensure
      * that the same field is not evaluated twice - but is not only a waste of effort, but causes loops, where, for example a component contains a reference
      * to its parent.
      * <p>
+     * If there is a generated {@link I18NBinder} for the class of {@code target} it is used, otherwise the target is scanned with an {@link
+     * I18NFieldScanner}.  Either way, each object drilled down into is passed back to this method, so that it too uses its own binder if it has one
+     * <p>
      * Nulls are entirely valid if a Field has not been constructed, and are therefore just ignored.
      *
      * @param processedFields
-     *         the fields already processed
+     *         the fields already processed, identified by identity
+     * @param registry
+     *         the registry to record bindings in, or null if they are not to be recorded
      * @param target
      *         the field to be evaluated now
      */
-    protected void translate(@Nonnull List<Object> processedFields, @Nullable Object target) {
-        if (target == null) {
+    protected void translate(@Nonnull Set<Object> processedFields, @Nullable I18NBindingRegistry registry, @Nullable Object target) {
+        if (target == null || !processedFields.add(target)) {
+            return;
+        }
+        Optional<I18NBinder<Object>> binder = binders.get(i18NHostClassIdentifier.getOriginalClassFor(target));
+        if (binder.isPresent()) {
+            log.debug("using generated I18NBinder for '{}'", target.getClass());
+            binder.get()
+                  .bind(target, new BinderContext(processedFields, registry));
             return;
         }
-        processedFields.add(target);
         I18NFieldScanner i18NFieldScanner = i18NFieldScannerProvider.get();
-        i18NFieldScanner.scan(target);
+        List<Object> drillDowns = i18NFieldScanner.scanWithoutDrillDown(target);
 
         try {
-            processComponents(i18NFieldScanner.annotatedComponents(), target);
+            processComponents(i18NFieldScanner.annotatedComponents(), registry);
         } catch (Exception e) {
             throw new I18NException("I18N processing failed", e);
         }
+        for (Object drillDown : drillDowns) {
+            translate(processedFields, registry, drillDown);
+        }
     }
 
+    /**
+     * Translates {@code target}, skipping any object already in {@code processedFields}, and then adds {@code target} to {@code processedFields}
+     *
+     * @param processedFields
+     *         the fields already processed
+     * @param target
+     *         the field to be evaluated now
+     *
+     * @deprecated processed fields are now identified by identity, use {@link #translate(Set, I18NBindingRegistry, Object)}.  This method is no longer
+     * called by this class, so overriding it has no effect
+     */
+    @Deprecated
+    protected void translate(@Nonnull List<Object> processedFields, @Nullable Object target) {
+        checkNotNull(processedFields);
+        Set<Object> processed = Collections.newSetFromMap(new IdentityHashMap<>());
+        processed.addAll(processedFields);
+        translate(processed, null, target);
+        if (target != null) {
+            processedFields.add(target);
+        }
+    }
+
+    /**
+     * Applies the values of {@code componentAnnotations}, without recording the bindings
+     *
+     * @param componentAnnotations
+     *         the components to process, with their annotations
+     * @param target
+     *         not used
+     *
+     * @deprecated use {@link #processComponents(Map, I18NBindingRegistry)}.  This method is no longer called by this class, so overriding it has no
+     * effect
+     */
+    @Deprecated
     protected void processComponents(Map<AbstractComponent, AnnotationInfo> componentAnnotations, Object target) throws NoSuchFieldException,
             IllegalAccessException {
+        processComponents(componentAnnotations, (I18NBindingRegistry) null);
+    }
+
+    protected void processComponents(Map<AbstractComponent, AnnotationInfo> componentAnnotations, @Nullable I18NBindingRegistry registry) {
         for (AbstractComponent component : componentAnnotations.keySet()) {
             AnnotationInfo annotationInfo = componentAnnotations.get(component);
-            AnnotationValues annotationValues = annotationValues(annotationInfo.getAnnotations());
-            if (component instanceof Table) {
-                processTable((Table) component, annotationValues, annotationInfo);
-            } else if (component instanceof Grid) {
-                processGrid((Grid) component, annotationValues, annotationInfo);
-            } else {
-                applyAnnotationValues(component, annotationValues, annotationInfo);
-            }
-
+            processComponent(component, annotationInfo.getField()
+                                                      .getName(), annotationInfo.getCaptionKey()
+                                                                                .orElse(null), annotationInfo.getDescriptionKey()
+                                                                                                             .orElse(null), annotationInfo
+                    .getValueKey()
+                    .orElse(null), annotationInfo.getLocale()
+                                                 .orElse(null), registry);
         }
     }
 
     /**
-     * Returns a set of values from a list of annotations.  There is no guarantee of evaluation order, so if a field has, for example, two annotations with a
-     * caption() value, it is uncertain which will be selected
-     *
-     * @param annotations
-     *         a list of annotations to evaluate
+     * Applies the Locale, caption, description and value to {@code component}, and if it is a Table or Grid, translates its column headers as well
      *
-     * @return a set of values from a list of annotations
+     * @param component
+     *         the component to be updated
+     * @param fieldName
+     *         the name of the field holding the component, used for logging
+     * @param captionKey
+     *         the caption key, or null if there is none
+     * @param descriptionKey
+     *         the description key, or null if there is none
+     * @param valueKey
+     *         the value key, or null if there is none
+     * @param localeOverride
+     *         the Locale fixed by annotation, or null to use {@link CurrentLocale}
+     * @param registry
+     *         the registry to record the binding in, or null if it is not to be recorded
      */
-    private AnnotationValues annotationValues(List<Annotation> annotations) {
-        AnnotationValues av = new AnnotationValues();
-        for (Annotation annotation : annotations) {
-            //if there is a value, use it, but don't overwrite existing with empty
-            Optional<I18NKey> optKey = retrieveKey(annotation, "caption");
-            if (optKey.isPresent()) {
-                av.captionKey = optKey;
-            }
-            optKey = retrieveKey(annotation, "description");
-            if (optKey.isPresent()) {
-                av.descriptionKey = optKey;
-            }
-            optKey = retrieveKey(annotation, "value");
-            if (optKey.isPresent()) {
-                av.valueKey = optKey;
-            }
-            Optional<Locale> optLocale = retrieveLocale(annotation);
-            if (optLocale.isPresent()) {
-                av.locale = optLocale;
+    protected void processComponent(@Nonnull AbstractComponent component, @Nonnull String fieldName, @Nullable I18NKey captionKey, @Nullable I18NKey
+            descriptionKey, @Nullable I18NKey valueKey, @Nullable Locale localeOverride, @Nullable I18NBindingRegistry registry) {
+        // set locale first
+        Locale locale = (localeOverride == null) ? currentLocale.getLocale() : localeOverride;
+        component.setLocale(locale);
+
+        // set caption, description & value if available
+        if (captionKey != null) {
+            component.setCaption(translate.from(captionKey, locale));
+        }
+        if (descriptionKey != null) {
+            component.setDescription(translate.from(descriptionKey, locale));
+        }
+        if (valueKey != null) {
+            if (component instanceof Property) {
+                //noinspection unchecked
+                ((Property) component).setValue(translate.from(valueKey, locale));
+            } else {
+                log.warn("Field {} has a value annotation but does not implement Property.  Annotation ignored", fieldName);
+                valueKey = null;
             }
         }
-        return av;
+        processColumns(component, locale);
+        if (registry != null) {
+            registry.register(component, new I18NBinding(fieldName, captionKey, descriptionKey, valueKey, localeOverride));
+        }
     }
 
     /**
@@ -165,30 +327,15 @@ public class DefaultI18NProcessor implements I18NProcessor {
      *         the method name to look for
      *
      * @return an I18NKey value for the {@code annotationMethod} or Optional.empty() if none is found
+     *
+     * @deprecated annotation values are now resolved once for each field by {@link AnnotationInfo}.  This method is no longer called by this class, so
+     * overriding it has no effect
      */
+    @Deprecated
     protected Optional<I18NKey> retrieveKey(@Nonnull Annotation i18NAnnotation, @Nonnull String annotationMethod) {
         checkNotNull(i18NAnnotation);
         checkNotNull(annotationMethod);
-        Method[] methods = i18NAnnotation.annotationType()
-                                         .getDeclaredMethods();
-        for (Method method : methods) {
-            if (method.getName()
-                      .equals(annotationMethod)) {
-                try {
-                    Object result = method.invoke(i18NAnnotation);
-                    if (result != null) {
-                        I18NKey key = (I18NKey) result;
-                        return Optional.of(key);
-                    } else {
-                        return Optional.empty();
-                    }
-
-                } catch (Exception e) {
-                    log.error("Unable to read annotation", e);
-                }
-            }
-        }
-        return Optional.empty();
+        return AnnotationInfo.retrieveKey(i18NAnnotation, annotationMethod);
     }
 
     /**
@@ -198,100 +345,103 @@ public class DefaultI18NProcessor implements I18NProcessor {
      *         the annotation to assess
      *
      * @return a locale from  {@code i18NAnnotation} if it has one, or Optional.empty() if it has not
+     *
+     * @deprecated annotation values are now resolved once for each field by {@link AnnotationInfo}.  This method is no longer called by this class, so
+     * overriding it has no effect
      */
+    @Deprecated
     protected Optional<Locale> retrieveLocale(@Nonnull Annotation i18NAnnotation) {
         checkNotNull(i18NAnnotation);
+        return AnnotationInfo.retrieveLocale(i18NAnnotation);
+    }
 
-        //if there is not locale method, simply return empty()
-        try {
-            Method method = i18NAnnotation.annotationType()
-                                          .getDeclaredMethod("locale");
-            String tag = (String) method.invoke(i18NAnnotation);
-            if ((tag == null) || (tag.isEmpty())) {
-                return Optional.empty();
-            }
-            return Optional.of(Locale.forLanguageTag(tag));
-
-        } catch (NoSuchMethodException e) {
-            return Optional.empty();
-
-        } catch (Exception e) {
-            log.error("Unable to read annotation", e);
-            return Optional.empty();
+    /**
+     * Table and Grid columns need special treatment
+     */
+    private void processColumns(AbstractComponent component, Locale locale) {
+        if (component instanceof Table) {
+            processTable((Table) component, locale);
+        } else if (component instanceof Grid) {
+            processGrid((Grid) component, locale);
         }
-
-
     }
 
     /**
-     * Sets the I18N values for the Table itself, and also iterates the visible columns for column ids which are I18NKeys, and translates those as well
+     * Iterates the visible columns of a Table for column ids which are I18NKeys, and translates those (as a single batch)
      *
      * @param table
      *         the table to process
-     * @param annotationValues
-     *         the values to apply
-     * @param annotationInfo
-     *         used primarily for the Field name
+     * @param locale
+     *         the Locale to translate to
      */
-    protected void processTable(Table table, AnnotationValues annotationValues, AnnotationInfo annotationInfo) {
-        // Table columns need special treatment
-        applyAnnotationValues(table, annotationValues, annotationInfo);
-
-        // do the column headers
+    protected void processTable(Table table, Locale locale) {
         Object[] columns = table.getVisibleColumns();
-        Locale locale = annotationValues.locale.isPresent() ? annotationValues.locale.get() : currentLocale.getLocale();
 
-        List<String> headers = new ArrayList<>();
+        List<I18NKey> columnKeys = new ArrayList<>();
         for (Object column : columns) {
             if (column instanceof I18NKey) {
-                I18NKey columnKey = (I18NKey) column;
-                String header = translate.from(columnKey, locale);
-                headers.add(header);
-            } else {
-                headers.add(column.toString());
+                columnKeys.add((I18NKey) column);
             }
         }
-        String headerArray[] = headers.toArray(new String[headers.size()]);
+        Iterator<String> translations = translate.fromAll(columnKeys, locale)
+                                                 .iterator();
+        String headerArray[] = new String[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            headerArray[i] = (columns[i] instanceof I18NKey) ? translations.next() : columns[i].toString();
+        }
         table.setColumnHeaders(headerArray);
 
     }
 
     /**
-     * Applies annotation values to {@code component}
+     * Iterates the columns of a Grid for column ids which are I18NKeys, and translates those (as a single batch)
      *
-     * @param component
-     *         the component to be updated
-     * @param annotationValues
-     *         the annotation values to apply
-     * @param annotationInfo
-     *         used primarily to identify the Field, and therefore its name
+     * @param grid
+     *         the Grid to process
+     * @param locale
+     *         the Locale to translate to
      */
-    private void applyAnnotationValues(AbstractComponent component, AnnotationValues annotationValues, AnnotationInfo annotationInfo) {
-        // set locale first
-        Locale locale = annotationValues.locale.isPresent() ? annotationValues.locale.get() : currentLocale.getLocale();
-        component.setLocale(locale);
+    protected void processGrid(Grid grid, Locale locale) {
+        final List<Grid.Column> columns = grid.getColumns();
 
-        // set caption, description & value if available
-        if (annotationValues.captionKey.isPresent()) {
-            component.setCaption(translate.from(annotationValues.captionKey.get(), locale));
-        }
-        if (annotationValues.descriptionKey.isPresent()) {
-            component.setDescription(translate.from(annotationValues.descriptionKey.get(), locale));
+        List<I18NKey> columnKeys = new ArrayList<>();
+        for (Grid.Column column : columns) {
+            if (column.getPropertyId() instanceof I18NKey) {
+                columnKeys.add((I18NKey) column.getPropertyId());
+            }
         }
-        if (annotationValues.valueKey.isPresent()) {
-            if (component instanceof Property) {
-                //noinspection unchecked
-                ((Property) component).setValue(translate.from(annotationValues.valueKey.get(), locale));
+        Iterator<String> translations = translate.fromAll(columnKeys, locale)
+                                                 .iterator();
+        for (Grid.Column column : columns) {
+            if (column.getPropertyId() instanceof I18NKey) {
+                column.setHeaderCaption(translations.next());
             } else {
-                log.warn("Field {} has a value annotation but does not implement Property.  Annotation ignored", annotationInfo.getField()
-                                                                                                                               .getName());
+                column.setHeaderCaption(column.getPropertyId()
+                                              .toString());
             }
         }
+    }
 
+    /**
+     * Sets the I18N values for the Table itself, and also translates the visible columns which are I18NKeys
+     *
+     * @param table
+     *         the table to process
+     * @param annotationValues
+     *         the values to apply
+     * @param annotationInfo
+     *         used primarily for the Field name
+     *
+     * @deprecated use {@link #processComponent} or {@link #processTable(Table, Locale)}.  This method is no longer called by this class, so overriding it
+     * has no effect
+     */
+    @Deprecated
+    protected void processTable(Table table, AnnotationValues annotationValues, AnnotationInfo annotationInfo) {
+        applyAnnotationValues(table, annotationValues, annotationInfo);
     }
 
     /**
-     * Sets the I18N values for the Grid itself, and also iterates the columns for column ids which are I18NKeys, and translates those as well
+     * Sets the I18N values for the Grid itself, and also translates the columns which are I18NKeys
      *
      * @param grid
      *         the Grid to process
@@ -299,29 +449,52 @@ public class DefaultI18NProcessor implements I18NProcessor {
      *         the annotation values to apply
      * @param annotationInfo
      *         used primarily to identify the Field, and therefore its name
+     *
+     * @deprecated use {@link #processComponent} or {@link #processGrid(Grid, Locale)}.  This method is no longer called by this class, so overriding it
+     * has no effect
      */
+    @Deprecated
     protected void processGrid(Grid grid, AnnotationValues annotationValues, AnnotationInfo annotationInfo) {
-
-        // do the grid itself
         applyAnnotationValues(grid, annotationValues, annotationInfo);
+    }
 
-        // now do the column headers
-        Locale locale = annotationValues.locale.isPresent() ? annotationValues.locale.get() : currentLocale.getLocale();
-        final List<Grid.Column> columns = grid.getColumns();
+    private void applyAnnotationValues(AbstractComponent component, AnnotationValues annotationValues, AnnotationInfo annotationInfo) {
+        processComponent(component, annotationInfo.getField()
+                                                  .getName(), annotationValues.captionKey.orElse(null), annotationValues.descriptionKey.orElse(null),
+                annotationValues.valueKey.orElse(null), annotationValues.locale.orElse(null), null);
+    }
 
-        for (Grid.Column column : columns) {
-            if (column.getPropertyId() instanceof I18NKey) {
-                I18NKey columnKey = (I18NKey) column.getPropertyId();
-                String header = translate.from(columnKey, locale);
-                column.setHeaderCaption(header);
-            } else {
-                column.setHeaderCaption(column.getPropertyId()
-                                              .toString());
+    /**
+     * The context given to a generated {@link I18NBinder} for one call to {@link #translate(Object)}
+     */
+    private class BinderContext implements I18NBinderContext {
+        private final Set<Object> processedFields;
+        private final I18NBindingRegistry registry;
+
+        private BinderContext(Set<Object> processedFields, I18NBindingRegistry registry) {
+            this.processedFields = processedFields;
+            this.registry = registry;
+        }
+
+        @Override
+        public void apply(@Nullable AbstractComponent component, @Nonnull String fieldName, @Nullable I18NKey captionKey, @Nullable I18NKey
+                descriptionKey, @Nullable I18NKey valueKey, @Nonnull String localeTag) {
+            if (component != null) {
+                Locale localeOverride = localeTag.isEmpty() ? null : Locale.forLanguageTag(localeTag);
+                processComponent(component, fieldName, captionKey, descriptionKey, valueKey, localeOverride, registry);
             }
         }
-    }
 
+        @Override
+        public void drillDown(@Nullable Object object) {
+            translate(processedFields, registry, object);
+        }
+    }
 
+    /**
+     * The parameter type of the deprecated {@link #processTable(Table, AnnotationValues, AnnotationInfo)} and {@link #processGrid(Grid,
+     * AnnotationValues, AnnotationInfo)}.  Values are now held by {@link AnnotationInfo}
+     */
     private class AnnotationValues {
         Optional<I18NKey> captionKey = Optional.empty();
         Optional<I18NKey> descriptionKey = Optional.empty();
@@ -12,43 +12,200 @@
 package uk.q3c.krail.i18n;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Maps;
+import com.google.common.collect.SetMultimap;
 import com.google.inject.Singleton;
 
-import java.util.HashMap;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
- * A simplistic in memory store for I18N patterns, useful only for testing
+ * An in memory store for I18N patterns, which may be read and written concurrently without locking.  Entries are partitioned by requested Locale and
+ * I18NKey class (bundle), and each partition holds its entries in key order, so that the store can be read in a stable order, or from a given key, by
+ * {@link #cursor()} without copying it.  The entry count is maintained on each change, so {@link #count()} does not need to visit the partitions.  Each
+ * change also marks its partition as changed, so that {@link #takeChangedBundles()} can report just the bundles and Locales which have changed.
+ * <p>
+ * Only the I18NKey and requested Locale of a {@link PatternCacheKey} are held, as these are the fields which identify an entry - keys returned from the
+ * store are new instances.
  * <p>
  * Created by David Sowerby on 18/06/15.
  */
 @Singleton
+@ThreadSafe
 public class DefaultInMemoryPatternStore implements InMemoryPatternStore {
 
-    private Map<PatternCacheKey, String> store = new HashMap<>();
+    private final LongAdder count = new LongAdder();
+    // partitions changed since the last call to takeChangedBundles()
+    private final Set<Partition> changed = ConcurrentHashMap.newKeySet();
+    // partition id -> partition, see partitionId()
+    private final ConcurrentNavigableMap<String, Partition> partitions = new ConcurrentSkipListMap<>();
+
+    private static String partitionId(Locale locale, Class<?> keyClass) {
+        // a space appears in neither a language tag nor a class name, and sorts before both
+        return locale.toLanguageTag() + ' ' + keyClass.getName();
+    }
 
     @Override
     public void put(PatternCacheKey cacheKey, String value) {
-        store.put(cacheKey, value);
+        checkNotNull(cacheKey);
+        checkNotNull(value);
+        Enum<?> key = cacheKey.getKey();
+        Locale locale = cacheKey.getRequestedLocale();
+        Partition partition = partitions.computeIfAbsent(partitionId(locale, key.getDeclaringClass()), id -> new Partition(locale, ((I18NKey) key).bundleName()));
+        String previous = partition.entries.put(key, value);
+        if (previous == null) {
+            count.increment();
+        }
+        if (!value.equals(previous)) {
+            changed.add(partition);
+        }
     }
 
     @Override
     public String remove(PatternCacheKey cacheKey) {
-        return store.remove(cacheKey);
+        checkNotNull(cacheKey);
+        Enum<?> key = cacheKey.getKey();
+        Partition partition = partitions.get(partitionId(cacheKey.getRequestedLocale(), key.getDeclaringClass()));
+        if (partition == null) {
+            return null;
+        }
+        // empty partitions are retained, they are few and are likely to be used again
+        String previous = partition.entries.remove(key);
+        if (previous != null) {
+            count.decrement();
+            changed.add(partition);
+        }
+        return previous;
     }
 
     @Override
     public String get(PatternCacheKey cacheKey) {
-        return store.get(cacheKey);
+        checkNotNull(cacheKey);
+        Enum<?> key = cacheKey.getKey();
+        Partition partition = partitions.get(partitionId(cacheKey.getRequestedLocale(), key.getDeclaringClass()));
+        return (partition == null) ? null : partition.entries.get(key);
     }
 
+    /**
+     * {@inheritDoc}
+     */
     @Override
     public ImmutableMap<PatternCacheKey, String> getAsMap() {
-        return ImmutableMap.copyOf(store);
+        ImmutableMap.Builder<PatternCacheKey, String> builder = ImmutableMap.builder();
+        forEach(builder::put);
+        return builder.build();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void forEach(@Nonnull BiConsumer<PatternCacheKey, String> action) {
+        checkNotNull(action);
+        for (Partition partition : partitions.values()) {
+            partition.entries.forEach((key, value) -> action.accept(new PatternCacheKey((I18NKey) key, partition.locale), value));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Nonnull
+    @Override
+    public Iterator<Map.Entry<PatternCacheKey, String>> cursor() {
+        return Iterators.concat(Iterators.transform(partitions.values()
+                                                              .iterator(), partition -> partition.cursor(partition.entries)));
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Nonnull
+    @Override
+    public Iterator<Map.Entry<PatternCacheKey, String>> cursor(@Nonnull PatternCacheKey from) {
+        checkNotNull(from);
+        Enum<?> fromKey = from.getKey();
+        String fromId = partitionId(from.getRequestedLocale(), fromKey.getDeclaringClass());
+        Iterator<Map.Entry<String, Partition>> remaining = partitions.tailMap(fromId, true)
+                                                                     .entrySet()
+                                                                     .iterator();
+        return Iterators.concat(Iterators.transform(remaining, e -> {
+            Partition partition = e.getValue();
+            // only the first partition can be the one containing fromKey
+            return e.getKey()
+                    .equals(fromId) ? partition.cursor(partition.entries.tailMap(fromKey, true)) : partition.cursor(partition.entries);
+        }));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Nonnull
+    @Override
+    public Iterator<Map.Entry<PatternCacheKey, String>> cursor(@Nonnull Locale locale, @Nonnull Class<? extends I18NKey> keyClass) {
+        checkNotNull(locale);
+        checkNotNull(keyClass);
+        Partition partition = partitions.get(partitionId(locale, keyClass));
+        return (partition == null) ? Collections.emptyIterator() : partition.cursor(partition.entries);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
     @Override
     public long count() {
-        return store.size();
+        return count.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Nonnull
+    @Override
+    public SetMultimap<String, Locale> takeChangedBundles() {
+        ImmutableSetMultimap.Builder<String, Locale> builder = ImmutableSetMultimap.builder();
+        // a partition changed again after it is removed here is added back, and reported by the next call
+        Iterator<Partition> iterator = changed.iterator();
+        while (iterator.hasNext()) {
+            Partition partition = iterator.next();
+            iterator.remove();
+            builder.put(partition.bundleName, partition.locale);
+        }
+        return builder.build();
+    }
+
+    /**
+     * The entries for one Locale and I18NKey class, ordered by key ordinal
+     */
+    private static class Partition {
+        private final ConcurrentNavigableMap<Enum<?>, String> entries = new ConcurrentSkipListMap<>(
+                (a, b) -> Integer.compare(a.ordinal(), b.ordinal()));
+        private final String bundleName;
+        private final Locale locale;
+
+        private Partition(Locale locale, String bundleName) {
+            this.locale = locale;
+            this.bundleName = bundleName;
+        }
+
+        private Iterator<Map.Entry<PatternCacheKey, String>> cursor(Map<Enum<?>, String> range) {
+            return Iterators.unmodifiableIterator(Iterators.transform(range.entrySet()
+                                                                           .iterator(), e -> Maps.immutableEntry(new PatternCacheKey((I18NKey) e
+                    .getKey(), locale), e.getValue())));
+        }
     }
 }
@@ -12,6 +12,9 @@
 package uk.q3c.krail.i18n;
 
 import com.google.common.cache.CacheLoader;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.inject.Inject;
 import com.vaadin.data.Property;
 import uk.q3c.krail.core.user.opt.Option;
@@ -20,9 +23,9 @@ import uk.q3c.krail.core.user.opt.OptionKey;
 
 import javax.annotation.Nonnull;
 import java.lang.annotation.Annotation;
-import java.util.List;
-import java.util.Locale;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -39,13 +42,22 @@ public class DefaultPatternCacheLoader extends CacheLoader<PatternCacheKey, Stri
             DescriptionKey.Stub_with_Key_Name);
     public static final OptionKey<String> optionKeyStubValue = new OptionKey<>("undefined", DefaultPatternSourceProvider.class, LabelKey.Stub_Value,
             DescriptionKey.Stub_Value);
+    private static final KrailResourceBundleControl bundleControl = new KrailResourceBundleControl();
+    // candidate locales depend only on bundle name and Locale, so are shared
+    private static final ConcurrentMap<String, ConcurrentMap<Locale, List<Locale>>> candidateLocaleCache = new ConcurrentHashMap<>();
+    // for each source, the key & Locale combinations (held as a PatternCacheKey) known to have no value
+    private final ConcurrentMap<Class<? extends Annotation>, Set<PatternCacheKey>> misses = new ConcurrentHashMap<>();
+    private final PatternMetrics metrics;
     private Option option;
     private PatternSourceProvider sourceProvider;
+    private PatternWriteQueue writeQueue;
 
     @Inject
-    public DefaultPatternCacheLoader(PatternSourceProvider sourceProvider, Option option) {
+    public DefaultPatternCacheLoader(PatternSourceProvider sourceProvider, Option option, PatternWriteQueue writeQueue, PatternMetrics metrics) {
         this.sourceProvider = sourceProvider;
         this.option = option;
+        this.writeQueue = writeQueue;
+        this.metrics = metrics;
     }
 
 
@@ -62,7 +74,18 @@ public class DefaultPatternCacheLoader extends CacheLoader<PatternCacheKey, Stri
      * The order that sources are accessed is determined by {@link PatternSourceProvider#orderedSources(I18NKey)}, which in turn is configured in the {@link
      * I18NModule}
      * <p>
-     * The native Java method for identifying candidate locales is used - see ResourceBundle.Control .getCandidateLocales
+     * The native Java method for identifying candidate locales is used - see ResourceBundle.Control .getCandidateLocales - but the result is held for
+     * re-use, see {@link #candidateLocales}
+     * <p>
+     * When a source has no value for a candidate Locale, the miss is recorded, and that source is not asked again for the same key and Locale until the
+     * miss index is cleared (see {@link #clearMissIndex()}), or the entry for the key and Locale is reloaded or leaves the cache (see {@link
+     * #clearMissIndex(I18NKey, Locale)}).  A write to a target through auto-stubbing clears the misses for that target once the write has completed, as
+     * the target may also be a source
+     * <p>
+     * Auto-stub writes are not made during the load - they are passed to the {@link PatternWriteQueue}, which writes them to their targets in the
+     * background
+     * <p>
+     * Each load is recorded by {@link PatternMetrics}, with the number of sources probed and the time taken
      *
      * @param cacheKey
      *         the non-null key whose value should be loaded
@@ -79,46 +102,55 @@ public class DefaultPatternCacheLoader extends CacheLoader<PatternCacheKey, Stri
     @Override
     public String load(@Nonnull PatternCacheKey cacheKey) throws Exception {
         checkNotNull(cacheKey);
+        long startTime = System.nanoTime();
+        int probes = 0;
 
         I18NKey i18NKey = (I18NKey) cacheKey.getKey();
-
-
-        //        Use standard Java call to get candidates
-        KrailResourceBundleControl bundleControl = new KrailResourceBundleControl();
-        List<Locale> candidateLocales = bundleControl.getCandidateLocales(i18NKey.bundleName(), cacheKey.getRequestedLocale());
+        List<Locale> candidateLocales = candidateLocales(i18NKey.bundleName(), cacheKey.getRequestedLocale());
+        ImmutableSet<Class<? extends Annotation>> sources = sourceProvider.orderedSources(i18NKey);
+        // daos and auto-stub options are only looked up when first needed, and then only once for each source
+        Map<Class<? extends Annotation>, PatternDao> daos = new HashMap<>();
+        Map<Class<? extends Annotation>, Boolean> autoStubs = new HashMap<>();
         Optional<String> value = Optional.empty();
 
         for (Locale candidateLocale : candidateLocales) {
 
             //try each source in turn for a valid pattern
-            for (Class<? extends Annotation> source : sourceProvider.orderedSources(i18NKey)) {
+            for (Class<? extends Annotation> source : sources) {
                 cacheKey.setSource(source);
                 cacheKey.setActualLocale(candidateLocale);// used to look up the bundle
 
+                // skip the probe if we already know there is no value
+                if (isKnownMiss(source, i18NKey, candidateLocale)) {
+                    continue;
+                }
+
                 //get the Dao - we don't need to check that it is present, as we are using sources from sourceProvider
-                PatternDao dao = sourceProvider.sourceFor(source)
-                                               .get();
+                PatternDao dao = daos.computeIfAbsent(source, s -> sourceProvider.sourceFor(s)
+                                                                                 .get());
 
                 //get value from dao, break out if present
                 value = dao.getValue(cacheKey);
+                probes++;
                 if (value.isPresent()) {
                     break;
                 }
 
-                //value is not present, auto-stub if required
-
-                // auto-stubbing if required
-                Boolean autoStub = option.get(optionKeyAutoStub.qualifiedWith(source.getSimpleName()));
-                /* autosSub to the selected target */
+                //value is not present, record the miss, and auto-stub if required
+                recordMiss(source, i18NKey, candidateLocale);
+                Boolean autoStub = autoStubs.computeIfAbsent(source, s -> option.get(optionKeyAutoStub.qualifiedWith(s.getSimpleName())));
+                /* autosSub to the selected target, through the write queue */
                 if (autoStub) {
+                    String stubValue = stubValue(source, cacheKey);
                     sourceProvider.selectedTargets()
                                   .getList()
                                   .forEach(t -> {
-                        Optional<PatternDao> target = sourceProvider.targetFor(t);
-                        if (target.isPresent()) {
-                            target.get().write(cacheKey, stubValue(source, cacheKey));
-                        }
-                    });
+                                      Optional<PatternDao> target = sourceProvider.targetFor(t);
+                                      if (target.isPresent()) {
+                                          // the target may also be a source, so its misses are no longer valid once the stub has been written
+                                          writeQueue.enqueue(t, target.get(), cacheKey, stubValue, () -> clearMissIndex(t));
+                                      }
+                                  });
                 }
 
             }
@@ -133,9 +165,85 @@ public class DefaultPatternCacheLoader extends CacheLoader<PatternCacheKey, Stri
                                         .replace("_", " "));
             cacheKey.setSource(null);
         }
+        metrics.loaded(cacheKey, probes, System.nanoTime() - startTime);
         return value.get();
     }
 
+    /**
+     * Returns the candidate Locales for {@code bundleName} and {@code locale}, using the native Java method (see ResourceBundle.Control
+     * .getCandidateLocales).  The result depends only on the parameters, so it is calculated once for each combination and held for re-use
+     *
+     * @param bundleName
+     *         the bundle name, from {@link I18NKey#bundleName()}
+     * @param locale
+     *         the requested Locale
+     *
+     * @return the candidate Locales, in the order they should be tried
+     */
+    @Nonnull
+    protected List<Locale> candidateLocales(@Nonnull String bundleName, @Nonnull Locale locale) {
+        return candidateLocaleCache.computeIfAbsent(bundleName, b -> new ConcurrentHashMap<>())
+                               .computeIfAbsent(locale, l -> ImmutableList.copyOf(bundleControl.getCandidateLocales(bundleName, l)));
+    }
+
+    /**
+     * Returns true if a previous load has established that {@code source} has no value for {@code key} in {@code locale}
+     */
+    protected boolean isKnownMiss(@Nonnull Class<? extends Annotation> source, @Nonnull I18NKey key, @Nonnull Locale locale) {
+        Set<PatternCacheKey> sourceMisses = misses.get(source);
+        return sourceMisses != null && sourceMisses.contains(new PatternCacheKey(key, locale));
+    }
+
+    /**
+     * Records that {@code source} has no value for {@code key} in {@code locale}
+     */
+    protected void recordMiss(@Nonnull Class<? extends Annotation> source, @Nonnull I18NKey key, @Nonnull Locale locale) {
+        misses.computeIfAbsent(source, s -> ConcurrentHashMap.newKeySet())
+              .add(new PatternCacheKey(key, locale));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clearMissIndex() {
+        misses.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clearMissIndex(@Nonnull Class<? extends Annotation> source) {
+        checkNotNull(source);
+        misses.remove(source);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clearMissIndex(@Nonnull I18NKey key, @Nonnull Locale locale) {
+        checkNotNull(key);
+        checkNotNull(locale);
+        List<Locale> candidates = candidateLocales(key.bundleName(), locale);
+        for (Set<PatternCacheKey> sourceMisses : misses.values()) {
+            for (Locale candidate : candidates) {
+                sourceMisses.remove(new PatternCacheKey(key, candidate));
+            }
+        }
+    }
+
+    /**
+     * Clears the misses for {@code cacheKey} before loading it again, so that a refresh finds a pattern added since the entry was loaded
+     */
+    @Override
+    public ListenableFuture<String> reload(@Nonnull PatternCacheKey cacheKey, @Nonnull String oldValue) throws Exception {
+        checkNotNull(cacheKey);
+        clearMissIndex((I18NKey) cacheKey.getKey(), cacheKey.getRequestedLocale());
+        return super.reload(cacheKey, oldValue);
+    }
+
     /**
      * When auto-stubbing the value used can either be the key name or a value specified by {@link #optionKeyStubValue}
      *
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.i18n;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.SetMultimap;
+import com.google.inject.Singleton;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import java.lang.annotation.Annotation;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Default implementation of {@link PatternChangeLog}.  The most recent {@link #capacity()} changes are retained.  Reading the epoch is a single volatile
+ * read, as it is done for every pattern lookup - changes are rare, so recording and reading them is simply synchronized
+ * <p>
+ * Created by David Sowerby on 16/10/15.
+ */
+@Singleton
+@ThreadSafe
+public class DefaultPatternChangeLog implements PatternChangeLog {
+
+    private final Deque<PatternsChangedBusMessage> changes = new ArrayDeque<>();
+    private volatile long epoch;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long epoch() {
+        return epoch;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Nonnull
+    @Override
+    public synchronized PatternsChangedBusMessage record(@Nonnull Set<Class<? extends Annotation>> changedSources, @Nonnull SetMultimap<String, Locale>
+            changedBundles) {
+        checkNotNull(changedSources);
+        checkNotNull(changedBundles);
+        PatternsChangedBusMessage change = new PatternsChangedBusMessage(epoch + 1, changedSources, changedBundles);
+        changes.addLast(change);
+        while (changes.size() > capacity()) {
+            changes.removeFirst();
+        }
+        epoch = change.getEpoch();
+        return change;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Nonnull
+    @Override
+    public synchronized Optional<PatternsChangedBusMessage> changesSince(long epoch) {
+        PatternsChangedBusMessage combined = new PatternsChangedBusMessage(this.epoch, ImmutableSet.of(), ImmutableSetMultimap.of());
+        if (epoch >= this.epoch) {
+            return Optional.of(combined);
+        }
+        PatternsChangedBusMessage oldest = changes.peekFirst();
+        if (oldest == null || oldest.getEpoch() > epoch + 1) {
+            return Optional.empty();
+        }
+        for (PatternsChangedBusMessage change : changes) {
+            if (change.getEpoch() > epoch) {
+                combined = combined.merge(change);
+            }
+        }
+        return Optional.of(combined);
+    }
+
+    /**
+     * The number of changes retained.  Override to change the default of 100
+     *
+     * @return the number of changes retained
+     */
+    protected int capacity() {
+        return 100;
+    }
+}
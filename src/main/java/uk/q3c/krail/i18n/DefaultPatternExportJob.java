@@ -0,0 +1,305 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.i18n;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.ui.UI;
+import com.vaadin.ui.UIDetachedException;
+import com.vaadin.util.CurrentInstance;
+import net.engio.mbassy.bus.common.PubSubSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.q3c.krail.core.eventbus.BusMessage;
+import uk.q3c.krail.core.eventbus.UIBus;
+import uk.q3c.krail.core.user.profile.DefaultUserHierarchy;
+import uk.q3c.krail.core.user.profile.RankContextProvider;
+import uk.q3c.krail.core.user.profile.UserHierarchy;
+import uk.q3c.krail.i18n.PatternExportProgressMessage.Status;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Default implementation of {@link PatternExportJob}.  The export is partitioned by Locale, with each Locale exported by a task on a bounded pool of
+ * {@link #threadCount()} threads.  Each task retrieves patterns from {@link PatternSource} (as {@link PatternUtility#export(PatternDao, Set, Set)} does),
+ * and writes them to the targets in batches of {@link #batchSize()} through {@link PatternDao#writeAll}.
+ * <p>
+ * Retrieval may need to load patterns, which resolves the user's options, and the user's ranks can only be found while holding the session lock.  The
+ * user's {@link RankContextProvider rank context} is therefore resolved by {@link #start}, which is called with the lock held, and the tasks then
+ * retrieve patterns without the lock, so that the user interface is not blocked while an export runs.  The session which started the export is made
+ * current for each task, so that session scoped objects can still be found.
+ * <p>
+ * Progress is published on the {@code @UIBus} at most every {@link #progressInterval()} milliseconds, through {@link UI#access}, so that it is pushed to
+ * the browser when push is enabled.  If the UI has been detached, the export is cancelled.  A failure to retrieve or write a pattern stops the export,
+ * and is reported with a status of {@link Status#FAILED}
+ * <p>
+ * This class is not scoped, so each view which uses it has its own job
+ * <p>
+ * Created by David Sowerby on 16/10/15.
+ */
+public class DefaultPatternExportJob implements PatternExportJob {
+    private static Logger log = LoggerFactory.getLogger(DefaultPatternExportJob.class);
+    private final AtomicLong exported = new AtomicLong();
+    private final AtomicInteger localesCompleted = new AtomicInteger();
+    private final PatternSource patternSource;
+    private final RankContextProvider rankContextProvider;
+    private final PubSubSupport<BusMessage> uiBus;
+    private final UserHierarchy userHierarchy;
+    private volatile boolean cancelled;
+    private volatile long lastProgress;
+    private volatile int localeCount;
+    private volatile boolean running;
+    private volatile VaadinSession session;
+    private volatile long total;
+    private volatile UI ui;
+
+    @Inject
+    protected DefaultPatternExportJob(PatternSource patternSource, @UIBus PubSubSupport<BusMessage> uiBus, RankContextProvider rankContextProvider,
+                                      @DefaultUserHierarchy UserHierarchy userHierarchy) {
+        this.patternSource = patternSource;
+        this.uiBus = uiBus;
+        this.rankContextProvider = rankContextProvider;
+        this.userHierarchy = userHierarchy;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void start(@Nonnull Collection<PatternDao> targets, @Nonnull Set<Class<? extends I18NKey>> bundles, @Nonnull Set<Locale>
+            locales) {
+        checkNotNull(targets);
+        checkNotNull(bundles);
+        checkNotNull(locales);
+        if (running) {
+            throw new IllegalStateException("A pattern export is already running");
+        }
+        ImmutableList<PatternDao> targetList = ImmutableList.copyOf(targets);
+        ImmutableSet<Class<? extends I18NKey>> bundleSet = ImmutableSet.copyOf(bundles);
+        long keyCount = 0;
+        for (Class<? extends I18NKey> bundle : bundleSet) {
+            I18NKey[] keys = bundle.getEnumConstants();
+            keyCount += (keys == null) ? 0 : keys.length;
+        }
+        cancelled = false;
+        exported.set(0);
+        localesCompleted.set(0);
+        lastProgress = 0;
+        localeCount = locales.size();
+        total = keyCount * localeCount;
+        ui = UI.getCurrent();
+        session = VaadinSession.getCurrent();
+        if (session != null) {
+            // resolved while the session lock is held, so that the tasks need not take it to read options
+            rankContextProvider.get(userHierarchy);
+        }
+        running = true;
+        if (locales.isEmpty()) {
+            finish(null);
+            return;
+        }
+        ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("pattern-export-%d")
+                                                                .setDaemon(true)
+                                                                .build();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threadCount(), localeCount), threadFactory);
+        log.info("Exporting {} patterns for {} Locales to {} targets", total, localeCount, targetList.size());
+        CompletableFuture<?>[] tasks = locales.stream()
+                                             .map(locale -> CompletableFuture.runAsync(() -> exportLocale(targetList, bundleSet, locale), executor))
+                                             .toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(tasks)
+                         .whenComplete((result, e) -> {
+                             executor.shutdown();
+                             finish(e);
+                         });
+    }
+
+    /**
+     * Exports every key of {@code bundles} for {@code locale}, stopping early if the export is cancelled.  A failure cancels the tasks for other Locales
+     */
+    private void exportLocale(List<PatternDao> targets, Set<Class<? extends I18NKey>> bundles, Locale locale) {
+        VaadinSession current = session;
+        if (current != null) {
+            VaadinSession.setCurrent(current);
+        }
+        try {
+            List<I18NKey> batch = new ArrayList<>(batchSize());
+            for (Class<? extends I18NKey> bundle : bundles) {
+                I18NKey[] keys = bundle.getEnumConstants();
+                if (keys == null) {
+                    log.warn("{} is not an Enum, and cannot be exported", bundle.getName());
+                    continue;
+                }
+                for (I18NKey key : keys) {
+                    batch.add(key);
+                    if (batch.size() >= batchSize()) {
+                        if (!export(targets, batch, locale)) {
+                            return;
+                        }
+                        batch = new ArrayList<>(batchSize());
+                    }
+                }
+            }
+            if (!batch.isEmpty() && !export(targets, batch, locale)) {
+                return;
+            }
+            localesCompleted.incrementAndGet();
+            progress();
+        } catch (RuntimeException e) {
+            cancelled = true;
+            throw e;
+        } finally {
+            CurrentInstance.clearAll();
+        }
+    }
+
+    /**
+     * Retrieves the patterns for {@code keys} and writes them to {@code targets}, unless the export is cancelled in the meantime
+     *
+     * @return false if the export has been cancelled
+     */
+    private boolean export(List<PatternDao> targets, List<I18NKey> keys, Locale locale) {
+        if (cancelled) {
+            return false;
+        }
+        List<String> patterns = patternSource.retrievePatterns(keys, locale);
+        if (cancelled) {
+            return false;
+        }
+        List<Map.Entry<PatternCacheKey, String>> batch = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            batch.add(Maps.immutableEntry(new PatternCacheKey(keys.get(i), locale), patterns.get(i)));
+        }
+        write(targets, batch);
+        return true;
+    }
+
+    private void write(List<PatternDao> targets, List<Map.Entry<PatternCacheKey, String>> batch) {
+        for (PatternDao target : targets) {
+            target.writeAll(batch);
+        }
+        exported.addAndGet(batch.size());
+        progress();
+    }
+
+    private void progress() {
+        long now = System.nanoTime();
+        if (now - lastProgress < TimeUnit.MILLISECONDS.toNanos(progressInterval())) {
+            return;
+        }
+        lastProgress = now;
+        publish(message(Status.RUNNING, null));
+    }
+
+    private void finish(@Nullable Throwable e) {
+        PatternExportProgressMessage message;
+        if (e != null) {
+            Throwable cause = (e instanceof CompletionException && e.getCause() != null) ? e.getCause() : e;
+            log.warn("Pattern export failed", cause);
+            message = message(Status.FAILED, cause.getMessage());
+        } else {
+            message = message(cancelled ? Status.CANCELLED : Status.COMPLETE, null);
+        }
+        log.info("Pattern export finished: {}", message);
+        session = null;
+        running = false;
+        publish(message);
+    }
+
+    private PatternExportProgressMessage message(Status status, @Nullable String failure) {
+        return new PatternExportProgressMessage(status, exported.get(), total, localesCompleted.get(), localeCount, failure);
+    }
+
+    /**
+     * Publishes {@code message} on the {@code @UIBus}, within {@link UI#access} if the export was started from a UI thread.  Cancels the export if the
+     * UI has been detached
+     *
+     * @param message
+     *         the message to publish
+     */
+    protected void publish(@Nonnull PatternExportProgressMessage message) {
+        UI target = ui;
+        if (target == null) {
+            uiBus.publish(message);
+            return;
+        }
+        try {
+            target.access(() -> uiBus.publish(message));
+        } catch (UIDetachedException e) {
+            log.debug("UI has been detached, cancelling pattern export");
+            cancelled = true;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void cancel() {
+        if (running) {
+            log.info("Pattern export cancelled");
+            cancelled = true;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * The number of threads used to export patterns, each exporting one Locale at a time.  Override to change the default, which is the number of
+     * available processors, up to a maximum of 4
+     *
+     * @return the number of threads used to export patterns
+     */
+    protected int threadCount() {
+        return Math.min(Runtime.getRuntime()
+                               .availableProcessors(), 4);
+    }
+
+    /**
+     * The maximum number of patterns passed to a single call of {@link PatternDao#writeAll}.  Override to change the default of 500
+     *
+     * @return the maximum number of patterns passed to a single call of {@link PatternDao#writeAll}
+     */
+    protected int batchSize() {
+        return 500;
+    }
+
+    /**
+     * The minimum time, in milliseconds, between progress messages while an export is running.  Override to change the default of 250ms
+     *
+     * @return the minimum time, in milliseconds, between progress messages
+     */
+    protected long progressInterval() {
+        return 250;
+    }
+}
@@ -0,0 +1,306 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.i18n;
+
+import com.google.common.cache.RemovalCause;
+import com.google.common.collect.ImmutableMap;
+import com.google.inject.Singleton;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import java.lang.annotation.Annotation;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Default implementation of {@link PatternMetrics}.  Every count is a {@link LongAdder}, so that concurrent recording does not contend, and the
+ * breakdowns by source and by bundle and Locale are created as each new combination is first seen.  Load times are counted in decades from 10
+ * microseconds to 100 milliseconds, in total, by source and by bundle and Locale.  Evictions are counted by cause.
+ * <p>
+ * Counts are read without stopping recording, so a set of counts read together may be very slightly inconsistent
+ * <p>
+ * Created by David Sowerby on 16/10/15.
+ */
+@Singleton
+@ThreadSafe
+public class DefaultPatternMetrics implements PatternMetrics {
+
+    private static final long[] loadTimeLimits = {TimeUnit.MICROSECONDS.toNanos(10), TimeUnit.MICROSECONDS.toNanos(100), TimeUnit.MILLISECONDS.toNanos(1),
+            TimeUnit.MILLISECONDS.toNanos(10), TimeUnit.MILLISECONDS.toNanos(100)};
+    private static final String[] loadTimeRanges = {"< 10us", "< 100us", "< 1ms", "< 10ms", "< 100ms", ">= 100ms"};
+    private final ConcurrentMap<String, BundleLocaleCounts> byBundleAndLocale = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class<? extends Annotation>, SourceCounts> bySource = new ConcurrentHashMap<>();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheLookups = new LongAdder();
+    private final LongAdder[] evictions = newCounts(RemovalCause.values().length);
+    private final LongAdder fallbacks = new LongAdder();
+    private final LongAdder keyNameReturns = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+    private final LongAdder[] loadTimes = newCounts(loadTimeRanges.length);
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder tableHits = new LongAdder();
+
+    private static LongAdder[] newCounts(int size) {
+        LongAdder[] counts = new LongAdder[size];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+        return counts;
+    }
+
+    private static int loadTimeRange(long nanos) {
+        for (int i = 0; i < loadTimeLimits.length; i++) {
+            if (nanos < loadTimeLimits[i]) {
+                return i;
+            }
+        }
+        return loadTimeLimits.length;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void tableHits(int count) {
+        tableHits.add(count);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void cacheLookups(int count) {
+        cacheLookups.add(count);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void cacheHits(int count) {
+        cacheHits.add(count);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void loaded(@Nonnull PatternCacheKey cacheKey, int probes, long nanos) {
+        checkNotNull(cacheKey);
+        loads.increment();
+        this.probes.add(probes);
+        loadNanos.add(nanos);
+        int loadTimeRange = loadTimeRange(nanos);
+        loadTimes[loadTimeRange].increment();
+        Locale requestedLocale = cacheKey.getRequestedLocale();
+        BundleLocaleCounts counts = byBundleAndLocale.computeIfAbsent(((I18NKey) cacheKey.getKey()).bundleName() + ' ' + requestedLocale.toLanguageTag(),
+                k -> new BundleLocaleCounts());
+        counts.loadTimes[loadTimeRange].increment();
+        Class<? extends Annotation> source = cacheKey.getSource();
+        if (source == null) {
+            keyNameReturns.increment();
+            counts.keyNameReturns.increment();
+        } else {
+            SourceCounts sourceCounts = bySource.computeIfAbsent(source, s -> new SourceCounts());
+            sourceCounts.loads.increment();
+            sourceCounts.loadTimes[loadTimeRange].increment();
+            if (!requestedLocale.equals(cacheKey.getActualLocale())) {
+                fallbacks.increment();
+                counts.fallbacks.increment();
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void evicted(@Nonnull RemovalCause cause) {
+        checkNotNull(cause);
+        evictions[cause.ordinal()].increment();
+    }
+
+    @Override
+    public long getTableHits() {
+        return tableHits.sum();
+    }
+
+    @Override
+    public long getCacheLookups() {
+        return cacheLookups.sum();
+    }
+
+    @Override
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    @Override
+    public long getLoads() {
+        return loads.sum();
+    }
+
+    @Override
+    public long getProbes() {
+        return probes.sum();
+    }
+
+    @Override
+    public long getFallbacks() {
+        return fallbacks.sum();
+    }
+
+    @Override
+    public long getKeyNameReturns() {
+        return keyNameReturns.sum();
+    }
+
+    @Override
+    public long getMeanLoadMicros() {
+        long count = loads.sum();
+        return (count == 0) ? 0 : TimeUnit.NANOSECONDS.toMicros(loadNanos.sum() / count);
+    }
+
+    @Override
+    public long getEvictions() {
+        long sum = 0;
+        for (LongAdder eviction : evictions) {
+            sum += eviction.sum();
+        }
+        return sum;
+    }
+
+    @Override
+    public Map<String, Long> getEvictionsByCause() {
+        ImmutableMap.Builder<String, Long> builder = ImmutableMap.builder();
+        for (RemovalCause cause : RemovalCause.values()) {
+            long sum = evictions[cause.ordinal()].sum();
+            if (sum > 0) {
+                builder.put(cause.name(), sum);
+            }
+        }
+        return builder.build();
+    }
+
+    @Override
+    public Map<String, Long> getLoadsBySource() {
+        Map<String, Long> counts = new TreeMap<>();
+        bySource.forEach((source, sourceCounts) -> counts.put(source.getSimpleName(), sourceCounts.loads.sum()));
+        return ImmutableMap.copyOf(counts);
+    }
+
+    @Override
+    public Map<String, Long> getLoadTimeHistogram() {
+        ImmutableMap.Builder<String, Long> builder = ImmutableMap.builder();
+        for (int i = 0; i < loadTimes.length; i++) {
+            builder.put(loadTimeRanges[i], loadTimes[i].sum());
+        }
+        return builder.build();
+    }
+
+    @Override
+    public Map<String, Long> getLoadTimeHistogramBySource() {
+        Map<String, LongAdder[]> histograms = new TreeMap<>();
+        bySource.forEach((source, sourceCounts) -> histograms.put(source.getSimpleName(), sourceCounts.loadTimes));
+        return nonZeroLoadTimes(histograms);
+    }
+
+    @Override
+    public Map<String, Long> getLoadTimeHistogramByBundleAndLocale() {
+        Map<String, LongAdder[]> histograms = new TreeMap<>();
+        byBundleAndLocale.forEach((bundleAndLocale, counts) -> histograms.put(bundleAndLocale, counts.loadTimes));
+        return nonZeroLoadTimes(histograms);
+    }
+
+    /**
+     * Flattens {@code histograms} into a single map, keyed by the histogram name followed by the range, omitting empty ranges.  The ranges of each
+     * histogram are kept in ascending order, which sorting by key would not do
+     */
+    private Map<String, Long> nonZeroLoadTimes(Map<String, LongAdder[]> histograms) {
+        ImmutableMap.Builder<String, Long> builder = ImmutableMap.builder();
+        histograms.forEach((name, histogram) -> {
+            for (int i = 0; i < histogram.length; i++) {
+                long sum = histogram[i].sum();
+                if (sum > 0) {
+                    builder.put(name + ' ' + loadTimeRanges[i], sum);
+                }
+            }
+        });
+        return builder.build();
+    }
+
+    @Override
+    public Map<String, Long> getKeyNameReturnsByBundleAndLocale() {
+        return nonZero(counts -> counts.keyNameReturns);
+    }
+
+    @Override
+    public Map<String, Long> getFallbacksByBundleAndLocale() {
+        return nonZero(counts -> counts.fallbacks);
+    }
+
+    private Map<String, Long> nonZero(Function<BundleLocaleCounts, LongAdder> count) {
+        Map<String, Long> sums = new TreeMap<>();
+        byBundleAndLocale.forEach((bundleAndLocale, counts) -> {
+            long sum = count.apply(counts)
+                            .sum();
+            if (sum > 0) {
+                sums.put(bundleAndLocale, sum);
+            }
+        });
+        // a SortedMap cannot be converted to an open type by JMX, so the sorted order is kept in an ImmutableMap instead
+        return ImmutableMap.copyOf(sums);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void reset() {
+        tableHits.reset();
+        cacheLookups.reset();
+        cacheHits.reset();
+        loads.reset();
+        probes.reset();
+        loadNanos.reset();
+        fallbacks.reset();
+        keyNameReturns.reset();
+        for (LongAdder loadTime : loadTimes) {
+            loadTime.reset();
+        }
+        for (LongAdder eviction : evictions) {
+            eviction.reset();
+        }
+        bySource.clear();
+        byBundleAndLocale.clear();
+    }
+
+    private static class BundleLocaleCounts {
+        private final LongAdder fallbacks = new LongAdder();
+        private final LongAdder keyNameReturns = new LongAdder();
+        private final LongAdder[] loadTimes = newCounts(loadTimeRanges.length);
+    }
+
+    private static class SourceCounts {
+        private final LongAdder loads = new LongAdder();
+        private final LongAdder[] loadTimes = newCounts(loadTimeRanges.length);
+    }
+}
@@ -11,18 +11,25 @@
 
 package uk.q3c.krail.i18n;
 
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
+import com.google.common.cache.*;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.google.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.q3c.krail.core.user.opt.GuavaCacheConfiguration;
+import uk.q3c.util.CompiledMessage;
 
 import javax.annotation.Nonnull;
 import java.lang.annotation.Annotation;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.google.common.base.Preconditions.checkNotNull;
-import static com.google.common.cache.CacheBuilder.newBuilder;
 
 /**
  * A cached, single access point for I18N patterns, which may ultimately come from multiple sources.  The patterns are actually loaded into the cache by a
@@ -30,22 +37,61 @@ import static com.google.common.cache.CacheBuilder.newBuilder;
  *
  * This class does NOT check that Locales requested are supported Locales as defined by {@link I18NModule}.  This is the responsibility of {@link CurrentLocale}
  * <p>
+ * Cache entries are recorded in a {@link PatternCacheIndex} as they are loaded, and removed from it when they leave the cache, so that the cache can be
+ * cleared selectively by source, bundle or Locale without scanning all of its entries
+ * <p>
+ * The cache is built from the {@link PatternCacheConfig} configuration (see {@link I18NModule#configurePatternCache()}).  If refreshAfterWrite is
+ * configured, an entry due for refresh is reloaded by the thread which next requests it.  Loading a pattern may need the user's options, and therefore
+ * the user's VaadinSession, so loads are never made on a background thread.  An entry which is evicted, expires or is refreshed is also removed from the
+ * {@link PatternTable}, so that the table does not outlive the cache policy
+ * <p>
+ * The table can only answer a lookup by itself when the cache has no eviction policy (no maximum size or weight, expiry, refresh, or weak or soft
+ * values), as those policies depend on the cache seeing every read.  Otherwise every lookup is passed to the cache, and the table only saves parsing
+ * the pattern again, for as long as the cache returns the same pattern the table was filled from.  Evictions are counted by {@link PatternMetrics}
+ * <p>
+ * Each lookup compares the epoch of the {@link PatternChangeLog} with the epoch this instance last caught up with.  If patterns have changed in the
+ * meantime, only the affected entries are invalidated, and they are then reloaded when next requested, for the same reason.  If the change log no longer
+ * holds all the changes since this instance last caught up, the whole cache is cleared instead
+ * <p>
+ * Lookups answered by the table, those passed to the cache, and those the cache answered without a load, are counted by {@link PatternMetrics}.  Cache
+ * hits are taken from the cache's own statistics, and are therefore only counted if the {@link PatternCacheConfig} configuration records them
+ * <p>
  * Created by David Sowerby on 07/12/14.
  */
 
 public class DefaultPatternSource implements PatternSource<LoadingCache<PatternCacheKey, String>> {
 
+    private static Logger log = LoggerFactory.getLogger(DefaultPatternSource.class);
+    private final GuavaCacheConfiguration cacheConfiguration;
+    private final PatternCacheLoader cacheLoader;
+    private final PatternChangeLog changeLog;
+    private final PatternMetrics metrics;
+    private final PatternCacheIndex index = new PatternCacheIndex();
+    // advanced by each selective invalidation, so that a lookup which overlapped one can remove what it placed in the table
+    private final AtomicLong invalidations = new AtomicLong();
+    // the hit count of the cache when last passed to metrics, so that each hit is recorded once, whichever thread records it
+    private final AtomicLong recordedHits = new AtomicLong();
+    // true if the cache must see every lookup to apply its eviction policy
+    private final boolean cacheLookupRequired;
     private LoadingCache<PatternCacheKey, String> cache;
+    private volatile long epoch;
+    private volatile PatternTable table = new PatternTable();
 
 
     @Inject
-    protected DefaultPatternSource(PatternCacheLoader cacheLoader) {
-        //CacheLoader has no interface so the cast is necessary to allow alternative PatternCacheLLoader implementations
-        //although all implementations would need to extend CacheLoader
+    protected DefaultPatternSource(PatternCacheLoader cacheLoader, @PatternCacheConfig GuavaCacheConfiguration cacheConfiguration, PatternChangeLog
+            changeLog, PatternMetrics metrics) {
+        this.cacheLoader = cacheLoader;
+        this.cacheConfiguration = cacheConfiguration;
+        this.changeLog = changeLog;
+        this.metrics = metrics;
+        this.epoch = changeLog.epoch();
+        this.cacheLookupRequired = hasEvictionPolicy(cacheConfiguration);
+        CacheLoader<PatternCacheKey, String> loader = new IndexingCacheLoader();
+        RemovalListener<PatternCacheKey, String> removalListener = this::entryRemoved;
         //noinspection unchecked
-        cache = newBuilder()
-                            .build((CacheLoader) cacheLoader);
-        // TODO will be using a config object
+        cache = cacheConfiguration.builder(removalListener)
+                                  .build((CacheLoader) loader);
     }
 
 
@@ -57,6 +103,10 @@ public class DefaultPatternSource implements PatternSource<LoadingCache<PatternC
      * Note that this method does not check that the {@code locale} is supported ... it is assumed that by this stage
      * any unsupported locales have been dealt with.  This method will, however, return the name of the key if no
      * entry is found, including when a locale is not supported
+     * <p>
+     * Patterns are first looked up in the {@link PatternTable}, which avoids creating a {@link PatternCacheKey} for every call.  Only if the table does not
+     * yet contain the pattern, or the cache has an eviction policy, is the cache (and therefore the {@link PatternCacheLoader}) used, and the result is
+     * then placed in the table
      *
      * @param key
      *         the I18NKey to identify the pattern
@@ -69,10 +119,126 @@ public class DefaultPatternSource implements PatternSource<LoadingCache<PatternC
      */
     @Override
     public <E extends Enum<E> & I18NKey> String retrievePattern(@Nonnull E key, @Nonnull Locale locale) {
+        return retrieveMessage(key, locale).getPattern();
+    }
+
+    /**
+     * The same as {@link #retrievePattern}, but returns the pattern as held in the {@link PatternTable}, already parsed for formatting
+     *
+     * @param key
+     *         the I18NKey to identify the pattern
+     * @param locale
+     *         the locale for the translation - note that this is not checked to be a supported locale
+     * @param <E>
+     *         an Enum implementing I18NKey
+     *
+     * @return a parsed pattern for the key and locale, or the name of the key if no value is found for the key
+     */
+    @Override
+    public <E extends Enum<E> & I18NKey> CompiledMessage retrieveMessage(@Nonnull E key, @Nonnull Locale locale) {
         checkNotNull(key);
         checkNotNull(locale);
-        PatternCacheKey cacheKey = new PatternCacheKey(key, locale);
-        return cache.getUnchecked(cacheKey);
+        catchUp();
+        // capture the table, so that a pattern loaded before a clearCache() cannot be placed in the table which replaced it
+        PatternTable currentTable = table;
+        CompiledMessage message = currentTable.getMessage(key, locale);
+        if (message != null && !cacheLookupRequired) {
+            metrics.tableHits(1);
+            return message;
+        }
+        metrics.cacheLookups(1);
+        long invalidationCount = invalidations.get();
+        String pattern = cache.getUnchecked(new PatternCacheKey(key, locale));
+        recordCacheHits();
+        if (message != null && message.getPattern() == pattern) {
+            // the cache still holds the pattern the table was filled from
+            return message;
+        }
+        CompiledMessage loaded = currentTable.put(key, locale, pattern);
+        if (invalidations.get() != invalidationCount) {
+            // the pattern may pre-date the invalidation, so must not stay in the table
+            currentTable.remove(key, locale);
+        }
+        return loaded;
+    }
+
+    /**
+     * Retrieves patterns for all of {@code keys}.  Consecutive keys from the same bundle share a single {@link PatternTable} lookup, and only those keys
+     * not already in the table are loaded from the cache, unless the cache has an eviction policy
+     *
+     * @param keys
+     *         the keys to retrieve patterns for.  All keys must be Enums, and none may be null
+     * @param locale
+     *         the locale for the translation - note that this is not checked to be a supported locale
+     *
+     * @return the patterns, in the same order as {@code keys}
+     */
+    @Override
+    public List<String> retrievePatterns(@Nonnull List<? extends I18NKey> keys, @Nonnull Locale locale) {
+        checkNotNull(keys);
+        checkNotNull(locale);
+        catchUp();
+        PatternTable currentTable = table;
+        long invalidationCount = invalidations.get();
+        List<String> patterns = new ArrayList<>(keys.size());
+        List<Enum<?>> loadedKeys = null;
+        Class<?> rowClass = null;
+        CompiledMessage[] row = null;
+        int lookups = 0;
+        for (I18NKey key : keys) {
+            Enum<?> enumKey = (Enum<?>) checkNotNull(key);
+            if (enumKey.getDeclaringClass() != rowClass) {
+                rowClass = enumKey.getDeclaringClass();
+                //noinspection unchecked
+                row = currentTable.row((Class<? extends Enum<?>>) rowClass, locale);
+            }
+            CompiledMessage message = row[enumKey.ordinal()];
+            if (message == null || cacheLookupRequired) {
+                lookups++;
+                String pattern = cache.getUnchecked(new PatternCacheKey(key, locale));
+                if (message == null || message.getPattern() != pattern) {
+                    message = CompiledMessage.compile(pattern);
+                    row[enumKey.ordinal()] = message;
+                    if (loadedKeys == null) {
+                        loadedKeys = new ArrayList<>();
+                    }
+                    loadedKeys.add(enumKey);
+                }
+            }
+            patterns.add(message.getPattern());
+        }
+        if (loadedKeys != null && invalidations.get() != invalidationCount) {
+            // the patterns may pre-date the invalidation, so must not stay in the table
+            loadedKeys.forEach(k -> currentTable.remove(k, locale));
+        }
+        metrics.tableHits(keys.size() - lookups);
+        metrics.cacheLookups(lookups);
+        if (lookups > 0) {
+            recordCacheHits();
+        }
+        return patterns;
+    }
+
+    /**
+     * Returns true if {@code configuration} has a policy which evicts entries from the cache, and which therefore depends on the cache seeing every read
+     */
+    private static boolean hasEvictionPolicy(GuavaCacheConfiguration configuration) {
+        return configuration.getMaximumSize() != null || configuration.getMaximumWeight() != null || configuration.getExpireAfterAccessDuration() != null
+                || configuration.getExpireAfterWriteDuration() != null || configuration.getRefreshAfterWriteDuration() != null || configuration.isWeakValues()
+                || configuration.isSoftValues();
+    }
+
+    /**
+     * Passes the hits counted by the cache since they were last recorded to {@link PatternMetrics}.  A lookup which waited for a load by another thread
+     * is counted by the cache as a miss, not a hit
+     */
+    private void recordCacheHits() {
+        long hits = cache.stats()
+                         .hitCount();
+        long previous = recordedHits.getAndAccumulate(hits, Math::max);
+        if (hits > previous) {
+            metrics.cacheHits((int) (hits - previous));
+        }
     }
 
     @Override
@@ -80,30 +246,174 @@ public class DefaultPatternSource implements PatternSource<LoadingCache<PatternC
         return cache;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public PatternTable getTable() {
+        return table;
+    }
 
+    /**
+     * Clears the cache, and replaces the {@link PatternTable}.  The cache is invalidated before the table is replaced, so that the new table can only be
+     * filled from fresh cache entries.  The {@link PatternCacheLoader} record of missing values is also cleared, as the cache is usually cleared after
+     * patterns have been changed
+     */
     @Override
     public void clearCache() {
+        cacheLoader.clearMissIndex();
         cache.invalidateAll();
         cache.cleanUp();
+        index.clear();
+        table = new PatternTable();
     }
 
     /**
-     * Clears the cache of all entries for {@code source}.
+     * Clears the cache of all entries found in {@code source}, and of all entries for which no pattern was found in any source (as {@code source} may
+     * now hold a pattern for them).  The entries are identified from the {@link PatternCacheIndex}, so only the affected entries are visited
      *
      * @param source the PatternSource annotation associated with a cache entry
      */
     @Override
     public void clearCache(@Nonnull Class<? extends Annotation> source) {
         checkNotNull(source);
-        List<PatternCacheKey> keysToRemove = new ArrayList<>();
-        for (PatternCacheKey key : cache.asMap()
-                                        .keySet()) {
-            if (key.getSource()
-                   .equals(source)) {
-                keysToRemove.add(key);
-            }
+        cacheLoader.clearMissIndex(source);
+        invalidate(index.removeSource(source));
+    }
+
+    /**
+     * Clears the cache of all entries for keys of {@code bundle}, in all Locales
+     *
+     * @param bundle
+     *         the I18NKey class to clear
+     */
+    @Override
+    public void clearBundleCache(@Nonnull Class<? extends I18NKey> bundle) {
+        checkNotNull(bundle);
+        invalidate(index.removeBundle(bundle));
+    }
+
+    /**
+     * Clears the cache of all entries requested for {@code locale}
+     *
+     * @param locale
+     *         the Locale to clear
+     */
+    @Override
+    public void clearCache(@Nonnull Locale locale) {
+        checkNotNull(locale);
+        invalidate(index.removeLocale(locale));
+    }
+
+    /**
+     * Applies any changes recorded in the {@link PatternChangeLog} since this instance last caught up with it
+     */
+    private void catchUp() {
+        if (changeLog.epoch() != epoch) {
+            applyChanges();
+        }
+    }
+
+    /**
+     * Invalidates the entries affected by changes since {@link #epoch}, to be reloaded when next requested.  The miss index is also cleared for the
+     * changed sources, or completely if a bundle has changed, as the change may have added patterns
+     */
+    private synchronized void applyChanges() {
+        long current = changeLog.epoch();
+        if (current == epoch) {
+            return;
         }
-        cache.invalidateAll(keysToRemove);
+        Optional<PatternsChangedBusMessage> changes = changeLog.changesSince(epoch);
+        if (!changes.isPresent()) {
+            log.debug("pattern changes since epoch {} are no longer known, clearing the cache", epoch);
+            clearCache();
+            epoch = current;
+            return;
+        }
+        PatternsChangedBusMessage change = changes.get();
+        if (change.getChangedBundles()
+                  .isEmpty()) {
+            change.getChangedSources()
+                  .forEach(cacheLoader::clearMissIndex);
+        } else {
+            cacheLoader.clearMissIndex();
+        }
+        ImmutableSet<PatternCacheKey> keys = index.removeChanged(change);
+        invalidate(keys);
+        epoch = change.getEpoch();
+        log.debug("invalidated {} patterns changed by {}", keys.size(), change);
+    }
+
+    /**
+     * Invalidates {@code keys} in the cache, and removes them from the table, leaving all other patterns in place.  {@link #invalidations} is advanced
+     * between the two, so that a lookup which read a pattern from the cache before it was invalidated, and places it in the table after it was removed, will
+     * see the change and remove it again
+     */
+    private void invalidate(Set<PatternCacheKey> keys) {
+        cache.invalidateAll(keys);
         cache.cleanUp();
+        invalidations.incrementAndGet();
+        PatternTable currentTable = table;
+        for (PatternCacheKey cacheKey : keys) {
+            currentTable.remove(cacheKey.getKey(), cacheKey.getRequestedLocale());
+        }
+    }
+
+    /**
+     * Keeps the index and table in step with the cache, and passes the notification on to any removal listener in {@link #cacheConfiguration}.
+     * <p>
+     * A replaced value has been re-indexed by its load, and an entry which has been re-loaded since it was removed must stay in the index.  Explicit
+     * removals are made by the clearCache methods, which remove the entries from the table themselves.  The {@link PatternCacheLoader} record of misses for the key is
+     * cleared for any removal other than a replacement, so that a pattern added since the entry was loaded is found when it is next loaded.  Evictions
+     * are counted by {@link PatternMetrics}
+     */
+    private void entryRemoved(RemovalNotification<PatternCacheKey, String> notification) {
+        PatternCacheKey cacheKey = notification.getKey();
+        if (cacheKey != null) {
+            if (notification.getCause() != RemovalCause.REPLACED) {
+                cacheLoader.clearMissIndex((I18NKey) cacheKey.getKey(), cacheKey.getRequestedLocale());
+                if (!cache.asMap()
+                          .containsKey(cacheKey)) {
+                    index.remove(cacheKey);
+                }
+            }
+            if (notification.wasEvicted() || notification.getCause() == RemovalCause.REPLACED) {
+                table.remove(cacheKey.getKey(), cacheKey.getRequestedLocale());
+            }
+        }
+        if (notification.wasEvicted()) {
+            metrics.evicted(notification.getCause());
+        }
+        RemovalListener configuredListener = cacheConfiguration.getRemovalListener();
+        if (configuredListener != null) {
+            //noinspection unchecked
+            configuredListener.onRemoval(notification);
+        }
+    }
+
+    /**
+     * Loads through {@link #cacheLoader}, and records the source the pattern was found in
+     */
+    private class IndexingCacheLoader extends CacheLoader<PatternCacheKey, String> {
+
+        @Override
+        public String load(@Nonnull PatternCacheKey cacheKey) throws Exception {
+            String pattern = cacheLoader.load(cacheKey);
+            index.add(cacheKey, cacheKey.getSource());
+            return pattern;
+        }
+
+        /**
+         * A refresh (see refreshAfterWrite) clears the misses for the key first, so that it probes every source again, and then loads on the calling thread
+         */
+        @Override
+        public ListenableFuture<String> reload(@Nonnull PatternCacheKey cacheKey, @Nonnull String oldValue) throws Exception {
+            cacheLoader.clearMissIndex((I18NKey) cacheKey.getKey(), cacheKey.getRequestedLocale());
+            return super.reload(cacheKey, oldValue);
+        }
     }
 }
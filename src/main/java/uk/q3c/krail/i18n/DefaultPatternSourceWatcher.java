@@ -0,0 +1,248 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.i18n;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.SetMultimap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+import net.engio.mbassy.bus.common.PubSubSupport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.q3c.krail.core.eventbus.BusMessage;
+import uk.q3c.krail.core.eventbus.GlobalBus;
+import uk.q3c.krail.core.services.AbstractServiceI18N;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Default implementation of {@link PatternSourceWatcher}.  When started, each of the {@link PatternWatchDirectories} is registered with a {@link
+ * WatchService}, and {@link #check()} is then called every {@link #pollInterval()} seconds on a single background thread.
+ * <p>
+ * A file whose name is that of a bundle - for example Labels_de_CH.properties or Labels_de.class - is taken to be a change to that bundle (see {@link
+ * I18NKey#bundleName()}) in the Locale given by the file name, or in all Locales if the name has no Locale suffix.  This assumes that bundle names do not
+ * themselves contain an underscore.  Any other file, or a lost event, is taken to be a change to every pattern in the source the directory belongs to.
+ * <p>
+ * The {@link PatternDao#version()} of each source is compared with the version seen by the previous check, so a DAO which does not override {@link
+ * PatternDao#version()} is never seen to change.  A DAO which records its own changes by bundle and Locale reports them through {@link
+ * PatternDao#takeChangedBundles()}, and they are recorded as changes to those bundles only.  The sources changed by file events or by version are
+ * refreshed (see {@link PatternDao#refresh()}), and all the changes found by a single check are recorded together, so that a burst of file events
+ * results in a single reload.
+ * <p>
+ * Created by David Sowerby on 16/10/15.
+ */
+@Singleton
+public class DefaultPatternSourceWatcher extends AbstractServiceI18N implements PatternSourceWatcher {
+
+    private static Logger log = LoggerFactory.getLogger(DefaultPatternSourceWatcher.class);
+    private final PatternChangeLog changeLog;
+    private final ImmutableMap<String, Class<? extends Annotation>> directories;
+    private final PubSubSupport<BusMessage> globalBus;
+    private final Map<Class<? extends Annotation>, Provider<PatternDao>> sources;
+    private final Map<Class<? extends Annotation>, Long> versions = new HashMap<>();
+    private final Map<WatchKey, Class<? extends Annotation>> watchKeys = new HashMap<>();
+    private ScheduledExecutorService executor;
+    private WatchService watchService;
+
+    @Inject
+    protected DefaultPatternSourceWatcher(Translate translate, PatternChangeLog changeLog, @PatternSources Map<Class<? extends Annotation>,
+            Provider<PatternDao>> sources, @PatternWatchDirectories Map<String, Class<? extends Annotation>> directories, @GlobalBus
+    PubSubSupport<BusMessage> globalBus) {
+        super(translate);
+        this.changeLog = changeLog;
+        this.sources = sources;
+        this.directories = ImmutableMap.copyOf(directories);
+        this.globalBus = globalBus;
+        configure();
+    }
+
+    /**
+     * Returns the bundle name and Locale represented by {@code fileName}, or an empty Optional if it is not the name of a bundle file
+     *
+     * @param fileName
+     *         the name of a file, without its path
+     *
+     * @return the bundle name and Locale represented by {@code fileName}, or an empty Optional if it is not the name of a bundle file
+     */
+    protected static Optional<Map.Entry<String, Locale>> bundleFor(@Nonnull String fileName) {
+        String name;
+        if (fileName.endsWith(".properties")) {
+            name = fileName.substring(0, fileName.length() - ".properties".length());
+        } else if (fileName.endsWith(".class")) {
+            name = fileName.substring(0, fileName.length() - ".class".length());
+        } else {
+            return Optional.empty();
+        }
+        if (name.isEmpty() || name.indexOf('$') >= 0) {
+            return Optional.empty();
+        }
+        int separator = name.indexOf('_');
+        if (separator < 0) {
+            return Optional.of(Maps.immutableEntry(name, Locale.ROOT));
+        }
+        String[] parts = name.substring(separator + 1)
+                             .split("_", 3);
+        Locale locale = new Locale(parts[0], (parts.length > 1) ? parts[1] : "", (parts.length > 2) ? parts[2] : "");
+        return Optional.of(Maps.immutableEntry(name.substring(0, separator), locale));
+    }
+
+    /**
+     * Override this method if you want to change the name or description keys.
+     */
+    protected void configure() {
+        setNameKey(LabelKey.Pattern_Source_Watcher);
+        setDescriptionKey(DescriptionKey.Pattern_Source_Watcher);
+    }
+
+    @Override
+    protected synchronized void doStart() throws Exception {
+        watchService = FileSystems.getDefault()
+                                  .newWatchService();
+        for (Map.Entry<String, Class<? extends Annotation>> entry : directories.entrySet()) {
+            Path directory = Paths.get(entry.getKey());
+            if (Files.isDirectory(directory)) {
+                watchKeys.put(directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), entry.getValue());
+                log.debug("watching {} for changes to patterns from {}", directory, entry.getValue()
+                                                                                         .getSimpleName());
+            } else {
+                log.warn("{} is not a directory, and will not be watched for changes to patterns from {}", directory, entry.getValue()
+                                                                                                                  .getSimpleName());
+            }
+        }
+        // establish the versions to compare with
+        check();
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("pattern-watcher-%d")
+                                                                                        .setDaemon(true)
+                                                                                        .build());
+        executor.scheduleWithFixedDelay(this::scheduledCheck, pollInterval(), pollInterval(), TimeUnit.SECONDS);
+    }
+
+    @Override
+    protected synchronized void doStop() throws Exception {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        watchKeys.clear();
+        if (watchService != null) {
+            watchService.close();
+            watchService = null;
+        }
+    }
+
+    /**
+     * A failure must not stop the scheduled checks, so is just logged
+     */
+    private void scheduledCheck() {
+        try {
+            check();
+        } catch (Exception e) {
+            log.error("Failed to check for changes to I18N patterns", e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Nonnull
+    @Override
+    public synchronized Optional<PatternsChangedBusMessage> check() {
+        Set<Class<? extends Annotation>> changedSources = new LinkedHashSet<>();
+        SetMultimap<String, Locale> changedBundles = LinkedHashMultimap.create();
+        Set<Class<? extends Annotation>> refreshSources = new LinkedHashSet<>();
+        if (watchService != null) {
+            WatchKey watchKey;
+            while ((watchKey = watchService.poll()) != null) {
+                Class<? extends Annotation> source = watchKeys.get(watchKey);
+                if (source == null) {
+                    watchKey.cancel();
+                    continue;
+                }
+                for (WatchEvent<?> event : watchKey.pollEvents()) {
+                    Optional<Map.Entry<String, Locale>> bundle = (event.kind() == OVERFLOW) ? Optional.empty() : bundleFor(((Path) event.context())
+                            .getFileName()
+                            .toString());
+                    if (bundle.isPresent()) {
+                        changedBundles.put(bundle.get()
+                                                 .getKey(), bundle.get()
+                                                                  .getValue());
+                    } else {
+                        changedSources.add(source);
+                    }
+                }
+                refreshSources.add(source);
+                if (!watchKey.reset()) {
+                    log.warn("A directory holding patterns from {} can no longer be watched", source.getSimpleName());
+                    watchKeys.remove(watchKey);
+                }
+            }
+        }
+        for (Map.Entry<Class<? extends Annotation>, Provider<PatternDao>> entry : sources.entrySet()) {
+            PatternDao dao = entry.getValue()
+                                  .get();
+            changedBundles.putAll(dao.takeChangedBundles());
+            long version = dao.version();
+            Long previous = versions.put(entry.getKey(), version);
+            if (previous != null && previous != version) {
+                changedSources.add(entry.getKey());
+                refreshSources.add(entry.getKey());
+            }
+        }
+        if (changedSources.isEmpty() && changedBundles.isEmpty()) {
+            return Optional.empty();
+        }
+        for (Class<? extends Annotation> source : refreshSources) {
+            Provider<PatternDao> dao = sources.get(source);
+            if (dao != null) {
+                dao.get()
+                   .refresh();
+            }
+        }
+        PatternsChangedBusMessage change = changeLog.record(changedSources, changedBundles);
+        log.info("I18N patterns changed, {}", change);
+        globalBus.publish(change);
+        return Optional.of(change);
+    }
+
+    /**
+     * The interval, in seconds, between checks for changes.  Override to change the default of 5 seconds
+     *
+     * @return the interval, in seconds, between checks for changes
+     */
+    protected long pollInterval() {
+        return 5;
+    }
+}
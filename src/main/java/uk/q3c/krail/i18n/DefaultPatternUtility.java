@@ -17,6 +17,8 @@ import uk.q3c.krail.core.validation.ValidationKey;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
 import java.util.Locale;
 import java.util.Optional;
 import java.util.Set;
@@ -121,5 +123,33 @@ public class DefaultPatternUtility implements PatternUtility {
         return c;
     }
 
-
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long exportCatalogue(@Nonnull PatternDao source, @Nonnull File catalogueFile, @Nonnull Set<Class<? extends I18NKey>> bundles, @Nonnull
+    Set<Locale> locales) {
+        checkNotNull(source);
+        checkNotNull(catalogueFile);
+        checkNotNull(bundles);
+        checkNotNull(locales);
+        PatternCatalogueWriter writer = new PatternCatalogueWriter();
+        for (Locale locale : locales) {
+            for (Class<? extends I18NKey> bundleClass : bundles) {
+                I18NKey[] keys = bundleClass.getEnumConstants();
+                for (I18NKey key : keys) {
+                    Optional<String> pattern = source.getValue(new PatternCacheKey(key, locale));
+                    if (pattern.isPresent()) {
+                        writer.put(key, locale, pattern.get());
+                    }
+                }
+            }
+        }
+        try {
+            writer.write(catalogueFile.toPath());
+        } catch (IOException e) {
+            throw new PatternWriteException("Unable to write pattern catalogue to " + catalogueFile, e);
+        }
+        return writer.size();
+    }
 }
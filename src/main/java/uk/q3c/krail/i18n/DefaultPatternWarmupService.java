@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.i18n;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.q3c.krail.core.services.AbstractServiceI18N;
+
+import java.lang.annotation.Annotation;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Default implementation of {@link PatternWarmupService}.  When started, the {@link ClassBundleCache} is loaded with the values of each bundle in {@link
+ * PatternWarmupBundles}, for each of the {@link SupportedLocales} and their candidate Locales.
+ * <p>
+ * The service runs before any session exists, so it cannot use the {@link PatternCacheLoader} or a {@link PatternSource}, both of which resolve the
+ * user's {@link uk.q3c.krail.core.user.opt.Option} values.  Instead it fills the application wide {@link ClassBundleCache}, using the default values of
+ * the {@link DefaultClassPatternDao} path options.  A session using those defaults then finds the bundles already located, loaded and copied, and its
+ * first pattern loads need only read from the held values.  Other sources are not warmed, and nothing is loaded if {@link ClassPatternSource} is not
+ * one of the {@link PatternSources}.
+ * <p>
+ * Each bundle and Locale combination is a separate task, and the tasks are run on a fixed size pool of {@link #threadCount()} threads.  {@link
+ * #doStart()} does not return until all the tasks have completed, or {@link #timeout()} has elapsed, so that if the service is started before the
+ * servlet accepts requests (see DefaultBindingManager#warmupPatterns), the first request finds the bundles already loaded.
+ * <p>
+ * A failure to load a bundle is logged and counted, but does not prevent the service from starting - the bundle is simply loaded again when it is first
+ * used.  Progress is logged as each task completes, and the counts and overall duration are available from this service.
+ * <p>
+ * Created by David Sowerby on 16/10/15.
+ */
+@Singleton
+public class DefaultPatternWarmupService extends AbstractServiceI18N implements PatternWarmupService {
+
+    private static final KrailResourceBundleControl candidateControl = new KrailResourceBundleControl();
+    private static Logger log = LoggerFactory.getLogger(DefaultPatternWarmupService.class);
+    private final ClassBundleCache bundleCache;
+    private final ImmutableSet<Class<? extends I18NKey>> bundles;
+    private final AtomicInteger completed = new AtomicInteger();
+    private final ClassBundleControl control;
+    private final AtomicInteger failures = new AtomicInteger();
+    private final boolean hasClassSource;
+    private final ImmutableSet<Locale> supportedLocales;
+    private volatile long duration;
+    private volatile int total;
+
+    @Inject
+    protected DefaultPatternWarmupService(Translate translate, ClassBundleCache bundleCache, ClassBundleControl control, @PatternSources Map<Class<?
+            extends Annotation>, Provider<PatternDao>> sources, @SupportedLocales Set<Locale> supportedLocales, @PatternWarmupBundles Set<Class<? extends
+            I18NKey>> bundles) {
+        super(translate);
+        this.bundleCache = bundleCache;
+        this.control = control;
+        this.hasClassSource = sources.containsKey(ClassPatternSource.class);
+        this.supportedLocales = ImmutableSet.copyOf(supportedLocales);
+        this.bundles = ImmutableSet.copyOf(bundles);
+        configure();
+    }
+
+    /**
+     * Override this method if you want to change the name or description keys.
+     */
+    protected void configure() {
+        setNameKey(LabelKey.Pattern_Warmup_Service);
+        setDescriptionKey(DescriptionKey.Pattern_Warmup_Service);
+    }
+
+    @Override
+    protected void doStart() throws Exception {
+        completed.set(0);
+        failures.set(0);
+        duration = 0;
+        total = hasClassSource ? bundles.size() * supportedLocales.size() : 0;
+        if (total == 0) {
+            log.info("Pattern warm-up has nothing to load, or class based patterns are not a source");
+            return;
+        }
+        long startTime = System.nanoTime();
+        ThreadFactory threadFactory = new ThreadFactoryBuilder().setNameFormat("pattern-warmup-%d")
+                                                                .setDaemon(true)
+                                                                .build();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threadCount(), total), threadFactory);
+        try {
+            CompletionService<String> completionService = new ExecutorCompletionService<>(executor);
+            for (Class<? extends I18NKey> bundle : bundles) {
+                for (Locale locale : supportedLocales) {
+                    completionService.submit(() -> loadBundle(bundle, locale));
+                }
+            }
+            long deadline = startTime + TimeUnit.SECONDS.toNanos(timeout());
+            for (int i = 0; i < total; i++) {
+                Future<String> result = completionService.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                if (result == null) {
+                    log.warn("Pattern warm-up timed out after {} seconds, with {} of {} bundles loaded", timeout(), completed.get(), total);
+                    return;
+                }
+                log.debug("Pattern warm-up loaded {} ({} of {}) after {}ms", result.get(), completed.get(), total, elapsed(startTime));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        duration = elapsed(startTime);
+        log.info("Pattern warm-up loaded {} bundles for {} Locales in {}ms, with {} failures", bundles.size(), supportedLocales.size(), duration, failures
+                .get());
+    }
+
+    /**
+     * Loads the values of {@code bundle} into the {@link ClassBundleCache}, for {@code locale} and each of its candidate Locales, with the bundle
+     * location given by the default path options
+     *
+     * @return a description of what was loaded, for logging
+     */
+    private String loadBundle(Class<? extends I18NKey> bundle, Locale locale) {
+        try {
+            I18NKey[] keys = bundle.getEnumConstants();
+            if (keys == null || keys.length == 0) {
+                log.warn("{} is not an Enum with constants, and cannot be pre-loaded", bundle.getName());
+                failures.incrementAndGet();
+                return bundle.getSimpleName();
+            }
+            I18NKey sampleKey = keys[0];
+            String expandedBaseName = DefaultClassPatternDao.expandFromKey(sampleKey, DefaultClassPatternDao.optionKeyUseKeyPath.getDefaultValue(),
+                    DefaultClassPatternDao.optionPathToValues.getDefaultValue());
+            //noinspection unchecked
+            Class<? extends Enum<?>> keyClass = (Class<? extends Enum<?>>) bundle;
+            for (Locale candidate : candidateControl.getCandidateLocales(sampleKey.bundleName(), locale)) {
+                if (bundleCache.values(expandedBaseName, keyClass, candidate, control) == null) {
+                    log.warn("Pattern warm-up failed to load bundle {} for Locale {}", expandedBaseName, candidate);
+                    failures.incrementAndGet();
+                }
+            }
+            return bundle.getSimpleName() + " " + locale;
+        } catch (Exception e) {
+            log.warn("Pattern warm-up failed to load {} for Locale {}: {}", bundle.getSimpleName(), locale, e.getMessage());
+            failures.incrementAndGet();
+            return bundle.getSimpleName() + " " + locale;
+        } finally {
+            completed.incrementAndGet();
+        }
+    }
+
+    private long elapsed(long startTime) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+    }
+
+    /**
+     * The number of threads used to load patterns.  Override to change the default, which is the number of available processors, up to a maximum of 4
+     *
+     * @return the number of threads used to load patterns
+     */
+    protected int threadCount() {
+        return Math.min(Runtime.getRuntime()
+                               .availableProcessors(), 4);
+    }
+
+    /**
+     * The maximum time, in seconds, that {@link #doStart()} waits for loading to complete.  Override to change the default of 60 seconds
+     *
+     * @return the maximum time, in seconds, that {@link #doStart()} waits for loading to complete
+     */
+    protected long timeout() {
+        return 60;
+    }
+
+    /**
+     * Nothing to release - loaded bundle values remain available
+     */
+    @Override
+    protected void doStop() {
+    }
+
+    @Override
+    public int getTotal() {
+        return total;
+    }
+
+    @Override
+    public int getCompleted() {
+        return completed.get();
+    }
+
+    @Override
+    public int getFailures() {
+        return failures.get();
+    }
+
+    @Override
+    public long getDuration() {
+        return duration;
+    }
+}
@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.i18n;
+
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Singleton;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.lang.annotation.Annotation;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Default implementation for {@link PatternWriteQueue}.  Queued entries are held in insertion order, and a single background thread (started when the
+ * first entry is queued) flushes them every {@link #flushInterval()} milliseconds.  Each flush groups the entries by target, and makes a single call to
+ * {@link PatternDao#writeAll} for each target.
+ * <p>
+ * Targets are identified by their annotation rather than by DAO instance, as a new DAO instance is usually provided for each load.  The DAO most
+ * recently queued for a target is the one used to write to it.
+ * <p>
+ * {@link #shutdown()} stops the background thread, after writing any queued entries, and is called when the application is undeployed.  Entries queued
+ * after that are discarded, so that no thread is started which nothing would stop.
+ * <p>
+ * The afterWrite action of each entry is run once the {@link PatternDao#writeAll} which included it has returned.
+ * <p>
+ * The queue is bounded by {@link #capacity()}.  When full, new entries are discarded (and counted, see {@link #getDroppedCount()}) rather than blocking
+ * the caller, as a missing stub is simply written again the next time the pattern is loaded.  A failure to write is logged, and does not affect other
+ * targets.
+ * <p>
+ * Created by David Sowerby on 16/10/15.
+ */
+@Singleton
+@ThreadSafe
+public class DefaultPatternWriteQueue implements PatternWriteQueue {
+    private static Logger log = LoggerFactory.getLogger(DefaultPatternWriteQueue.class);
+    private final LongAdder dropped = new LongAdder();
+    private ScheduledExecutorService executor;
+    private boolean shutdown;
+    private volatile long lastFlushLatency;
+    private LinkedHashMap<WriteKey, PendingWrite> pending = new LinkedHashMap<>();
+    private Map<Class<? extends Annotation>, PatternDao> targetDaos = new HashMap<>();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void enqueue(@Nonnull Class<? extends Annotation> target, @Nonnull PatternDao dao, @Nonnull PatternCacheKey cacheKey, @Nonnull String value,
+                        @Nullable Runnable afterWrite) {
+        checkNotNull(target);
+        checkNotNull(dao);
+        checkNotNull(cacheKey);
+        checkNotNull(value);
+        PatternCacheKey copy = new PatternCacheKey((I18NKey) cacheKey.getKey(), cacheKey.getRequestedLocale());
+        copy.setActualLocale(cacheKey.getActualLocale());
+        copy.setSource(cacheKey.getSource());
+        WriteKey writeKey = new WriteKey(target, copy);
+        synchronized (this) {
+            if (shutdown) {
+                dropped.increment();
+                log.debug("pattern write queue has been shut down, discarding write for {}", copy);
+                return;
+            }
+            PendingWrite existing = pending.get(writeKey);
+            if (existing != null) {
+                pending.put(writeKey, new PendingWrite(copy, value, existing.queuedAt, afterWrite));
+                targetDaos.put(target, dao);
+                return;
+            }
+            if (pending.size() >= capacity()) {
+                dropped.increment();
+                log.debug("pattern write queue is full, discarding write for {}", copy);
+                return;
+            }
+            pending.put(writeKey, new PendingWrite(copy, value, System.nanoTime(), afterWrite));
+            targetDaos.put(target, dao);
+            if (executor == null) {
+                executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("pattern-write-%d")
+                                                                                                  .setDaemon(true)
+                                                                                                  .build());
+                executor.scheduleWithFixedDelay(this::flush, flushInterval(), flushInterval(), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void flush() {
+        Map<WriteKey, PendingWrite> batch;
+        Map<Class<? extends Annotation>, PatternDao> daos;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            daos = targetDaos;
+            pending = new LinkedHashMap<>();
+            targetDaos = new HashMap<>();
+        }
+        long oldest = Long.MAX_VALUE;
+        Map<Class<? extends Annotation>, List<Map.Entry<PatternCacheKey, String>>> byTarget = new LinkedHashMap<>();
+        Map<Class<? extends Annotation>, List<Runnable>> afterWrites = new HashMap<>();
+        for (Map.Entry<WriteKey, PendingWrite> entry : batch.entrySet()) {
+            PendingWrite write = entry.getValue();
+            oldest = Math.min(oldest, write.queuedAt);
+            Class<? extends Annotation> target = entry.getKey().target;
+            byTarget.computeIfAbsent(target, t -> new ArrayList<>())
+                    .add(Maps.immutableEntry(write.cacheKey, write.value));
+            if (write.afterWrite != null) {
+                afterWrites.computeIfAbsent(target, t -> new ArrayList<>())
+                           .add(write.afterWrite);
+            }
+        }
+        for (Map.Entry<Class<? extends Annotation>, List<Map.Entry<PatternCacheKey, String>>> entry : byTarget.entrySet()) {
+            PatternDao dao = daos.get(entry.getKey());
+            try {
+                dao.writeAll(entry.getValue());
+            } catch (Exception e) {
+                log.warn("Failed to write {} patterns to {} ({})", entry.getValue()
+                                                                        .size(), entry.getKey()
+                                                                                      .getSimpleName(), dao.connectionUrl(), e);
+                continue;
+            }
+            for (Runnable afterWrite : afterWrites.getOrDefault(entry.getKey(), Collections.emptyList())) {
+                try {
+                    afterWrite.run();
+                } catch (Exception e) {
+                    log.warn("Action after writing patterns to {} failed", entry.getKey()
+                                                                               .getSimpleName(), e);
+                }
+            }
+        }
+        lastFlushLatency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - oldest);
+        log.debug("flushed {} pattern writes to {} targets in {}ms", batch.size(), byTarget.size(), lastFlushLatency);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Waits up to {@link #shutdownTimeout()} milliseconds for a flush already in progress to complete
+     */
+    @Override
+    public void shutdown() {
+        ScheduledExecutorService current;
+        synchronized (this) {
+            shutdown = true;
+            current = executor;
+            executor = null;
+        }
+        if (current != null) {
+            current.shutdown();
+            try {
+                if (!current.awaitTermination(shutdownTimeout(), TimeUnit.MILLISECONDS)) {
+                    log.warn("pattern write queue did not complete its flush within {}ms", shutdownTimeout());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread()
+                      .interrupt();
+            }
+        }
+        flush();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized int depth() {
+        return pending.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getLastFlushLatency() {
+        return lastFlushLatency;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * The maximum number of entries held.  Override to change
+     *
+     * @return the maximum number of entries held
+     */
+    protected int capacity() {
+        return 10000;
+    }
+
+    /**
+     * The time between flushes, in milliseconds.  Override to change
+     *
+     * @return the time between flushes, in milliseconds
+     */
+    protected long flushInterval() {
+        return 500;
+    }
+
+    /**
+     * The maximum time, in milliseconds, that {@link #shutdown()} waits for a flush in progress to complete.  Override to change
+     *
+     * @return the maximum time, in milliseconds, that {@link #shutdown()} waits for a flush in progress to complete
+     */
+    protected long shutdownTimeout() {
+        return 10000;
+    }
+
+    /**
+     * Identifies a queued write by target, key and both Locales - {@link PatternCacheKey#equals} does not include the actual Locale
+     */
+    private static class WriteKey {
+        private final Locale actualLocale;
+        private final PatternCacheKey cacheKey;
+        private final Class<? extends Annotation> target;
+
+        private WriteKey(Class<? extends Annotation> target, PatternCacheKey cacheKey) {
+            this.target = target;
+            this.cacheKey = cacheKey;
+            this.actualLocale = cacheKey.getActualLocale();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            WriteKey other = (WriteKey) o;
+            return target.equals(other.target) && cacheKey.equals(other.cacheKey) && Objects.equals(actualLocale, other.actualLocale);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(target, cacheKey, actualLocale);
+        }
+    }
+
+    private static class PendingWrite {
+        private final Runnable afterWrite;
+        private final PatternCacheKey cacheKey;
+        private final long queuedAt;
+        private final String value;
+
+        private PendingWrite(PatternCacheKey cacheKey, String value, long queuedAt, Runnable afterWrite) {
+            this.cacheKey = cacheKey;
+            this.value = value;
+            this.queuedAt = queuedAt;
+            this.afterWrite = afterWrite;
+        }
+    }
+}
@@ -12,14 +12,19 @@
  */
 package uk.q3c.krail.i18n;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.inject.Inject;
-import uk.q3c.util.MessageFormat;
+import uk.q3c.util.CompiledMessage;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.text.Collator;
 import java.util.*;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
 /**
  * Translates from an  {@link I18NKey} to a value from a {@link PatternSource}, expanding its arguments if it has them.
  * Using the standard Krail method for I18N, the keys will be defined as Enum, implementing I18NKey.  However, this
@@ -34,6 +39,7 @@ public class DefaultTranslate implements Translate {
     private final CurrentLocale currentLocale;
     private final Set<Locale> supportedLocales;
     private final PatternSource patternSource;
+    private final CollatorCache collatorCache;
 
     /**
      * @param patternSource
@@ -42,11 +48,15 @@ public class DefaultTranslate implements Translate {
      *         the locale for the current user
      * @param supportedLocales
      *         the Locales that this application supports
+     * @param collatorCache
+     *         the application wide cache of Collators
      */
     @Inject
-    protected DefaultTranslate(PatternSource patternSource, CurrentLocale currentLocale, @SupportedLocales Set<Locale> supportedLocales) {
+    protected DefaultTranslate(PatternSource patternSource, CurrentLocale currentLocale, @SupportedLocales Set<Locale> supportedLocales, CollatorCache
+            collatorCache) {
         super();
         this.patternSource = patternSource;
+        this.collatorCache = collatorCache;
         this.supportedLocales = supportedLocales;
         this.currentLocale = currentLocale;
     }
@@ -63,7 +73,8 @@ public class DefaultTranslate implements Translate {
 
     /**
      * Iterates through {@link #patternSource} in ascending order (the order need not be sequential), and returns the
-     * first pattern found for {@code key}.
+     * first pattern found for {@code key}.  The pattern is retrieved already parsed (see {@link PatternSource#retrieveMessage}), so that it is not
+     * re-scanned every time arguments are applied to it.
      * <p>
      * <p>
      * If the key does not provide a pattern from any of the sources, and key is an Enum, the enum.name() is returned.
@@ -73,7 +84,7 @@ public class DefaultTranslate implements Translate {
      * returned
      * <p>
      * If arguments are supplied, these are applied to the pattern.  If key is null, a String "key is null"
-     * is returned.  Any arguments which are also I18NKey types are also translated
+     * is returned.  Any arguments which are also I18NKey types are also translated, using the same {@code locale}
      *
      * @param key
      *         the key to look up the I18N pattern
@@ -97,24 +108,42 @@ public class DefaultTranslate implements Translate {
             return "key is null";
         }
         //        E k = typeBridge(key);
-        String pattern = patternSource.retrievePattern((Enum) key, locale);
+        CompiledMessage message = patternSource.retrieveMessage((Enum) key, locale);
 
 
         //If no arguments, return the pattern as it is
         if ((arguments == null) || (arguments.length == 0)) {
-            return pattern;
+            return message.getPattern();
         }
 
-        // If any of the arguments are I18NKeys, translate them as well
-        List<Object> args = new ArrayList<>(Arrays.asList(arguments));
-        for (int i = 0; i < args.size(); i++) {
-            if (args.get(i) instanceof I18NKey) {
-                @SuppressWarnings("unchecked") String translation = from((E) args.get(i));
-                args.remove(i);
-                args.add(i, translation);
+        return message.format(expandArguments(locale, arguments));
+    }
+
+    /**
+     * Translates any arguments which are I18NKeys, using the same {@code locale} as the pattern they are applied to.  The {@code arguments} array is
+     * returned unchanged if it contains no I18NKeys - otherwise a single copy is made (so that the caller's array is not modified) and the translations
+     * replace the keys in place.  Nested keys are translated without their own arguments, so there is no further copying
+     *
+     * @param locale
+     *         the locale to translate nested keys with - this has already been checked (if required) by the caller
+     * @param arguments
+     *         the arguments to expand
+     *
+     * @return {@code arguments}, or a copy of it with I18NKey arguments replaced by their translations
+     */
+    protected Object[] expandArguments(@Nonnull Locale locale, @Nonnull Object[] arguments) {
+        Object[] expanded = arguments;
+        for (int i = 0; i < arguments.length; i++) {
+            Object argument = arguments[i];
+            if (argument instanceof I18NKey) {
+                if (expanded == arguments) {
+                    expanded = arguments.clone();
+                }
+                expanded[i] = patternSource.retrieveMessage((Enum) argument, locale)
+                                           .getPattern();
             }
         }
-        return MessageFormat.format(pattern, args.toArray());
+        return expanded;
     }
 
     /**
@@ -125,10 +154,76 @@ public class DefaultTranslate implements Translate {
         return from(true, key, locale, arguments);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ImmutableList<String> fromAll(@Nonnull Collection<? extends I18NKey> keys) {
+        return fromAll(keys, currentLocale.getLocale());
+    }
 
+    /**
+     * Checks the {@code locale} once, then passes all non-null keys to {@link PatternSource#retrievePatterns} as a single batch.  Null keys are translated
+     * to "key is null", as they are by {@link #from(boolean, I18NKey, Locale, Object...)}
+     *
+     * @param keys
+     *         the keys to translate
+     * @param locale
+     *         the Locale to use for translation
+     *
+     * @return the translations, in the same order as {@code keys} is iterated
+     *
+     * @throws UnsupportedLocaleException
+     *         if locale is not in {@link #supportedLocales}
+     */
+    @Override
+    public ImmutableList<String> fromAll(@Nonnull Collection<? extends I18NKey> keys, @Nonnull Locale locale) {
+        checkNotNull(keys);
+        checkNotNull(locale);
+        if (!supportedLocales.contains(locale)) {
+            throw new UnsupportedLocaleException(locale);
+        }
+        List<I18NKey> nonNullKeys = new ArrayList<>(keys.size());
+        for (I18NKey key : keys) {
+            if (key != null) {
+                nonNullKeys.add(key);
+            }
+        }
+        //noinspection unchecked
+        List<String> patterns = patternSource.retrievePatterns(nonNullKeys, locale);
+        if (nonNullKeys.size() == keys.size()) {
+            return ImmutableList.copyOf(patterns);
+        }
+        ImmutableList.Builder<String> translations = ImmutableList.builder();
+        Iterator<String> patternIterator = patterns.iterator();
+        for (I18NKey key : keys) {
+            translations.add((key == null) ? "key is null" : patternIterator.next());
+        }
+        return translations.build();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ImmutableMap<I18NKey, String> bundle(@Nonnull Class<? extends I18NKey> keyClass, @Nonnull Locale locale) {
+        checkNotNull(keyClass);
+        checkArgument(keyClass.isEnum(), "A bundle must be an Enum");
+        List<I18NKey> keys = Arrays.<I18NKey>asList(keyClass.getEnumConstants());
+        List<String> translations = fromAll(keys, locale);
+        ImmutableMap.Builder<I18NKey, String> bundle = ImmutableMap.builder();
+        for (int i = 0; i < keys.size(); i++) {
+            bundle.put(keys.get(i), translations.get(i));
+        }
+        return bundle.build();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
     @Override
     public Collator collator() {
-        return Collator.getInstance(currentLocale.getLocale());
+        return collatorCache.collator(currentLocale.getLocale());
     }
 
 
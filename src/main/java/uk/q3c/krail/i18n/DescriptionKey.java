@@ -39,6 +39,8 @@ public enum DescriptionKey implements I18NKey {
     Display_style_for_the_description_caption, Display_style_for_the_description, Display_style_for_all_captions_unless_overridden,
     Display_style_for_all_values_unless_overridden, Display_style_for_the_connection_url_caption, Display_style_for_the_connection_url,
     Display_style_for_the_is_volatile_caption, Display_style_for_the_is_volatile, Start_the_export_for_the_chosen_Locales, Export_progress,
-    List_of_Locales_to_export, Selected_Pattern_Targets, Flag_Icon_Size
+    List_of_Locales_to_export, Selected_Pattern_Targets, Flag_Icon_Size, Pattern_Warmup_Service,
+    Data_is_held_in_a_read_only_pattern_catalogue, Pattern_Source_Watcher,
+    Pattern_Metrics, Refresh_the_pattern_metrics, Cancel_the_export
 
 }
@@ -40,6 +40,15 @@ public class Descriptions extends EnumResourceBundle<DescriptionKey> {
                 "from krail.ini");
         put(Sitemap_Service, "This service creates the Sitemap using options from the application" +
                 " configuration");
+        put(Pattern_Warmup_Service, "This service loads I18N patterns for all supported Locales when the application " +
+                "starts");
+        put(Data_is_held_in_a_read_only_pattern_catalogue, "Patterns are read from a binary catalogue file, which cannot be changed " +
+                "while the application is running");
+        put(Pattern_Source_Watcher, "This service detects changes to I18N patterns while the application is running, and refreshes " +
+                "just the affected translations");
+        put(Pattern_Metrics, "Counts of I18N pattern lookups and loads since the application started, or since the metrics were last reset");
+        put(Refresh_the_pattern_metrics, "Refresh the I18N pattern metrics");
+        put(Cancel_the_export, "Stop the export - keys already exported are not removed");
         put(Unknown_Account, "That username or password was not recognised");
         put(Account_Expired, "Your account has expired");
         put(Account_Already_In_Use, "This account is already in use.  You must log out of " + "that " +
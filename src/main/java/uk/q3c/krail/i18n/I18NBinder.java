@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.i18n;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Applies I18N annotation values to the fields of an instance of {@code T} directly, without reflection.  Implementations are generated at build time by
+ * {@link uk.q3c.krail.i18n.apt.I18NBinderProcessor}, with the name of the target class followed by {@link #SUFFIX} (nested class names are joined with '_'),
+ * and are used by {@link DefaultI18NProcessor} in preference to scanning the target with reflection.
+ * <p>
+ * Implementations must have a public no-argument constructor, and must be stateless, as a single instance is used for all instances of {@code T}
+ * <p>
+ * Created by David Sowerby on 16/10/15.
+ *
+ * @param <T>
+ *         the type of object this binder applies to
+ */
+public interface I18NBinder<T> {
+
+    String SUFFIX = "_I18NBinder";
+
+    /**
+     * Applies the annotation values of each annotated field of {@code target} through {@code context}, and passes each drill down field to {@code context}
+     *
+     * @param target
+     *         the object to translate
+     * @param context
+     *         applies the values, and handles drill down
+     */
+    void bind(@Nonnull T target, @Nonnull I18NBinderContext context);
+}
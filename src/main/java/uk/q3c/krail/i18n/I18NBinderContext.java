@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.i18n;
+
+import com.vaadin.ui.AbstractComponent;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Provided by the {@link I18NProcessor} to an {@link I18NBinder}, to apply the values read from I18N annotations at build time
+ * <p>
+ * Created by David Sowerby on 16/10/15.
+ */
+public interface I18NBinderContext {
+
+    /**
+     * Applies the Locale, caption, description and value to {@code component}, and translates column headers if it is a Table or Grid.  Does nothing
+     * if {@code component} is null
+     *
+     * @param component
+     *         the component to update, may be null if it has not been constructed
+     * @param fieldName
+     *         the name of the field holding the component, used for logging
+     * @param captionKey
+     *         the caption key, or null if there is none
+     * @param descriptionKey
+     *         the description key, or null if there is none
+     * @param valueKey
+     *         the value key, or null if there is none
+     * @param localeTag
+     *         the IETF BCP 47 language tag of the Locale to use, or an empty String to use the current Locale
+     */
+    void apply(@Nullable AbstractComponent component, @Nonnull String fieldName, @Nullable I18NKey captionKey, @Nullable I18NKey descriptionKey,
+               @Nullable I18NKey valueKey, @Nonnull String localeTag);
+
+    /**
+     * Translates {@code object}, which is held by a field marked for drill down.  Does nothing if {@code object} is null, or has already been translated
+     *
+     * @param object
+     *         the object to drill down into
+     */
+    void drillDown(@Nullable Object object);
+}
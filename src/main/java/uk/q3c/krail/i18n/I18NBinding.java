@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.i18n;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import java.util.Collection;
+import java.util.Locale;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The keys and Locale override applied to a component by the {@link I18NProcessor}, as recorded in an {@link I18NBindingRegistry}.  A null key means that
+ * the corresponding property was not set.  A null Locale means the component follows {@link CurrentLocale}
+ * <p>
+ * Created by David Sowerby on 16/10/15.
+ */
+@Immutable
+public class I18NBinding {
+
+    private final I18NKey captionKey;
+    private final I18NKey descriptionKey;
+    private final String fieldName;
+    private final Locale locale;
+    private final I18NKey valueKey;
+
+    public I18NBinding(@Nonnull String fieldName, @Nullable I18NKey captionKey, @Nullable I18NKey descriptionKey, @Nullable I18NKey valueKey, @Nullable
+    Locale locale) {
+        checkNotNull(fieldName);
+        this.fieldName = fieldName;
+        this.captionKey = captionKey;
+        this.descriptionKey = descriptionKey;
+        this.valueKey = valueKey;
+        this.locale = locale;
+    }
+
+    @Nonnull
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    @Nullable
+    public I18NKey getCaptionKey() {
+        return captionKey;
+    }
+
+    @Nullable
+    public I18NKey getDescriptionKey() {
+        return descriptionKey;
+    }
+
+    @Nullable
+    public I18NKey getValueKey() {
+        return valueKey;
+    }
+
+    /**
+     * Returns the Locale fixed by the annotations, or null if the component follows {@link CurrentLocale}
+     *
+     * @return the Locale fixed by the annotations, or null if the component follows {@link CurrentLocale}
+     */
+    @Nullable
+    public Locale getLocale() {
+        return locale;
+    }
+
+    /**
+     * Adds the non-null keys to {@code keys}, in the order caption, description, value
+     *
+     * @param keys
+     *         the collection to add to
+     */
+    public void addKeysTo(@Nonnull Collection<I18NKey> keys) {
+        if (captionKey != null) {
+            keys.add(captionKey);
+        }
+        if (descriptionKey != null) {
+            keys.add(descriptionKey);
+        }
+        if (valueKey != null) {
+            keys.add(valueKey);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "I18NBinding{" +
+                "fieldName='" + fieldName + '\'' +
+                ", captionKey=" + captionKey +
+                ", descriptionKey=" + descriptionKey +
+                ", valueKey=" + valueKey +
+                ", locale=" + locale +
+                '}';
+    }
+}
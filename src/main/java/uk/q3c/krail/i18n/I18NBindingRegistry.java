@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.i18n;
+
+import com.google.common.collect.ImmutableMap;
+import com.vaadin.server.ClientConnector;
+import com.vaadin.ui.AbstractComponent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Records the {@link I18NBinding} applied to each component by the {@link I18NProcessor}, so that a change of Locale can be applied by {@link
+ * I18NProcessor#retranslate(I18NBindingRegistry)} without scanning the component tree again.  Each {@link uk.q3c.krail.core.ui.ScopedUI} holds its own
+ * registry.
+ * <p>
+ * An entry is removed when its component is detached - if the component is attached again, it is expected to be translated again, as a view is when it
+ * is displayed.  Components are also only weakly referenced, so that a component which is translated but never attached does not leak.
+ * <p>
+ * Created by David Sowerby on 16/10/15.
+ */
+@ThreadSafe
+public class I18NBindingRegistry implements ClientConnector.DetachListener {
+    private static Logger log = LoggerFactory.getLogger(I18NBindingRegistry.class);
+    private final Map<AbstractComponent, I18NBinding> bindings = new WeakHashMap<>();
+
+    /**
+     * Records {@code binding} for {@code component}, replacing any previous binding
+     *
+     * @param component
+     *         the component the binding was applied to
+     * @param binding
+     *         the binding applied
+     */
+    public synchronized void register(@Nonnull AbstractComponent component, @Nonnull I18NBinding binding) {
+        checkNotNull(component);
+        checkNotNull(binding);
+        if (bindings.put(component, binding) == null) {
+            // the listener may still be there from an earlier registration, don't add it twice
+            component.removeDetachListener(this);
+            component.addDetachListener(this);
+        }
+    }
+
+    /**
+     * Removes the binding for {@code component}, if there is one
+     *
+     * @param component
+     *         the component to remove the binding for
+     */
+    public synchronized void remove(@Nonnull AbstractComponent component) {
+        checkNotNull(component);
+        bindings.remove(component);
+    }
+
+    @Override
+    public void detach(ClientConnector.DetachEvent event) {
+        ClientConnector connector = event.getConnector();
+        if (connector instanceof AbstractComponent) {
+            log.debug("removing I18N binding for detached component {}", connector);
+            remove((AbstractComponent) connector);
+        }
+    }
+
+    /**
+     * Returns a snapshot of the bindings for components which follow {@link CurrentLocale} - those with a fixed Locale are unaffected by a change of
+     * Locale
+     *
+     * @return a snapshot of the bindings for components which follow {@link CurrentLocale}
+     */
+    @Nonnull
+    public synchronized ImmutableMap<AbstractComponent, I18NBinding> currentLocaleBindings() {
+        ImmutableMap.Builder<AbstractComponent, I18NBinding> snapshot = ImmutableMap.builder();
+        for (Map.Entry<AbstractComponent, I18NBinding> entry : bindings.entrySet()) {
+            if (entry.getValue()
+                     .getLocale() == null) {
+                snapshot.put(entry);
+            }
+        }
+        return snapshot.build();
+    }
+
+    /**
+     * Returns the binding for {@code component}, or null if there is none
+     *
+     * @param component
+     *         the component to return the binding for
+     *
+     * @return the binding for {@code component}, or null if there is none
+     */
+    @Nullable
+    public synchronized I18NBinding get(@Nonnull AbstractComponent component) {
+        return bindings.get(component);
+    }
+
+    public synchronized int size() {
+        return bindings.size();
+    }
+
+    /**
+     * Removes all bindings
+     */
+    public synchronized void clear() {
+        bindings.clear();
+    }
+}
@@ -14,6 +14,7 @@ package uk.q3c.krail.i18n;
 import com.vaadin.ui.AbstractComponent;
 
 import javax.annotation.Nonnull;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -28,4 +29,21 @@ public interface I18NFieldScanner {
     void scan(@Nonnull Object target);
 
     List<Object> processedDrillDowns();
+
+    /**
+     * Scans {@code target} alone, so that {@link #annotatedComponents()} holds only the components of {@code target}.  The objects which {@code target}
+     * marks for drill down are returned rather than scanned, so that the caller can decide how to process each of them - {@link DefaultI18NProcessor}
+     * uses the generated {@link I18NBinder} of each one which has a binder.  The default implementation scans {@code target} and everything it drills
+     * down into, and returns an empty list
+     *
+     * @param target
+     *         the object to scan
+     *
+     * @return the objects to drill down into, in the order found
+     */
+    @Nonnull
+    default List<Object> scanWithoutDrillDown(@Nonnull Object target) {
+        scan(target);
+        return Collections.emptyList();
+    }
 }
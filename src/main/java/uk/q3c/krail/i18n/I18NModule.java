@@ -22,7 +22,9 @@ import org.apache.commons.lang3.LocaleUtils;
 import uk.q3c.krail.core.guice.uiscope.UIScoped;
 import uk.q3c.krail.core.guice.vsscope.VaadinSessionScoped;
 import uk.q3c.krail.core.persist.KrailPersistenceUnitHelper;
+import uk.q3c.krail.core.user.opt.GuavaCacheConfiguration;
 import uk.q3c.krail.core.user.opt.Option;
+import uk.q3c.krail.core.validation.ValidationKey;
 
 import javax.annotation.Nonnull;
 import java.lang.annotation.Annotation;
@@ -54,11 +56,15 @@ public class I18NModule extends AbstractModule {
     private Map<Class<? extends I18NKey>, LinkedHashSet<Class<? extends Annotation>>> prepSourcesOrderByBundle = new LinkedHashMap<>();
     private Set<Locale> prepSupportedLocales = new LinkedHashSet<>();
     private LinkedHashSet<Class<? extends Annotation>> prepTargets = new LinkedHashSet<>();
+    private Map<String, Class<? extends Annotation>> prepWatchDirectories = new LinkedHashMap<>();
+    private Set<Class<? extends I18NKey>> prepWarmupBundles = new LinkedHashSet<>();
     private MapBinder<Class<? extends Annotation>, PatternDao> sources;
     private Multibinder<Class<? extends Annotation>> sourcesDefaultOrder;
     private MapBinder<Class<? extends I18NKey>, LinkedHashSet<Class<? extends Annotation>>> sourcesOrderByBundle;
     private Multibinder<Locale> supportedLocales;
     private MapBinder<Class<? extends Annotation>, PatternDao> targets;
+    private Multibinder<Class<? extends I18NKey>> warmupBundles;
+    private MapBinder<String, Class<? extends Annotation>> watchDirectories;
 
     @Override
     protected void configure() {
@@ -74,6 +80,8 @@ public class I18NModule extends AbstractModule {
         sources = MapBinder.newMapBinder(binder(), annotationLiteral, patternDaoTypeLiteral, PatternSources.class);
         targets = MapBinder.newMapBinder(binder(), annotationLiteral, patternDaoTypeLiteral, PatternTargets.class);
         sourcesOrderByBundle = MapBinder.newMapBinder(binder(), keyClassTypeLiteral, setOfAnnotationsTypeLiteral, PatternSourceOrderByBundle.class);
+        warmupBundles = newSetBinder(binder(), keyClassTypeLiteral, PatternWarmupBundles.class);
+        watchDirectories = MapBinder.newMapBinder(binder(), TypeLiteral.get(String.class), annotationLiteral, PatternWatchDirectories.class);
 
         define();
 
@@ -83,8 +91,11 @@ public class I18NModule extends AbstractModule {
 
         bindDefaultLocale();
         bindTranslate();
+        bindCollatorCache();
         bindPatternSource();
+        bindPatternCacheConfiguration();
         bindPatternCacheLoader();
+        bindPatternWriteQueue();
         bindPatternUtility();
         bindFieldScanner();
         bindHostClassIdentifier();
@@ -96,8 +107,96 @@ public class I18NModule extends AbstractModule {
         bindSourceOrderByBundle();
         bindTargets();
         bindClassPatternDao();
+        bindClassBundleCache();
         bindPatternDao();
         bindI18NSourceProvider();
+        bindWarmupBundles();
+        bindPatternWarmupService();
+        bindWatchDirectories();
+        bindPatternChangeLog();
+        bindPatternSourceWatcher();
+        bindPatternMetrics();
+        bindPatternExportJob();
+    }
+
+    /**
+     * See javadoc for {@link DefaultPatternExportJob} for an explanation of what this is for.  Override this method if you provide your own
+     * implementation
+     */
+    protected void bindPatternExportJob() {
+        bind(PatternExportJob.class).to(DefaultPatternExportJob.class);
+    }
+
+    /**
+     * See javadoc for {@link DefaultPatternMetrics} for an explanation of what this is for.  Override this method if you provide your own implementation
+     */
+    protected void bindPatternMetrics() {
+        bind(PatternMetrics.class).to(DefaultPatternMetrics.class);
+    }
+
+    /**
+     * Binds the directories set by calls to {@link #watchDirectory} (which may be none)
+     */
+    protected void bindWatchDirectories() {
+        for (Map.Entry<String, Class<? extends Annotation>> entry : prepWatchDirectories.entrySet()) {
+            watchDirectories.addBinding(entry.getKey())
+                            .toInstance(entry.getValue());
+        }
+    }
+
+    /**
+     * See javadoc for {@link DefaultPatternChangeLog} for an explanation of what this is for.  Override this method if you provide your own
+     * implementation
+     */
+    protected void bindPatternChangeLog() {
+        bind(PatternChangeLog.class).to(DefaultPatternChangeLog.class);
+    }
+
+    /**
+     * Override this method to provide your own implementation of {@link PatternSourceWatcher}
+     */
+    protected void bindPatternSourceWatcher() {
+        bind(PatternSourceWatcher.class).to(DefaultPatternSourceWatcher.class);
+    }
+
+    /**
+     * Binds the bundles set by calls to {@link #warmupBundles}, setting {@link LabelKey}, {@link DescriptionKey}, {@link MessageKey} and {@link
+     * ValidationKey} as default if nothing defined
+     */
+    protected void bindWarmupBundles() {
+        if (prepWarmupBundles.isEmpty()) {
+            Collections.addAll(prepWarmupBundles, LabelKey.class, DescriptionKey.class, MessageKey.class, ValidationKey.class);
+        }
+        for (Class<? extends I18NKey> bundle : prepWarmupBundles) {
+            warmupBundles.addBinding()
+                         .toInstance(bundle);
+        }
+    }
+
+    protected void bindPatternCacheConfiguration() {
+        bind(GuavaCacheConfiguration.class).annotatedWith(PatternCacheConfig.class)
+                                           .toInstance(configurePatternCache());
+    }
+
+    /**
+     * Override this to configure the pattern cache used by {@link DefaultPatternSource}.  The cache holds an entry for each key and Locale used, so the
+     * maximum size should allow for the number of supported Locales.  If refreshAfterWrite is set, an entry due for refresh is reloaded by the thread which
+     * next requests it
+     *
+     * @return a GuavaCacheConfiguration instance
+     */
+    protected GuavaCacheConfiguration configurePatternCache() {
+        GuavaCacheConfiguration config = new GuavaCacheConfiguration();
+        config.maximumSize(10000)
+              .recordStats();
+        return config;
+    }
+
+    /**
+     * Override this method to provide your own implementation of {@link PatternWarmupService}
+     */
+    protected void bindPatternWarmupService() {
+        bind(PatternWarmupService.class).to(DefaultPatternWarmupService.class);
     }
 
     /**
@@ -118,6 +217,13 @@ public class I18NModule extends AbstractModule {
         bind(ClassPatternDao.class).to(DefaultClassPatternDao.class);
     }
 
+    /**
+     * See javadoc for {@link DefaultClassBundleCache} for an explanation of what this is for.  Override this method if you provide your own implementation
+     */
+    protected void bindClassBundleCache() {
+        bind(ClassBundleCache.class).to(DefaultClassBundleCache.class);
+    }
+
     /**
      * Binds the {@link PatternDao} to the annotation for {@link ClassPatternDao}.   This enables class based I18N patterns to be used, if {@link
      * ClassPatternSource} is included within I18NModule as a source.
@@ -195,6 +301,13 @@ public class I18NModule extends AbstractModule {
         bind(PatternCacheLoader.class).to(DefaultPatternCacheLoader.class);
     }
 
+    /**
+     * See javadoc for {@link DefaultPatternWriteQueue} for an explanation of what this is for.  Override this method if you provide your own implementation
+     */
+    protected void bindPatternWriteQueue() {
+        bind(PatternWriteQueue.class).to(DefaultPatternWriteQueue.class);
+    }
+
     /**
      * It is generally advisable to use the same scope for this as for current locale (see {@link #bindCurrentLocale()}.   See javadoc for {@link
      * DefaultPatternSource} for an explanation of what this is for.  Override this method if you provide your own implementation
@@ -211,6 +324,13 @@ public class I18NModule extends AbstractModule {
         bind(Translate.class).to(DefaultTranslate.class);
     }
 
+    /**
+     * See javadoc for {@link DefaultCollatorCache} for an explanation of what this is for.  Override this method if you provide your own implementation
+     */
+    protected void bindCollatorCache() {
+        bind(CollatorCache.class).to(DefaultCollatorCache.class);
+    }
+
     /**
      * Override this method to provide your own implementation of {@link CurrentLocale} or to change the scope used.
      * Choose between {@link UIScoped} or {@link VaadinSessionScoped}, depending on whether you want users to set the
@@ -414,6 +534,41 @@ public class I18NModule extends AbstractModule {
         return this;
     }
 
+    /**
+     * The bundles (I18NKey classes) which are loaded for all supported Locales by the {@link PatternWarmupService} when the application starts.  If this
+     * method is not called, {@link LabelKey}, {@link DescriptionKey}, {@link MessageKey} and {@link ValidationKey} are used
+     *
+     * @param keyClasses
+     *         the bundles to load
+     *
+     * @return this for fluency
+     */
+    @SafeVarargs
+    public final I18NModule warmupBundles(@Nonnull Class<? extends I18NKey>... keyClasses) {
+        checkNotNull(keyClasses);
+        Collections.addAll(prepWarmupBundles, keyClasses);
+        return this;
+    }
+
+    /**
+     * A directory which holds patterns for {@code source}, and which is watched by the {@link PatternSourceWatcher} for changes while the application is
+     * running.  Files in the directory named as bundles (for example Labels_de.properties) cause just that bundle and Locale to be reloaded - any other
+     * change causes all patterns from {@code source} to be reloaded
+     *
+     * @param source
+     *         the source whose patterns are held in {@code directory}
+     * @param directory
+     *         the path to the directory to watch
+     *
+     * @return this for fluency
+     */
+    public final I18NModule watchDirectory(@Nonnull Class<? extends Annotation> source, @Nonnull String directory) {
+        checkNotNull(source);
+        checkNotNull(directory);
+        prepWatchDirectories.put(directory, source);
+        return this;
+    }
+
 
     /**
      * Adds an I18N source, identified by {@code source} (source is roughly equivalent to 'format' in the native Java I18N support, except that it does not
@@ -28,4 +28,23 @@ public interface I18NProcessor {
      */
     public abstract void translate(Object target);
 
+    /**
+     * The same as {@link #translate(Object)}, but also records the keys and Locale applied to each component in {@code registry}, so that a later
+     * change of Locale can be applied by {@link #retranslate(I18NBindingRegistry)}
+     *
+     * @param target
+     *         the object to translate
+     * @param registry
+     *         the registry to record bindings in
+     */
+    void translate(Object target, I18NBindingRegistry registry);
+
+    /**
+     * Translates the components recorded in {@code registry} to the current Locale, without scanning the objects which contain them
+     *
+     * @param registry
+     *         the registry holding the bindings to apply
+     */
+    void retranslate(I18NBindingRegistry registry);
+
 }
\ No newline at end of file
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.i18n;
+
+import com.google.common.collect.ImmutableList;
+import com.vaadin.ui.AbstractComponent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.Map;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The result of scanning a class (and its superclasses) for I18N annotated fields, held so that the reflection is done only once per class.  The plan
+ * contains a getter for each field which holds a component to be translated, with its {@link AnnotationInfo}, and a getter for each field to be drilled
+ * down into.  Scanning an instance is then just a matter of calling the getters - see {@link #execute}
+ * <p>
+ * Plans are held in a ClassValue, and obtained with {@link #forClass(Class)}
+ * <p>
+ * Fields are included as components if they have one or more annotations which are themselves annotated with {@link I18NAnnotation}.  Field annotations
+ * take precedence - the annotations on the class of the field's type are used only if there are no I18N field annotations.  Fields are included for drill
+ * down if they are annotated with {@link I18N} with drillDown=true (the default) - again the field annotation takes precedence over the class annotation
+ * <p>
+ * Created by David Sowerby on 16/10/15.
+ */
+@Immutable
+public class I18NScanPlan {
+
+    private static final ClassValue<I18NScanPlan> plans = new ClassValue<I18NScanPlan>() {
+        @Override
+        protected I18NScanPlan computeValue(Class<?> type) {
+            return new I18NScanPlan(type);
+        }
+    };
+    private static final MethodType getterType = MethodType.methodType(Object.class, Object.class);
+    private static Logger log = LoggerFactory.getLogger(I18NScanPlan.class);
+    private final ImmutableList<ComponentGetter> components;
+    private final ImmutableList<MethodHandle> drillDowns;
+
+    private I18NScanPlan(Class<?> type) {
+        log.debug("building I18N scan plan for '{}'", type.getName());
+        ImmutableList.Builder<ComponentGetter> componentBuilder = ImmutableList.builder();
+        ImmutableList.Builder<MethodHandle> drillDownBuilder = ImmutableList.builder();
+        Class<?> classToScan = type;
+        while (classToScan != null && !classToScan.equals(Object.class)) {
+            for (Field field : classToScan.getDeclaredFields()) {
+                //do field annotations first, we can ignore class annotations if there are field annotations
+                AnnotationInfo annotationInfo = annotationInfo(field, field.getDeclaredAnnotations());
+                if (annotationInfo == null) {
+                    annotationInfo = annotationInfo(field, field.getType()
+                                                                .getDeclaredAnnotations());
+                }
+                if (annotationInfo != null) {
+                    componentBuilder.add(new ComponentGetter(getter(field), annotationInfo));
+                }
+                if (isDrillDown(field)) {
+                    drillDownBuilder.add(getter(field));
+                }
+            }
+            classToScan = classToScan.getSuperclass();
+        }
+        components = componentBuilder.build();
+        drillDowns = drillDownBuilder.build();
+    }
+
+    /**
+     * Returns the plan for {@code type}, building it if this is the first request for that class
+     *
+     * @param type
+     *         the class to return the plan for.  This should be the original class, not a class enhanced by Guice AOP - see {@link I18NHostClassIdentifier}
+     *
+     * @return the plan for {@code type}
+     *
+     * @throws I18NException
+     *         if an I18N annotation (other than {@link I18N}) is applied to a field which is not an AbstractComponent
+     */
+    @Nonnull
+    public static I18NScanPlan forClass(@Nonnull Class<?> type) {
+        checkNotNull(type);
+        return plans.get(type);
+    }
+
+    /**
+     * Returns an AnnotationInfo for the I18N annotations in {@code annotations}, or null if there are none.  {@link I18N} itself is not included, as it is
+     * used only to include or exclude drill down
+     */
+    private static AnnotationInfo annotationInfo(Field field, Annotation[] annotations) {
+        AnnotationInfo annotationInfo = new AnnotationInfo(field);
+        for (Annotation annotation : annotations) {
+            if (annotation.annotationType()
+                          .isAnnotationPresent(I18NAnnotation.class) && !annotation.annotationType()
+                                                                                 .equals(I18N.class)) {
+                log.debug("Annotation @{} found for field '{}'", annotation.annotationType(), field.getName());
+                annotationInfo.getAnnotations()
+                              .add(annotation);
+            }
+        }
+        if (annotationInfo.getAnnotations()
+                          .isEmpty()) {
+            return null;
+        }
+        if (!AbstractComponent.class.isAssignableFrom(field.getType())) {
+            throw new I18NException("I18N annotations (except for @18N), can only be applied to AbstractComponent");
+        }
+        return annotationInfo;
+    }
+
+    /**
+     * A field annotation of {@link I18N} takes precedence over an {@link I18N} annotation on the class of the field's type
+     */
+    private static boolean isDrillDown(Field field) {
+        I18N i18N = field.getAnnotation(I18N.class);
+        if (i18N == null) {
+            i18N = field.getType()
+                        .getAnnotation(I18N.class);
+        }
+        return i18N != null && i18N.drillDown();
+    }
+
+    /**
+     * Returns a getter of type (Object)Object, for both instance and static fields
+     */
+    private static MethodHandle getter(Field field) {
+        field.setAccessible(true);
+        try {
+            MethodHandle getter = MethodHandles.lookup()
+                                               .unreflectGetter(field);
+            if (Modifier.isStatic(field.getModifiers())) {
+                return MethodHandles.dropArguments(getter.asType(MethodType.methodType(Object.class)), 0, Object.class);
+            }
+            return getter.asType(getterType);
+        } catch (IllegalAccessException e) {
+            throw new I18NException("Unable to access field " + field.getName(), e);
+        }
+    }
+
+    private static Object get(MethodHandle getter, Object target) {
+        try {
+            return getter.invokeExact(target);
+        } catch (Throwable throwable) {
+            throw new I18NException("Unable to read field value", throwable);
+        }
+    }
+
+    /**
+     * Reads the fields of {@code target} identified by this plan.  Non-null components are added to {@code components}, and non-null drill down
+     * objects to {@code drillDowns}
+     *
+     * @param target
+     *         the object to read.  Must be an instance of the class this plan was built for
+     * @param components
+     *         the map to add components to
+     * @param drillDowns
+     *         the collection to add objects to be drilled down into
+     */
+    public void execute(@Nonnull Object target, @Nonnull Map<AbstractComponent, AnnotationInfo> components, @Nonnull Collection<Object> drillDowns) {
+        checkNotNull(target);
+        for (ComponentGetter componentGetter : this.components) {
+            AbstractComponent component = (AbstractComponent) get(componentGetter.getter, target);
+            if (component != null) {
+                components.put(component, componentGetter.annotationInfo);
+            }
+        }
+        for (MethodHandle getter : this.drillDowns) {
+            Object drillDown = get(getter, target);
+            if (drillDown != null) {
+                drillDowns.add(drillDown);
+            }
+        }
+    }
+
+    public int componentCount() {
+        return components.size();
+    }
+
+    public int drillDownCount() {
+        return drillDowns.size();
+    }
+
+    private static class ComponentGetter {
+        private final AnnotationInfo annotationInfo;
+        private final MethodHandle getter;
+
+        private ComponentGetter(MethodHandle getter, AnnotationInfo annotationInfo) {
+            this.getter = getter;
+            this.annotationInfo = annotationInfo;
+        }
+    }
+}
@@ -12,9 +12,11 @@
 package uk.q3c.krail.i18n;
 
 
+import com.google.common.collect.SetMultimap;
 import com.google.inject.Inject;
 
 import javax.annotation.Nonnull;
+import java.util.Locale;
 import java.util.Optional;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -84,5 +86,17 @@ public class InMemoryPatternDao implements PatternDao {
         return store.count();
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Patterns written to the store (including stubs written by {@link PatternCacheLoader}) are reported by bundle and Locale, so {@link #version()} is
+     * not overridden
+     */
+    @Nonnull
+    @Override
+    public SetMultimap<String, Locale> takeChangedBundles() {
+        return store.takeChangedBundles();
+    }
+
 
 }
@@ -12,6 +12,13 @@
 package uk.q3c.krail.i18n;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.SetMultimap;
+
+import javax.annotation.Nonnull;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.BiConsumer;
 
 /**
  * Created by David Sowerby on 25/06/15.
@@ -23,7 +30,69 @@ public interface InMemoryPatternStore {
 
     String get(PatternCacheKey cacheKey);
 
+    /**
+     * Returns a copy of the entire store.  Use {@link #forEach} or {@link #cursor()} to read the store without copying it
+     *
+     * @return a copy of the entire store
+     */
     ImmutableMap<PatternCacheKey, String> getAsMap();
 
+    /**
+     * Passes each entry to {@code action}, in the order described by {@link #cursor()}, without taking a copy of the store
+     *
+     * @param action
+     *         the action to perform for each entry
+     */
+    void forEach(@Nonnull BiConsumer<PatternCacheKey, String> action);
+
+    /**
+     * Returns an iterator over all entries, ordered by Locale (language tag), then I18NKey class name, then key ordinal.  The iterator is weakly
+     * consistent - it reflects some or all changes made after it was created, and never throws a ConcurrentModificationException.  It does not support
+     * remove()
+     *
+     * @return an iterator over all entries
+     */
+    @Nonnull
+    Iterator<Map.Entry<PatternCacheKey, String>> cursor();
+
+    /**
+     * Returns an iterator as {@link #cursor()}, but starting from {@code from} (inclusive), whether or not there is an entry for it.  Used to resume
+     * paging, by passing the key following the last entry read
+     *
+     * @param from
+     *         the first key to return
+     *
+     * @return an iterator over entries from {@code from}
+     */
+    @Nonnull
+    Iterator<Map.Entry<PatternCacheKey, String>> cursor(@Nonnull PatternCacheKey from);
+
+    /**
+     * Returns an iterator as {@link #cursor()}, but over the entries for a single {@code locale} and {@code keyClass} only
+     *
+     * @param locale
+     *         the Locale of the entries
+     * @param keyClass
+     *         the I18NKey class (bundle) of the entries
+     *
+     * @return an iterator over the entries for {@code locale} and {@code keyClass}
+     */
+    @Nonnull
+    Iterator<Map.Entry<PatternCacheKey, String>> cursor(@Nonnull Locale locale, @Nonnull Class<? extends I18NKey> keyClass);
+
+    /**
+     * Returns the number of entries in the store, without iterating over them
+     *
+     * @return the number of entries in the store
+     */
     long count();
+
+    /**
+     * Returns the bundles (by {@link I18NKey#bundleName()}) in which an entry has been added, changed or removed since the previous call, each with the
+     * requested Locales in which it changed
+     *
+     * @return the Locales in which each bundle has changed since the previous call, keyed by bundle name
+     */
+    @Nonnull
+    SetMultimap<String, Locale> takeChangedBundles();
 }
@@ -55,6 +55,8 @@ public class Messages extends EnumResourceBundle<MessageKey> {
         put(Keys_exported, "{0} keys were exported across {1} locales ");
         put(Setup_I18NKey_export, "List the Locales you want to export below, then press {0}. \n\n Note that no check is made that the Locales you select are" + " supported by your application - this is to allow the export before you configure the supported Locales.");
         put(All_Keys_exported, "All the Krail core keys will be exported - LabelKey, DescriptionKey, MessageKey and ValidationKey");
+        put(There_are_no_Pattern_Targets_selected, "There are no pattern targets selected to export to");
+        put(Pattern_export_progress, "{0} of {1} keys exported, {2} of {3} Locales complete");
     }
 
 
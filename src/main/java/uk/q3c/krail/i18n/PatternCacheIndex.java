@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.i18n;
+
+import com.google.common.collect.ImmutableSet;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.lang.annotation.Annotation;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A secondary index of the entries in the {@link DefaultPatternSource} cache, by the source a pattern was found in, by bundle (I18NKey class) and by
+ * requested Locale.  This allows a selective clear of the cache to invalidate just the affected entries, without scanning the whole cache.
+ * <p>
+ * The source is recorded when an entry is loaded, rather than being read back from {@link PatternCacheKey#getSource()} later.  Entries for which no
+ * pattern was found (and which therefore hold the key name, or a stub value) have no source, and are indexed as unsourced - these are included when
+ * clearing any source, as that source may now hold a value for them.
+ * <p>
+ * The index may briefly hold a key which is no longer in the cache - the only consequence is that the key is invalidated unnecessarily
+ * <p>
+ * Created by David Sowerby on 16/10/15.
+ */
+@ThreadSafe
+public class PatternCacheIndex {
+
+    // bundle name (see I18NKey.bundleName()) -> the I18NKey classes indexed with that name, so that changes by bundle name can be looked up directly
+    private final ConcurrentMap<String, Set<Class<?>>> bundleClasses = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class<?>, Set<PatternCacheKey>> byBundle = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Locale, Set<PatternCacheKey>> byLocale = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Class<? extends Annotation>, Set<PatternCacheKey>> bySource = new ConcurrentHashMap<>();
+    private final Set<PatternCacheKey> unsourced = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Adds {@code cacheKey} to the index
+     *
+     * @param cacheKey
+     *         the key of the cache entry
+     * @param source
+     *         the source the pattern was found in, or null if no pattern was found
+     */
+    public void add(@Nonnull PatternCacheKey cacheKey, @Nullable Class<? extends Annotation> source) {
+        checkNotNull(cacheKey);
+        if (source == null) {
+            unsourced.add(cacheKey);
+        } else {
+            bySource.computeIfAbsent(source, s -> ConcurrentHashMap.newKeySet())
+                    .add(cacheKey);
+        }
+        Class<?> bundle = cacheKey.getKey()
+                                  .getDeclaringClass();
+        byBundle.computeIfAbsent(bundle, b -> ConcurrentHashMap.newKeySet())
+                .add(cacheKey);
+        bundleClasses.computeIfAbsent(((I18NKey) cacheKey.getKey()).bundleName(), n -> ConcurrentHashMap.newKeySet())
+                     .add(bundle);
+        byLocale.computeIfAbsent(cacheKey.getRequestedLocale(), l -> ConcurrentHashMap.newKeySet())
+                .add(cacheKey);
+    }
+
+    /**
+     * Removes {@code cacheKey} from the index
+     *
+     * @param cacheKey
+     *         the key of the cache entry
+     */
+    public void remove(@Nonnull PatternCacheKey cacheKey) {
+        checkNotNull(cacheKey);
+        unsourced.remove(cacheKey);
+        bySource.values()
+                .forEach(keys -> keys.remove(cacheKey));
+        remove(byBundle, cacheKey.getKey()
+                                 .getDeclaringClass(), cacheKey);
+        remove(byLocale, cacheKey.getRequestedLocale(), cacheKey);
+    }
+
+    private <K> void remove(ConcurrentMap<K, Set<PatternCacheKey>> map, K indexKey, PatternCacheKey cacheKey) {
+        Set<PatternCacheKey> keys = map.get(indexKey);
+        if (keys != null) {
+            keys.remove(cacheKey);
+        }
+    }
+
+    /**
+     * Removes and returns the keys of entries found in {@code source}, together with those entries which were not found in any source
+     *
+     * @param source
+     *         the source to select entries by
+     *
+     * @return the keys of entries found in {@code source}, together with those entries which were not found in any source
+     */
+    @Nonnull
+    public ImmutableSet<PatternCacheKey> removeSource(@Nonnull Class<? extends Annotation> source) {
+        checkNotNull(source);
+        ImmutableSet.Builder<PatternCacheKey> builder = ImmutableSet.builder();
+        Set<PatternCacheKey> keys = bySource.remove(source);
+        if (keys != null) {
+            builder.addAll(keys);
+        }
+        for (PatternCacheKey cacheKey : unsourced) {
+            if (unsourced.remove(cacheKey)) {
+                builder.add(cacheKey);
+            }
+        }
+        ImmutableSet<PatternCacheKey> removed = builder.build();
+        removed.forEach(this::removeFromBundleAndLocale);
+        return removed;
+    }
+
+    /**
+     * Removes and returns the keys of entries for {@code bundle}
+     *
+     * @param bundle
+     *         the I18NKey class to select entries by
+     *
+     * @return the keys of entries for {@code bundle}
+     */
+    @Nonnull
+    public ImmutableSet<PatternCacheKey> removeBundle(@Nonnull Class<? extends I18NKey> bundle) {
+        checkNotNull(bundle);
+        return removeAll(byBundle.remove(bundle));
+    }
+
+    /**
+     * Removes and returns the keys of entries for {@code locale}
+     *
+     * @param locale
+     *         the requested Locale to select entries by
+     *
+     * @return the keys of entries for {@code locale}
+     */
+    @Nonnull
+    public ImmutableSet<PatternCacheKey> removeLocale(@Nonnull Locale locale) {
+        checkNotNull(locale);
+        return removeAll(byLocale.remove(locale));
+    }
+
+    /**
+     * Removes and returns the keys of entries which may have been changed by {@code changes} (see {@link PatternsChangedBusMessage#affects}).  Only the
+     * entries of the changed sources and changed bundles are visited
+     *
+     * @param changes
+     *         the changes to select entries by
+     *
+     * @return the keys of entries which may have been changed by {@code changes}
+     */
+    @Nonnull
+    public ImmutableSet<PatternCacheKey> removeChanged(@Nonnull PatternsChangedBusMessage changes) {
+        checkNotNull(changes);
+        ImmutableSet.Builder<PatternCacheKey> builder = ImmutableSet.builder();
+        for (Class<? extends Annotation> source : changes.getChangedSources()) {
+            builder.addAll(removeSource(source));
+        }
+        for (String bundleName : changes.getChangedBundles()
+                                        .keySet()) {
+            Set<Class<?>> bundles = bundleClasses.get(bundleName);
+            if (bundles == null) {
+                continue;
+            }
+            for (Class<?> bundle : bundles) {
+                Set<PatternCacheKey> keys = byBundle.get(bundle);
+                if (keys == null) {
+                    continue;
+                }
+                for (PatternCacheKey cacheKey : keys) {
+                    if (changes.affects(cacheKey)) {
+                        builder.add(cacheKey);
+                    }
+                }
+            }
+        }
+        ImmutableSet<PatternCacheKey> removed = builder.build();
+        removed.forEach(this::remove);
+        return removed;
+    }
+
+    private ImmutableSet<PatternCacheKey> removeAll(@Nullable Set<PatternCacheKey> keys) {
+        if (keys == null) {
+            return ImmutableSet.of();
+        }
+        ImmutableSet<PatternCacheKey> removed = ImmutableSet.copyOf(keys);
+        removed.forEach(this::remove);
+        return removed;
+    }
+
+    private void removeFromBundleAndLocale(PatternCacheKey cacheKey) {
+        remove(byBundle, cacheKey.getKey()
+                                 .getDeclaringClass(), cacheKey);
+        remove(byLocale, cacheKey.getRequestedLocale(), cacheKey);
+    }
+
+    /**
+     * Removes all entries from the index
+     */
+    public void clear() {
+        bySource.clear();
+        unsourced.clear();
+        byBundle.clear();
+        bundleClasses.clear();
+        byLocale.clear();
+    }
+}
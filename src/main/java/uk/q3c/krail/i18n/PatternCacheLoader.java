@@ -11,6 +11,9 @@
 
 package uk.q3c.krail.i18n;
 
+import java.lang.annotation.Annotation;
+import java.util.Locale;
+
 /**
  * Implementations load the I18N pattern cache from potentially multiple sources.  Configuration of the order in which sources are accessed is held in {@link
  * I18NModule} and presented to consumers (such as implementations of this interface) via {@link PatternSourceProvider}
@@ -22,5 +25,41 @@ package uk.q3c.krail.i18n;
  */
 public interface PatternCacheLoader {
 
+    /**
+     * Loads the pattern for {@code cacheKey} from the configured sources
+     *
+     * @param cacheKey
+     *         identifies the key and Locale to load
+     *
+     * @return the pattern for {@code cacheKey}, never null
+     *
+     * @throws Exception
+     *         if unable to load the pattern
+     */
+    String load(PatternCacheKey cacheKey) throws Exception;
+
+    /**
+     * Implementations may keep a record of which sources have no value for a key and Locale, so that they are not asked again.  This clears that record
+     * for all sources, and should be called whenever patterns may have been written to sources
+     */
+    void clearMissIndex();
+
+    /**
+     * Clears the record of missing values for {@code source} only - see {@link #clearMissIndex()}
+     *
+     * @param source
+     *         the source which has been written to
+     */
+    void clearMissIndex(Class<? extends Annotation> source);
 
+    /**
+     * Clears the record of missing values for {@code key} requested in {@code locale} (including the candidate Locales it falls back to), in all sources
+     * - see {@link #clearMissIndex()}.  Called when a single cache entry is reloaded, or leaves the cache, so that its next load probes every source again
+     *
+     * @param key
+     *         the key to clear
+     * @param locale
+     *         the requested Locale to clear
+     */
+    void clearMissIndex(I18NKey key, Locale locale);
 }
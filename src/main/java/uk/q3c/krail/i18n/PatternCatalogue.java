@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.i18n;
+
+import com.google.common.collect.ImmutableMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A read-only catalogue of I18N patterns, held in a binary file written by {@link PatternCatalogueWriter} and read through a memory mapped FileChannel.
+ * Only the directory of bundles (one for each I18NKey class and Locale) is read when the catalogue is opened - a pattern is located by a binary search
+ * of its bundle's index, and decoded from UTF-8 only when it is requested.  The content of the file is therefore paged in by the operating system as it
+ * is used, and bundles which are never used cost no heap.
+ * <p>
+ * The format (all integers are big-endian) is:
+ * <ol>
+ * <li>header: the int {@link #MAGIC}, the int {@link #VERSION}, and an int count of bundles</li>
+ * <li>directory: for each bundle, the key class name and Locale language tag (each as a short length followed by UTF-8 bytes), then an int offset to
+ * the bundle's index and an int count of its entries</li>
+ * <li>indexes: for each bundle, 16 bytes for each entry, sorted by the UTF-8 bytes of the key name - an int offset and an int length for the key name,
+ * then the same for the pattern</li>
+ * <li>data: the UTF-8 bytes of the key names and patterns</li>
+ * </ol>
+ * All offsets are from the start of the file.
+ * <p>
+ * Created by David Sowerby on 16/10/15.
+ */
+@Immutable
+public class PatternCatalogue {
+
+    public static final int MAGIC = 0x4B504331; // "KPC1"
+    public static final int VERSION = 1;
+    static final int ENTRY_SIZE = 16;
+    private final ImmutableMap<String, ImmutableMap<String, Bundle>> bundles;
+    private final ByteBuffer buffer;
+    private final long entryCount;
+
+    private PatternCatalogue(ByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.remaining() < 12 || buffer.getInt(0) != MAGIC) {
+            throw new I18NException("Not a pattern catalogue");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new I18NException("Unsupported pattern catalogue version " + buffer.getInt(4));
+        }
+        ByteBuffer directory = buffer.duplicate();
+        directory.position(8);
+        int bundleCount = directory.getInt();
+        Map<String, Map<String, Bundle>> directoryMap = new HashMap<>();
+        long entries = 0;
+        for (int i = 0; i < bundleCount; i++) {
+            String keyClassName = readString(directory);
+            String languageTag = readString(directory);
+            Bundle bundle = new Bundle(directory.getInt(), directory.getInt());
+            entries += bundle.entryCount;
+            directoryMap.computeIfAbsent(keyClassName, k -> new HashMap<>())
+                        .put(languageTag, bundle);
+        }
+        ImmutableMap.Builder<String, ImmutableMap<String, Bundle>> builder = ImmutableMap.builder();
+        directoryMap.forEach((keyClassName, locales) -> builder.put(keyClassName, ImmutableMap.copyOf(locales)));
+        this.bundles = builder.build();
+        this.entryCount = entries;
+    }
+
+    /**
+     * Opens the catalogue held in {@code file}, mapping it into memory
+     *
+     * @param file
+     *         the catalogue file
+     *
+     * @return the catalogue
+     *
+     * @throws IOException
+     *         if the file cannot be read
+     * @throws I18NException
+     *         if the file is not a pattern catalogue, or is of an unsupported version
+     */
+    @Nonnull
+    public static PatternCatalogue open(@Nonnull Path file) throws IOException {
+        checkNotNull(file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // the mapping remains valid after the channel is closed
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new PatternCatalogue(mapped);
+        }
+    }
+
+    /**
+     * Returns a catalogue read from {@code buffer} - mainly for testing, {@link #open(Path)} is the usual way to obtain a catalogue
+     *
+     * @param buffer
+     *         the content of a catalogue file.  Must not be modified after this call
+     *
+     * @return the catalogue
+     *
+     * @throws I18NException
+     *         if the content is not a pattern catalogue, or is of an unsupported version
+     */
+    @Nonnull
+    public static PatternCatalogue of(@Nonnull ByteBuffer buffer) {
+        checkNotNull(buffer);
+        return new PatternCatalogue(buffer.asReadOnlyBuffer());
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the pattern for {@code key} and {@code locale}, or Optional.empty() if there is none
+     *
+     * @param key
+     *         the key to look up - must be an I18NKey
+     * @param locale
+     *         the Locale to look up.  No candidate Locales are tried
+     *
+     * @return the pattern for {@code key} and {@code locale}, or Optional.empty() if there is none
+     */
+    @Nonnull
+    public Optional<String> get(@Nonnull Enum<?> key, @Nonnull Locale locale) {
+        checkNotNull(key);
+        checkNotNull(locale);
+        ImmutableMap<String, Bundle> locales = bundles.get(key.getDeclaringClass()
+                                                             .getName());
+        Bundle bundle = (locales == null) ? null : locales.get(locale.toLanguageTag());
+        if (bundle == null) {
+            return Optional.empty();
+        }
+        byte[] name = key.name()
+                         .getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = bundle.entryCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int entry = bundle.indexOffset + mid * ENTRY_SIZE;
+            int comparison = compare(buffer.getInt(entry), buffer.getInt(entry + 4), name);
+            if (comparison < 0) {
+                low = mid + 1;
+            } else if (comparison > 0) {
+                high = mid - 1;
+            } else {
+                return Optional.of(decode(buffer.getInt(entry + 8), buffer.getInt(entry + 12)));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Compares the UTF-8 bytes at {@code offset} with {@code name}, as unsigned bytes - the order used by {@link PatternCatalogueWriter}
+     */
+    private int compare(int offset, int length, byte[] name) {
+        int common = Math.min(length, name.length);
+        for (int i = 0; i < common; i++) {
+            int comparison = Integer.compare(buffer.get(offset + i) & 0xFF, name[i] & 0xFF);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return Integer.compare(length, name.length);
+    }
+
+    private String decode(int offset, int length) {
+        byte[] bytes = new byte[length];
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        view.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the number of bundles (I18NKey class and Locale combinations) in the catalogue
+     *
+     * @return the number of bundles in the catalogue
+     */
+    public int bundleCount() {
+        int count = 0;
+        for (ImmutableMap<String, Bundle> locales : bundles.values()) {
+            count += locales.size();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the total number of patterns in the catalogue
+     *
+     * @return the total number of patterns in the catalogue
+     */
+    public long entryCount() {
+        return entryCount;
+    }
+
+    private static class Bundle {
+        private final int entryCount;
+        private final int indexOffset;
+
+        private Bundle(int indexOffset, int entryCount) {
+            this.indexOffset = indexOffset;
+            this.entryCount = entryCount;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.i18n;
+
+import javax.annotation.Nonnull;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Collects patterns and writes them as a {@link PatternCatalogue} file.  The file is written to a temporary file alongside the target, and then moved
+ * into place, so that a catalogue which is already mapped by a running application is never modified.
+ * <p>
+ * Created by David Sowerby on 16/10/15.
+ * @see DefaultPatternUtility#exportCatalogue
+ */
+public class PatternCatalogueWriter {
+
+    private static final Comparator<byte[]> unsignedOrder = (a, b) -> {
+        int common = Math.min(a.length, b.length);
+        for (int i = 0; i < common; i++) {
+            int comparison = Integer.compare(a[i] & 0xFF, b[i] & 0xFF);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return Integer.compare(a.length, b.length);
+    };
+    // key class name -> language tag -> key name -> pattern
+    private final Map<String, Map<String, Map<byte[], byte[]>>> bundles = new TreeMap<>();
+    private long size;
+
+    /**
+     * Adds a pattern, replacing any existing pattern for the same key and Locale
+     *
+     * @param key
+     *         the key of the pattern
+     * @param locale
+     *         the Locale of the pattern
+     * @param pattern
+     *         the pattern
+     *
+     * @return this for fluency
+     */
+    @Nonnull
+    public PatternCatalogueWriter put(@Nonnull I18NKey key, @Nonnull Locale locale, @Nonnull String pattern) {
+        checkNotNull(key);
+        checkNotNull(locale);
+        checkNotNull(pattern);
+        Enum<?> enumKey = (Enum<?>) key;
+        Map<byte[], byte[]> bundle = bundles.computeIfAbsent(enumKey.getDeclaringClass()
+                                                                    .getName(), k -> new TreeMap<>())
+                                            .computeIfAbsent(locale.toLanguageTag(), l -> new TreeMap<>(unsignedOrder));
+        if (bundle.put(enumKey.name()
+                              .getBytes(StandardCharsets.UTF_8), pattern.getBytes(StandardCharsets.UTF_8)) == null) {
+            size++;
+        }
+        return this;
+    }
+
+    /**
+     * Returns the number of patterns added
+     *
+     * @return the number of patterns added
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Writes the patterns added so far to {@code file}, replacing it if it exists
+     *
+     * @param file
+     *         the file to write to
+     *
+     * @throws IOException
+     *         if the file cannot be written
+     * @throws PatternWriteException
+     *         if the content is too large for the format
+     */
+    public void write(@Nonnull Path file) throws IOException {
+        checkNotNull(file);
+        // calculate the layout first, so that everything can be written in a single pass
+        long directorySize = 0;
+        int bundleCount = 0;
+        for (Map.Entry<String, Map<String, Map<byte[], byte[]>>> keyClass : bundles.entrySet()) {
+            for (String languageTag : keyClass.getValue()
+                                              .keySet()) {
+                directorySize += 2 + utf8(keyClass.getKey()).length + 2 + utf8(languageTag).length + 8;
+                bundleCount++;
+            }
+        }
+        long indexStart = 12 + directorySize;
+        long dataStart = indexStart + size * PatternCatalogue.ENTRY_SIZE;
+
+        Path temp = Files.createTempFile(file.toAbsolutePath()
+                                             .getParent(), file.getFileName()
+                                                               .toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(PatternCatalogue.MAGIC);
+                out.writeInt(PatternCatalogue.VERSION);
+                out.writeInt(bundleCount);
+                long indexOffset = indexStart;
+                for (Map.Entry<String, Map<String, Map<byte[], byte[]>>> keyClass : bundles.entrySet()) {
+                    for (Map.Entry<String, Map<byte[], byte[]>> bundle : keyClass.getValue()
+                                                                               .entrySet()) {
+                        writeString(out, keyClass.getKey());
+                        writeString(out, bundle.getKey());
+                        out.writeInt(offset(indexOffset));
+                        out.writeInt(bundle.getValue()
+                                           .size());
+                        indexOffset += bundle.getValue()
+                                             .size() * PatternCatalogue.ENTRY_SIZE;
+                    }
+                }
+                long dataOffset = dataStart;
+                for (Map<String, Map<byte[], byte[]>> locales : bundles.values()) {
+                    for (Map<byte[], byte[]> bundle : locales.values()) {
+                        for (Map.Entry<byte[], byte[]> entry : bundle.entrySet()) {
+                            out.writeInt(offset(dataOffset));
+                            out.writeInt(entry.getKey().length);
+                            dataOffset += entry.getKey().length;
+                            out.writeInt(offset(dataOffset));
+                            out.writeInt(entry.getValue().length);
+                            dataOffset += entry.getValue().length;
+                        }
+                    }
+                }
+                offset(dataOffset);
+                for (Map<String, Map<byte[], byte[]>> locales : bundles.values()) {
+                    for (Map<byte[], byte[]> bundle : locales.values()) {
+                        for (Map.Entry<byte[], byte[]> entry : bundle.entrySet()) {
+                            out.write(entry.getKey());
+                            out.write(entry.getValue());
+                        }
+                    }
+                }
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = utf8(value);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static int offset(long offset) {
+        if (offset > Integer.MAX_VALUE) {
+            throw new PatternWriteException("Pattern catalogue exceeds the maximum size of " + Integer.MAX_VALUE + " bytes");
+        }
+        return (int) offset;
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.i18n;
+
+import com.google.common.collect.SetMultimap;
+
+import javax.annotation.Nonnull;
+import java.lang.annotation.Annotation;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * An application wide record of changes to I18N patterns.  Each change advances the epoch, so that a {@link PatternSource} need only compare its own
+ * epoch with {@link #epoch()} to know whether anything has changed, and can then use {@link #changesSince(long)} to reload just the affected patterns.
+ * Changes are recorded by {@link PatternSourceWatcher}
+ * <p>
+ * Created by David Sowerby on 16/10/15.
+ */
+public interface PatternChangeLog {
+
+    /**
+     * Returns the current epoch, which starts at 0 and is advanced by each call to {@link #record}
+     *
+     * @return the current epoch
+     */
+    long epoch();
+
+    /**
+     * Records a change, and advances the epoch
+     *
+     * @param changedSources
+     *         the sources in which any pattern may have changed
+     * @param changedBundles
+     *         the Locales in which each bundle has changed, keyed by bundle name
+     *
+     * @return the recorded change, with the new epoch
+     */
+    @Nonnull
+    PatternsChangedBusMessage record(@Nonnull Set<Class<? extends Annotation>> changedSources, @Nonnull SetMultimap<String, Locale> changedBundles);
+
+    /**
+     * Returns all the changes recorded after {@code epoch}, combined into a single message with the epoch they reach.  Only a limited number of changes
+     * is retained, so if changes after {@code epoch} have been discarded, an empty Optional is returned, and the caller must assume that everything has
+     * changed
+     *
+     * @param epoch
+     *         the epoch the caller last caught up with
+     *
+     * @return the changes recorded after {@code epoch} (which may be none), or an empty Optional if they are no longer all known
+     */
+    @Nonnull
+    Optional<PatternsChangedBusMessage> changesSince(long epoch);
+}
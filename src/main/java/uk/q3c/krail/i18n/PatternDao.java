@@ -11,7 +11,13 @@
 
 package uk.q3c.krail.i18n;
 
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.SetMultimap;
+
 import javax.annotation.Nonnull;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -31,6 +37,21 @@ public interface PatternDao {
      */
     void write(@Nonnull PatternCacheKey cacheKey, @Nonnull String value);
 
+    /**
+     * Writes a batch of values to persistence, each for the I18NKey & Locale provided by its cacheKey.  The default implementation calls {@link
+     * #write(PatternCacheKey, String)} for each entry - override it where a batch can be written more efficiently.  Batches may be written to the same
+     * persistence from more than one thread at a time (by a {@link PatternExportJob} and the {@link PatternWriteQueue}, for example), so implementations
+     * must keep the entries of each batch together
+     *
+     * @param entries
+     *         the cacheKey and value of each entry to write, in the order they should be written
+     */
+    default void writeAll(@Nonnull List<Map.Entry<PatternCacheKey, String>> entries) {
+        for (Map.Entry<PatternCacheKey, String> entry : entries) {
+            write(entry.getKey(), entry.getValue());
+        }
+    }
+
     /**
      * Delete the {@code value} entry from persistence for the I18NKey & Locale provided by (@code cacheKey}
      *
@@ -71,5 +92,33 @@ public interface PatternDao {
      */
     long count();
 
+    /**
+     * Returns a number which changes whenever the patterns held by this DAO change, so that {@link PatternSourceWatcher} can detect a change by polling.
+     * The default implementation returns 0 - a DAO which cannot detect its own changes (or whose patterns never change) need not override it
+     *
+     * @return a number which changes whenever the patterns held by this DAO change
+     */
+    default long version() {
+        return 0L;
+    }
 
+    /**
+     * Returns the bundles (by {@link I18NKey#bundleName()}) changed since the previous call, each with the requested Locales in which it changed, so that
+     * {@link PatternSourceWatcher} can invalidate just the affected patterns, rather than every pattern from this DAO.  A DAO which reports its changes
+     * this way should not also change its {@link #version()}, as that is treated as a change to every pattern.  The default implementation returns an
+     * empty multimap
+     *
+     * @return the Locales in which each bundle has changed since the previous call, keyed by bundle name
+     */
+    @Nonnull
+    default SetMultimap<String, Locale> takeChangedBundles() {
+        return ImmutableSetMultimap.of();
+    }
+
+    /**
+     * Discards anything this DAO holds in memory about its patterns, so that changed patterns are read again from their underlying store.  Called by
+     * {@link PatternSourceWatcher} when a change is detected.  The default implementation does nothing
+     */
+    default void refresh() {
+    }
 }
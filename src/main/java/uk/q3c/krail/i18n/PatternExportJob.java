@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.i18n;
+
+import javax.annotation.Nonnull;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Exports I18N patterns, as provided by {@link PatternSource}, to one or more {@link PatternDao} targets in the background, so that a large export does
+ * not block the UI thread which starts it.  Progress is published as a {@link PatternExportProgressMessage} on the {@code @UIBus} of the UI which called
+ * {@link #start}.
+ * <p>
+ * A job runs one export at a time.
+ * <p>
+ * Created by David Sowerby on 16/10/15.
+ */
+public interface PatternExportJob {
+
+    /**
+     * Starts exporting every key of {@code bundles} for each of {@code locales} to each of {@code targets}, and returns immediately
+     *
+     * @param targets
+     *         the PatternDao instances to send the output to
+     * @param bundles
+     *         the I18NKey classes to export (each key class is equivalent to a bundle)
+     * @param locales
+     *         the Locales to export
+     *
+     * @throws IllegalStateException
+     *         if an export is already running
+     */
+    void start(@Nonnull Collection<PatternDao> targets, @Nonnull Set<Class<? extends I18NKey>> bundles, @Nonnull Set<Locale> locales);
+
+    /**
+     * Asks a running export to stop.  Batches already written are not removed from the targets.  Has no effect if an export is not running
+     */
+    void cancel();
+
+    /**
+     * Returns true if an export is running
+     *
+     * @return true if an export is running
+     */
+    boolean isRunning();
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.i18n;
+
+import uk.q3c.krail.core.eventbus.BusMessage;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Published by {@link PatternExportJob} to report the progress of an export.  The final message for an export has a status other than {@link
+ * Status#RUNNING}
+ * <p>
+ * Created by David Sowerby on 16/10/15.
+ */
+@Immutable
+public class PatternExportProgressMessage implements BusMessage {
+
+    private final long exported;
+    private final String failure;
+    private final int localeCount;
+    private final int localesCompleted;
+    private final Status status;
+    private final long total;
+
+    public PatternExportProgressMessage(@Nonnull Status status, long exported, long total, int localesCompleted, int localeCount, @Nullable String
+            failure) {
+        this.status = status;
+        this.exported = exported;
+        this.total = total;
+        this.localesCompleted = localesCompleted;
+        this.localeCount = localeCount;
+        this.failure = failure;
+    }
+
+    @Nonnull
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Returns the number of keys written to the targets so far
+     *
+     * @return the number of keys written to the targets so far
+     */
+    public long getExported() {
+        return exported;
+    }
+
+    /**
+     * Returns the number of keys to be exported (for all Locales)
+     *
+     * @return the number of keys to be exported (for all Locales)
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    public int getLocalesCompleted() {
+        return localesCompleted;
+    }
+
+    public int getLocaleCount() {
+        return localeCount;
+    }
+
+    /**
+     * Returns the message of the exception which stopped the export, if the status is {@link Status#FAILED}
+     *
+     * @return the message of the exception which stopped the export, or null if it did not fail
+     */
+    @Nullable
+    public String getFailure() {
+        return failure;
+    }
+
+    @Override
+    public String toString() {
+        return "PatternExportProgressMessage{" +
+                "status=" + status +
+                ", exported=" + exported +
+                ", total=" + total +
+                ", localesCompleted=" + localesCompleted +
+                ", localeCount=" + localeCount +
+                '}';
+    }
+
+    public enum Status {RUNNING, COMPLETE, CANCELLED, FAILED}
+}
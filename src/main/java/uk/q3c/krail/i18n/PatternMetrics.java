@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.i18n;
+
+import com.google.common.cache.RemovalCause;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Application wide counters for I18N pattern lookups and loads, recorded by {@link DefaultPatternSource} and {@link DefaultPatternCacheLoader}.  There
+ * is an instance of each of those for every session, so the counts are held here rather than in them.  Recording must be cheap, as it is done on every
+ * lookup.
+ * <p>
+ * The counts are available through JMX (see {@link PatternMetricsMXBean}) and in the sysadmin I18NView
+ * <p>
+ * Created by David Sowerby on 16/10/15.
+ */
+public interface PatternMetrics extends PatternMetricsMXBean {
+
+    /**
+     * The name this is registered with in the platform MBeanServer
+     */
+    String OBJECT_NAME = "uk.q3c.krail:type=PatternMetrics";
+
+    /**
+     * Records lookups answered from a {@link PatternTable}
+     *
+     * @param count
+     *         the number of lookups
+     */
+    void tableHits(int count);
+
+    /**
+     * Records lookups passed to the cache
+     *
+     * @param count
+     *         the number of lookups
+     */
+    void cacheLookups(int count);
+
+    /**
+     * Records cache lookups which were answered without a load, as counted by the cache
+     *
+     * @param count
+     *         the number of lookups
+     */
+    void cacheHits(int count);
+
+    /**
+     * Records a completed load.  The source and actual Locale of {@code cacheKey} are those set by the load - a null source means that the key name was
+     * returned
+     *
+     * @param cacheKey
+     *         the key which has been loaded
+     * @param probes
+     *         the number of calls made to {@link PatternDao#getValue}
+     * @param nanos
+     *         the time taken by the load, in nanoseconds
+     */
+    void loaded(@Nonnull PatternCacheKey cacheKey, int probes, long nanos);
+
+    /**
+     * Records an entry evicted from the cache by its configured policy
+     *
+     * @param cause
+     *         the cause of the eviction - one of SIZE, EXPIRED or COLLECTED
+     */
+    void evicted(@Nonnull RemovalCause cause);
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.i18n;
+
+import java.util.Map;
+
+/**
+ * The JMX view of {@link PatternMetrics}.  All counts are totals for the application, since it started or since {@link #reset()} was last called
+ * <p>
+ * Created by David Sowerby on 16/10/15.
+ */
+public interface PatternMetricsMXBean {
+
+    /**
+     * Returns the number of lookups answered from a {@link PatternTable}, without using the cache
+     *
+     * @return the number of lookups answered from a {@link PatternTable}
+     */
+    long getTableHits();
+
+    /**
+     * Returns the number of lookups which were not in a {@link PatternTable}, and were therefore passed to the cache
+     *
+     * @return the number of lookups passed to the cache
+     */
+    long getCacheLookups();
+
+    /**
+     * Returns the number of cache lookups which were answered from an entry already in the cache, as counted by the cache itself.  A lookup which waited
+     * for a load by another thread is not a hit.  Hits are only counted when the pattern cache records its statistics.  Loads made directly through the
+     * {@link PatternCacheLoader} (by {@link PatternWarmupService}) are not cache lookups, so hits and loads need not add up to lookups
+     *
+     * @return the number of cache lookups which were answered without a load
+     */
+    long getCacheHits();
+
+    /**
+     * Returns the number of patterns loaded by a {@link PatternCacheLoader}
+     *
+     * @return the number of patterns loaded
+     */
+    long getLoads();
+
+    /**
+     * Returns the number of calls made to {@link PatternDao#getValue} by loads, which is the real cost of a load
+     *
+     * @return the number of calls made to {@link PatternDao#getValue}
+     */
+    long getProbes();
+
+    /**
+     * Returns the number of loads which found a pattern, but not in the requested Locale
+     *
+     * @return the number of loads which fell back to another candidate Locale
+     */
+    long getFallbacks();
+
+    /**
+     * Returns the number of loads which found no pattern in any source, and returned the key name instead
+     *
+     * @return the number of loads which returned the key name
+     */
+    long getKeyNameReturns();
+
+    /**
+     * Returns the mean time taken by a load, in microseconds
+     *
+     * @return the mean time taken by a load, in microseconds
+     */
+    long getMeanLoadMicros();
+
+    /**
+     * Returns the number of entries evicted from the cache by its configured policy, whether by size, expiry or garbage collection
+     *
+     * @return the number of entries evicted from the cache
+     */
+    long getEvictions();
+
+    /**
+     * Returns the number of entries evicted from the cache, keyed by the cause of eviction (SIZE, EXPIRED or COLLECTED).  Causes with no evictions are
+     * omitted
+     *
+     * @return the number of entries evicted from the cache, by cause
+     */
+    Map<String, Long> getEvictionsByCause();
+
+    /**
+     * Returns the number of patterns found in each source, keyed by the simple name of the source annotation
+     *
+     * @return the number of patterns found in each source
+     */
+    Map<String, Long> getLoadsBySource();
+
+    /**
+     * Returns the number of loads in each range of load time, keyed by a description of the range
+     *
+     * @return the number of loads in each range of load time
+     */
+    Map<String, Long> getLoadTimeHistogram();
+
+    /**
+     * Returns the number of loads in each range of load time for each source, keyed by the simple name of the source annotation followed by a
+     * description of the range.  Loads which returned the key name were not found in a source, and are not included.  Ranges with no loads are omitted
+     *
+     * @return the number of loads in each range of load time, by source
+     */
+    Map<String, Long> getLoadTimeHistogramBySource();
+
+    /**
+     * Returns the number of loads in each range of load time for each bundle name and requested Locale, keyed by bundle name and Locale followed by a
+     * description of the range.  Ranges with no loads are omitted
+     *
+     * @return the number of loads in each range of load time, by bundle and Locale
+     */
+    Map<String, Long> getLoadTimeHistogramByBundleAndLocale();
+
+    /**
+     * Returns the number of loads which returned the key name, keyed by bundle name and requested Locale.  These are the missing translations
+     *
+     * @return the number of loads which returned the key name, by bundle and Locale
+     */
+    Map<String, Long> getKeyNameReturnsByBundleAndLocale();
+
+    /**
+     * Returns the number of loads which fell back to another candidate Locale, keyed by bundle name and requested Locale
+     *
+     * @return the number of loads which fell back to another candidate Locale, by bundle and Locale
+     */
+    Map<String, Long> getFallbacksByBundleAndLocale();
+
+    /**
+     * Sets all counts back to zero
+     */
+    void reset();
+}
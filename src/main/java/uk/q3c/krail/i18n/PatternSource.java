@@ -11,7 +11,12 @@
 
 package uk.q3c.krail.i18n;
 
+import com.google.common.cache.CacheStats;
+import uk.q3c.util.CompiledMessage;
+
 import java.lang.annotation.Annotation;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 
 /**
@@ -32,8 +37,55 @@ public interface PatternSource<C extends Object> {
      */
     <E extends Enum<E> & I18NKey> String retrievePattern(E key, Locale locale);
 
+    /**
+     * Retrieve an I18N pattern to match the key and locale given, already parsed for formatting with arguments.  The default implementation parses the
+     * pattern on every call - implementations should override this if they can hold the parsed pattern
+     *
+     * @param key
+     *         the I18NKey to identify the pattern
+     * @param locale
+     *         the locale for the translation
+     * @param <E>
+     *         an Enum implementing I18NKey
+     *
+     * @return the parsed pattern for the key and locale
+     */
+    default <E extends Enum<E> & I18NKey> CompiledMessage retrieveMessage(E key, Locale locale) {
+        return CompiledMessage.compile(retrievePattern(key, locale));
+    }
+
+    /**
+     * Retrieve the I18N patterns for all of {@code keys}, for the locale given.  The default implementation simply calls {@link #retrievePattern} for each
+     * key - implementations should override this if they can resolve keys from the same bundle together
+     *
+     * @param keys
+     *         the keys to retrieve patterns for.  All keys must be Enums, and none may be null
+     * @param locale
+     *         the locale for the translation
+     *
+     * @return the patterns, in the same order as {@code keys}
+     */
+    default List<String> retrievePatterns(List<? extends I18NKey> keys, Locale locale) {
+        List<String> patterns = new ArrayList<>(keys.size());
+        // a raw reference, so that the Enum cast does not need a type argument which satisfies both bounds of retrievePattern
+        PatternSource source = this;
+        for (I18NKey key : keys) {
+            //noinspection unchecked
+            patterns.add(source.retrievePattern((Enum) key, locale));
+        }
+        return patterns;
+    }
+
     C getCache();
 
+    /**
+     * Returns the statistics for the cache - hit rate, load time and eviction count.  These are only recorded if the cache is configured to do so (see
+     * {@link I18NModule#configurePatternCache()}), otherwise all values are zero
+     *
+     * @return the statistics for the cache
+     */
+    CacheStats stats();
+
     /**
      * Clears the entire cache
      */
@@ -45,4 +97,20 @@ public interface PatternSource<C extends Object> {
      * @param source
      */
     void clearCache(Class<? extends Annotation> source);
+
+    /**
+     * Clears the cache of all entries for keys of {@code bundle}
+     *
+     * @param bundle
+     *         the I18NKey class to clear
+     */
+    void clearBundleCache(Class<? extends I18NKey> bundle);
+
+    /**
+     * Clears the cache of all entries for {@code locale}
+     *
+     * @param locale
+     *         the Locale to clear
+     */
+    void clearCache(Locale locale);
 }
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.i18n;
+
+import uk.q3c.krail.core.services.ServiceI18N;
+
+import javax.annotation.Nonnull;
+import java.util.Optional;
+
+/**
+ * A service which detects changes to I18N patterns while the application is running, so that they can be reloaded without clearing every cache.  File
+ * based sources are watched for changes to the directories defined by {@link I18NModule#watchDirectory}, and every {@link PatternDao} source is polled
+ * for a change to its {@link PatternDao#version()}, and for the bundles it reports as changed by {@link PatternDao#takeChangedBundles()}.
+ * <p>
+ * When a change is detected, the affected DAOs are refreshed, the change is recorded in the {@link PatternChangeLog} (which advances its epoch, and is
+ * how each {@link PatternSource} learns which of its patterns to reload), and a {@link PatternsChangedBusMessage} is published on the GlobalBus
+ * <p>
+ * Created by David Sowerby on 16/10/15.
+ */
+public interface PatternSourceWatcher extends ServiceI18N {
+
+    /**
+     * Checks for changes immediately, rather than waiting for the next scheduled check.  This is also the method used by the scheduled check
+     *
+     * @return the recorded change, or an empty Optional if nothing has changed
+     */
+    @Nonnull
+    Optional<PatternsChangedBusMessage> check();
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.i18n;
+
+import uk.q3c.util.CompiledMessage;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A read optimised table of patterns, held for each I18NKey class and Locale as an array indexed by {@link Enum#ordinal()}.  A lookup is therefore two map
+ * reads and an array dereference, with no allocation.  Each pattern is held as a {@link CompiledMessage}, so that it is parsed only once, when it is
+ * placed in the table.
+ * <p>
+ * The table holds only patterns which have already been loaded - it is filled by {@link DefaultPatternSource} from its cache, and is never the
+ * authoritative source of a pattern.  A null return from {@link #get} simply means that the pattern has not been loaded into the table yet.
+ * <p>
+ * CompiledMessage instances are immutable, so an unsynchronised write to an array element is safe - at worst, another thread misses the value and loads it
+ * again from the cache
+ * <p>
+ * Created by David Sowerby on 16/10/15.
+ */
+@ThreadSafe
+public class PatternTable {
+
+    private final ConcurrentMap<Class<?>, ConcurrentMap<Locale, CompiledMessage[]>> table = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the pattern for {@code key} and {@code locale}, or null if it has not been loaded into this table
+     *
+     * @param key
+     *         the key to look up
+     * @param locale
+     *         the locale to look up
+     * @param <E>
+     *         an Enum implementing I18NKey
+     *
+     * @return the pattern for {@code key} and {@code locale}, or null if it has not been loaded into this table
+     */
+    @Nullable
+    public <E extends Enum<E> & I18NKey> String get(@Nonnull E key, @Nonnull Locale locale) {
+        CompiledMessage message = getMessage(key, locale);
+        return (message == null) ? null : message.getPattern();
+    }
+
+    /**
+     * Returns the compiled pattern for {@code key} and {@code locale}, or null if it has not been loaded into this table
+     *
+     * @param key
+     *         the key to look up
+     * @param locale
+     *         the locale to look up
+     * @param <E>
+     *         an Enum implementing I18NKey
+     *
+     * @return the compiled pattern for {@code key} and {@code locale}, or null if it has not been loaded into this table
+     */
+    @Nullable
+    public <E extends Enum<E> & I18NKey> CompiledMessage getMessage(@Nonnull E key, @Nonnull Locale locale) {
+        Map<Locale, CompiledMessage[]> localePatterns = table.get(key.getDeclaringClass());
+        if (localePatterns == null) {
+            return null;
+        }
+        CompiledMessage[] patterns = localePatterns.get(locale);
+        return (patterns == null) ? null : patterns[key.ordinal()];
+    }
+
+    /**
+     * Places {@code pattern} into the table for {@code key} and {@code locale}, creating the array for the key class and locale if necessary
+     *
+     * @param key
+     *         the key to identify the entry
+     * @param locale
+     *         the locale to identify the entry
+     * @param pattern
+     *         the pattern to store
+     * @param <E>
+     *         an Enum implementing I18NKey
+     *
+     * @return the compiled pattern placed in the table
+     */
+    @Nonnull
+    public <E extends Enum<E> & I18NKey> CompiledMessage put(@Nonnull E key, @Nonnull Locale locale, @Nonnull String pattern) {
+        checkNotNull(key);
+        checkNotNull(locale);
+        checkNotNull(pattern);
+        CompiledMessage message = CompiledMessage.compile(pattern);
+        row(key.getDeclaringClass(), locale)[key.ordinal()] = message;
+        return message;
+    }
+
+    /**
+     * Returns the array of patterns for {@code keyClass} and {@code locale}, creating it if necessary, so that a batch of keys from the same bundle can be
+     * resolved with a single table lookup.  Elements are null where a pattern has not yet been loaded
+     *
+     * @param keyClass
+     *         the I18NKey class (Enum) of the row
+     * @param locale
+     *         the locale of the row
+     *
+     * @return the array of patterns for {@code keyClass} and {@code locale}, indexed by {@link Enum#ordinal()}
+     */
+    @Nonnull
+    CompiledMessage[] row(@Nonnull Class<? extends Enum<?>> keyClass, @Nonnull Locale locale) {
+        return table.computeIfAbsent(keyClass, k -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(locale, l -> new CompiledMessage[keyClass.getEnumConstants().length]);
+    }
+
+    /**
+     * Removes the entry for {@code key} and {@code locale}, if there is one
+     *
+     * @param key
+     *         the key of the entry to remove - must be an I18NKey
+     * @param locale
+     *         the locale of the entry to remove
+     */
+    public void remove(@Nonnull Enum<?> key, @Nonnull Locale locale) {
+        Map<Locale, CompiledMessage[]> localePatterns = table.get(key.getDeclaringClass());
+        if (localePatterns == null) {
+            return;
+        }
+        CompiledMessage[] patterns = localePatterns.get(locale);
+        if (patterns != null) {
+            patterns[key.ordinal()] = null;
+        }
+    }
+
+    /**
+     * Removes all entries from the table
+     */
+    public void clear() {
+        table.clear();
+    }
+
+    /**
+     * Returns the number of key class and Locale combinations held in the table
+     *
+     * @return the number of key class and Locale combinations held in the table
+     */
+    public int size() {
+        int size = 0;
+        for (ConcurrentMap<Locale, CompiledMessage[]> localePatterns : table.values()) {
+            size += localePatterns.size();
+        }
+        return size;
+    }
+}
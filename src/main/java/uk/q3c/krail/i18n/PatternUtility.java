@@ -15,6 +15,7 @@ import uk.q3c.krail.core.user.opt.Option;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.io.File;
 import java.util.Locale;
 import java.util.Set;
 
@@ -80,4 +81,26 @@ public interface PatternUtility {
      * @return a count of all the keys exported
      */
     long exportCoreKeys(@Nonnull PatternDao target);
+
+    /**
+     * Export I18N Pattern key value pairs from {@code source} to a binary {@link PatternCatalogue} file, for all bundles and locales specified, for use with
+     * {@link CataloguePatternDao}.  As with {@link #export(PatternDao, PatternDao, Set, Set, boolean, boolean, String)}, input is taken directly from
+     * {@code source} without assessing Locale candidates, and only keys with a value are exported.  Any existing file is replaced.
+     *
+     * @param source
+     *         the {@link PatternDao} to use as a source
+     * @param catalogueFile
+     *         the file to write the catalogue to
+     * @param bundles
+     *         the I18NKey classes to export (each key class is equivalent to a bundle)
+     * @param locales
+     *         the Locales to export
+     *
+     * @return a count of the keys exported
+     *
+     * @throws PatternWriteException
+     *         if the catalogue cannot be written
+     */
+    long exportCatalogue(@Nonnull PatternDao source, @Nonnull File catalogueFile, @Nonnull Set<Class<? extends I18NKey>> bundles, @Nonnull Set<Locale>
+            locales);
 }
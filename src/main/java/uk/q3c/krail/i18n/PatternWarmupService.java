@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.i18n;
+
+import uk.q3c.krail.core.services.ServiceI18N;
+
+/**
+ * A service which loads the patterns for a set of bundles, for all supported Locales, when the application starts, so that the first user does not pay
+ * the cost of loading them.  The bundles are defined by {@link I18NModule#warmupBundles}.  No session exists when the service runs, so it can only load
+ * patterns into application wide stores, such as the {@link ClassBundleCache}
+ * <p>
+ * Created by David Sowerby on 16/10/15.
+ */
+public interface PatternWarmupService extends ServiceI18N {
+
+    /**
+     * Returns the number of bundle and Locale combinations to be loaded by the most recent start
+     *
+     * @return the number of bundle and Locale combinations to be loaded by the most recent start
+     */
+    int getTotal();
+
+    /**
+     * Returns the number of bundle and Locale combinations loaded so far by the most recent start - this includes those which failed
+     *
+     * @return the number of bundle and Locale combinations loaded so far by the most recent start
+     */
+    int getCompleted();
+
+    /**
+     * Returns the number of bundles which failed to load during the most recent start
+     *
+     * @return the number of bundles which failed to load during the most recent start
+     */
+    int getFailures();
+
+    /**
+     * Returns the time taken by the most recent start, in milliseconds, or 0 if it has not completed
+     *
+     * @return the time taken by the most recent start, in milliseconds, or 0 if it has not completed
+     */
+    long getDuration();
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.i18n;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.lang.annotation.Annotation;
+
+/**
+ * A write-behind queue for pattern writes which do not need to be completed immediately - in particular the stubs written by {@link
+ * DefaultPatternCacheLoader} when auto-stubbing is enabled.  Writes are held until they are flushed, in batches, to their targets with {@link
+ * PatternDao#writeAll}.  A write for the same target, key and Locale as one already queued replaces it.
+ * <p>
+ * Created by David Sowerby on 16/10/15.
+ */
+public interface PatternWriteQueue {
+
+    /**
+     * Queues {@code value} to be written to {@code target}.  {@code cacheKey} is copied, so the caller is free to modify it afterwards
+     *
+     * @param target
+     *         the annotation which identifies the target
+     * @param dao
+     *         the DAO for {@code target}
+     * @param cacheKey
+     *         identifies the key and Locale to write
+     * @param value
+     *         the value to write
+     */
+    default void enqueue(@Nonnull Class<? extends Annotation> target, @Nonnull PatternDao dao, @Nonnull PatternCacheKey cacheKey, @Nonnull String
+            value) {
+        enqueue(target, dao, cacheKey, value, null);
+    }
+
+    /**
+     * Queues {@code value} to be written to {@code target}, and runs {@code afterWrite} once it has been written.  {@code cacheKey} is copied, so the
+     * caller is free to modify it afterwards.  Once the queue has been shut down, writes are rejected, and counted with those discarded because the queue
+     * was full
+     *
+     * @param target
+     *         the annotation which identifies the target
+     * @param dao
+     *         the DAO for {@code target}
+     * @param cacheKey
+     *         identifies the key and Locale to write
+     * @param value
+     *         the value to write
+     * @param afterWrite
+     *         run on the writing thread after the write to {@code target} has completed successfully, or null if nothing is to be run.  It is not run if
+     *         the write fails or is discarded
+     */
+    void enqueue(@Nonnull Class<? extends Annotation> target, @Nonnull PatternDao dao, @Nonnull PatternCacheKey cacheKey, @Nonnull String value,
+                 @Nullable Runnable afterWrite);
+
+    /**
+     * Writes all queued entries to their targets, on the calling thread
+     */
+    void flush();
+
+    /**
+     * Writes all queued entries to their targets, and stops any background processing.  Call this before the application is stopped, so that queued
+     * entries are not lost.  Entries queued after this has been called are rejected
+     */
+    void shutdown();
+
+    /**
+     * Returns the number of entries waiting to be written
+     *
+     * @return the number of entries waiting to be written
+     */
+    int depth();
+
+    /**
+     * Returns the time in milliseconds from the queueing of the oldest entry in the last flush to the completion of that flush, or 0 if there has been no
+     * flush
+     *
+     * @return the latency of the last flush in milliseconds
+     */
+    long getLastFlushLatency();
+
+    /**
+     * Returns the number of entries discarded because the queue was full, or had been shut down
+     *
+     * @return the number of entries discarded because the queue was full, or had been shut down
+     */
+    long getDroppedCount();
+}
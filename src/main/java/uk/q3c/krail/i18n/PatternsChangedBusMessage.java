@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.i18n;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.SetMultimap;
+import uk.q3c.krail.core.eventbus.BusMessage;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import java.lang.annotation.Annotation;
+import java.util.Locale;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Published on the GlobalBus by {@link PatternSourceWatcher} when I18N patterns have changed, and also used by {@link PatternChangeLog} to describe the
+ * changes made since a given epoch.  A change is described either as a change to a whole source (the DAO for the source has changed, but cannot say
+ * which patterns), or as a change to a bundle (identified by {@link I18NKey#bundleName()}) in a Locale.
+ * <p>
+ * A change to a bundle in a Locale affects not just patterns requested in that Locale, but also those requested in any more specific Locale (which may
+ * have fallen back to it) - so a change to Labels in "de" affects Labels requested in "de-CH".  A change to the root Locale affects all Locales.
+ * <p>
+ * Created by David Sowerby on 16/10/15.
+ */
+@Immutable
+public class PatternsChangedBusMessage implements BusMessage {
+
+    private final ImmutableSetMultimap<String, Locale> changedBundles;
+    private final ImmutableSet<Class<? extends Annotation>> changedSources;
+    private final long epoch;
+
+    /**
+     * @param epoch
+     *         the epoch (see {@link PatternChangeLog#epoch()}) reached by these changes
+     * @param changedSources
+     *         the sources in which any pattern may have changed
+     * @param changedBundles
+     *         the Locales in which each bundle has changed, keyed by bundle name
+     */
+    public PatternsChangedBusMessage(long epoch, @Nonnull Set<Class<? extends Annotation>> changedSources, @Nonnull SetMultimap<String, Locale>
+            changedBundles) {
+        checkNotNull(changedSources);
+        checkNotNull(changedBundles);
+        this.epoch = epoch;
+        this.changedSources = ImmutableSet.copyOf(changedSources);
+        this.changedBundles = ImmutableSetMultimap.copyOf(changedBundles);
+    }
+
+    /**
+     * Returns true if {@code changedLocale} is the same as, or a more general form of, {@code requestedLocale}
+     */
+    private static boolean covers(Locale changedLocale, Locale requestedLocale) {
+        if (changedLocale.equals(Locale.ROOT) || changedLocale.equals(requestedLocale)) {
+            return true;
+        }
+        return requestedLocale.toLanguageTag()
+                              .startsWith(changedLocale.toLanguageTag() + '-');
+    }
+
+    /**
+     * Returns a message which combines the changes of this message and {@code other}, with the later of their epochs
+     *
+     * @param other
+     *         the changes to combine with this
+     *
+     * @return a message which combines the changes of this message and {@code other}
+     */
+    @Nonnull
+    public PatternsChangedBusMessage merge(@Nonnull PatternsChangedBusMessage other) {
+        checkNotNull(other);
+        ImmutableSet<Class<? extends Annotation>> sources = ImmutableSet.<Class<? extends Annotation>>builder()
+                                                                         .addAll(changedSources)
+                                                                         .addAll(other.changedSources)
+                                                                         .build();
+        ImmutableSetMultimap<String, Locale> bundles = ImmutableSetMultimap.<String, Locale>builder()
+                                                                           .putAll(changedBundles)
+                                                                           .putAll(other.changedBundles)
+                                                                           .build();
+        return new PatternsChangedBusMessage(Math.max(epoch, other.epoch), sources, bundles);
+    }
+
+    /**
+     * Returns true if the pattern held for {@code cacheKey} may have been changed.  That is the case if the pattern was found in a changed source, or if
+     * it was not found in any source and any source has changed, or if its bundle has changed in a Locale which covers either the requested Locale or
+     * the Locale the pattern was actually found in
+     *
+     * @param cacheKey
+     *         the key of a loaded pattern
+     *
+     * @return true if the pattern held for {@code cacheKey} may have been changed
+     */
+    public boolean affects(@Nonnull PatternCacheKey cacheKey) {
+        checkNotNull(cacheKey);
+        Class<? extends Annotation> source = cacheKey.getSource();
+        if (source == null ? !changedSources.isEmpty() : changedSources.contains(source)) {
+            return true;
+        }
+        I18NKey key = (I18NKey) cacheKey.getKey();
+        for (Locale changedLocale : changedBundles.get(key.bundleName())) {
+            if (covers(changedLocale, cacheKey.getRequestedLocale()) || changedLocale.equals(cacheKey.getActualLocale())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isEmpty() {
+        return changedSources.isEmpty() && changedBundles.isEmpty();
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    @Nonnull
+    public ImmutableSet<Class<? extends Annotation>> getChangedSources() {
+        return changedSources;
+    }
+
+    @Nonnull
+    public ImmutableSetMultimap<String, Locale> getChangedBundles() {
+        return changedBundles;
+    }
+
+    @Override
+    public String toString() {
+        return "PatternsChangedBusMessage{" +
+                "epoch=" + epoch +
+                ", changedSources=" + changedSources +
+                ", changedBundles=" + changedBundles +
+                '}';
+    }
+}
@@ -11,7 +11,11 @@
 
 package uk.q3c.krail.i18n;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
 import java.text.Collator;
+import java.util.Collection;
 import java.util.Locale;
 
 /**
@@ -58,7 +62,44 @@ public interface Translate {
 
 
     /**
-     * convenience method to get Collator instance for the {@link CurrentLocale}
+     * Translates all of {@code keys} for {@code locale}, without arguments.  This is more efficient than calling {@link #from(I18NKey, Locale, Object...)}
+     * for each key, as keys from the same bundle are resolved together.  The supported locale check is made once, for the whole batch
+     *
+     * @param keys
+     *         the keys to translate.  A null key is translated as for {@link #from(boolean, I18NKey, Locale, Object...)}
+     * @param locale
+     *         the Locale to use for translation
+     *
+     * @return the translations, in the same order as {@code keys} is iterated
+     *
+     * @throws UnsupportedLocaleException
+     *         if locale has not been defined as a supported locale in {@link I18NModule}
+     */
+    ImmutableList<String> fromAll(Collection<? extends I18NKey> keys, Locale locale);
+
+    /**
+     * The same as {@link #fromAll(Collection, Locale)}, but using {@link CurrentLocale}
+     */
+    ImmutableList<String> fromAll(Collection<? extends I18NKey> keys);
+
+    /**
+     * Translates every key in a bundle (an I18NKey class) for {@code locale}.
+     *
+     * @param keyClass
+     *         the bundle to translate - this must be an Enum
+     * @param locale
+     *         the Locale to use for translation
+     *
+     * @return a map of every key in the bundle to its translation, in the order the keys are declared
+     *
+     * @throws UnsupportedLocaleException
+     *         if locale has not been defined as a supported locale in {@link I18NModule}
+     */
+    ImmutableMap<I18NKey, String> bundle(Class<? extends I18NKey> keyClass, Locale locale);
+
+    /**
+     * convenience method to get Collator instance for the {@link CurrentLocale}.  A new instance is returned for each call, so it may be modified by
+     * the caller
      *
      * @return Collator instance for the {@link CurrentLocale}
      */
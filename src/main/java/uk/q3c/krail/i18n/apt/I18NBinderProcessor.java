@@ -0,0 +1,347 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.i18n.apt;
+
+import uk.q3c.krail.i18n.DefaultI18NProcessor;
+import uk.q3c.krail.i18n.I18N;
+import uk.q3c.krail.i18n.I18NAnnotation;
+import uk.q3c.krail.i18n.I18NBinder;
+import uk.q3c.krail.i18n.I18NBinderContext;
+import uk.q3c.krail.i18n.I18NKey;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.*;
+
+/**
+ * An annotation processor which generates an {@link I18NBinder} for each class which has I18N annotated fields, so that {@link DefaultI18NProcessor}
+ * can apply the annotation values without reflection.  The rules are the same as those applied at run time by the {@link uk.q3c.krail.i18n.I18NScanPlan}:
+ * <ol>
+ * <li>A field is a component if it has one or more annotations which are themselves annotated with {@link I18NAnnotation} (other than {@link I18N}).
+ * Field annotations take precedence - the annotations on the field's type are used only if there are no I18N field annotations</li>
+ * <li>Where there are multiple values for caption(), description(), value() or locale(), the last one found is used</li>
+ * <li>A field is drilled down into if it is annotated with {@link I18N} with drillDown=true - again the field annotation takes precedence over the
+ * annotation on the field's type</li>
+ * </ol>
+ * A binder is generated in the same package as the class it is for, so it can only read fields which are not private (and if declared by a superclass in
+ * another package, are public).  If any relevant field cannot be read, no binder is generated for that class, and it is scanned with reflection at run
+ * time as before.  A NOTE is issued to say so.  A binder is used for every instance of its class which {@link DefaultI18NProcessor} translates, including
+ * those drilled down into from a class which is scanned at run time.
+ * <p>
+ * The processor is not registered as a service, so it is not run when compiling Krail itself.  To use it, name it with the javac -processor option (or
+ * add it to the annotationProcessor configuration in Gradle) when compiling an application
+ * <p>
+ * Created by David Sowerby on 16/10/15.
+ */
+@SupportedAnnotationTypes("*")
+public class I18NBinderProcessor extends AbstractProcessor {
+
+    private final Set<String> generated = new HashSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())) {
+            processType(type);
+        }
+        // other processors may also want to see these annotations
+        return false;
+    }
+
+    private void processType(TypeElement type) {
+        for (TypeElement nested : ElementFilter.typesIn(type.getEnclosedElements())) {
+            processType(nested);
+        }
+        if (type.getKind() != ElementKind.CLASS || !isAccessible(type)) {
+            return;
+        }
+        String binderName = binderName(type);
+        if (generated.contains(binderName)) {
+            return;
+        }
+        Optional<List<BoundField>> fields = boundFields(type);
+        if (!fields.isPresent() || fields.get()
+                                         .isEmpty()) {
+            return;
+        }
+        try {
+            write(type, binderName, fields.get());
+            generated.add(binderName);
+        } catch (IOException e) {
+            processingEnv.getMessager()
+                         .printMessage(Diagnostic.Kind.ERROR, "Unable to write " + binderName + ": " + e.getMessage(), type);
+        }
+    }
+
+    /**
+     * Returns the fields of {@code type} and its superclasses which need binding, or Optional.empty() if any of them cannot be read by a binder
+     */
+    private Optional<List<BoundField>> boundFields(TypeElement type) {
+        Elements elements = processingEnv.getElementUtils();
+        Types types = processingEnv.getTypeUtils();
+        TypeMirror abstractComponent = types.erasure(elements.getTypeElement("com.vaadin.ui.AbstractComponent")
+                                                             .asType());
+        PackageElement targetPackage = elements.getPackageOf(type);
+        List<BoundField> boundFields = new ArrayList<>();
+        Set<String> fieldNames = new HashSet<>();
+        TypeElement classToScan = type;
+        while (classToScan != null && !classToScan.getQualifiedName()
+                                                  .contentEquals(Object.class.getName())) {
+            for (VariableElement field : ElementFilter.fieldsIn(classToScan.getEnclosedElements())) {
+                Element fieldType = types.asElement(types.erasure(field.asType()));
+                List<AnnotationMirror> i18NAnnotations = i18NAnnotations(field);
+                if (i18NAnnotations.isEmpty() && fieldType != null) {
+                    i18NAnnotations = i18NAnnotations(fieldType);
+                }
+                boolean component = !i18NAnnotations.isEmpty();
+                boolean drillDown = isDrillDown(field, fieldType);
+                if (!component && !drillDown) {
+                    continue;
+                }
+                String fieldName = field.getSimpleName()
+                                        .toString();
+                if (component && !types.isAssignable(types.erasure(field.asType()), abstractComponent)) {
+                    return skip(type, "field '" + fieldName + "' has I18N annotations but is not an AbstractComponent");
+                }
+                if (!isAccessible(field, targetPackage)) {
+                    return skip(type, "field '" + fieldName + "' is not accessible");
+                }
+                if (!fieldNames.add(fieldName)) {
+                    return skip(type, "field '" + fieldName + "' is hidden by a subclass field");
+                }
+                boundFields.add(new BoundField(fieldName, component ? i18NAnnotations : null, drillDown));
+            }
+            TypeMirror superclass = classToScan.getSuperclass();
+            classToScan = (superclass.getKind() == TypeKind.DECLARED) ? (TypeElement) types.asElement(superclass) : null;
+        }
+        return Optional.of(boundFields);
+    }
+
+    private Optional<List<BoundField>> skip(TypeElement type, String reason) {
+        processingEnv.getMessager()
+                     .printMessage(Diagnostic.Kind.NOTE, "No I18NBinder generated for " + type.getQualifiedName() + ", it will be scanned at run time, " +
+                             "because " + reason, type);
+        return Optional.empty();
+    }
+
+    /**
+     * Returns the annotations of {@code element} which are themselves annotated with {@link I18NAnnotation}, except for {@link I18N}
+     */
+    private List<AnnotationMirror> i18NAnnotations(Element element) {
+        List<AnnotationMirror> i18NAnnotations = new ArrayList<>();
+        for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+            Element annotationType = annotation.getAnnotationType()
+                                               .asElement();
+            if (annotationType.getAnnotation(I18NAnnotation.class) != null && !isType(annotationType, I18N.class)) {
+                i18NAnnotations.add(annotation);
+            }
+        }
+        return i18NAnnotations;
+    }
+
+    /**
+     * A field annotation of {@link I18N} takes precedence over an {@link I18N} annotation on the field's type
+     */
+    private boolean isDrillDown(VariableElement field, Element fieldType) {
+        I18N i18N = field.getAnnotation(I18N.class);
+        if (i18N == null && fieldType != null) {
+            i18N = fieldType.getAnnotation(I18N.class);
+        }
+        return i18N != null && i18N.drillDown();
+    }
+
+    private boolean isType(Element element, Class<?> clazz) {
+        return element instanceof TypeElement && ((TypeElement) element).getQualifiedName()
+                                                                        .contentEquals(clazz.getCanonicalName());
+    }
+
+    /**
+     * A generated binder is in the same package as {@code type}, so the type and all its enclosing types must not be private
+     */
+    private boolean isAccessible(TypeElement type) {
+        Element element = type;
+        while (element instanceof TypeElement) {
+            if (element.getModifiers()
+                       .contains(Modifier.PRIVATE)) {
+                return false;
+            }
+            element = element.getEnclosingElement();
+        }
+        return true;
+    }
+
+    private boolean isAccessible(VariableElement field, PackageElement targetPackage) {
+        Set<Modifier> modifiers = field.getModifiers();
+        if (modifiers.contains(Modifier.PUBLIC)) {
+            return true;
+        }
+        if (modifiers.contains(Modifier.PRIVATE)) {
+            return false;
+        }
+        return processingEnv.getElementUtils()
+                            .getPackageOf(field)
+                            .equals(targetPackage);
+    }
+
+    /**
+     * The name of the binder for {@code type} - the simple names of the type and any enclosing types joined with '_', followed by {@link I18NBinder#SUFFIX}
+     */
+    private String binderName(TypeElement type) {
+        StringBuilder buf = new StringBuilder(type.getSimpleName());
+        Element element = type.getEnclosingElement();
+        while (element instanceof TypeElement) {
+            buf.insert(0, '_')
+               .insert(0, element.getSimpleName());
+            element = element.getEnclosingElement();
+        }
+        return buf.append(I18NBinder.SUFFIX)
+                  .toString();
+    }
+
+    private void write(TypeElement type, String binderName, List<BoundField> fields) throws IOException {
+        PackageElement targetPackage = processingEnv.getElementUtils()
+                                                    .getPackageOf(type);
+        String packageName = targetPackage.isUnnamed() ? "" : targetPackage.getQualifiedName()
+                                                                           .toString();
+        String qualifiedBinderName = packageName.isEmpty() ? binderName : packageName + '.' + binderName;
+        String targetType = processingEnv.getTypeUtils()
+                                         .erasure(type.asType())
+                                         .toString();
+        JavaFileObject sourceFile = processingEnv.getFiler()
+                                                 .createSourceFile(qualifiedBinderName, type);
+        try (PrintWriter out = new PrintWriter(sourceFile.openWriter())) {
+            if (!packageName.isEmpty()) {
+                out.println("package " + packageName + ';');
+                out.println();
+            }
+            out.println("@" + generatedAnnotation() + "(\"" + getClass().getName() + "\")");
+            out.println("public final class " + binderName + " implements " + I18NBinder.class.getName() + '<' + targetType + "> {");
+            out.println();
+            out.println("    @Override");
+            out.println("    public void bind(" + targetType + " target, " + I18NBinderContext.class.getName() + " context) {");
+            for (BoundField field : fields) {
+                if (field.annotations != null) {
+                    AnnotationValues values = new AnnotationValues(field.annotations);
+                    out.println("        context.apply(target." + field.name + ", \"" + field.name + "\", " + values.captionKey + ", " + values.descriptionKey +
+                            ", " + values.valueKey + ", \"" + values.localeTag + "\");");
+                }
+            }
+            for (BoundField field : fields) {
+                if (field.drillDown) {
+                    out.println("        context.drillDown(target." + field.name + ");");
+                }
+            }
+            out.println("    }");
+            out.println("}");
+        }
+    }
+
+    /**
+     * javax.annotation.Generated is not available from Java 9, where javax.annotation.processing.Generated replaces it
+     */
+    private String generatedAnnotation() {
+        String generated = "javax.annotation.Generated";
+        return (processingEnv.getElementUtils()
+                             .getTypeElement(generated) != null) ? generated : "javax.annotation.processing.Generated";
+    }
+
+    private static class BoundField {
+        private final List<AnnotationMirror> annotations;
+        private final boolean drillDown;
+        private final String name;
+
+        private BoundField(String name, List<AnnotationMirror> annotations, boolean drillDown) {
+            this.name = name;
+            this.annotations = annotations;
+            this.drillDown = drillDown;
+        }
+    }
+
+    /**
+     * The values read from a field's annotations, as Java source.  If there is a value, it is used, but an existing value is not overwritten with empty
+     */
+    private class AnnotationValues {
+        private String captionKey = "null";
+        private String descriptionKey = "null";
+        private String localeTag = "";
+        private String valueKey = "null";
+
+        private AnnotationValues(List<AnnotationMirror> annotations) {
+            for (AnnotationMirror annotation : annotations) {
+                Map<? extends ExecutableElement, ? extends AnnotationValue> values = processingEnv.getElementUtils()
+                                                                                                  .getElementValuesWithDefaults(annotation);
+                for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : values.entrySet()) {
+                    String method = entry.getKey()
+                                         .getSimpleName()
+                                         .toString();
+                    Object value = entry.getValue()
+                                        .getValue();
+                    switch (method) {
+                        case "caption":
+                            captionKey = keyOrDefault(value, captionKey);
+                            break;
+                        case "description":
+                            descriptionKey = keyOrDefault(value, descriptionKey);
+                            break;
+                        case "value":
+                            valueKey = keyOrDefault(value, valueKey);
+                            break;
+                        case "locale":
+                            if (value instanceof String && !((String) value).isEmpty()) {
+                                localeTag = processingEnv.getElementUtils()
+                                                         .getConstantExpression(value);
+                                // getConstantExpression includes the quotes, which are added by the writer
+                                localeTag = localeTag.substring(1, localeTag.length() - 1);
+                            }
+                            break;
+                        default:
+                    }
+                }
+            }
+        }
+
+        /**
+         * Returns the source for the enum constant {@code value} if it is an I18NKey, otherwise {@code current}
+         */
+        private String keyOrDefault(Object value, String current) {
+            if (!(value instanceof VariableElement)) {
+                return current;
+            }
+            VariableElement constant = (VariableElement) value;
+            TypeMirror i18NKey = processingEnv.getElementUtils()
+                                              .getTypeElement(I18NKey.class.getName())
+                                              .asType();
+            if (!(constant.asType() instanceof DeclaredType) || !processingEnv.getTypeUtils()
+                                                                              .isAssignable(constant.asType(), i18NKey)) {
+                return current;
+            }
+            return ((TypeElement) constant.getEnclosingElement()).getQualifiedName() + "." + constant.getSimpleName();
+        }
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A message pattern in the format used by {@link MessageFormat}, parsed once into literal segments and argument indices, so that it can be formatted
+ * repeatedly without re-scanning the pattern.  For a pattern such as:
+ * <p/>
+ * <ul>
+ * <i>this is a {1} pattern where the {0} can be in any {2}</i>
+ * </ul>
+ * the segments are "this is a ", " pattern where the ", " can be in any " and "", and the argument indices are 1, 0, 2
+ * <p/>
+ * The behaviour is the same as {@link MessageFormat#format(String, Object...)} - if the pattern is malformed, or the number of arguments does not match the
+ * number of parameters, the unmodified pattern is returned.
+ * <p/>
+ * Formatting uses a per-thread, reused StringBuilder, so the only allocation for a format call is the resulting String (plus any made by the arguments'
+ * own toString())
+ * <p/>
+ * Created by David Sowerby on 16/10/15.
+ */
+@Immutable
+public class CompiledMessage {
+
+    private static final int BUFFER_CAPACITY = 256;
+    private static final int MAX_RETAINED_CAPACITY = 4096;
+    private static final ThreadLocal<Buffer> buffers = ThreadLocal.withInitial(Buffer::new);
+    private static Logger log = LoggerFactory.getLogger(CompiledMessage.class);
+    private final int[] argumentIndices;
+    private final int maxIndex;
+    private final String pattern;
+    private final String[] segments;
+    private final boolean valid;
+
+    private CompiledMessage(String pattern, String[] segments, int[] argumentIndices, boolean valid) {
+        this.pattern = pattern;
+        this.segments = segments;
+        this.argumentIndices = argumentIndices;
+        this.valid = valid;
+        int max = -1;
+        for (int index : argumentIndices) {
+            max = Math.max(max, index);
+        }
+        this.maxIndex = max;
+    }
+
+    /**
+     * Parses {@code pattern} into a CompiledMessage.  This never fails - a malformed pattern produces a CompiledMessage which always returns the pattern
+     * unchanged
+     *
+     * @param pattern
+     *         the pattern to parse, in the format described by {@link MessageFormat#format(String, Object...)}
+     *
+     * @return the compiled message
+     */
+    @Nonnull
+    public static CompiledMessage compile(@Nonnull String pattern) {
+        checkNotNull(pattern);
+        List<String> segments = new ArrayList<>();
+        List<Integer> indices = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        int length = pattern.length();
+        while (i < length) {
+            char c = pattern.charAt(i);
+            if (c == '\\' && i + 1 < length) {
+                i++;
+                c = pattern.charAt(i);
+                if (c == '{') {
+                    // an escaped '{' escapes the whole placeholder
+                    int close = pattern.indexOf('}', i);
+                    int end = (close < 0) ? length : close + 1;
+                    literal.append(pattern, i, end);
+                    i = end;
+                    continue;
+                }
+                literal.append('\\')
+                       .append(c);
+            } else if (c == '{') {
+                int close = pattern.indexOf('}', i);
+                if (close < 0) {
+                    return invalid(pattern);
+                }
+                try {
+                    indices.add(Integer.parseInt(pattern.substring(i + 1, close)));
+                } catch (NumberFormatException e) {
+                    return invalid(pattern);
+                }
+                segments.add(literal.toString());
+                literal.setLength(0);
+                i = close;
+            } else {
+                literal.append(c);
+            }
+            i++;
+        }
+        segments.add(literal.toString());
+        int[] argumentIndices = new int[indices.size()];
+        for (int j = 0; j < argumentIndices.length; j++) {
+            argumentIndices[j] = indices.get(j);
+        }
+        return new CompiledMessage(pattern, segments.toArray(new String[segments.size()]), argumentIndices, true);
+    }
+
+    private static CompiledMessage invalid(String pattern) {
+        return new CompiledMessage(pattern, new String[]{pattern}, new int[0], false);
+    }
+
+    /**
+     * Appends {@code argument} in the same way as the slf4j MessageFormatter - nulls become "null", and arrays have their content listed
+     */
+    private static void appendArgument(StringBuilder buf, @Nullable Object argument) {
+        if (argument == null) {
+            buf.append("null");
+            return;
+        }
+        try {
+            if (!argument.getClass()
+                         .isArray()) {
+                buf.append(argument.toString());
+            } else if (argument instanceof Object[]) {
+                buf.append(Arrays.deepToString((Object[]) argument));
+            } else if (argument instanceof int[]) {
+                buf.append(Arrays.toString((int[]) argument));
+            } else if (argument instanceof long[]) {
+                buf.append(Arrays.toString((long[]) argument));
+            } else if (argument instanceof double[]) {
+                buf.append(Arrays.toString((double[]) argument));
+            } else if (argument instanceof float[]) {
+                buf.append(Arrays.toString((float[]) argument));
+            } else if (argument instanceof boolean[]) {
+                buf.append(Arrays.toString((boolean[]) argument));
+            } else if (argument instanceof char[]) {
+                buf.append(Arrays.toString((char[]) argument));
+            } else if (argument instanceof byte[]) {
+                buf.append(Arrays.toString((byte[]) argument));
+            } else {
+                buf.append(Arrays.toString((short[]) argument));
+            }
+        } catch (Exception e) {
+            log.warn("Failed to call toString() on argument of type {}", argument.getClass());
+            buf.append("[FAILED toString()]");
+        }
+    }
+
+    /**
+     * Formats the message with {@code arguments}, using a reused per-thread buffer.
+     *
+     * @param arguments
+     *         the arguments to substitute for the parameters.  The number of arguments must match the number of parameters
+     *
+     * @return the formatted message, or the unmodified pattern if the pattern is malformed or the number of arguments does not match the number of
+     * parameters
+     */
+    @Nonnull
+    public String format(@Nullable Object... arguments) {
+        if (!accepts(arguments)) {
+            return pattern;
+        }
+        if (argumentIndices.length == 0) {
+            return segments[0];
+        }
+        Buffer buffer = buffers.get();
+        // an argument's toString() may itself format a message on this thread, so the shared builder cannot be used twice
+        StringBuilder buf = buffer.inUse ? new StringBuilder(BUFFER_CAPACITY) : buffer.acquire();
+        try {
+            return append(buf, arguments).toString();
+        } finally {
+            if (buf == buffer.builder) {
+                buffer.release();
+            }
+        }
+    }
+
+    /**
+     * Appends the formatted message to {@code buf}.  If the pattern is malformed, or the number of arguments does not match the number of parameters,
+     * the unmodified pattern is appended.
+     *
+     * @param buf
+     *         the builder to append to
+     * @param arguments
+     *         the arguments to substitute for the parameters
+     *
+     * @return {@code buf} for fluency
+     */
+    @Nonnull
+    public StringBuilder formatTo(@Nonnull StringBuilder buf, @Nullable Object... arguments) {
+        checkNotNull(buf);
+        if (!accepts(arguments)) {
+            return buf.append(pattern);
+        }
+        return append(buf, arguments);
+    }
+
+    private StringBuilder append(StringBuilder buf, Object[] arguments) {
+        buf.append(segments[0]);
+        for (int i = 0; i < argumentIndices.length; i++) {
+            appendArgument(buf, arguments[argumentIndices[i]]);
+            buf.append(segments[i + 1]);
+        }
+        return buf;
+    }
+
+    private boolean accepts(@Nullable Object[] arguments) {
+        if (!valid) {
+            return false;
+        }
+        int argumentCount = (arguments == null) ? 0 : arguments.length;
+        if (argumentCount != argumentIndices.length || maxIndex >= argumentCount) {
+            log.warn("Message pattern and arguments do not match, there are {} parameters in the pattern, and {} arguments. The pattern is: '{}'",
+                    argumentIndices.length, argumentCount, pattern);
+            return false;
+        }
+        return true;
+    }
+
+    @Nonnull
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * Returns the number of parameters in the pattern (a parameter used twice is counted twice, as it is in {@link MessageFormat})
+     *
+     * @return the number of parameters in the pattern
+     */
+    public int getParameterCount() {
+        return argumentIndices.length;
+    }
+
+    /**
+     * Returns false if the pattern could not be parsed, in which case {@link #format} always returns the pattern unchanged
+     *
+     * @return false if the pattern could not be parsed
+     */
+    public boolean isValid() {
+        return valid;
+    }
+
+    @Override
+    public String toString() {
+        return "CompiledMessage{" +
+                "pattern='" + pattern + '\'' +
+                '}';
+    }
+
+    /**
+     * Holds the reused StringBuilder for a thread, and whether it is currently in use
+     */
+    private static class Buffer {
+        private StringBuilder builder = new StringBuilder(BUFFER_CAPACITY);
+        private boolean inUse;
+
+        private StringBuilder acquire() {
+            inUse = true;
+            return builder;
+        }
+
+        private void release() {
+            // don't hold on to an unusually large buffer
+            if (builder.capacity() > MAX_RETAINED_CAPACITY) {
+                builder = new StringBuilder(BUFFER_CAPACITY);
+            } else {
+                builder.setLength(0);
+            }
+            inUse = false;
+        }
+    }
+}
@@ -12,13 +12,8 @@
  */
 package uk.q3c.util;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 import org.slf4j.helpers.MessageFormatter;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * The native Java {@link java.text.MessageFormat} has some quirky behaviour especially when using the apostrophe
  * (single quote) character. The {@link MessageFormatter} from sl4j claims much faster performance, but expects the
@@ -27,15 +22,15 @@ import java.util.List;
  * <p/>
  * Neither is completely suited to I18N translation
  * <p/>
+ * Formatting is now carried out by {@link CompiledMessage}, which no longer delegates to {@link MessageFormatter}
+ * <p/>
  *
  * @author David Sowerby 10 Feb 2013
  */
 public class MessageFormat {
-    private static Logger log = LoggerFactory.getLogger(MessageFormat.class);
 
     /**
-     * This method uses {@link MessageFormatter} for speed and resilience, but acts as an intermediary and takes a
-     * pattern string of the format:
+     * Takes a pattern string of the format:
      * <p/>
      * <ul>
      * <em>this is a {1} pattern where the {0} can be in any {2}</i>
@@ -48,10 +43,8 @@ public class MessageFormat {
      * <ul>
      * <i>this is a simple pattern where the parameters can be in any order</i>
      * </ul>
-     * This is done by sorting the arguments into the same order as they are required by the pattern. No claims are
-     * made
-     * for efficiency or performance - {@link MessageFormatter} is fast, but this utility has not been optimised. This
-     * method is deliberately not tolerant of errors in the pattern structure - substitution will simply not occur, and
+     * The pattern is parsed into a {@link CompiledMessage} on every call - if you format the same pattern repeatedly, use {@link #compile(String)} and
+     * hold on to the result. This method is deliberately not tolerant of errors in the pattern structure - substitution will simply not occur, and
      * the unmodified pattern returned.
      * <p/>
      * If you want to include a "{" in the output, simply escape it "\\{". This will escape the whole placeholder
@@ -60,71 +53,22 @@ public class MessageFormat {
      * matched by the same number of arguments.
      */
     public static String format(String pattern, Object... arguments) {
-        List<Integer> parameters = new ArrayList<>();
-        try {
-            String strippedPattern = scanForParameters(pattern, parameters);
-            Object[] sortedArguments = sortArguments(parameters, arguments, pattern);
-            return MessageFormatter.arrayFormat(strippedPattern, sortedArguments)
-                                   .getMessage();
-        } catch (Exception e) {
-            return pattern;
-        }
-    }
-
-    private static String scanForParameters(String pattern, List<Integer> parameters) {
-        int i = 0;
-        StringBuilder strippedPattern = new StringBuilder();
-        while (i < pattern.length()) {
-            char c = pattern.charAt(i);
-            // if the '{' has been escaped this moves the scan beyond it, thereby ignoring it
-            if (c == '\\') {
-                i++;
-                c = pattern.charAt(i);
-                if (c == '{') {
-                    strippedPattern.append('{');
-                    i++;
-                    c = pattern.charAt(i);
-                    strippedPattern.append(c);
-                }
-            } else {
-                strippedPattern.append(c);
-            }
-            // find an opening brace
-            if (c == '{') {
-                // find the closing '}' and extract
-                StringBuilder placeholder = new StringBuilder();
-                boolean done = false;
-
-                while (!done) {
-                    i++;
-                    c = pattern.charAt(i);
-
-                    if (c == '}') {
-                        parameters.add(Integer.valueOf(placeholder.toString()));
-                        strippedPattern.append(c);
-                        done = true;
-                    } else {
-                        placeholder.append(c);
-                    }
-                }
-            }
-
-            i++;
+        if (pattern == null) {
+            return null;
         }
-        return strippedPattern.toString();
+        return compile(pattern).format(arguments);
     }
 
-    private static Object[] sortArguments(List<Integer> parameters, Object[] arguments, String pattern) {
-        if (parameters.size() != arguments.length) {
-            Object[] args = new Object[]{parameters.size(), arguments.length, pattern};
-            log.warn("Message pattern and arguments do not match, there are {} parameters in the pattern, " +
-                    "and {} arguments. The pattern is: '{}'", args);
-            throw new RuntimeException();
-        }
-        List<Object> sortedArguments = new ArrayList<>();
-        for (Integer i : parameters) {
-            sortedArguments.add(arguments[i]);
-        }
-        return sortedArguments.toArray();
+    /**
+     * Parses {@code pattern} once, so that it can be formatted repeatedly without being re-scanned.  See {@link #format(String, Object...)} for the
+     * pattern format
+     *
+     * @param pattern
+     *         the pattern to parse
+     *
+     * @return the parsed pattern
+     */
+    public static CompiledMessage compile(String pattern) {
+        return CompiledMessage.compile(pattern);
     }
 }
@@ -28,11 +28,14 @@ import uk.q3c.krail.core.services.Service;
 import uk.q3c.krail.core.services.ServiceBusMessage;
 import uk.q3c.krail.core.services.ServicesMonitor;
 import uk.q3c.krail.core.shiro.KrailSecurityManager;
+import uk.q3c.krail.i18n.PatternMetrics;
 import uk.q3c.util.testutil.LogMonitor;
 
+import javax.management.ObjectName;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletContextEvent;
 import java.io.File;
+import java.lang.management.ManagementFactory;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
@@ -79,6 +82,9 @@ public class DefaultBindingManagerTest {
         assertThat(SecurityUtils.getSecurityManager()).isInstanceOf(KrailSecurityManager.class);
         assertThat(out.isAddAppModulesCalled()).isEqualTo(true);
         assertThat(injector).isNotNull();
+        ObjectName metricsName = new ObjectName(PatternMetrics.OBJECT_NAME);
+        assertThat(ManagementFactory.getPlatformMBeanServer()
+                                    .isRegistered(metricsName)).isTrue();
 
         // given
         ServicesMonitor servicesMonitor = injector.getInstance(ServicesMonitor.class);
@@ -90,6 +96,8 @@ public class DefaultBindingManagerTest {
         // then
         verify(service).stop(); // services stopped
         assertThat(logMonitor.infoLogs()).contains("Stopping services");
+        assertThat(ManagementFactory.getPlatformMBeanServer()
+                                    .isRegistered(metricsName)).isFalse(); // metrics no longer available through JMX
 
     }
 
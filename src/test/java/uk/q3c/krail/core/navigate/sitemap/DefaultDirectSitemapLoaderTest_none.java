@@ -68,6 +68,7 @@ public class DefaultDirectSitemapLoaderTest_none {
                 bind(URIFragmentHandler.class).to(StrictURIFragmentHandler.class);
                 bind(MasterSitemap.class).to(DefaultMasterSitemap.class);
                 bind(UserSitemap.class).to(DefaultUserSitemap.class);
+                bind(SitemapLabels.class).to(DefaultSitemapLabels.class);
             }
 
         };
@@ -245,6 +245,7 @@ public class DefaultSitemapFinisherTest {
                 bind(URIFragmentHandler.class).to(StrictURIFragmentHandler.class);
                 bind(MasterSitemap.class).to(DefaultMasterSitemap.class);
                 bind(UserSitemap.class).to(DefaultUserSitemap.class);
+                bind(SitemapLabels.class).to(DefaultSitemapLabels.class);
             }
 
         };
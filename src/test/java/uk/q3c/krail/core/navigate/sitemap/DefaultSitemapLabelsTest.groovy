@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.core.navigate.sitemap
+
+import com.google.common.collect.ImmutableList
+import com.google.common.collect.ImmutableMap
+import com.google.common.collect.ImmutableSet
+import com.google.common.collect.ImmutableSetMultimap
+import com.google.inject.Provider
+import fixture.testviews2.ViewA
+import spock.lang.Specification
+import uk.q3c.krail.UnitTestFor
+import uk.q3c.krail.core.shiro.PageAccessControl
+import uk.q3c.krail.core.user.opt.LowestRankedOption
+import uk.q3c.krail.core.user.opt.Option
+import uk.q3c.krail.core.user.opt.OptionKey
+import uk.q3c.krail.i18n.*
+
+/**
+ * Created by David Sowerby on 16/10/15.
+ */
+@UnitTestFor(DefaultSitemapLabels)
+class DefaultSitemapLabelsTest extends Specification {
+
+    def masterSitemap = Mock(MasterSitemap)
+    def translate = Mock(Translate)
+    def translateProvider = Mock(Provider)
+    def patternCacheLoader = Mock(PatternCacheLoader)
+    def patternSourceProviderProvider = Mock(Provider)
+    def optionProvider = Mock(Provider)
+    def option = Mock(Option)
+    Map<LabelKey, String> german = [(LabelKey.Home_Page): "Startseite", (LabelKey.Log_In): "Anmelden"]
+    def changeLog = new DefaultPatternChangeLog()
+    DefaultSitemapLabels labels
+    MasterSitemapNode homeNode = new MasterSitemapNode(1, "home", ViewA, LabelKey.Home_Page, -1, PageAccessControl.PUBLIC, null)
+    MasterSitemapNode loginNode = new MasterSitemapNode(2, "login", ViewA, LabelKey.Log_In, -1, PageAccessControl.PUBLIC, null)
+    int nodeCount = 1
+
+    def setup() {
+        translateProvider.get() >> translate
+        patternSourceProviderProvider.get() >> Mock(PatternSourceProvider)
+        optionProvider.get() >> option
+        masterSitemap.getAllNodes() >> ImmutableList.of(homeNode)
+        masterSitemap.getStandardPages() >> ImmutableMap.of(StandardPageKey.Log_In, loginNode)
+        masterSitemap.getNodeCount() >> { nodeCount }
+        labels = new DefaultSitemapLabels(masterSitemap, translateProvider, patternSourceProviderProvider, optionProvider, Mock(PatternWriteQueue),
+                new DefaultPatternMetrics(), new DefaultCollatorCache(), changeLog) {
+            @Override
+            protected PatternCacheLoader newPatternCacheLoader() {
+                return patternCacheLoader
+            }
+        }
+    }
+
+    def "a snapshot is created once for each Locale, including the standard pages"() {
+        when:
+        SitemapLabelSnapshot snapshot = labels.snapshot(Locale.GERMANY)
+        SitemapLabelSnapshot again = labels.snapshot(Locale.GERMANY)
+
+        then:
+        2 * patternCacheLoader.load({ it.getRequestedLocale() == Locale.GERMANY }) >> { PatternCacheKey cacheKey -> german.get(cacheKey.getKey()) }
+        0 * translate._
+        snapshot.label(homeNode) == "Startseite"
+        snapshot.label(loginNode) == "Anmelden"
+        snapshot.size() == 2
+        again.is(snapshot)
+    }
+
+    def "a snapshot is replaced after invalidate, or when the MasterSitemap changes"() {
+        given:
+        patternCacheLoader.load(_) >> { PatternCacheKey cacheKey -> german.get(cacheKey.getKey()) }
+        SitemapLabelSnapshot snapshot = labels.snapshot(Locale.GERMANY)
+
+        when:
+        labels.invalidate()
+        SitemapLabelSnapshot afterInvalidate = labels.snapshot(Locale.GERMANY)
+        nodeCount = 2
+        SitemapLabelSnapshot afterChange = labels.snapshot(Locale.GERMANY)
+
+        then:
+        !afterInvalidate.is(snapshot)
+        !afterChange.is(afterInvalidate)
+    }
+
+    def "labels are loaded through a loader with options at the lowest rank"() {
+        given:
+        DefaultSitemapLabels realLabels = new DefaultSitemapLabels(masterSitemap, translateProvider, patternSourceProviderProvider, optionProvider,
+                Mock(PatternWriteQueue), new DefaultPatternMetrics(), new DefaultCollatorCache(), changeLog)
+        OptionKey<Boolean> optionKey = DefaultPatternCacheLoader.optionKeyAutoStub
+
+        when:
+        DefaultPatternCacheLoader loader = (DefaultPatternCacheLoader) realLabels.newPatternCacheLoader()
+        Boolean autoStub = loader.getOption()
+                                 .get(optionKey)
+
+        then:
+        loader.getOption() instanceof LowestRankedOption
+        1 * option.getLowestRanked(optionKey) >> true
+        0 * option.get(_)
+        autoStub
+    }
+
+    def "a snapshot is replaced when patterns have changed, and only the affected labels are loaded again"() {
+        given:
+        patternCacheLoader.load(_) >> { PatternCacheKey cacheKey ->
+            if (cacheKey.getKey() == LabelKey.Home_Page) {
+                cacheKey.setSource(CataloguePatternSource)
+            }
+            german.get(cacheKey.getKey())
+        }
+        SitemapLabelSnapshot snapshot = labels.snapshot(Locale.GERMANY)
+
+        when:
+        changeLog.record(ImmutableSet.of(ClassPatternSource), ImmutableSetMultimap.of())
+        SitemapLabelSnapshot afterChange = labels.snapshot(Locale.GERMANY)
+
+        then: "Log_In was not found in a source, so may now be found in the changed one"
+        1 * patternCacheLoader.load({ it.getKey() == LabelKey.Log_In }) >> "Einloggen"
+        0 * patternCacheLoader.load(_)
+        !afterChange.is(snapshot)
+        afterChange.label(homeNode) == "Startseite"
+        afterChange.label(loginNode) == "Einloggen"
+        labels.snapshot(Locale.GERMANY).is(afterChange)
+    }
+
+    def "a label which cannot be loaded is given the key name, and loaded again for the next snapshot"() {
+        when:
+        SitemapLabelSnapshot snapshot = labels.snapshot(Locale.GERMANY)
+
+        then:
+        1 * patternCacheLoader.load({ it.getKey() == LabelKey.Home_Page }) >> { throw new PatternWriteException("dao failed") }
+        1 * patternCacheLoader.load({ it.getKey() == LabelKey.Log_In }) >> "Anmelden"
+        snapshot.label(homeNode) == "Home_Page"
+        snapshot.label(loginNode) == "Anmelden"
+
+        when:
+        nodeCount = 2
+        SitemapLabelSnapshot next = labels.snapshot(Locale.GERMANY)
+
+        then:
+        1 * patternCacheLoader.load({ it.getKey() == LabelKey.Home_Page }) >> "Startseite"
+        0 * patternCacheLoader.load(_)
+        next.label(homeNode) == "Startseite"
+        next.label(loginNode) == "Anmelden"
+    }
+
+    def "applyTo labels a node from the snapshot, or directly if the snapshot does not hold it"() {
+        given:
+        patternCacheLoader.load(_) >> { PatternCacheKey cacheKey -> german.get(cacheKey.getKey()) }
+        SitemapLabelSnapshot snapshot = labels.snapshot(Locale.GERMANY)
+        UserSitemapNode homeUserNode = new UserSitemapNode(homeNode)
+        // not in the MasterSitemap when the snapshot was created
+        UserSitemapNode addedUserNode = new UserSitemapNode(new MasterSitemapNode(3, "added", ViewA, LabelKey.Yes, -1, PageAccessControl.PUBLIC, null))
+
+        when:
+        labels.applyTo(homeUserNode, snapshot)
+        labels.applyTo(addedUserNode, snapshot)
+
+        then:
+        1 * translate.from(LabelKey.Yes, Locale.GERMANY) >> "Ja"
+        homeUserNode.getLabel() == "Startseite"
+        addedUserNode.getLabel() == "Ja"
+        addedUserNode.getLabels().is(snapshot)
+        addedUserNode.getCollationKey() != null
+        addedUserNode.compareTo(homeUserNode) < 0
+    }
+}
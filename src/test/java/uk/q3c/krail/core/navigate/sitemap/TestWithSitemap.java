@@ -48,6 +48,8 @@ public abstract class TestWithSitemap {
     @Inject
     protected Translate translate;
     @Inject
+    protected SitemapLabels sitemapLabels;
+    @Inject
     protected URIFragmentHandler uriHandler;
     @Inject
     protected MasterSitemap masterSitemap;
@@ -218,10 +220,10 @@ public abstract class TestWithSitemap {
      * needed before calling this method
      */
     protected void createUserSitemap() {
-        userSitemap = new DefaultUserSitemap(translate, uriHandler, sessionBus);
+        userSitemap = new DefaultUserSitemap(translate, uriHandler, sessionBus, sitemapLabels);
         UserSitemapNodeModifier nodeModifier = new UserSitemapNodeModifier(subjectProvider, currentLocale,
-                masterSitemap, pageAccessController, translate);
-        UserSitemapCopyExtension copyExtension = new UserSitemapCopyExtension(masterSitemap, userSitemap, translate, currentLocale);
+                masterSitemap, pageAccessController, sitemapLabels);
+        UserSitemapCopyExtension copyExtension = new UserSitemapCopyExtension(masterSitemap, userSitemap, currentLocale, sitemapLabels);
         userSitemapBuilder = new UserSitemapBuilder(masterSitemap, userSitemap, nodeModifier, copyExtension, subjectProvider);
         userSitemapBuilder.build();
 
@@ -226,6 +226,7 @@ public class UserSitemapBuilderTest extends TestWithSitemap {
                 bind(VaadinSessionProvider.class).toInstance(mockVaadinSessionProvider);
                 bind(MasterSitemap.class).to(DefaultMasterSitemap.class);
                 bind(UserSitemap.class).to(DefaultUserSitemap.class);
+                bind(SitemapLabels.class).to(DefaultSitemapLabels.class);
             }
 
         };
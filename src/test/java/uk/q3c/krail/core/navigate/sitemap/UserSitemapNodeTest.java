@@ -10,6 +10,7 @@
  */
 package uk.q3c.krail.core.navigate.sitemap;
 
+import com.google.common.collect.ImmutableList;
 import com.google.inject.Inject;
 import com.mycila.testing.junit.MycilaJunitRunner;
 import com.mycila.testing.plugin.guice.GuiceContext;
@@ -21,6 +22,7 @@ import uk.q3c.krail.core.guice.uiscope.UIScopeModule;
 import uk.q3c.krail.core.guice.vsscope.VaadinSessionScopeModule;
 import uk.q3c.krail.core.shiro.PageAccessControl;
 import uk.q3c.krail.i18n.CurrentLocale;
+import uk.q3c.krail.i18n.DefaultCollatorCache;
 import uk.q3c.krail.i18n.LabelKey;
 import uk.q3c.krail.i18n.Translate;
 import uk.q3c.krail.testutil.TestI18NModule;
@@ -57,5 +59,23 @@ public class UserSitemapNodeTest {
         assertThat(userNode.getCollationKey()).isEqualTo(collator.getCollationKey("Startseite"));
     }
 
-
+    @Test
+    public void labelsFromSnapshot() {
+        // given
+        MasterSitemapNode masterNode = new MasterSitemapNode(1, "a", ViewA.class, LabelKey.Home_Page, -1, PageAccessControl.PUBLIC, null);
+        SitemapLabelSnapshot labels = new SitemapLabelSnapshot(Locale.GERMANY, ImmutableList.of(masterNode), ImmutableList.of("Startseite"), 1, new
+                DefaultCollatorCache());
+        userNode = new UserSitemapNode(masterNode);
+        userNode.setLabel("overridden");
+        // when
+        userNode.setLabels(labels);
+        // then
+        assertThat(userNode.getLabel()).isEqualTo("Startseite");
+        assertThat(userNode.getCollationKey()
+                           .compareTo(Collator.getInstance(Locale.GERMANY)
+                                              .getCollationKey("Startseite"))).isEqualTo(0);
+        // then a node with the same id but a different label key is not held by the snapshot (SitemapLabels.applyTo() labels it directly)
+        MasterSitemapNode otherNode = new MasterSitemapNode(1, "a", ViewA.class, LabelKey.Log_In, -1, PageAccessControl.PUBLIC, null);
+        assertThat(labels.contains(otherNode)).isFalse();
+    }
 }
@@ -37,6 +37,7 @@ import uk.q3c.krail.core.user.opt.Option;
 import uk.q3c.krail.core.view.KrailView;
 import uk.q3c.krail.i18n.CurrentLocale;
 import uk.q3c.krail.i18n.I18NProcessor;
+import uk.q3c.krail.i18n.LocaleChangeBusMessage;
 import uk.q3c.krail.i18n.Translate;
 
 import java.util.Locale;
@@ -165,7 +166,7 @@ public class ScopedUITest {
         inOrder.verify(navigator)
                .init();
         inOrder.verify(translator)
-               .translate(ui);
+               .translate(ui, ui.getBindingRegistry());
         inOrder.verify(navigator)
                .navigateTo("home");
     }
@@ -178,12 +179,21 @@ public class ScopedUITest {
         ui.changeView(toView);
         // then
         verify(toView).getRootComponent();
-        verify(translator).translate(toView);
+        verify(translator).translate(toView, ui.getBindingRegistry());
         verify(viewContent).setSizeFull();
         assertThat(ui.getViewDisplayPanel()
                      .getContent()).isEqualTo(viewContent);
     }
 
+    @Test
+    public void localeChanged() {
+        // when
+        ui.localeChanged(new LocaleChangeBusMessage(this, Locale.GERMANY));
+        // then
+        verify(translator).retranslate(ui.getBindingRegistry());
+        verify(translator, never()).translate(any());
+    }
+
     public class ConnectorIdAnswer implements Answer<String> {
 
         @Override
@@ -11,6 +11,7 @@
 
 package uk.q3c.krail.core.user.opt;
 
+import com.google.common.collect.ImmutableList;
 import com.mycila.testing.junit.MycilaJunitRunner;
 import com.mycila.testing.plugin.guice.GuiceContext;
 import com.vaadin.data.Property;
@@ -28,6 +29,8 @@ import uk.q3c.krail.core.ui.DataTypeToUI;
 import uk.q3c.krail.core.user.opt.cache.OptionCache;
 import uk.q3c.krail.core.user.opt.cache.OptionCacheKey;
 import uk.q3c.krail.core.user.opt.cache.OptionPermission;
+import uk.q3c.krail.core.user.profile.RankContext;
+import uk.q3c.krail.core.user.profile.RankContextProvider;
 import uk.q3c.krail.core.user.profile.UserHierarchy;
 import uk.q3c.krail.i18n.TestLabelKey;
 import uk.q3c.krail.i18n.Translate;
@@ -60,6 +63,9 @@ public class DefaultOptionTest {
 
     @Mock
     private OptionCache optionCache;
+    @Mock
+    private RankContextProvider rankContextProvider;
+    private RankContext rankContext;
     private OptionKey<Integer> optionKey1;
     private OptionKey<Integer> optionKey2;
     @Mock
@@ -70,7 +76,9 @@ public class DefaultOptionTest {
         when(subjectIdentifier.userId()).thenReturn("ds");
         when(subjectProvider.get()).thenReturn(subject);
         contextObject = new MockContext();
-        option = new DefaultOption(optionCache, defaultHierarchy, subjectProvider, subjectIdentifier);
+        rankContext = new RankContext(defaultHierarchy, ImmutableList.of("high", "specific", "low"));
+        when(rankContextProvider.get(defaultHierarchy)).thenReturn(rankContext);
+        option = new DefaultOption(optionCache, defaultHierarchy, rankContextProvider, subjectProvider, subjectIdentifier);
         optionKey1 = new OptionKey<>(5, context, TestLabelKey.key1, "q");
         optionKey2 = new OptionKey<>(5, context2, TestLabelKey.key1, "q");
     }
@@ -80,8 +88,7 @@ public class DefaultOptionTest {
     public void setNoPermissions() {
         //given
         when(subject.isPermitted(any(OptionPermission.class))).thenReturn(false);
-        when(defaultHierarchy.rankName(0)).thenReturn("specific");
-        OptionCacheKey cacheKey = new OptionCacheKey(defaultHierarchy, SPECIFIC_RANK, 0, optionKey1);
+        OptionCacheKey cacheKey = new OptionCacheKey(rankContext, SPECIFIC_RANK, 0, optionKey1);
         //when
         option.set(5, optionKey1);
         //then
@@ -91,8 +98,7 @@ public class DefaultOptionTest {
     public void set_simplest() {
         //given
         when(subject.isPermitted(any(OptionPermission.class))).thenReturn(true);
-        when(defaultHierarchy.rankName(0)).thenReturn("specific");
-        OptionCacheKey cacheKey = new OptionCacheKey(defaultHierarchy, SPECIFIC_RANK, 0, optionKey1);
+        OptionCacheKey cacheKey = new OptionCacheKey(rankContext, SPECIFIC_RANK, 0, optionKey1);
         //when
         option.set(5, optionKey1);
         //then
@@ -104,9 +110,8 @@ public class DefaultOptionTest {
     public void set_with_all_args_rank_too_low() {
         //given
         when(subject.isPermitted(any(OptionPermission.class))).thenReturn(true);
-        when(defaultHierarchy.rankName(2)).thenReturn("specific");
         OptionKey<Integer> optionKey2 = new OptionKey<>(999, context, TestLabelKey.key1, TestLabelKey.key1, "q");
-        OptionCacheKey cacheKey = new OptionCacheKey(defaultHierarchy, SPECIFIC_RANK, 2, optionKey2);
+        OptionCacheKey cacheKey = new OptionCacheKey(rankContext, SPECIFIC_RANK, 2, optionKey2);
         //when
         option.set(5, -1, optionKey2);
         //then
@@ -115,8 +120,7 @@ public class DefaultOptionTest {
     @Test
     public void get_simplest() {
         //given
-        when(defaultHierarchy.highestRankName()).thenReturn("high");
-        OptionCacheKey cacheKey = new OptionCacheKey(defaultHierarchy, HIGHEST_RANK, optionKey1);
+        OptionCacheKey cacheKey = new OptionCacheKey(rankContext, HIGHEST_RANK, 0, optionKey1);
         when(optionCache.get(Optional.of(5),cacheKey)).thenReturn(Optional.of(8));
         //when
         Integer actual = option.get(optionKey1);
@@ -124,11 +128,23 @@ public class DefaultOptionTest {
         assertThat(actual).isEqualTo(8);
     }
 
+    @Test
+    public void get_does_not_resolve_ranks_from_hierarchy() {
+        //given
+        OptionCacheKey cacheKey = new OptionCacheKey(rankContext, HIGHEST_RANK, 0, optionKey1);
+        when(optionCache.get(Optional.of(5), cacheKey)).thenReturn(Optional.of(8));
+        //when
+        option.get(optionKey1);
+        option.getLowestRanked(optionKey1);
+        option.getSpecificRanked(1, optionKey1);
+        //then
+        verifyZeroInteractions(defaultHierarchy);
+    }
+
     @Test
     public void get_with_hierarchy() {
         //given
-        when(defaultHierarchy.highestRankName()).thenReturn("high");
-        OptionCacheKey cacheKey = new OptionCacheKey(defaultHierarchy, HIGHEST_RANK, optionKey1);
+        OptionCacheKey cacheKey = new OptionCacheKey(rankContext, HIGHEST_RANK, 0, optionKey1);
         when(optionCache.get(Optional.of(5),cacheKey)).thenReturn(Optional.of(8));
         //when
         Integer actual = option.get(optionKey1);
@@ -141,8 +157,7 @@ public class DefaultOptionTest {
     @Test
     public void get_with_all_args() {
         //given
-        when(defaultHierarchy.highestRankName()).thenReturn("high");
-        OptionCacheKey cacheKey = new OptionCacheKey(defaultHierarchy, HIGHEST_RANK, optionKey1);
+        OptionCacheKey cacheKey = new OptionCacheKey(rankContext, HIGHEST_RANK, 0, optionKey1);
         when(optionCache.get(Optional.of(5),cacheKey)).thenReturn(Optional.of(8));
         //when
         Integer actual = option.get(optionKey1);
@@ -153,8 +168,7 @@ public class DefaultOptionTest {
     @Test
     public void get_none_found() {
         //given
-        when(defaultHierarchy.highestRankName()).thenReturn("high");
-        OptionCacheKey cacheKey = new OptionCacheKey(defaultHierarchy, HIGHEST_RANK, optionKey2);
+        OptionCacheKey cacheKey = new OptionCacheKey(rankContext, HIGHEST_RANK, 0, optionKey2);
         when(optionCache.get(Optional.of(5),cacheKey)).thenReturn(Optional.empty());
         //when
         Integer actual = option.get(optionKey2);
@@ -165,8 +179,7 @@ public class DefaultOptionTest {
     @Test
     public void get_lowest() {
         //given
-        when(defaultHierarchy.lowestRankName()).thenReturn("low");
-        OptionCacheKey cacheKey = new OptionCacheKey(defaultHierarchy, LOWEST_RANK, optionKey2);
+        OptionCacheKey cacheKey = new OptionCacheKey(rankContext, LOWEST_RANK, 0, optionKey2);
         when(optionCache.get(Optional.of(5), cacheKey)).thenAnswer(answerOf(20));
         //when
         Integer actual = option.getLowestRanked(optionKey2);
@@ -187,8 +200,7 @@ public class DefaultOptionTest {
     public void delete() {
         //given
         when(subject.isPermitted(any(OptionPermission.class))).thenReturn(true);
-        when(defaultHierarchy.rankName(1)).thenReturn("specific");
-        OptionCacheKey cacheKey = new OptionCacheKey(defaultHierarchy, SPECIFIC_RANK, 1, optionKey2);
+        OptionCacheKey cacheKey = new OptionCacheKey(rankContext, SPECIFIC_RANK, 1, optionKey2);
         when(optionCache.delete(cacheKey)).thenAnswer(answerOf(3));
         //when
         Object actual = option.delete(1, optionKey2);
@@ -201,8 +213,7 @@ public class DefaultOptionTest {
     public void delete_no_permissions() {
         //given
         when(subject.isPermitted(any(OptionPermission.class))).thenReturn(false);
-        when(defaultHierarchy.rankName(1)).thenReturn("specific");
-        OptionCacheKey cacheKey = new OptionCacheKey(defaultHierarchy, SPECIFIC_RANK, 1, optionKey2);
+        OptionCacheKey cacheKey = new OptionCacheKey(rankContext, SPECIFIC_RANK, 1, optionKey2);
         when(optionCache.delete(cacheKey)).thenAnswer(answerOf(3));
         //when
         Object actual = option.delete(1, optionKey2);
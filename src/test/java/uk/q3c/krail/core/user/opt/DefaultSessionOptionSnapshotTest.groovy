@@ -0,0 +1,206 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.core.user.opt
+
+import com.google.common.base.Function
+import com.google.common.cache.CacheBuilder
+import com.google.common.cache.CacheLoader
+import com.google.common.collect.ImmutableList
+import net.engio.mbassy.bus.common.PubSubSupport
+import spock.lang.Specification
+import uk.q3c.krail.UnitTestFor
+import uk.q3c.krail.core.persist.OptionSource
+import uk.q3c.krail.core.user.opt.cache.DefaultOptionCache
+import uk.q3c.krail.core.user.opt.cache.OptionCache
+import uk.q3c.krail.core.user.opt.cache.OptionCacheKey
+import uk.q3c.krail.core.user.opt.cache.OptionCacheProvider
+import uk.q3c.krail.core.user.opt.cache.OptionChangeBusMessage
+import uk.q3c.krail.core.user.profile.RankContext
+import uk.q3c.krail.core.user.profile.RankContextProvider
+import uk.q3c.krail.core.user.profile.RankOption
+import uk.q3c.krail.core.user.profile.UserHierarchy
+import uk.q3c.krail.core.user.status.UserStatusBusMessage
+import uk.q3c.krail.core.user.status.UserStatusChangeSource
+import uk.q3c.krail.core.view.component.LocaleContainer
+import uk.q3c.krail.i18n.LabelKey
+
+/**
+ * Created by David Sowerby on 16/10/15.
+ */
+@UnitTestFor(DefaultSessionOptionSnapshot)
+class DefaultSessionOptionSnapshotTest extends Specification {
+
+    DefaultSessionOptionSnapshot snapshot
+    Option option = Mock(Option)
+    OptionCache optionCache = Mock(OptionCache)
+    RankContextProvider rankContextProvider = Mock(RankContextProvider)
+    UserHierarchy hierarchy = Mock(UserHierarchy)
+    RankContext rankContext
+    UserHierarchy otherHierarchy = Mock(UserHierarchy)
+    OptionKey<Integer> key1 = new OptionKey<>(33, LocaleContainer.class, LabelKey.Error)
+    OptionKey<Integer> key2 = new OptionKey<>(44, LocaleContainer.class, LabelKey.Cancel)
+
+    def setup() {
+        option.getHierarchy() >> hierarchy
+        hierarchy.persistenceName() >> "SimpleUserHierarchy"
+        hierarchy.ranksForCurrentUser() >> ImmutableList.of("ds", "ACME", "system")
+        hierarchy.highestRankName() >> "ds"
+        hierarchy.lowestRankName() >> "system"
+        hierarchy.rankName(1) >> "ACME"
+        hierarchy.rankName(5) >> "Other Ltd"
+        otherHierarchy.persistenceName() >> "LocationHierarchy"
+        otherHierarchy.highestRankName() >> "ds"
+        otherHierarchy.rankName(1) >> "ACME"
+        rankContext = new RankContext(hierarchy, ImmutableList.of("ds", "ACME", "system"))
+        rankContextProvider.get(hierarchy) >> rankContext
+        snapshot = new DefaultSessionOptionSnapshot(option, optionCache, rankContextProvider)
+    }
+
+    def "a value is resolved through Option once, then read from the snapshot"() {
+        when:
+        int first = snapshot.get(key1)
+        int second = snapshot.get(key1)
+
+        then:
+        1 * option.get(key1) >> 7
+        first == 7
+        second == 7
+        snapshot.size() == 1
+    }
+
+    def "a change at one of the user's ranks invalidates only that option, at that rank"() {
+        given:
+        option.get(key1) >>> [7, 8]
+        option.get(key2) >> 9
+        snapshot.get(key1)
+        snapshot.get(key2)
+
+        when:
+        snapshot.optionChanged(new OptionChangeBusMessage(new OptionCacheKey(hierarchy, RankOption.SPECIFIC_RANK, 1, key1)))
+
+        then:
+        1 * optionCache.invalidate(new OptionCacheKey(rankContext, RankOption.SPECIFIC_RANK, 1, key1))
+        snapshot.size() == 1
+        snapshot.get(key1) == 8
+        snapshot.get(key2) == 9
+    }
+
+    def "a change at a rank the user does not have, or in another hierarchy, is ignored"() {
+        given:
+        option.get(key1) >> 7
+        snapshot.get(key1)
+
+        when:
+        snapshot.optionChanged(new OptionChangeBusMessage(new OptionCacheKey(hierarchy, RankOption.SPECIFIC_RANK, 5, key1)))
+        snapshot.optionChanged(new OptionChangeBusMessage(new OptionCacheKey(otherHierarchy, RankOption.SPECIFIC_RANK, 1, key1)))
+
+        then:
+        0 * optionCache.invalidate(_)
+        snapshot.size() == 1
+    }
+
+    def "a snapshot which has resolved nothing touches no cache, but does not hold a value resolved during the change"() {
+        given:
+        option.get(key1) >> {
+            snapshot.optionChanged(new OptionChangeBusMessage(new OptionCacheKey(hierarchy, RankOption.SPECIFIC_RANK, 1, key1)))
+            7
+        }
+
+        when:
+        snapshot.optionChanged(new OptionChangeBusMessage(new OptionCacheKey(hierarchy, RankOption.SPECIFIC_RANK, 1, key2)))
+
+        then:
+        0 * optionCache._
+
+        when:
+        int value = snapshot.get(key1)
+
+        then:
+        value == 7
+        snapshot.size() == 0
+        0 * optionCache._
+    }
+
+    def "a change made through another session's OptionCache is seen, as this session's OptionCache is invalidated too"() {
+        given: "two sessions, each with its own OptionCache, sharing one store"
+        Map<OptionKey, Integer> store = [(key1): 7]
+        OptionDao dao = Mock(OptionDao)
+        dao.write(_, _) >> { OptionCacheKey k, Optional v -> store.put(k.optionKey, v.get()) }
+        OptionSource optionSource = Mock(OptionSource)
+        optionSource.getActiveDao() >> dao
+        DefaultOptionCache cacheA = optionCache(optionSource, store)
+        DefaultOptionCache cacheB = optionCache(optionSource, store)
+        OptionCacheKey highestKey = new OptionCacheKey(hierarchy, RankOption.HIGHEST_RANK, key1)
+        OptionCacheKey otherOptionKey = new OptionCacheKey(hierarchy, RankOption.HIGHEST_RANK, key2)
+        Option optionB = Mock(Option)
+        optionB.getHierarchy() >> hierarchy
+        optionB.get(key1) >> { cacheB.get(Optional.of(key1.defaultValue), highestKey).get() }
+        DefaultSessionOptionSnapshot snapshotB = new DefaultSessionOptionSnapshot(optionB, cacheB, rankContextProvider)
+
+        and: "session A has its own instance of the hierarchy"
+        UserHierarchy hierarchyA = Mock(UserHierarchy)
+        hierarchyA.persistenceName() >> "SimpleUserHierarchy"
+        hierarchyA.highestRankName() >> "ds"
+        hierarchyA.rankName(1) >> "ACME"
+
+        expect:
+        snapshotB.get(key1) == 7
+        cacheB.getIfPresent(highestKey) == Optional.of(7)
+        cacheB.get(Optional.of(key2.defaultValue), otherOptionKey) == Optional.of(44)
+
+        when: "session A changes the value, and the change is published to session B"
+        OptionCacheKey changeKey = new OptionCacheKey(hierarchyA, RankOption.SPECIFIC_RANK, 1, key1)
+        cacheA.write(changeKey, Optional.of(8))
+        snapshotB.optionChanged(new OptionChangeBusMessage(changeKey))
+
+        then: "only the changed option is invalidated in session B"
+        cacheB.getIfPresent(highestKey) == null
+        cacheB.getIfPresent(otherOptionKey) == Optional.empty()
+        snapshotB.get(key1) == 8
+    }
+
+    private DefaultOptionCache optionCache(OptionSource optionSource, Map<OptionKey, Integer> store) {
+        OptionCacheProvider cacheProvider = Mock(OptionCacheProvider)
+        cacheProvider.get() >> CacheBuilder.newBuilder()
+                                           .build(CacheLoader.from({ OptionCacheKey k -> Optional.ofNullable(store.get(k.optionKey)) } as Function))
+        return new DefaultOptionCache(optionSource, cacheProvider, Mock(PubSubSupport))
+    }
+
+    def "a value resolved while an invalidation happens is returned but not held"() {
+        given:
+        option.get(key1) >> {
+            snapshot.invalidate(key1)
+            7
+        }
+
+        when:
+        int value = snapshot.get(key1)
+
+        then:
+        value == 7
+        snapshot.size() == 0
+    }
+
+    def "a change of user status clears the snapshot"() {
+        given:
+        option.get(key1) >> 7
+        option.get(key2) >> 9
+        snapshot.get(key1)
+        snapshot.get(key2)
+
+        when:
+        snapshot.userStatusChanged(new UserStatusBusMessage(Mock(UserStatusChangeSource), true))
+
+        then:
+        snapshot.size() == 0
+    }
+}
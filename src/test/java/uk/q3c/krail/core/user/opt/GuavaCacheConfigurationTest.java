@@ -110,4 +110,18 @@ public class GuavaCacheConfigurationTest {
         assertThat(configuration.isWeakValues()).isTrue();
         assertThat(configuration.isWeakKeys()).isTrue();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void weakValuesOnlyWhenConfigured() {
+        //given
+        configuration = new GuavaCacheConfiguration();
+        //when
+
+        //then
+        assertThat(configuration.builder()
+                                .toString()).doesNotContain("valueStrength");
+        assertThat(configuration.weakValue()
+                                .builder()
+                                .toString()).contains("valueStrength=weak");
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.core.user.opt
+
+import spock.lang.Specification
+import uk.q3c.krail.UnitTestFor
+import uk.q3c.krail.i18n.DefaultPatternCacheLoader
+import uk.q3c.krail.i18n.LabelKey
+
+/**
+ * Created by David Sowerby on 16/10/15.
+ */
+@UnitTestFor(LowestRankedOption)
+class LowestRankedOptionTest extends Specification {
+
+    Option option = Mock(Option)
+    LowestRankedOption lowestRankedOption = new LowestRankedOption(option)
+    OptionKey<Integer> optionKey = new OptionKey<>(5, DefaultPatternCacheLoader, LabelKey.Yes)
+
+    def "get resolves at the lowest rank"() {
+        when:
+        Integer value = lowestRankedOption.get(optionKey)
+
+        then:
+        1 * option.getLowestRanked(optionKey) >> 3
+        0 * option.get(_)
+        value == 3
+    }
+
+    def "specific ranks, set and delete are passed to the wrapped option"() {
+        when:
+        lowestRankedOption.getSpecificRanked(1, optionKey)
+        lowestRankedOption.set(7, 1, optionKey)
+        lowestRankedOption.delete(1, optionKey)
+
+        then:
+        1 * option.getSpecificRanked(1, optionKey) >> 7
+        1 * option.set(7, 1, optionKey)
+        1 * option.delete(1, optionKey)
+    }
+
+    def "set at the highest rank is not supported"() {
+        when:
+        lowestRankedOption.set(7, optionKey)
+
+        then:
+        thrown(UnsupportedOperationException)
+        0 * option._
+    }
+}
@@ -19,19 +19,24 @@ import com.google.inject.TypeLiteral;
 import com.mycila.testing.junit.MycilaJunitRunner;
 import com.mycila.testing.plugin.guice.GuiceContext;
 import com.mycila.testing.plugin.guice.ModuleProvider;
+import net.engio.mbassy.bus.common.PubSubSupport;
 import org.apache.shiro.subject.Subject;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import uk.q3c.krail.core.data.DataModule;
+import uk.q3c.krail.core.eventbus.BusMessage;
 import uk.q3c.krail.core.persist.*;
 import uk.q3c.krail.core.shiro.SubjectIdentifier;
 import uk.q3c.krail.core.shiro.SubjectProvider;
 import uk.q3c.krail.core.user.opt.cache.*;
+import uk.q3c.krail.core.user.profile.DefaultRankContextProvider;
 import uk.q3c.krail.core.user.profile.RankOption;
 import uk.q3c.krail.core.user.profile.SimpleUserHierarchy;
 import uk.q3c.krail.core.user.profile.UserHierarchy;
+import uk.q3c.krail.core.user.status.UserStatusBusMessage;
+import uk.q3c.krail.core.user.status.UserStatusChangeSource;
 import uk.q3c.krail.core.view.component.LocaleContainer;
 import uk.q3c.krail.i18n.LabelKey;
 import uk.q3c.krail.i18n.Translate;
@@ -71,6 +76,8 @@ public class Option_IntegrationTest {
     @Inject
     InMemoryOptionDao dao;
 
+    @Mock
+    PubSubSupport<BusMessage> globalBus;
     @Mock
     LocaleContainer localeContainer;
     @Mock
@@ -89,6 +96,9 @@ public class Option_IntegrationTest {
     private SubjectIdentifier subjectIdentifier;
     @Mock
     private SubjectProvider subjectProvider;
+    @Mock
+    private UserStatusChangeSource userStatusChangeSource;
+    private DefaultRankContextProvider rankContextProvider;
 
     @Before
     public void setup() {
@@ -101,8 +111,9 @@ public class Option_IntegrationTest {
         hierarchy = new SimpleUserHierarchy(subjectProvider, subjectIdentifier, translate);
 
         cacheLoader = new DefaultOptionCacheLoader(daoProvider);
-        optionCache = new DefaultOptionCache(daoProvider, cacheProvider);
-        option = new DefaultOption(optionCache, hierarchy, subjectProvider, subjectIdentifier);
+        optionCache = new DefaultOptionCache(daoProvider, cacheProvider, globalBus);
+        rankContextProvider = new DefaultRankContextProvider();
+        option = new DefaultOption(optionCache, hierarchy, rankContextProvider, subjectProvider, subjectIdentifier);
     }
 
 
@@ -179,18 +190,20 @@ public class Option_IntegrationTest {
         when(subjectProvider.get()).thenReturn(subject1);
         when(subject1.isAuthenticated()).thenReturn(true);
         when(subjectIdentifier.userId()).thenReturn("fbaton");
-        DefaultOption option2 = new DefaultOption(optionCache, hierarchy, subjectProvider, subjectIdentifier);
+        DefaultOption option2 = new DefaultOption(optionCache, hierarchy, rankContextProvider, subjectProvider, subjectIdentifier);
         //when
         option2.set(3, key1);
         when(subjectProvider.get()).thenReturn(subject2);
         when(subject2.isAuthenticated()).thenReturn(true);
         when(subjectIdentifier.userId()).thenReturn("equick");
+        userChanged();
         hierarchy = new SimpleUserHierarchy(subjectProvider, subjectIdentifier, translate);
         option2.set(9, key1);
         //then
         when(subjectProvider.get()).thenReturn(subject1);
         when(subject1.isAuthenticated()).thenReturn(true);
         when(subjectIdentifier.userId()).thenReturn("fbaton");
+        userChanged();
 
         Integer actual = option2.get(key1);
         assertThat(actual).isEqualTo(3);
@@ -205,6 +218,7 @@ public class Option_IntegrationTest {
         when(subjectProvider.get()).thenReturn(subject2);
         when(subject2.isAuthenticated()).thenReturn(true);
         when(subjectIdentifier.userId()).thenReturn("equick");
+        userChanged();
 
         optionCache.cleanup();
         actual = option2.get(key1);
@@ -234,6 +248,13 @@ public class Option_IntegrationTest {
                               .hitCount()).isEqualTo(8);
     }
 
+    /**
+     * The user for a session only changes when they log in or out, which is announced by a {@link UserStatusBusMessage}
+     */
+    private void userChanged() {
+        rankContextProvider.userStatusChanged(new UserStatusBusMessage(userStatusChangeSource, true));
+    }
+
     /**
      * When a value is written to the cache, must invalidate the highest and lowest entry for the same OptionKey
      */
@@ -15,19 +15,25 @@ import com.google.common.cache.LoadingCache;
 import com.google.inject.Inject;
 import com.mycila.testing.junit.MycilaJunitRunner;
 import com.mycila.testing.plugin.guice.GuiceContext;
+import net.engio.mbassy.bus.common.PubSubSupport;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
+import uk.q3c.krail.core.eventbus.BusMessage;
 import uk.q3c.krail.core.persist.OptionSource;
 import uk.q3c.krail.core.user.opt.OptionDao;
 import uk.q3c.util.testutil.LogMonitor;
 
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -41,6 +47,8 @@ public class DefaultOptionCacheTest {
 
     DefaultOptionCache optionCache;
     @Mock
+    PubSubSupport<BusMessage> globalBus;
+    @Mock
     DefaultOptionCacheProvider cacheProvider;
     @Mock
     MockCache cache;
@@ -63,7 +71,7 @@ public class DefaultOptionCacheTest {
         when(daoProvider.getActiveDao()).thenReturn(dao);
         logMonitor.addClassFilter(DefaultOptionCache.class);
         when(cacheProvider.get()).thenReturn(cache);
-        optionCache = new DefaultOptionCache(daoProvider, cacheProvider);
+        optionCache = new DefaultOptionCache(daoProvider, cacheProvider, globalBus);
     }
 
     @After
@@ -81,6 +89,29 @@ public class DefaultOptionCacheTest {
         assertThat(actual.get()).isEqualTo(11);
     }
 
+    @Test
+    public void get_does_not_wait_for_a_write_in_progress() throws Exception {
+        //given
+        cache.setValue(cacheKey, Optional.of(11));
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            writing.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return null;
+        }).when(dao)
+          .write(cacheKey, Optional.of(12));
+        Thread writer = new Thread(() -> optionCache.write(cacheKey, Optional.of(12)));
+        writer.start();
+        assertThat(writing.await(10, TimeUnit.SECONDS)).isTrue();
+        //when
+        Optional<Integer> actual = optionCache.get(Optional.of(5), cacheKey);
+        //then
+        assertThat(actual.get()).isEqualTo(11);
+        release.countDown();
+        writer.join(10000);
+    }
+
     @Test
     public void get_has_no_value() throws ExecutionException {
         //given
@@ -134,6 +165,7 @@ public class DefaultOptionCacheTest {
         optionCache.write(cacheKey, Optional.of(10));
         //then
         verify(dao).write(cacheKey, Optional.of(10));
+        verify(globalBus).publish(any(OptionChangeBusMessage.class));
     }
 
     @Test
@@ -162,7 +194,7 @@ public class DefaultOptionCacheTest {
     public void delete() {
         //given
         when(cacheProvider.get()).thenReturn(cache2);
-        optionCache2 = new DefaultOptionCache(daoProvider, cacheProvider);
+        optionCache2 = new DefaultOptionCache(daoProvider, cacheProvider, globalBus);
         //when
         optionCache2.delete(cacheKey);
         //then
@@ -174,7 +206,7 @@ public class DefaultOptionCacheTest {
     public void flush() {
         //given
         when(cacheProvider.get()).thenReturn(cache2);
-        optionCache2 = new DefaultOptionCache(daoProvider, cacheProvider);
+        optionCache2 = new DefaultOptionCache(daoProvider, cacheProvider, globalBus);
         //when
         optionCache2.flush();
 
@@ -11,19 +11,21 @@
 
 package uk.q3c.krail.core.user.opt.cache;
 
+import com.google.common.collect.ImmutableList;
 import com.mycila.testing.junit.MycilaJunitRunner;
 import com.mycila.testing.plugin.guice.GuiceContext;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import uk.q3c.krail.core.user.opt.OptionKey;
+import uk.q3c.krail.core.user.profile.RankContext;
 import uk.q3c.krail.core.user.profile.RankOption;
 import uk.q3c.krail.core.user.profile.UserHierarchy;
 import uk.q3c.krail.core.view.component.LocaleContainer;
 import uk.q3c.krail.i18n.LabelKey;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 
 @RunWith(MycilaJunitRunner.class)
 @GuiceContext({})
@@ -47,4 +49,50 @@ public class OptionCacheKeyTest {
         assertThat(key1).isNotEqualTo(key2);
         assertThat(key2.getRankOption()).isEqualTo(RankOption.LOWEST_RANK);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void construct_from_rank_context() {
+        //given
+        RankContext rankContext = new RankContext(hierarchy, ImmutableList.of("highest", "middle", "lowest"));
+        OptionKey optKey = new OptionKey(23, LocaleContainer.class, LabelKey.Yes);
+        //when
+        OptionCacheKey highestKey = new OptionCacheKey(rankContext, RankOption.HIGHEST_RANK, 0, optKey);
+        OptionCacheKey lowestKey = new OptionCacheKey(rankContext, RankOption.LOWEST_RANK, 0, optKey);
+        OptionCacheKey specificKey = new OptionCacheKey(rankContext, RankOption.SPECIFIC_RANK, 1, optKey);
+        OptionCacheKey copyKey = new OptionCacheKey(specificKey, RankOption.HIGHEST_RANK);
+        //then
+        assertThat(highestKey.getRequestedRankName()).isEqualTo("highest");
+        assertThat(lowestKey.getRequestedRankName()).isEqualTo("lowest");
+        assertThat(specificKey.getRequestedRankName()).isEqualTo("middle");
+        assertThat(specificKey.getUserId()).isEqualTo("highest");
+        assertThat(specificKey.getHierarchy()).isSameAs(hierarchy);
+        assertThat(copyKey.getRanks()).isSameAs(rankContext.getRanks());
+        verifyZeroInteractions(hierarchy);
+    }
+
+    @Test
+    public void equal_whether_constructed_from_hierarchy_or_rank_context() {
+        //given
+        String userId = "highest";
+        when(hierarchy.highestRankName()).thenReturn(userId);
+        when(hierarchy.rankName(1)).thenReturn("lowest");
+        RankContext rankContext = new RankContext(hierarchy, ImmutableList.of(userId, "lowest"));
+        OptionKey optKey = new OptionKey(23, LocaleContainer.class, LabelKey.Yes);
+        //when
+        OptionCacheKey key1 = new OptionCacheKey(hierarchy, RankOption.SPECIFIC_RANK, 1, optKey);
+        OptionCacheKey key2 = new OptionCacheKey(rankContext, RankOption.SPECIFIC_RANK, 1, optKey);
+        //then
+        assertThat(key1).isEqualTo(key2);
+        assertThat(key1.hashCode()).isEqualTo(key2.hashCode());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void construct_from_rank_context_rank_too_high() {
+        //given
+        RankContext rankContext = new RankContext(hierarchy, ImmutableList.of("highest", "lowest"));
+        OptionKey optKey = new OptionKey(23, LocaleContainer.class, LabelKey.Yes);
+        //when
+        new OptionCacheKey(rankContext, RankOption.SPECIFIC_RANK, 2, optKey);
+        //then
+    }
+}
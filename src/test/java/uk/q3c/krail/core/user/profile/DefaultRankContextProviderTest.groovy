@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.core.user.profile
+
+import com.google.common.collect.ImmutableList
+import spock.lang.Specification
+import uk.q3c.krail.UnitTestFor
+import uk.q3c.krail.core.user.status.UserStatusBusMessage
+import uk.q3c.krail.core.user.status.UserStatusChangeSource
+
+/**
+ * Created by David Sowerby on 16/10/15.
+ */
+@UnitTestFor(DefaultRankContextProvider)
+class DefaultRankContextProviderTest extends Specification {
+
+    DefaultRankContextProvider provider
+    UserHierarchy hierarchy = Mock(UserHierarchy)
+    UserHierarchy hierarchy2 = Mock(UserHierarchy)
+
+    def setup() {
+        provider = new DefaultRankContextProvider()
+        hierarchy.persistenceName() >> "SimpleUserHierarchy"
+        hierarchy2.persistenceName() >> "CompanyHierarchy"
+    }
+
+    def "ranks are captured from the hierarchy once"() {
+        when:
+        RankContext context1 = provider.get(hierarchy)
+        RankContext context2 = provider.get(hierarchy)
+
+        then:
+        1 * hierarchy.ranksForCurrentUser() >> ImmutableList.of("ds", "ACME", "system")
+        0 * hierarchy.ranksForCurrentUser()
+        context1.is(context2)
+        context1.getHierarchy().is(hierarchy)
+        context1.highestRankName() == "ds"
+        context1.rankName(1) == "ACME"
+        context1.lowestRankName() == "system"
+    }
+
+    def "each hierarchy has its own context"() {
+        given:
+        hierarchy.ranksForCurrentUser() >> ImmutableList.of("ds", "system")
+        hierarchy2.ranksForCurrentUser() >> ImmutableList.of("ds", "Paris", "France")
+
+        expect:
+        provider.get(hierarchy).getRanks() == ImmutableList.of("ds", "system")
+        provider.get(hierarchy2).getRanks() == ImmutableList.of("ds", "Paris", "France")
+    }
+
+    def "instances of the same hierarchy share a context"() {
+        given:
+        UserHierarchy hierarchy3 = Mock(UserHierarchy)
+        hierarchy3.persistenceName() >> "SimpleUserHierarchy"
+
+        when:
+        RankContext context1 = provider.get(hierarchy)
+        RankContext context2 = provider.get(hierarchy3)
+
+        then:
+        1 * hierarchy.ranksForCurrentUser() >> ImmutableList.of("ds", "system")
+        0 * hierarchy3.ranksForCurrentUser()
+        context1.is(context2)
+    }
+
+    def "a change of user status causes the ranks to be captured again"() {
+        given:
+        hierarchy.ranksForCurrentUser() >>> [ImmutableList.of("system"), ImmutableList.of("ds", "system")]
+        RankContext anonymous = provider.get(hierarchy)
+
+        when:
+        provider.userStatusChanged(new UserStatusBusMessage(Mock(UserStatusChangeSource), true))
+        RankContext loggedIn = provider.get(hierarchy)
+
+        then:
+        anonymous.highestRankName() == "system"
+        loggedIn.highestRankName() == "ds"
+    }
+
+    def "rankName out of bounds throws IllegalArgumentException"() {
+        given:
+        hierarchy.ranksForCurrentUser() >> ImmutableList.of("ds", "system")
+
+        when:
+        provider.get(hierarchy).rankName(2)
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+}
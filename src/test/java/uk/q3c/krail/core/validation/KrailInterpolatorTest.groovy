@@ -114,5 +114,53 @@ class KrailInterpolatorTest extends Specification {
         interpolator.isPattern("com.anything}") == true
     }
 
+    def "the plan for a default message is made once, and the substitute key translated for each interpolation"() {
+        given:
+        annotation.annotationType() >> Min.class
+        constraintDescriptor.getAttributes() >> [value: 5L]
+        String template = "{javax.validation.constraints.Min.message}"
+
+        when:
+        String first = interpolator.interpolate(template, context, Locale.UK)
+        String second = interpolator.interpolate(template, context, Locale.GERMANY)
+
+        then:
+        1 * javaxValidationSubstitutes.get(Min.class) >> ValidationKey.Min
+        1 * translate.from(ValidationKey.Min, Locale.UK, 5L) >> "must be at least 5"
+        1 * translate.from(ValidationKey.Min, Locale.GERMANY, 5L) >> "muss mindestens 5 sein"
+        first == "must be at least 5"
+        second == "muss mindestens 5 sein"
+    }
+
+    def "a custom pattern on a standard annotation is formatted with the value, without translation"() {
+        given:
+        annotation.annotationType() >> Min.class
+        constraintDescriptor.getAttributes() >> [value: 3L]
+
+        when:
+        String first = interpolator.interpolate("at least {0}", context, Locale.UK)
+        String second = interpolator.interpolate("at least {0}", context, Locale.UK)
+
+        then:
+        0 * translate._
+        first == "at least 3"
+        second == "at least 3"
+    }
+
+    def "a custom key on a standard annotation is resolved to its I18NKey and translated"() {
+        given:
+        annotation.annotationType() >> Min.class
+        constraintDescriptor.getAttributes() >> [value: 3L]
+        String template = "{" + I18NKey.fullName(ValidationKey.Max) + "}"
+
+        when:
+        interpolator.interpolate(template, context, Locale.UK)
+        interpolator.interpolate(template, context, Locale.UK)
+
+        then:
+        2 * translate.from(ValidationKey.Max, Locale.UK, 3L) >> "no more than 3"
+        interpolator.plan(template, context).getKey() == ValidationKey.Max
+    }
+
 
 }
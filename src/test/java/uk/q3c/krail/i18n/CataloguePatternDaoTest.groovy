@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.i18n
+
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+import uk.q3c.krail.UnitTestFor
+
+/**
+ * Created by David Sowerby on 16/10/15.
+ */
+@UnitTestFor(CataloguePatternDao)
+class CataloguePatternDaoTest extends Specification {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    File file
+
+    def setup() {
+        file = new File(temporaryFolder.getRoot(), "patterns.kpc")
+    }
+
+    def "getValue uses the actual Locale of the cache key"() {
+        given:
+        new PatternCatalogueWriter().put(LabelKey.Yes, Locale.UK, "Yes")
+                                    .put(LabelKey.Yes, Locale.GERMANY, "Ja")
+                                    .write(file.toPath())
+        CataloguePatternDao dao = new CataloguePatternDao(file.getAbsolutePath())
+        PatternCacheKey cacheKey = new PatternCacheKey(LabelKey.Yes, Locale.UK)
+        cacheKey.setActualLocale(Locale.GERMANY)
+
+        expect:
+        dao.getValue(cacheKey) == Optional.of("Ja")
+        dao.getValue(new PatternCacheKey(LabelKey.No, Locale.UK)) == Optional.empty()
+        dao.count() == 2
+        dao.connectionUrl() == file.getAbsolutePath()
+    }
+
+    def "a missing file behaves as an empty catalogue"() {
+        given:
+        CataloguePatternDao dao = new CataloguePatternDao(file.getAbsolutePath())
+
+        expect:
+        dao.getValue(new PatternCacheKey(LabelKey.Yes, Locale.UK)) == Optional.empty()
+        dao.count() == 0
+    }
+
+    def "write and delete are not supported"() {
+        given:
+        CataloguePatternDao dao = new CataloguePatternDao(file.getAbsolutePath())
+        PatternCacheKey cacheKey = new PatternCacheKey(LabelKey.Yes, Locale.UK)
+
+        when:
+        dao.write(cacheKey, "Yes")
+
+        then:
+        thrown(UnsupportedOperationException)
+
+        when:
+        dao.deleteValue(cacheKey)
+
+        then:
+        thrown(UnsupportedOperationException)
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.i18n
+
+import spock.lang.Specification
+import uk.q3c.krail.UnitTestFor
+
+/**
+ * Created by David Sowerby on 16/10/15.
+ */
+@UnitTestFor(DefaultClassBundleCache)
+class DefaultClassBundleCacheTest extends Specification {
+
+    DefaultClassBundleCache cache
+    ClassBundleControl control = new ClassBundleControl()
+
+    def setup() {
+        Locale.setDefault(Locale.UK)
+        cache = new DefaultClassBundleCache()
+    }
+
+    def "values are loaded once for each bundle name and key class"() {
+        when:
+        Map<? extends Enum<?>, String> values1 = cache.values("uk.q3c.krail.i18n.Messages", MessageKey, Locale.GERMAN, control)
+        Map<? extends Enum<?>, String> values2 = cache.values("uk.q3c.krail.i18n.Messages", MessageKey, Locale.GERMAN, control)
+        Map<? extends Enum<?>, String> values3 = cache.values("uk.q3c.krail.i18n.Messages", MessageKey, Locale.ROOT, control)
+
+        then:
+        values1.get(MessageKey.Invalid_URI) == "{0} ist keine gültige Seite"
+        values2.is(values1)
+        values3.get(MessageKey.Invalid_URI) == "{0} is not a valid page"
+    }
+
+    def "a different expanded base name is held separately"() {
+        when:
+        Map<? extends Enum<?>, String> values1 = cache.values("uk.q3c.krail.i18n.Messages", MessageKey, Locale.GERMAN, control)
+        Map<? extends Enum<?>, String> values2 = cache.values("com.example.i18n.Messages", MessageKey, Locale.GERMAN, control)
+
+        then:
+        !values1.isEmpty()
+        values2.isEmpty()
+    }
+
+    def "clear and refresh cause values to be loaded again"() {
+        given:
+        Map<? extends Enum<?>, String> values1 = cache.values("uk.q3c.krail.i18n.Messages", MessageKey, Locale.GERMAN, control)
+
+        when:
+        cache.clear()
+        Map<? extends Enum<?>, String> values2 = cache.values("uk.q3c.krail.i18n.Messages", MessageKey, Locale.GERMAN, control)
+        cache.refresh()
+        Map<? extends Enum<?>, String> values3 = cache.values("uk.q3c.krail.i18n.Messages", MessageKey, Locale.GERMAN, control)
+
+        then:
+        !values2.is(values1)
+        !values3.is(values2)
+        values3 == values1
+    }
+
+    def "bundleExists() finds bundles by class, without loading them"() {
+        expect:
+        cache.bundleExists("uk.q3c.krail.i18n.Messages", Locale.ROOT, control)
+        cache.bundleExists("uk.q3c.krail.i18n.Messages", Locale.GERMAN, control)
+        !cache.bundleExists("uk.q3c.krail.i18n.Messages", Locale.ITALIAN, control)
+        !cache.bundleExists("uk.q3c.krail.i18n.Rubbish", Locale.ROOT, control)
+    }
+
+    def "misses are counted"() {
+        when:
+        cache.recordMiss()
+        cache.recordMiss()
+
+        then:
+        cache.getMissCount() == 2
+    }
+}
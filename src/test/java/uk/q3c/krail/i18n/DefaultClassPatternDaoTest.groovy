@@ -31,6 +31,7 @@ class DefaultClassPatternDaoTest extends Specification {
     public TemporaryFolder temporaryFolder = new TemporaryFolder();
 
     DefaultClassPatternDao dao
+    DefaultClassBundleCache bundleCache
 
     @SuppressWarnings("GroovyAssignabilityCheck")
     Option option = Mock()
@@ -39,7 +40,8 @@ class DefaultClassPatternDaoTest extends Specification {
 
 
     def setup() {
-        dao = new DefaultClassPatternDao(new ClassBundleControl(), option)
+        bundleCache = new DefaultClassBundleCache()
+        dao = new DefaultClassPatternDao(new ClassBundleControl(), option, bundleCache)
     }
 
 
@@ -105,6 +107,47 @@ class DefaultClassPatternDaoTest extends Specification {
 
     }
 
+    def "writeAll appends all entries, without truncating the file"() {
+        given:
+        File targetFile = new File(temporaryFolder.getRoot(), "classPatternDao.txt")
+        dao.setWriteFile(targetFile)
+        FileUtils.write(targetFile, "this would be the class info\n\n")
+
+        when:
+        dao.write(new PatternCacheKey(LabelKey.Yes, Locale.UK), "ww")
+        dao.writeAll([new AbstractMap.SimpleEntry(new PatternCacheKey(LabelKey.No, Locale.UK), "xx"), new AbstractMap.SimpleEntry(new PatternCacheKey
+                (LabelKey.Ok, Locale.UK), "yy")])
+        String output = FileUtils.readFileToString(targetFile)
+
+        then:
+        output == "this would be the class info\n\n        put(Yes, \"ww\");\n        put(No, \"xx\");\n        put(Ok, \"yy\");\n"
+    }
+
+    def "concurrent writeAll calls from different DAOs to the same file do not interleave their entries"() {
+        given:
+        File targetFile = new File(temporaryFolder.getRoot(), "classPatternDao.txt")
+        FileUtils.write(targetFile, "")
+        DefaultClassPatternDao dao2 = new DefaultClassPatternDao(new ClassBundleControl(), option, bundleCache)
+        dao.setWriteFile(targetFile)
+        dao2.setWriteFile(targetFile)
+        List<Map.Entry<PatternCacheKey, String>> batch1 = LabelKey.values()
+                                                                  .collect { new AbstractMap.SimpleEntry(new PatternCacheKey(it, Locale.UK), "a") }
+        List<Map.Entry<PatternCacheKey, String>> batch2 = LabelKey.values()
+                                                                  .collect { new AbstractMap.SimpleEntry(new PatternCacheKey(it, Locale.UK), "b") }
+
+        when:
+        Thread thread1 = Thread.start { 20.times { dao.writeAll(batch1) } }
+        Thread thread2 = Thread.start { 20.times { dao2.writeAll(batch2) } }
+        thread1.join()
+        thread2.join()
+        List<String> lines = FileUtils.readLines(targetFile)
+
+        then:
+        lines.size() == LabelKey.values().length * 40
+        lines.collate(LabelKey.values().length)
+             .every { batch -> batch.every { it.endsWith("\"a\");") } || batch.every { it.endsWith("\"b\");") } }
+    }
+
     def "correct connection url"() {
         expect:
         dao.connectionUrl().equals(DefaultClassPatternDao.CONNECTION_URL)
@@ -189,6 +232,59 @@ class DefaultClassPatternDaoTest extends Specification {
         dao.getValue(patternCacheKey).equals(Optional.of("{0} ist keine gültige Seite"))
     }
 
+    def "getValue() for a Locale with no bundle returns Optional.empty() and counts a miss"() {
+        given:
+        Locale.setDefault(Locale.UK)
+        patternCacheKey.key >> MessageKey.Invalid_URI
+        patternCacheKey.getActualLocale() >> Locale.ITALIAN
+        OptionKey optionKey = DefaultClassPatternDao.optionKeyUseKeyPath.qualifiedWith(dao.getSourceString())
+        option.get(optionKey) >> true
+
+        expect:
+        dao.getValue(patternCacheKey).equals(Optional.empty())
+        dao.getValue(patternCacheKey).equals(Optional.empty())
+        dao.getMissCount() == 2
+    }
+
+    def "bundle values are shared by all DAOs through the ClassBundleCache, and identified by the path options"() {
+        given:
+        Option otherOption = Mock()
+        DefaultClassPatternDao otherDao = new DefaultClassPatternDao(new ClassBundleControl(), otherOption, bundleCache)
+        patternCacheKey.key >> MessageKey.Invalid_URI
+        patternCacheKey.getActualLocale() >> Locale.GERMAN
+        OptionKey optionKey = DefaultClassPatternDao.optionKeyUseKeyPath.qualifiedWith(dao.getSourceString())
+        OptionKey optionKey1 = DefaultClassPatternDao.optionPathToValues.qualifiedWith(dao.getSourceString())
+        option.get(optionKey) >> true
+        otherOption.get(optionKey) >> false
+        otherOption.get(optionKey1) >> "com.example.i18n"
+
+        when:
+        Optional<String> value1 = dao.getValue(patternCacheKey)
+        Map<? extends Enum<?>, String> held = bundleCache.values("uk.q3c.krail.i18n.Messages", MessageKey, Locale.GERMAN, new ClassBundleControl())
+        Optional<String> value2 = otherDao.getValue(patternCacheKey)
+
+        then:
+        value1.equals(Optional.of("{0} ist keine gültige Seite"))
+        held.get(MessageKey.Invalid_URI) == "{0} ist keine gültige Seite"
+        value2.equals(Optional.empty())
+        dao.getMissCount() == 1
+        otherDao.getMissCount() == 1
+    }
+
+    def "refresh() and clearCache() are passed to the ClassBundleCache"() {
+        given:
+        ClassBundleCache mockCache = Mock()
+        dao = new DefaultClassPatternDao(new ClassBundleControl(), option, mockCache)
+
+        when:
+        dao.refresh()
+        dao.clearCache()
+
+        then:
+        1 * mockCache.refresh()
+        1 * mockCache.clear()
+    }
+
     def "optionValueChanged not used but called to complete coverage"() {
         expect:
         dao.optionValueChanged(null)
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.i18n
+
+import spock.lang.Specification
+import uk.q3c.krail.UnitTestFor
+
+import java.text.CollationKey
+import java.text.Collator
+
+/**
+ * Created by David Sowerby on 16/10/15.
+ */
+@UnitTestFor(DefaultCollatorCache)
+class DefaultCollatorCacheTest extends Specification {
+
+    DefaultCollatorCache cache = new DefaultCollatorCache()
+
+    def "each call returns a new Collator for the Locale"() {
+        expect:
+        !cache.collator(Locale.GERMANY).is(cache.collator(Locale.GERMANY))
+        cache.collator(Locale.GERMANY) == Collator.getInstance(Locale.GERMANY)
+        cache.collator(Locale.UK) == Collator.getInstance(Locale.UK)
+    }
+
+    def "changing a returned Collator does not change the collation keys"() {
+        given:
+        Collator collator = cache.collator(Locale.GERMANY)
+
+        when:
+        collator.setStrength(Collator.PRIMARY)
+        CollationKey key1 = cache.collationKey(Locale.GERMANY, "apfel")
+        CollationKey key2 = cache.collationKey(Locale.GERMANY, "Apfel")
+
+        then:
+        key1.compareTo(key2) != 0
+        cache.collator(Locale.GERMANY).getStrength() == Collator.getInstance(Locale.GERMANY).getStrength()
+    }
+
+    def "collation keys are held for each Locale and label, and sort as the Collator does"() {
+        when:
+        CollationKey key1 = cache.collationKey(Locale.GERMANY, "Äpfel")
+        CollationKey key2 = cache.collationKey(Locale.GERMANY, "Zebra")
+
+        then:
+        cache.collationKey(Locale.GERMANY, "Äpfel").is(key1)
+        !cache.collationKey(Locale.UK, "Äpfel").is(key1)
+        key1.compareTo(key2) < 0
+        key1.compareTo(Collator.getInstance(Locale.GERMANY).getCollationKey("Äpfel")) == 0
+        cache.size() == 3
+
+        when:
+        cache.clear()
+
+        then:
+        cache.size() == 0
+    }
+
+    def "the number of collation keys held is bounded"() {
+        given:
+        cache = new DefaultCollatorCache() {
+            @Override
+            protected long maximumSize() {
+                return 5
+            }
+        }
+
+        when:
+        20.times { cache.collationKey(Locale.UK, "label " + it) }
+
+        then:
+        cache.size() <= 5
+    }
+}
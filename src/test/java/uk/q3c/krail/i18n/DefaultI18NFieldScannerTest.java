@@ -115,6 +115,29 @@ public class DefaultI18NFieldScannerTest {
     }
 
 
+    @Test
+    public void scanPlanBuiltOncePerClass() {
+        //given
+        scanner = new DefaultI18NFieldScanner(i18NHostClassIdentifier);
+        I18NTestClass5a first = new I18NTestClass5a();
+        I18NTestClass5a second = new I18NTestClass5a();
+        //when
+        scanner.scan(first);
+        AnnotationInfo firstInfo = scanner.annotatedComponents()
+                                          .values()
+                                          .iterator()
+                                          .next();
+        scanner.scan(second);
+        //then
+        assertThat(I18NScanPlan.forClass(I18NTestClass5a.class)).isSameAs(I18NScanPlan.forClass(I18NTestClass5a.class));
+        assertThat(scanner.annotatedComponents()).hasSize(2);
+        assertThat(scanner.annotatedComponents()
+                          .values()).contains(firstInfo);
+        assertThat(scanner.processedDrillDowns()).contains(second)
+                                                 .doesNotContain(first);
+    }
+
+
     @Test
     public void class2() {
         //given
@@ -155,6 +178,19 @@ public class DefaultI18NFieldScannerTest {
         assertThat(scanner.processedDrillDowns()).containsOnly(tObject, tObject.layout2Drilled, tObject.layoutDrilled, tObject.panelDrilled);
     }
 
+    @Test
+    public void scanWithoutDrillDown() {
+        I18NTestClass11 tObject = new I18NTestClass11();
+        scanner = new DefaultI18NFieldScanner(i18NHostClassIdentifier);
+        //when
+        List<Object> drillDowns = scanner.scanWithoutDrillDown(tObject);
+
+        //then
+        assertThat(drillDowns).containsExactly(tObject.withBinder);
+        assertThat(scanner.annotatedComponents()).containsOnlyKeys(tObject.label);
+        assertThat(scanner.processedDrillDowns()).containsOnly(tObject);
+    }
+
 
     @Test
     public void fieldOverridesClass_Class_HasDrillDown() {
@@ -198,6 +198,67 @@ public class DefaultI18NProcessorTest {
     }
 
 
+    @Test
+    public void interpret_usesGeneratedBinder() {
+        // given
+        I18NTestClass10 testObject10 = new I18NTestClass10();
+        int bindCount = I18NTestClass10_I18NBinder.bindCount;
+        // when
+        processor.translate(testObject10);
+        // then
+        assertThat(I18NTestClass10_I18NBinder.bindCount).isEqualTo(bindCount + 1);
+        assertThat(testObject10.getButton()
+                               .getCaption()).isEqualTo("Authentication");
+        assertThat(testObject10.getButton()
+                               .getDescription()).isEqualTo("Please log in");
+        assertThat(testObject10.getButton()
+                               .getLocale()).isEqualTo(Locale.UK);
+        // drill down falls back to scanning, as there is no binder for I18NTestClass9
+        assertThat(testObject10.nested.classWithCaptionAndI18N.getCaption()).isEqualTo("Class");
+    }
+
+    @Test
+    public void interpret_drillDownFromScannedClassUsesGeneratedBinder() {
+        // given
+        I18NTestClass11 testObject11 = new I18NTestClass11();
+        int bindCount = I18NTestClass10_I18NBinder.bindCount;
+        // when
+        processor.translate(testObject11);
+        // then
+        assertThat(testObject11.label.getCaption()).isEqualTo("Yes");
+        assertThat(I18NTestClass10_I18NBinder.bindCount).isEqualTo(bindCount + 1);
+        assertThat(testObject11.withBinder.getButton()
+                                          .getCaption()).isEqualTo("Authentication");
+        assertThat(testObject11.withBinder.nested.classWithCaptionAndI18N.getCaption()).isEqualTo("Class");
+    }
+
+
+    @Test
+    public void retranslate() {
+        // given
+        I18NBindingRegistry registry = new I18NBindingRegistry();
+        processor.translate(testObject, registry);
+        assertThat(registry.get(testObject.getButtonWithAnnotation())).isNotNull();
+        assertThat(registry.get(testObject.getSpecificLocale())
+                           .getLocale()).isEqualTo(Locale.GERMANY);
+        // when
+        currentLocale.setLocale(Locale.GERMANY);
+        processor.retranslate(registry);
+        // then
+        assertThat(testObject.getButtonWithAnnotation()
+                             .getCaption()).isEqualTo("OK");
+        assertThat(testObject.getButtonWithAnnotation()
+                             .getDescription()).isEqualTo("Bestätigen Sie, dass dieser Wert in Ordnung ist");
+        assertThat(testObject.getButtonWithAnnotation()
+                             .getLocale()).isEqualTo(Locale.GERMANY);
+        assertThat(testObject.getTable()
+                             .getColumnHeaders()).isEqualTo(new String[]{"Klein", "Stornieren", "not i18N"});
+        // fixed locale is unchanged
+        assertThat(testObject.getSpecificLocale()
+                             .getCaption()).isEqualTo("Ja");
+    }
+
+
     @ModuleProvider
     protected AbstractModule moduleProvider() {
         return new AbstractModule() {
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.i18n
+
+import com.google.common.collect.ImmutableSetMultimap
+import spock.lang.Specification
+import uk.q3c.krail.UnitTestFor
+
+/**
+ * Created by David Sowerby on 16/10/15.
+ */
+@UnitTestFor(DefaultInMemoryPatternStore)
+class DefaultInMemoryPatternStoreTest extends Specification {
+
+    DefaultInMemoryPatternStore store = new DefaultInMemoryPatternStore()
+
+    def "put, get, remove and count"() {
+        when:
+        store.put(new PatternCacheKey(LabelKey.Yes, Locale.UK), "Yes")
+        store.put(new PatternCacheKey(LabelKey.Yes, Locale.UK), "Yes again")
+        store.put(new PatternCacheKey(LabelKey.No, Locale.UK), "No")
+
+        then:
+        store.count() == 2
+        store.get(new PatternCacheKey(LabelKey.Yes, Locale.UK)) == "Yes again"
+        store.get(new PatternCacheKey(LabelKey.Yes, Locale.GERMANY)) == null
+
+        when:
+        String removed = store.remove(new PatternCacheKey(LabelKey.Yes, Locale.UK))
+        String removedAgain = store.remove(new PatternCacheKey(LabelKey.Yes, Locale.UK))
+
+        then:
+        removed == "Yes again"
+        removedAgain == null
+        store.count() == 1
+        store.getAsMap() == [(new PatternCacheKey(LabelKey.No, Locale.UK)): "No"]
+    }
+
+    def "cursor is ordered by Locale, key class and key, and can start from any key"() {
+        given:
+        store.put(new PatternCacheKey(LabelKey.No, Locale.UK), "No")
+        store.put(new PatternCacheKey(LabelKey.Yes, Locale.UK), "Yes")
+        store.put(new PatternCacheKey(DescriptionKey.Log_out_first, Locale.UK), "Log out")
+        store.put(new PatternCacheKey(LabelKey.Yes, Locale.GERMANY), "Ja")
+        List<LabelKey> ukLabels = [LabelKey.No, LabelKey.Yes].sort { it.ordinal() }
+        // "de-DE" sorts before "en-GB", and DescriptionKey before LabelKey
+        List<PatternCacheKey> expected = [new PatternCacheKey(LabelKey.Yes, Locale.GERMANY), new PatternCacheKey(DescriptionKey.Log_out_first, Locale.UK),
+                                          new PatternCacheKey(ukLabels[0], Locale.UK), new PatternCacheKey(ukLabels[1], Locale.UK)]
+
+        expect:
+        store.cursor().collect { it.getKey() } == expected
+        store.cursor(expected.get(2)).collect { it.getKey() } == expected.subList(2, 4)
+        store.cursor(Locale.GERMANY, LabelKey).collect { it.getValue() } == ["Ja"]
+        !store.cursor(Locale.FRANCE, LabelKey).hasNext()
+    }
+
+    def "forEach visits every entry"() {
+        given:
+        store.put(new PatternCacheKey(LabelKey.No, Locale.UK), "No")
+        store.put(new PatternCacheKey(LabelKey.Yes, Locale.GERMANY), "Ja")
+        Map<PatternCacheKey, String> visited = new HashMap<>()
+
+        when:
+        store.forEach { k, v -> visited.put(k, v) }
+
+        then:
+        visited == store.getAsMap()
+        visited.size() == 2
+    }
+
+    def "changes are reported once, by bundle and requested Locale"() {
+        given:
+        store.put(new PatternCacheKey(LabelKey.Yes, Locale.UK), "Yes")
+        store.put(new PatternCacheKey(LabelKey.No, Locale.UK), "No")
+        store.put(new PatternCacheKey(DescriptionKey.Log_out_first, Locale.GERMANY), "Abmelden")
+
+        expect:
+        store.takeChangedBundles() == ImmutableSetMultimap.of("Labels", Locale.UK, "Descriptions", Locale.GERMANY)
+        store.takeChangedBundles().isEmpty()
+
+        when: "the same value is written again"
+        store.put(new PatternCacheKey(LabelKey.Yes, Locale.UK), "Yes")
+
+        then:
+        store.takeChangedBundles().isEmpty()
+
+        when:
+        store.remove(new PatternCacheKey(LabelKey.No, Locale.UK))
+
+        then:
+        store.takeChangedBundles() == ImmutableSetMultimap.of("Labels", Locale.UK)
+    }
+}
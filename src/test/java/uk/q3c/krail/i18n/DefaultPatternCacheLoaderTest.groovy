@@ -28,13 +28,15 @@ class DefaultPatternCacheLoaderTest extends Specification {
     DefaultPatternCacheLoader loader
     def option = Mock(Option)
     def sourceProvider = Mock(PatternSourceProvider)
+    def writeQueue = Mock(PatternWriteQueue)
+    PatternMetrics metrics = new DefaultPatternMetrics()
 
     LogMonitor logMonitor
 
     def setup() {
         logMonitor = new LogMonitor()
         logMonitor.addClassFilter(this.getClass())
-        loader = new DefaultPatternCacheLoader(sourceProvider, option)
+        loader = new DefaultPatternCacheLoader(sourceProvider, option, writeQueue, metrics)
     }
 
     def cleanup() {
@@ -70,12 +72,12 @@ class DefaultPatternCacheLoaderTest extends Specification {
         loader.load(cacheKey)
 
         then:
-        1 * targetPatternDao1.write({ PatternCacheKey k -> k.actualLocale == Locale.UK }, { String v -> v == "Yes" })
-        1 * targetPatternDao1.write({ PatternCacheKey k -> k.actualLocale == Locale.ENGLISH }, { String v -> v == "Yes" })
-        1 * targetPatternDao1.write({ PatternCacheKey k -> k.actualLocale == new Locale("") }, { String v -> v == "Yes" })
-        1 * targetPatternDao2.write({ PatternCacheKey k -> k.actualLocale == Locale.UK }, { String v -> v == "Yes" })
-        1 * targetPatternDao2.write({ PatternCacheKey k -> k.actualLocale == Locale.ENGLISH }, { String v -> v == "Yes" })
-        1 * targetPatternDao2.write({ PatternCacheKey k -> k.actualLocale == new Locale("") }, { String v -> v == "Yes" })
+        1 * writeQueue.enqueue(ClassPatternSource, targetPatternDao1, { PatternCacheKey k -> k.actualLocale == Locale.UK }, "Yes", _)
+        1 * writeQueue.enqueue(ClassPatternSource, targetPatternDao1, { PatternCacheKey k -> k.actualLocale == Locale.ENGLISH }, "Yes", _)
+        1 * writeQueue.enqueue(ClassPatternSource, targetPatternDao1, { PatternCacheKey k -> k.actualLocale == new Locale("") }, "Yes", _)
+        1 * writeQueue.enqueue(TestPatternSource, targetPatternDao2, { PatternCacheKey k -> k.actualLocale == Locale.UK }, "Yes", _)
+        1 * writeQueue.enqueue(TestPatternSource, targetPatternDao2, { PatternCacheKey k -> k.actualLocale == Locale.ENGLISH }, "Yes", _)
+        1 * writeQueue.enqueue(TestPatternSource, targetPatternDao2, { PatternCacheKey k -> k.actualLocale == new Locale("") }, "Yes", _)
     }
 
     @SuppressWarnings("GroovyAssignabilityCheck")
@@ -104,12 +106,12 @@ class DefaultPatternCacheLoaderTest extends Specification {
         loader.load(cacheKey)
 
         then:
-        1 * targetPatternDao1.write({ PatternCacheKey k -> k.actualLocale == Locale.UK }, { String v -> v == "stubby value" })
-        1 * targetPatternDao1.write({ PatternCacheKey k -> k.actualLocale == Locale.ENGLISH }, { String v -> v == "stubby value" })
-        1 * targetPatternDao1.write({ PatternCacheKey k -> k.actualLocale == new Locale("") }, { String v -> v == "stubby value" })
-        1 * targetPatternDao2.write({ PatternCacheKey k -> k.actualLocale == Locale.UK }, { String v -> v == "stubby value" })
-        1 * targetPatternDao2.write({ PatternCacheKey k -> k.actualLocale == Locale.ENGLISH }, { String v -> v == "stubby value" })
-        1 * targetPatternDao2.write({ PatternCacheKey k -> k.actualLocale == new Locale("") }, { String v -> v == "stubby value" })
+        1 * writeQueue.enqueue(ClassPatternSource, targetPatternDao1, { PatternCacheKey k -> k.actualLocale == Locale.UK }, "stubby value", _)
+        1 * writeQueue.enqueue(ClassPatternSource, targetPatternDao1, { PatternCacheKey k -> k.actualLocale == Locale.ENGLISH }, "stubby value", _)
+        1 * writeQueue.enqueue(ClassPatternSource, targetPatternDao1, { PatternCacheKey k -> k.actualLocale == new Locale("") }, "stubby value", _)
+        1 * writeQueue.enqueue(TestPatternSource, targetPatternDao2, { PatternCacheKey k -> k.actualLocale == Locale.UK }, "stubby value", _)
+        1 * writeQueue.enqueue(TestPatternSource, targetPatternDao2, { PatternCacheKey k -> k.actualLocale == Locale.ENGLISH }, "stubby value", _)
+        1 * writeQueue.enqueue(TestPatternSource, targetPatternDao2, { PatternCacheKey k -> k.actualLocale == new Locale("") }, "stubby value", _)
     }
 
     def "value not found, but auto stub is false therefore write stub is not called"() {
@@ -134,8 +136,7 @@ class DefaultPatternCacheLoaderTest extends Specification {
         loader.load(cacheKey)
 
         then:
-        0 * targetPatternDao1.write(cacheKey, "Yes")
-        0 * targetPatternDao2.write(cacheKey, "Yes")
+        0 * writeQueue.enqueue(_, _, _, _, _)
 
     }
 
@@ -208,8 +209,8 @@ class DefaultPatternCacheLoaderTest extends Specification {
         String result = loader.load(cacheKey)
 
         then:
-        2 * sourceProvider.orderedSources(LabelKey.Yes) >> ImmutableSet.of(ClassPatternSource);
-        2 * sourceProvider.sourceFor(ClassPatternSource) >> optionalClassPatternDao
+        1 * sourceProvider.orderedSources(LabelKey.Yes) >> ImmutableSet.of(ClassPatternSource);
+        1 * sourceProvider.sourceFor(ClassPatternSource) >> optionalClassPatternDao
         1 * classPatternDao.getValue(cacheKey) >> Optional.empty()
         1 * classPatternDao.getValue(cacheKey) >> daoGetValueResult
         1 * option.get(DefaultPatternCacheLoader.optionKeyAutoStub.qualifiedWith(ClassPatternSource.class.simpleName)) >> false
@@ -231,10 +232,10 @@ class DefaultPatternCacheLoaderTest extends Specification {
         String result = loader.load(cacheKey)
 
         then:
-        3 * sourceProvider.orderedSources(LabelKey.Active_Source) >> ImmutableSet.of(ClassPatternSource);
-        3 * sourceProvider.sourceFor(ClassPatternSource) >> optionalClassPatternDao
+        1 * sourceProvider.orderedSources(LabelKey.Active_Source) >> ImmutableSet.of(ClassPatternSource);
+        1 * sourceProvider.sourceFor(ClassPatternSource) >> optionalClassPatternDao
         3 * classPatternDao.getValue(cacheKey) >> Optional.empty()
-        3 * option.get(DefaultPatternCacheLoader.optionKeyAutoStub.qualifiedWith(ClassPatternSource.class.simpleName)) >> false
+        1 * option.get(DefaultPatternCacheLoader.optionKeyAutoStub.qualifiedWith(ClassPatternSource.class.simpleName)) >> false
         0 * sourceProvider.selectedTargets() >> new LinkedHashSet<>()
         result == "Active Source"
         cacheKey.getRequestedLocale() == Locale.UK
@@ -242,5 +243,90 @@ class DefaultPatternCacheLoaderTest extends Specification {
         cacheKey.getSource() == null
     }
 
+    @SuppressWarnings("GroovyAssignabilityCheck")
+    def "known misses are not probed again, until the miss index is cleared"() {
+        given:
+        PatternCacheKey cacheKey = new PatternCacheKey(LabelKey.Active_Source, Locale.UK)
+        def classPatternDao = Mock(ClassPatternDao)
+        sourceProvider.orderedSources(LabelKey.Active_Source) >> ImmutableSet.of(ClassPatternSource);
+        sourceProvider.sourceFor(ClassPatternSource) >> Optional.of(classPatternDao)
+        option.get(DefaultPatternCacheLoader.optionKeyAutoStub.qualifiedWith(ClassPatternSource.class.simpleName)) >> false
+
+        when:
+        loader.load(cacheKey)
+        loader.load(new PatternCacheKey(LabelKey.Active_Source, Locale.UK))
+
+        then:
+        3 * classPatternDao.getValue(_) >> Optional.empty()
+
+        when:
+        loader.clearMissIndex(ClassPatternSource)
+        String result = loader.load(new PatternCacheKey(LabelKey.Active_Source, Locale.UK))
+
+        then:
+        3 * classPatternDao.getValue(_) >> Optional.empty()
+        result == "Active Source"
+    }
+
+    @SuppressWarnings("GroovyAssignabilityCheck")
+    def "the misses of a target which is also a source are kept until an auto-stub write to it has completed"() {
+        given:
+        def classPatternDao = Mock(ClassPatternDao)
+        List<Runnable> afterWrites = []
+        sourceProvider.orderedSources(LabelKey.Active_Source) >> ImmutableSet.of(ClassPatternSource)
+        sourceProvider.sourceFor(ClassPatternSource) >> Optional.of(classPatternDao)
+        sourceProvider.selectedTargets() >> new LinkedHashSet<>(Arrays.asList(ClassPatternSource.class))
+        sourceProvider.targetFor(ClassPatternSource) >> Optional.of(classPatternDao)
+        option.get(DefaultPatternCacheLoader.optionKeyAutoStub.qualifiedWith(ClassPatternSource.class.simpleName)) >> true
+        option.get(DefaultPatternCacheLoader.optionKeyStubWithKeyName.qualifiedWith(ClassPatternSource.class.simpleName)) >> true
 
+        when:
+        loader.load(new PatternCacheKey(LabelKey.Active_Source, Locale.UK))
+        loader.load(new PatternCacheKey(LabelKey.Active_Source, Locale.UK))
+
+        then:
+        3 * classPatternDao.getValue(_) >> Optional.empty()
+        3 * writeQueue.enqueue(ClassPatternSource, classPatternDao, _, "Active_Source", _) >> { args -> afterWrites.add(args[4] as Runnable) }
+
+        when:
+        afterWrites.each { it.run() }
+        loader.load(new PatternCacheKey(LabelKey.Active_Source, Locale.UK))
+
+        then:
+        3 * classPatternDao.getValue(_) >> Optional.empty()
+    }
+
+    @SuppressWarnings("GroovyAssignabilityCheck")
+    def "the misses for one key and Locale are cleared when it is reloaded, leaving other misses in place"() {
+        given:
+        def classPatternDao = Mock(ClassPatternDao)
+        sourceProvider.orderedSources(_) >> ImmutableSet.of(ClassPatternSource);
+        sourceProvider.sourceFor(ClassPatternSource) >> Optional.of(classPatternDao)
+        option.get(DefaultPatternCacheLoader.optionKeyAutoStub.qualifiedWith(ClassPatternSource.class.simpleName)) >> false
+
+        when:
+        loader.load(new PatternCacheKey(LabelKey.Active_Source, Locale.UK))
+        loader.load(new PatternCacheKey(LabelKey.Yes, Locale.UK))
+        String result = loader.reload(new PatternCacheKey(LabelKey.Active_Source, Locale.UK), "Active Source").get()
+        loader.load(new PatternCacheKey(LabelKey.Yes, Locale.UK))
+
+        then:
+        4 * classPatternDao.getValue({ it.getKey() == LabelKey.Active_Source }) >>> [Optional.empty(), Optional.empty(), Optional.empty(),
+                                                                                     Optional.of("Active")]
+        3 * classPatternDao.getValue({ it.getKey() == LabelKey.Yes }) >> Optional.empty()
+        result == "Active"
+    }
+
+    def "candidate locales are the same as the native Java candidates, and are re-used"() {
+        given:
+        Locale germanSwitzerland = new Locale("de", "CH")
+
+        when:
+        List<Locale> candidates1 = loader.candidateLocales("Labels", germanSwitzerland)
+        List<Locale> candidates2 = loader.candidateLocales("Labels", germanSwitzerland)
+
+        then:
+        candidates1 == new KrailResourceBundleControl().getCandidateLocales("Labels", germanSwitzerland)
+        candidates1.is(candidates2)
+    }
 }
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.i18n
+
+import com.google.common.collect.ImmutableSet
+import com.google.common.collect.ImmutableSetMultimap
+import spock.lang.Specification
+import uk.q3c.krail.UnitTestFor
+
+/**
+ * Created by David Sowerby on 16/10/15.
+ */
+@UnitTestFor(DefaultPatternChangeLog)
+class DefaultPatternChangeLogTest extends Specification {
+
+    DefaultPatternChangeLog changeLog = new DefaultPatternChangeLog() {
+        @Override
+        protected int capacity() {
+            return 2
+        }
+    }
+
+    def "each change advances the epoch, and changes since an epoch are combined"() {
+        when:
+        changeLog.record(ImmutableSet.of(ClassPatternSource), ImmutableSetMultimap.of())
+        changeLog.record(ImmutableSet.of(), ImmutableSetMultimap.of("Labels", Locale.GERMAN))
+        PatternsChangedBusMessage changes = changeLog.changesSince(0).get()
+
+        then:
+        changeLog.epoch() == 2
+        changes.getEpoch() == 2
+        changes.getChangedSources() == ImmutableSet.of(ClassPatternSource)
+        changes.getChangedBundles() == ImmutableSetMultimap.of("Labels", Locale.GERMAN)
+        changeLog.changesSince(1).get().getChangedSources().isEmpty()
+        changeLog.changesSince(2).get().isEmpty()
+    }
+
+    def "changes which are no longer held return an empty Optional"() {
+        when:
+        3.times { changeLog.record(ImmutableSet.of(ClassPatternSource), ImmutableSetMultimap.of()) }
+
+        then:
+        !changeLog.changesSince(0).isPresent()
+        changeLog.changesSince(1).isPresent()
+    }
+
+    def "a change to a bundle affects the same and more specific Locales, and the Locale a pattern was found in"() {
+        given:
+        PatternsChangedBusMessage change = changeLog.record(ImmutableSet.of(), ImmutableSetMultimap.of("Labels", Locale.GERMAN))
+        PatternCacheKey fallback = new PatternCacheKey(LabelKey.Yes, Locale.FRANCE)
+        fallback.setActualLocale(Locale.GERMAN)
+        fallback.setSource(ClassPatternSource)
+
+        expect:
+        change.affects(new PatternCacheKey(LabelKey.Yes, Locale.GERMAN))
+        change.affects(new PatternCacheKey(LabelKey.Yes, Locale.GERMANY))
+        change.affects(fallback)
+        !change.affects(new PatternCacheKey(LabelKey.Yes, Locale.UK))
+        !change.affects(new PatternCacheKey(DescriptionKey.Pattern_Source_Watcher, Locale.GERMAN))
+    }
+
+    def "a change to a source affects patterns found in it, and patterns not found at all"() {
+        given:
+        PatternsChangedBusMessage change = changeLog.record(ImmutableSet.of(ClassPatternSource), ImmutableSetMultimap.of())
+        PatternCacheKey found = new PatternCacheKey(LabelKey.Yes, Locale.UK)
+        found.setSource(ClassPatternSource)
+        PatternCacheKey elsewhere = new PatternCacheKey(LabelKey.Yes, Locale.UK)
+        elsewhere.setSource(CataloguePatternSource)
+
+        expect:
+        change.affects(found)
+        change.affects(new PatternCacheKey(LabelKey.Yes, Locale.UK))
+        !change.affects(elsewhere)
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.i18n
+
+import com.vaadin.server.VaadinSession
+import net.engio.mbassy.bus.common.PubSubSupport
+import org.mockito.Mockito
+import spock.lang.Specification
+import uk.q3c.krail.UnitTestFor
+import uk.q3c.krail.core.eventbus.BusMessage
+import uk.q3c.krail.core.user.profile.RankContextProvider
+import uk.q3c.krail.core.user.profile.UserHierarchy
+
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
+import static uk.q3c.krail.i18n.PatternExportProgressMessage.Status.*
+
+/**
+ * Created by David Sowerby on 16/10/15.
+ */
+@UnitTestFor(DefaultPatternExportJob)
+class DefaultPatternExportJobTest extends Specification {
+
+    DefaultPatternExportJob job
+    PatternSource patternSource = Mock(PatternSource)
+    PubSubSupport<BusMessage> uiBus = Mock(PubSubSupport)
+    PatternDao target = Mock(PatternDao)
+    RankContextProvider rankContextProvider = Mock(RankContextProvider)
+    UserHierarchy userHierarchy = Mock(UserHierarchy)
+    List<Map.Entry<PatternCacheKey, String>> written = Collections.synchronizedList(new ArrayList<>())
+    List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>())
+    CountDownLatch finished = new CountDownLatch(1)
+    PatternExportProgressMessage finalMessage
+
+    def setup() {
+        job = new DefaultPatternExportJob(patternSource, uiBus, rankContextProvider, userHierarchy) {
+            @Override
+            protected int batchSize() {
+                return 10
+            }
+        }
+        target.writeAll(_) >> { List<Map.Entry<PatternCacheKey, String>> batch ->
+            batchSizes.add(batch.size())
+            written.addAll(batch)
+        }
+        uiBus.publish(_) >> { PatternExportProgressMessage message ->
+            if (message.getStatus() != RUNNING) {
+                finalMessage = message
+                finished.countDown()
+            }
+        }
+    }
+
+    def cleanup() {
+        VaadinSession.setCurrent(null)
+    }
+
+    def "the user's ranks are resolved at start, and patterns are retrieved with the starting session current but without its lock"() {
+        given:
+        VaadinSession session = Mockito.mock(VaadinSession)
+        VaadinSession.setCurrent(session)
+        List<VaadinSession> retrievedIn = Collections.synchronizedList(new ArrayList<>())
+        patternSource.retrievePatterns(_, _) >> { List<I18NKey> keys, Locale locale ->
+            retrievedIn.add(VaadinSession.getCurrent())
+            keys.collect { "pattern" }
+        }
+
+        when:
+        job.start([target], [LabelKey] as Set, [Locale.UK, Locale.GERMANY] as Set)
+
+        then:
+        1 * rankContextProvider.get(userHierarchy)
+
+        then:
+        finished.await(10, TimeUnit.SECONDS)
+        finalMessage.getStatus() == COMPLETE
+        !retrievedIn.isEmpty()
+        retrievedIn.every { it.is(session) }
+        written.size() == LabelKey.values().length * 2
+        Mockito.verify(session, Mockito.never())
+               .accessSynchronously(Mockito.any(Runnable))
+        Mockito.verify(session, Mockito.never())
+               .lock()
+    }
+
+    def "every key of every bundle is written for every Locale, in batches"() {
+        given:
+        patternSource.retrievePatterns(_, _) >> { List<I18NKey> keys, Locale locale -> keys.collect { ((Enum) it).name() + " " + locale } }
+        Set<Locale> locales = [Locale.UK, Locale.GERMANY, Locale.ITALY] as Set
+        int expected = (LabelKey.values().length + DescriptionKey.values().length) * locales.size()
+
+        when:
+        job.start([target], [LabelKey, DescriptionKey] as Set, locales)
+
+        then:
+        finished.await(10, TimeUnit.SECONDS)
+        !job.isRunning()
+        finalMessage.getStatus() == COMPLETE
+        finalMessage.getExported() == expected
+        finalMessage.getTotal() == expected
+        finalMessage.getLocalesCompleted() == 3
+        written.size() == expected
+        written.find { it.key.key == LabelKey.Yes && it.key.requestedLocale == Locale.GERMANY }?.value == "Yes de_DE"
+        batchSizes.every { it <= 10 }
+    }
+
+    def "a failure stops the export and is reported"() {
+        given:
+        patternSource.retrievePatterns(_, _) >> { throw new IllegalStateException("broken source") }
+
+        when:
+        job.start([target], [LabelKey] as Set, [Locale.UK, Locale.GERMANY] as Set)
+
+        then:
+        finished.await(10, TimeUnit.SECONDS)
+        finalMessage.getStatus() == FAILED
+        finalMessage.getFailure() == "broken source"
+        written.isEmpty()
+    }
+
+    def "cancel stops a running export"() {
+        given:
+        CountDownLatch started = new CountDownLatch(1)
+        CountDownLatch release = new CountDownLatch(1)
+        patternSource.retrievePatterns(_, _) >> { List<I18NKey> keys, Locale locale ->
+            started.countDown()
+            release.await(10, TimeUnit.SECONDS)
+            keys.collect { "pattern" }
+        }
+
+        when:
+        job.start([target], [LabelKey] as Set, [Locale.UK] as Set)
+        started.await(10, TimeUnit.SECONDS)
+        job.cancel()
+        release.countDown()
+
+        then:
+        finished.await(10, TimeUnit.SECONDS)
+        finalMessage.getStatus() == CANCELLED
+        written.size() < LabelKey.values().length
+    }
+
+    def "a second start while running fails"() {
+        given:
+        CountDownLatch release = new CountDownLatch(1)
+        patternSource.retrievePatterns(_, _) >> { List<I18NKey> keys, Locale locale ->
+            release.await(10, TimeUnit.SECONDS)
+            keys.collect { "pattern" }
+        }
+        job.start([target], [LabelKey] as Set, [Locale.UK] as Set)
+
+        when:
+        job.start([target], [LabelKey] as Set, [Locale.UK] as Set)
+
+        then:
+        thrown(IllegalStateException)
+
+        cleanup:
+        job.cancel()
+        release.countDown()
+        finished.await(10, TimeUnit.SECONDS)
+    }
+
+    def "no Locales completes immediately"() {
+        when:
+        job.start([target], [LabelKey] as Set, [] as Set)
+
+        then:
+        finalMessage.getStatus() == COMPLETE
+        finalMessage.getTotal() == 0
+        !job.isRunning()
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.i18n
+
+import com.google.common.cache.RemovalCause
+import spock.lang.Specification
+import uk.q3c.krail.UnitTestFor
+
+import java.util.concurrent.TimeUnit
+
+/**
+ * Created by David Sowerby on 16/10/15.
+ */
+@UnitTestFor(DefaultPatternMetrics)
+class DefaultPatternMetricsTest extends Specification {
+
+    DefaultPatternMetrics metrics = new DefaultPatternMetrics()
+
+    def "lookups, table hits and cache hits are counted independently of loads"() {
+        given:
+        PatternCacheKey cacheKey = found(LabelKey.Yes, Locale.UK, Locale.UK)
+
+        when:
+        metrics.tableHits(5)
+        metrics.cacheLookups(3)
+        metrics.cacheLookups(1)
+        metrics.cacheHits(2)
+        metrics.loaded(cacheKey, 1, 0)
+        metrics.loaded(cacheKey, 1, 0)
+
+        then:
+        metrics.getTableHits() == 5
+        metrics.getCacheLookups() == 4
+        metrics.getCacheHits() == 2
+        metrics.getLoads() == 2
+    }
+
+    def "loads are counted by source, with probes and load time"() {
+        when:
+        metrics.loaded(found(LabelKey.Yes, Locale.UK, Locale.UK), 1, TimeUnit.MICROSECONDS.toNanos(5))
+        metrics.loaded(found(LabelKey.Cancel, Locale.UK, Locale.UK), 2, TimeUnit.MILLISECONDS.toNanos(5))
+        metrics.loaded(found(LabelKey.Cancel, Locale.GERMANY, Locale.GERMANY), 3, TimeUnit.SECONDS.toNanos(1))
+
+        then:
+        metrics.getLoads() == 3
+        metrics.getProbes() == 6
+        metrics.getLoadsBySource() == [ClassPatternSource: 3L]
+        metrics.getLoadTimeHistogram() == ['< 10us': 1L, '< 100us': 0L, '< 1ms': 0L, '< 10ms': 1L, '< 100ms': 0L, '>= 100ms': 1L]
+        metrics.getMeanLoadMicros() == (5L + 5000L + 1000000L).intdiv(3)
+    }
+
+    def "load times are also counted by source, and by bundle and requested Locale"() {
+        given:
+        PatternCacheKey keyName = new PatternCacheKey(LabelKey.Yes, Locale.GERMANY)
+        keyName.setSource(null)
+
+        when:
+        metrics.loaded(found(LabelKey.Yes, Locale.UK, Locale.UK), 1, TimeUnit.MICROSECONDS.toNanos(5))
+        metrics.loaded(found(LabelKey.Cancel, Locale.UK, Locale.UK), 2, TimeUnit.MILLISECONDS.toNanos(5))
+        metrics.loaded(found(DescriptionKey.Export_progress, Locale.UK, Locale.UK), 1, TimeUnit.MICROSECONDS.toNanos(5))
+        metrics.loaded(keyName, 3, TimeUnit.SECONDS.toNanos(1))
+
+        then:
+        metrics.getLoadTimeHistogramBySource() == ['ClassPatternSource < 10us': 2L, 'ClassPatternSource < 10ms': 1L]
+        metrics.getLoadTimeHistogramByBundleAndLocale() == ['Descriptions en-GB < 10us': 1L, 'Labels de-DE >= 100ms': 1L, 'Labels en-GB < 10us': 1L,
+                                                            'Labels en-GB < 10ms': 1L]
+        metrics.getLoadTimeHistogramByBundleAndLocale()
+               .keySet()
+               .toList() == ['Descriptions en-GB < 10us', 'Labels de-DE >= 100ms', 'Labels en-GB < 10us', 'Labels en-GB < 10ms']
+    }
+
+    def "fallbacks and key name returns are counted by bundle and requested Locale"() {
+        given:
+        PatternCacheKey keyName = new PatternCacheKey(LabelKey.Yes, Locale.GERMANY)
+        keyName.setActualLocale(Locale.GERMANY)
+        keyName.setSource(null)
+
+        when:
+        metrics.loaded(found(LabelKey.Yes, Locale.UK, Locale.ENGLISH), 2, 0)
+        metrics.loaded(found(DescriptionKey.Export_progress, Locale.UK, Locale.ROOT), 3, 0)
+        metrics.loaded(found(LabelKey.Cancel, Locale.UK, Locale.UK), 1, 0)
+        metrics.loaded(keyName, 3, 0)
+
+        then:
+        metrics.getFallbacks() == 2
+        metrics.getFallbacksByBundleAndLocale() == ['Descriptions en-GB': 1L, 'Labels en-GB': 1L]
+        metrics.getKeyNameReturns() == 1
+        metrics.getKeyNameReturnsByBundleAndLocale() == ['Labels de-DE': 1L]
+        metrics.getLoadsBySource() == [ClassPatternSource: 3L]
+    }
+
+    def "evictions are counted in total and by cause"() {
+        when:
+        metrics.evicted(RemovalCause.SIZE)
+        metrics.evicted(RemovalCause.EXPIRED)
+        metrics.evicted(RemovalCause.SIZE)
+
+        then:
+        metrics.getEvictions() == 3
+        metrics.getEvictionsByCause() == [SIZE: 2L, EXPIRED: 1L]
+    }
+
+    def "reset clears all counts"() {
+        given:
+        metrics.tableHits(2)
+        metrics.cacheLookups(2)
+        metrics.cacheHits(1)
+        metrics.evicted(RemovalCause.SIZE)
+        metrics.loaded(found(LabelKey.Yes, Locale.UK, Locale.ENGLISH), 2, 100)
+
+        when:
+        metrics.reset()
+
+        then:
+        metrics.getTableHits() == 0
+        metrics.getCacheLookups() == 0
+        metrics.getCacheHits() == 0
+        metrics.getEvictions() == 0
+        metrics.getEvictionsByCause().isEmpty()
+        metrics.getLoads() == 0
+        metrics.getProbes() == 0
+        metrics.getFallbacks() == 0
+        metrics.getMeanLoadMicros() == 0
+        metrics.getLoadsBySource().isEmpty()
+        metrics.getFallbacksByBundleAndLocale().isEmpty()
+        metrics.getLoadTimeHistogramBySource().isEmpty()
+        metrics.getLoadTimeHistogramByBundleAndLocale().isEmpty()
+        metrics.getLoadTimeHistogram()
+               .values()
+               .every { it == 0 }
+    }
+
+    private static PatternCacheKey found(I18NKey key, Locale requestedLocale, Locale actualLocale) {
+        PatternCacheKey cacheKey = new PatternCacheKey(key, requestedLocale)
+        cacheKey.setActualLocale(actualLocale)
+        cacheKey.setSource(ClassPatternSource)
+        return cacheKey
+    }
+}
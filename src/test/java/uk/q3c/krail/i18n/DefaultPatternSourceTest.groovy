@@ -11,12 +11,19 @@
 
 package uk.q3c.krail.i18n
 
+import com.google.common.base.Ticker
+import com.google.common.cache.RemovalListener
 import com.google.common.collect.ImmutableSet
+import com.google.common.collect.ImmutableSetMultimap
 import spock.lang.Specification
 import uk.q3c.krail.UnitTestFor
+import uk.q3c.krail.core.user.opt.GuavaCacheConfiguration
 import uk.q3c.krail.core.user.opt.Option
 import uk.q3c.krail.i18n.i8nModule.TestPatternSource
 
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+
 /**
  * This test had to be changed to use a real DefaultPatternCacheLoader rather than a mock, although oddly the Mock did work originally
  * There are some issues with CGLib https://groups.google.com/forum/#!topic/spockframework/59WIHGgcSNE
@@ -36,10 +43,12 @@ class DefaultPatternSourceTest extends Specification {
     def option = Mock(Option)
     def sourceProvider = Mock(PatternSourceProvider)
     def classPatternDao = Mock(ClassPatternDao)
+    PatternChangeLog changeLog = new DefaultPatternChangeLog()
+    PatternMetrics metrics = new DefaultPatternMetrics()
 
     def setup() {
-        patternCacheLoader = new DefaultPatternCacheLoader(sourceProvider, option)
-        patternSource = new DefaultPatternSource(patternCacheLoader)
+        patternCacheLoader = new DefaultPatternCacheLoader(sourceProvider, option, Mock(PatternWriteQueue), metrics)
+        patternSource = new DefaultPatternSource(patternCacheLoader, new GuavaCacheConfiguration().recordStats(), changeLog, metrics)
     }
 
 
@@ -67,6 +76,257 @@ class DefaultPatternSourceTest extends Specification {
     }
 
 
+    def "second retrieval is served from the pattern table"() {
+
+        given:
+        PatternCacheKey key = new PatternCacheKey(LabelKey.Active_Source, Locale.UK)
+        sourceProvider.orderedSources(LabelKey.Active_Source) >> ImmutableSet.of(ClassPatternSource)
+        sourceProvider.sourceFor(ClassPatternSource.class) >> Optional.of(classPatternDao)
+        option.get(DefaultPatternCacheLoader.optionKeyAutoStub.qualifiedWith(ClassPatternSource.class.simpleName)) >> false
+
+        when:
+        String first = patternSource.retrievePattern(LabelKey.Active_Source, Locale.UK)
+        patternSource.getCache().invalidateAll()
+        String second = patternSource.retrievePattern(LabelKey.Active_Source, Locale.UK)
+
+        then:
+        1 * classPatternDao.getValue(key) >> Optional.of("a value")
+        first == "a value"
+        second == "a value"
+        patternSource.getTable().get(LabelKey.Active_Source, Locale.UK) == "a value"
+        metrics.getCacheLookups() == 1
+        metrics.getCacheHits() == 0
+        metrics.getTableHits() == 1
+        metrics.getLoads() == 1
+        metrics.getLoadsBySource() == [ClassPatternSource: 1L]
+    }
+
+    def "a lookup answered by the cache without a load is counted as a cache hit"() {
+
+        given:
+        PatternCacheKey key = new PatternCacheKey(LabelKey.Active_Source, Locale.UK)
+        sourceProvider.orderedSources(LabelKey.Active_Source) >> ImmutableSet.of(ClassPatternSource)
+        sourceProvider.sourceFor(ClassPatternSource.class) >> Optional.of(classPatternDao)
+        option.get(DefaultPatternCacheLoader.optionKeyAutoStub.qualifiedWith(ClassPatternSource.class.simpleName)) >> false
+
+        when:
+        patternSource.retrievePattern(LabelKey.Active_Source, Locale.UK)
+        patternSource.getTable()
+                     .remove(LabelKey.Active_Source, Locale.UK)
+        patternSource.retrievePatterns([LabelKey.Active_Source], Locale.UK)
+
+        then:
+        1 * classPatternDao.getValue(key) >> Optional.of("a value")
+        metrics.getCacheLookups() == 2
+        metrics.getCacheHits() == 1
+        metrics.getLoads() == 1
+    }
+
+    def "a lookup which waits for a load by another thread is not counted as a cache hit"() {
+
+        given:
+        PatternCacheKey key = new PatternCacheKey(LabelKey.Active_Source, Locale.UK)
+        CountDownLatch loading = new CountDownLatch(1)
+        CountDownLatch release = new CountDownLatch(1)
+        sourceProvider.orderedSources(LabelKey.Active_Source) >> ImmutableSet.of(ClassPatternSource)
+        sourceProvider.sourceFor(ClassPatternSource.class) >> Optional.of(classPatternDao)
+        option.get(DefaultPatternCacheLoader.optionKeyAutoStub.qualifiedWith(ClassPatternSource.class.simpleName)) >> false
+        classPatternDao.getValue(key) >> {
+            loading.countDown()
+            release.await(10, TimeUnit.SECONDS)
+            Optional.of("a value")
+        }
+
+        when:
+        Thread loader = Thread.start { patternSource.retrievePattern(LabelKey.Active_Source, Locale.UK) }
+        loading.await(10, TimeUnit.SECONDS)
+        Thread waiter = Thread.start { patternSource.retrievePatterns([LabelKey.Active_Source], Locale.UK) }
+        while (waiter.getState() != Thread.State.WAITING) {
+            Thread.sleep(1)
+        }
+        release.countDown()
+        loader.join()
+        waiter.join()
+
+        then:
+        metrics.getCacheLookups() == 2
+        metrics.getCacheHits() == 0
+        metrics.getLoads() == 1
+    }
+
+    def "stats are recorded when configured"() {
+
+        given:
+        sourceProvider.orderedSources(_) >> ImmutableSet.of(ClassPatternSource)
+        sourceProvider.sourceFor(ClassPatternSource.class) >> Optional.of(classPatternDao)
+        classPatternDao.getValue(_) >> Optional.of("a value")
+        option.get(_) >> false
+
+        when:
+        patternSource.retrievePattern(LabelKey.Active_Source, Locale.UK)
+        patternSource.getCache().getUnchecked(new PatternCacheKey(LabelKey.Active_Source, Locale.UK))
+
+        then:
+        patternSource.stats().loadCount() == 1
+        patternSource.stats().hitCount() == 1
+    }
+
+    def "an evicted entry is also removed from the pattern table, and the configured removal listener is called"() {
+
+        given:
+        RemovalListener removalListener = Mock(RemovalListener)
+        patternSource = new DefaultPatternSource(patternCacheLoader, new GuavaCacheConfiguration().maximumSize(1).removalListener(removalListener),
+                changeLog, metrics)
+        sourceProvider.orderedSources(_) >> ImmutableSet.of(ClassPatternSource)
+        sourceProvider.sourceFor(ClassPatternSource.class) >> Optional.of(classPatternDao)
+        classPatternDao.getValue(_) >> Optional.of("a value")
+        option.get(_) >> false
+
+        when:
+        patternSource.retrievePattern(LabelKey.Active_Source, Locale.UK)
+        patternSource.retrievePattern(LabelKey.Alphabetic_Ascending, Locale.UK)
+        patternSource.getCache().cleanUp()
+
+        then:
+        1 * removalListener.onRemoval({ it.wasEvicted() })
+        patternSource.getCache().size() == 1
+        patternSource.getTable().get(LabelKey.Active_Source, Locale.UK) == null
+        patternSource.getTable().get(LabelKey.Alphabetic_Ascending, Locale.UK) == "a value"
+        metrics.getEvictions() == 1
+        metrics.getEvictionsByCause() == [SIZE: 1L]
+    }
+
+    def "when the cache expires entries, lookups answered by the table are still seen by the cache"() {
+
+        given:
+        long nanos = 0
+        Ticker ticker = { nanos } as Ticker
+        PatternCacheKey key = new PatternCacheKey(LabelKey.Active_Source, Locale.UK)
+        patternSource = new DefaultPatternSource(patternCacheLoader, new GuavaCacheConfiguration().expireAfterAccess(1, TimeUnit.MINUTES)
+                                                                                                   .ticker(ticker), changeLog, metrics)
+        sourceProvider.orderedSources(_) >> ImmutableSet.of(ClassPatternSource)
+        sourceProvider.sourceFor(ClassPatternSource.class) >> Optional.of(classPatternDao)
+        option.get(_) >> false
+
+        when: "read within the expiry time of the last read, then after it"
+        String first = patternSource.retrievePattern(LabelKey.Active_Source, Locale.UK)
+        nanos = TimeUnit.SECONDS.toNanos(50)
+        patternSource.retrievePattern(LabelKey.Active_Source, Locale.UK)
+        nanos = TimeUnit.SECONDS.toNanos(100)
+        String second = patternSource.retrievePatterns([LabelKey.Active_Source], Locale.UK)
+                                     .get(0)
+        nanos = TimeUnit.SECONDS.toNanos(200)
+        String third = patternSource.retrievePattern(LabelKey.Active_Source, Locale.UK)
+
+        then:
+        2 * classPatternDao.getValue(key) >>> [Optional.of("a value"), Optional.of("new value")]
+        first == "a value"
+        second == "a value"
+        third == "new value"
+        patternSource.getTable().get(LabelKey.Active_Source, Locale.UK) == "new value"
+        metrics.getTableHits() == 0
+        metrics.getLoads() == 2
+        metrics.getEvictionsByCause() == [EXPIRED: 1L]
+    }
+
+    def "an entry which leaves the cache is probed in every source when next loaded"() {
+
+        given:
+        patternSource = new DefaultPatternSource(patternCacheLoader, new GuavaCacheConfiguration().maximumSize(1), changeLog, metrics)
+        sourceProvider.orderedSources(_) >> ImmutableSet.of(ClassPatternSource)
+        sourceProvider.sourceFor(ClassPatternSource.class) >> Optional.of(classPatternDao)
+        option.get(_) >> false
+
+        when: "Active_Source is missed, then evicted by another entry"
+        patternSource.retrievePattern(LabelKey.Active_Source, Locale.UK)
+        patternSource.retrievePattern(LabelKey.Alphabetic_Ascending, Locale.UK)
+        patternSource.getCache().cleanUp()
+        String result = patternSource.retrievePattern(LabelKey.Active_Source, Locale.UK)
+
+        then:
+        classPatternDao.getValue({ it.getKey() == LabelKey.Alphabetic_Ascending }) >> Optional.of("a value")
+        4 * classPatternDao.getValue({ it.getKey() == LabelKey.Active_Source }) >>> [Optional.empty(), Optional.empty(), Optional.empty(),
+                                                                                     Optional.of("added")]
+        result == "added"
+    }
+
+    def "a recorded change to a bundle invalidates only the patterns of that bundle"() {
+
+        given:
+        String value = "old value"
+        sourceProvider.orderedSources(_) >> ImmutableSet.of(ClassPatternSource)
+        sourceProvider.sourceFor(ClassPatternSource.class) >> Optional.of(classPatternDao)
+        classPatternDao.getValue(_) >> { Optional.of(value) }
+        option.get(_) >> false
+        patternSource.retrievePattern(LabelKey.Active_Source, Locale.GERMANY)
+        patternSource.retrievePattern(DescriptionKey.Pattern_Source_Watcher, Locale.GERMANY)
+
+        when:
+        value = "new value"
+        changeLog.record(ImmutableSet.of(), ImmutableSetMultimap.of("Labels", Locale.GERMAN))
+
+        then:
+        patternSource.retrievePattern(LabelKey.Active_Source, Locale.GERMANY) == "new value"
+        patternSource.retrievePattern(DescriptionKey.Pattern_Source_Watcher, Locale.GERMANY) == "old value"
+    }
+
+    def "a selective clear removes only the affected patterns from the pattern table"() {
+
+        given:
+        sourceProvider.orderedSources(_) >> ImmutableSet.of(ClassPatternSource)
+        sourceProvider.sourceFor(ClassPatternSource.class) >> Optional.of(classPatternDao)
+        classPatternDao.getValue(_) >> Optional.of("a value")
+        option.get(_) >> false
+        patternSource.retrievePattern(LabelKey.Active_Source, Locale.GERMANY)
+        patternSource.retrievePattern(DescriptionKey.Pattern_Source_Watcher, Locale.GERMANY)
+        PatternTable table = patternSource.getTable()
+
+        when:
+        changeLog.record(ImmutableSet.of(), ImmutableSetMultimap.of("Labels", Locale.GERMAN))
+        patternSource.retrievePatterns([], Locale.GERMANY)
+
+        then:
+        patternSource.getTable().is(table)
+        table.get(LabelKey.Active_Source, Locale.GERMANY) == null
+        table.get(DescriptionKey.Pattern_Source_Watcher, Locale.GERMANY) == "a value"
+    }
+
+    def "a recorded change to a source invalidates only the patterns found in that source"() {
+
+        given:
+        String value = "old value"
+        sourceProvider.orderedSources(_) >> ImmutableSet.of(ClassPatternSource)
+        sourceProvider.sourceFor(ClassPatternSource.class) >> Optional.of(classPatternDao)
+        classPatternDao.getValue(_) >> { Optional.of(value) }
+        option.get(_) >> false
+        patternSource.retrievePattern(LabelKey.Active_Source, Locale.UK)
+
+        when:
+        value = "new value"
+        changeLog.record(ImmutableSet.of(TestPatternSource), ImmutableSetMultimap.of())
+
+        then:
+        patternSource.retrievePattern(LabelKey.Active_Source, Locale.UK) == "old value"
+
+        when:
+        changeLog.record(ImmutableSet.of(ClassPatternSource), ImmutableSetMultimap.of())
+
+        then:
+        patternSource.retrievePattern(LabelKey.Active_Source, Locale.UK) == "new value"
+    }
+
+    def "clearCache() replaces the pattern table"() {
+
+        given:
+        patternSource.getTable().put(LabelKey.Active_Source, Locale.UK, "a value")
+
+        when:
+        patternSource.clearCache()
+
+        then:
+        patternSource.getTable().get(LabelKey.Active_Source, Locale.UK) == null
+    }
+
     def "clearCache() empties cache"() {
         given:
         PatternCacheKey key1 = new PatternCacheKey(LabelKey.Active_Source, Locale.UK)
@@ -97,10 +357,16 @@ class DefaultPatternSourceTest extends Specification {
         given:
         PatternCacheKey key1 = new PatternCacheKey(LabelKey.Active_Source, Locale.UK)
         PatternCacheKey key2 = new PatternCacheKey(DescriptionKey.Account_Already_In_Use, Locale.UK)
-        key1.setSource(ClassPatternSource)
-        key2.setSource(TestPatternSource)
-        patternSource.getCache().put(key1, "Active Source")
-        patternSource.getCache().put(key2, "Account Already In Use")
+        PatternDao testPatternDao = Mock(PatternDao)
+        sourceProvider.orderedSources(_) >> ImmutableSet.of(ClassPatternSource, TestPatternSource)
+        sourceProvider.sourceFor(ClassPatternSource.class) >> Optional.of(classPatternDao)
+        sourceProvider.sourceFor(TestPatternSource.class) >> Optional.of(testPatternDao)
+        classPatternDao.getValue(key1) >> Optional.of("Active Source")
+        classPatternDao.getValue(_) >> Optional.empty()
+        testPatternDao.getValue(key2) >> Optional.of("Account Already In Use")
+        option.get(_) >> false
+        patternSource.retrievePattern(LabelKey.Active_Source, Locale.UK)
+        patternSource.retrievePattern(DescriptionKey.Account_Already_In_Use, Locale.UK)
 
         when:
 
@@ -111,6 +377,51 @@ class DefaultPatternSourceTest extends Specification {
         patternSource.getCache().size() == 1
         patternSource.getCache().get(key2).equals("Account Already In Use")
     }
+
+    def "clearCache for a source also clears entries which were not found in any source"() {
+
+        given:
+        sourceProvider.orderedSources(_) >> ImmutableSet.of(ClassPatternSource)
+        sourceProvider.sourceFor(ClassPatternSource.class) >> Optional.of(classPatternDao)
+        classPatternDao.getValue(_) >> Optional.empty()
+        option.get(_) >> false
+        patternSource.retrievePattern(LabelKey.Active_Source, Locale.UK)
+
+        when:
+        patternSource.clearCache(TestPatternSource)
+
+        then:
+        patternSource.getCache().size() == 0
+    }
+
+    def "clearBundleCache and clearCache(Locale) clear only the affected entries"() {
+
+        given:
+        PatternCacheKey labelGerman = new PatternCacheKey(LabelKey.Active_Source, Locale.GERMANY)
+        PatternCacheKey descriptionUK = new PatternCacheKey(DescriptionKey.Account_Already_In_Use, Locale.UK)
+        sourceProvider.orderedSources(_) >> ImmutableSet.of(ClassPatternSource)
+        sourceProvider.sourceFor(ClassPatternSource.class) >> Optional.of(classPatternDao)
+        classPatternDao.getValue(_) >> Optional.of("a value")
+        option.get(_) >> false
+        patternSource.retrievePattern(LabelKey.Active_Source, Locale.UK)
+        patternSource.retrievePattern(LabelKey.Active_Source, Locale.GERMANY)
+        patternSource.retrievePattern(DescriptionKey.Account_Already_In_Use, Locale.UK)
+
+        when:
+        patternSource.clearCache(Locale.UK)
+
+        then:
+        patternSource.getCache().asMap().keySet() == [labelGerman] as Set
+
+        when:
+        patternSource.retrievePattern(DescriptionKey.Account_Already_In_Use, Locale.UK)
+        patternSource.clearBundleCache(LabelKey)
+
+        then:
+        patternSource.getCache().asMap().keySet() == [descriptionUK] as Set
+        patternSource.getTable().get(LabelKey.Active_Source, Locale.GERMANY) == null
+    }
+
 //    /**
 //     * PatternSource is not required to check for a supportedLocale
 //     */
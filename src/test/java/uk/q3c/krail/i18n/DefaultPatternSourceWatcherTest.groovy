@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.i18n
+
+import com.google.common.collect.ImmutableSetMultimap
+import com.google.inject.Provider
+import net.engio.mbassy.bus.common.PubSubSupport
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+import spock.lang.Unroll
+import uk.q3c.krail.UnitTestFor
+import uk.q3c.krail.core.user.opt.InMemory
+
+/**
+ * Created by David Sowerby on 16/10/15.
+ */
+@UnitTestFor(DefaultPatternSourceWatcher)
+class DefaultPatternSourceWatcherTest extends Specification {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    def translate = Mock(Translate)
+    def globalBus = Mock(PubSubSupport)
+    def classPatternDao = Mock(ClassPatternDao)
+    PatternChangeLog changeLog = new DefaultPatternChangeLog()
+    InMemoryPatternDao inMemoryPatternDao = new InMemoryPatternDao(new DefaultInMemoryPatternStore())
+    DefaultPatternSourceWatcher watcher
+
+    def setup() {
+        classPatternDao.takeChangedBundles() >> ImmutableSetMultimap.of()
+        Map<Class, Provider<PatternDao>> sources = [(ClassPatternSource): { classPatternDao } as Provider<PatternDao>,
+                                                    (InMemory): { inMemoryPatternDao } as Provider<PatternDao>]
+        watcher = new DefaultPatternSourceWatcher(translate, changeLog, sources, [(temporaryFolder.getRoot().getAbsolutePath()): ClassPatternSource],
+                globalBus)
+    }
+
+    def cleanup() {
+        if (watcher.isStarted()) {
+            watcher.stop()
+        }
+    }
+
+    def "nothing is recorded when nothing has changed"() {
+        expect:
+        !watcher.check().isPresent()
+        !watcher.check().isPresent()
+        changeLog.epoch() == 0
+    }
+
+    def "a change to the version of a DAO is recorded and published, and only that DAO is refreshed"() {
+        given:
+        PatternDao versionedDao = Mock(PatternDao)
+        versionedDao.takeChangedBundles() >> ImmutableSetMultimap.of()
+        versionedDao.version() >>> [1L, 2L]
+        watcher = new DefaultPatternSourceWatcher(translate, changeLog, [(ClassPatternSource): { classPatternDao } as Provider<PatternDao>,
+                                                                         (InMemory)          : { versionedDao } as Provider<PatternDao>], [:], globalBus)
+        watcher.check()
+
+        when:
+        Optional<PatternsChangedBusMessage> change = watcher.check()
+
+        then:
+        change.isPresent()
+        change.get().getChangedSources() == [InMemory] as Set
+        change.get().getEpoch() == 1
+        changeLog.epoch() == 1
+        1 * globalBus.publish(change.get())
+        1 * versionedDao.refresh()
+        0 * classPatternDao.refresh()
+    }
+
+    def "a write to the in memory store is recorded as a change to its bundle and Locale, not to the whole source"() {
+        given:
+        watcher.check()
+
+        when:
+        inMemoryPatternDao.write(new PatternCacheKey(LabelKey.Yes, Locale.UK), "Yes")
+        Optional<PatternsChangedBusMessage> change = watcher.check()
+
+        then:
+        change.isPresent()
+        change.get().getChangedSources().isEmpty()
+        change.get().getChangedBundles() == ImmutableSetMultimap.of("Labels", Locale.UK)
+        1 * globalBus.publish(change.get())
+        0 * classPatternDao.refresh()
+
+        when:
+        Optional<PatternsChangedBusMessage> again = watcher.check()
+
+        then:
+        !again.isPresent()
+    }
+
+    def "a bundle file written to a watched directory is recorded as a change to that bundle and Locale"() {
+        given:
+        watcher.init(globalBus)
+        watcher.start()
+
+        when:
+        new File(temporaryFolder.getRoot(), "Labels_de.properties").text = "Yes=Ja"
+        Optional<PatternsChangedBusMessage> change = Optional.empty()
+        for (int i = 0; i < 100 && !change.isPresent(); i++) {
+            Thread.sleep(100)
+            change = watcher.check()
+        }
+
+        then:
+        change.isPresent()
+        change.get().getChangedBundles().get("Labels").contains(Locale.GERMAN)
+        (1.._) * classPatternDao.refresh()
+    }
+
+    @Unroll
+    def "bundleFor #fileName"() {
+        expect:
+        DefaultPatternSourceWatcher.bundleFor(fileName) == ((bundleName == null) ? Optional.empty() : Optional.of(new AbstractMap.SimpleImmutableEntry
+                (bundleName, locale)))
+
+        where:
+        fileName                  | bundleName | locale
+        "Labels_de_CH.properties" | "Labels"   | new Locale("de", "CH")
+        "Labels_de.class"         | "Labels"   | Locale.GERMAN
+        "Labels.properties"       | "Labels"   | Locale.ROOT
+        "Labels\$1.class"         | null       | null
+        "patterns.kpc"            | null       | null
+    }
+}
@@ -12,6 +12,8 @@
 package uk.q3c.krail.i18n
 
 import com.google.common.collect.ImmutableSet
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
 import spock.lang.Specification
 import uk.q3c.krail.UnitTestFor
 import uk.q3c.krail.core.validation.ValidationKey
@@ -25,6 +27,9 @@ import uk.q3c.krail.core.validation.ValidationKey
 @UnitTestFor(DefaultPatternUtility.class)
 class DefaultPatternUtilityTest extends Specification {
 
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     DefaultPatternUtility utility
 
     def patternSource = Mock(PatternSource)
@@ -116,4 +121,25 @@ class DefaultPatternUtilityTest extends Specification {
         utility.stubValue(LabelKey.Active_Source, false, "rubbish").equals("rubbish")
 
     }
+
+
+    def "exportCatalogue writes only keys with a value"() {
+        given:
+        File file = new File(temporaryFolder.getRoot(), "patterns.kpc")
+        ImmutableSet<Class<? extends I18NKey>> bundles = ImmutableSet.of(LabelKey.class)
+        ImmutableSet<Locale> locales = ImmutableSet.of(Locale.UK, Locale.GERMANY)
+        sourcePatternDao.getValue(new PatternCacheKey(LabelKey.Yes, Locale.UK)) >> Optional.of("Yes")
+        sourcePatternDao.getValue(new PatternCacheKey(LabelKey.Yes, Locale.GERMANY)) >> Optional.of("Ja")
+        sourcePatternDao.getValue(_) >> Optional.empty()
+
+        when:
+        long count = utility.exportCatalogue(sourcePatternDao, file, bundles, locales)
+        PatternCatalogue catalogue = PatternCatalogue.open(file.toPath())
+
+        then:
+        count == 2
+        catalogue.entryCount() == 2
+        catalogue.get(LabelKey.Yes, Locale.GERMANY) == Optional.of("Ja")
+        catalogue.get(LabelKey.No, Locale.UK) == Optional.empty()
+    }
 }
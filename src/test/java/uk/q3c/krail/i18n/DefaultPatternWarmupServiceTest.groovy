@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+
+package uk.q3c.krail.i18n
+
+import com.google.inject.Provider
+import net.engio.mbassy.bus.common.PubSubSupport
+import spock.lang.Specification
+import uk.q3c.krail.UnitTestFor
+import uk.q3c.krail.core.eventbus.BusMessage
+import uk.q3c.krail.core.services.Service
+
+import java.lang.annotation.Annotation
+
+/**
+ * Created by David Sowerby on 16/10/15.
+ */
+@UnitTestFor(DefaultPatternWarmupService)
+class DefaultPatternWarmupServiceTest extends Specification {
+
+    DefaultPatternWarmupService service
+    ClassBundleCache bundleCache = Mock(ClassBundleCache)
+    ClassBundleControl control = new ClassBundleControl()
+    Translate translate = Mock(Translate)
+    PubSubSupport<BusMessage> globalBus = Mock(PubSubSupport)
+    Provider<PatternDao> daoProvider = Mock(Provider)
+    Map<Class<? extends Annotation>, Provider<PatternDao>> sources = [(ClassPatternSource): daoProvider]
+    Set<Locale> supportedLocales = [Locale.UK, Locale.GERMANY] as Set
+    Map<? extends Enum<?>, String> values = [:]
+
+    def setup() {
+        service = new DefaultPatternWarmupService(translate, bundleCache, control, sources, supportedLocales, [LabelKey, DescriptionKey] as Set)
+        service.init(globalBus)
+    }
+
+    def "name and description keys"() {
+        expect:
+        service.getNameKey() == LabelKey.Pattern_Warmup_Service
+        service.getDescriptionKey() == DescriptionKey.Pattern_Warmup_Service
+    }
+
+    def "every bundle is loaded into the ClassBundleCache, with default path options, for every supported locale and its candidates"() {
+        when:
+        service.start()
+
+        then:
+        // candidates are en_GB, en, root and de_DE, de, root
+        1 * bundleCache.values("uk.q3c.krail.i18n.Labels", LabelKey, Locale.GERMAN, control) >> values
+        5 * bundleCache.values("uk.q3c.krail.i18n.Labels", LabelKey, _, control) >> values
+        6 * bundleCache.values("uk.q3c.krail.i18n.Descriptions", DescriptionKey, _, control) >> values
+        0 * daoProvider.get()
+        service.getStatus() == Service.Status.STARTED
+        service.getTotal() == 4
+        service.getCompleted() == 4
+        service.getFailures() == 0
+    }
+
+    def "a failure to load is counted, but does not stop the service starting"() {
+        given:
+        bundleCache.values("uk.q3c.krail.i18n.Labels", LabelKey, Locale.GERMAN, control) >> null
+        bundleCache.values(*_) >> values
+
+        when:
+        service.start()
+
+        then:
+        service.getStatus() == Service.Status.STARTED
+        service.getCompleted() == 4
+        service.getFailures() == 1
+    }
+
+    def "nothing to load"() {
+        given:
+        service = new DefaultPatternWarmupService(translate, bundleCache, control, sources, supportedLocales, [] as Set)
+        service.init(globalBus)
+
+        when:
+        service.start()
+
+        then:
+        0 * bundleCache.values(*_)
+        service.getStatus() == Service.Status.STARTED
+        service.getTotal() == 0
+    }
+
+    def "nothing is loaded if class based patterns are not a source"() {
+        given:
+        service = new DefaultPatternWarmupService(translate, bundleCache, control, [:], supportedLocales, [LabelKey] as Set)
+        service.init(globalBus)
+
+        when:
+        service.start()
+
+        then:
+        0 * bundleCache.values(*_)
+        service.getStatus() == Service.Status.STARTED
+        service.getTotal() == 0
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.i18n
+
+import spock.lang.Specification
+import uk.q3c.krail.UnitTestFor
+
+/**
+ * Created by David Sowerby on 16/10/15.
+ */
+@UnitTestFor(DefaultPatternWriteQueue)
+class DefaultPatternWriteQueueTest extends Specification {
+
+    DefaultPatternWriteQueue queue
+    PatternDao target1 = Mock()
+    PatternDao target2 = Mock()
+
+    def setup() {
+        queue = new DefaultPatternWriteQueue()
+    }
+
+    private static PatternCacheKey key(I18NKey key, Locale requested, Locale actual) {
+        PatternCacheKey cacheKey = new PatternCacheKey(key, requested)
+        cacheKey.setActualLocale(actual)
+        return cacheKey
+    }
+
+    def "duplicates are replaced, and each target gets a single batch"() {
+        given:
+        PatternCacheKey cacheKey = key(LabelKey.Yes, Locale.UK, Locale.UK)
+        queue.enqueue(ClassPatternSource, target1, cacheKey, "Yes")
+        queue.enqueue(ClassPatternSource, target1, key(LabelKey.Yes, Locale.UK, Locale.UK), "Yes again")
+        // the actual Locale is not part of PatternCacheKey equality, but does identify a different write
+        queue.enqueue(ClassPatternSource, target1, key(LabelKey.Yes, Locale.UK, Locale.ENGLISH), "Yes")
+        queue.enqueue(CataloguePatternSource, target2, cacheKey, "Yes")
+        // the queued key is a copy
+        cacheKey.setActualLocale(Locale.GERMANY)
+
+        expect:
+        queue.depth() == 3
+
+        when:
+        queue.flush()
+
+        then:
+        1 * target1.writeAll({ List<Map.Entry<PatternCacheKey, String>> entries ->
+            entries.size() == 2 && entries[0].key.actualLocale == Locale.UK && entries[0].value == "Yes again" && entries[1].key.actualLocale ==
+                    Locale.ENGLISH
+        })
+        1 * target2.writeAll({ it.size() == 1 && it[0].key.actualLocale == Locale.UK })
+        queue.depth() == 0
+    }
+
+    def "a failed write to one target does not prevent writes to others"() {
+        given:
+        queue.enqueue(ClassPatternSource, target1, key(LabelKey.Yes, Locale.UK, Locale.UK), "Yes")
+        queue.enqueue(CataloguePatternSource, target2, key(LabelKey.Yes, Locale.UK, Locale.UK), "Yes")
+
+        when:
+        queue.flush()
+
+        then:
+        1 * target1.writeAll(_) >> { throw new PatternWriteException("fail") }
+        1 * target2.writeAll(_)
+        queue.depth() == 0
+        queue.getLastFlushLatency() >= 0
+    }
+
+    def "entries are discarded when the queue is full"() {
+        given:
+        queue = new DefaultPatternWriteQueue() {
+            @Override
+            protected int capacity() {
+                return 1
+            }
+        }
+
+        when:
+        queue.enqueue(ClassPatternSource, target1, key(LabelKey.Yes, Locale.UK, Locale.UK), "Yes")
+        queue.enqueue(ClassPatternSource, target1, key(LabelKey.No, Locale.UK, Locale.UK), "No")
+        // replacing an existing entry is still allowed
+        queue.enqueue(ClassPatternSource, target1, key(LabelKey.Yes, Locale.UK, Locale.UK), "Yes again")
+
+        then:
+        queue.depth() == 1
+        queue.getDroppedCount() == 1
+    }
+
+    def "the same write from different DAO instances for a target is queued once, and written with a single batch"() {
+        given:
+        PatternDao target1a = Mock()
+        queue.enqueue(ClassPatternSource, target1, key(LabelKey.Yes, Locale.UK, Locale.UK), "Yes")
+        queue.enqueue(ClassPatternSource, target1a, key(LabelKey.Yes, Locale.UK, Locale.UK), "Yes")
+        queue.enqueue(ClassPatternSource, target1a, key(LabelKey.No, Locale.UK, Locale.UK), "No")
+
+        expect:
+        queue.depth() == 2
+
+        when:
+        queue.flush()
+
+        then:
+        0 * target1.writeAll(_)
+        1 * target1a.writeAll({ it.size() == 2 })
+    }
+
+    def "shutdown writes queued entries"() {
+        given:
+        queue.enqueue(ClassPatternSource, target1, key(LabelKey.Yes, Locale.UK, Locale.UK), "Yes")
+
+        when:
+        queue.shutdown()
+
+        then:
+        1 * target1.writeAll({ it.size() == 1 })
+        queue.depth() == 0
+    }
+
+    def "the action after a write is run once the write has completed, and not if it fails"() {
+        given:
+        List<String> completed = []
+        queue.enqueue(ClassPatternSource, target1, key(LabelKey.Yes, Locale.UK, Locale.UK), "Yes", { completed.add("target1") } as Runnable)
+        queue.enqueue(CataloguePatternSource, target2, key(LabelKey.Yes, Locale.UK, Locale.UK), "Yes", { completed.add("target2") } as Runnable)
+
+        when:
+        queue.flush()
+
+        then:
+        1 * target1.writeAll(_) >> { assert completed.isEmpty() }
+        1 * target2.writeAll(_) >> { throw new PatternWriteException("fail") }
+        completed == ["target1"]
+    }
+
+    def "writes queued after shutdown are discarded"() {
+        given:
+        queue.shutdown()
+
+        when:
+        queue.enqueue(ClassPatternSource, target1, key(LabelKey.Yes, Locale.UK, Locale.UK), "Yes")
+        queue.flush()
+
+        then:
+        queue.depth() == 0
+        queue.getDroppedCount() == 1
+        0 * target1.writeAll(_)
+    }
+
+    def "flush with nothing queued does nothing"() {
+        when:
+        queue.flush()
+
+        then:
+        0 * target1.writeAll(_)
+    }
+}
@@ -92,6 +92,62 @@ class DefaultTranslateTest extends Specification {
 
     }
 
+    def "an embedded I18NKey is translated with the requested locale, not the current locale"() {
+
+        given:
+        currentLocale.setLocale(Locale.UK)
+
+        when:
+        String translation = translate.from(TestLabelKey.pattern_with_embedded_key, Locale.GERMANY, LabelKey.Log_In);
+
+        then:
+        translation.equals("Your Einloggen request has been refused");
+    }
+
+    def "arguments array passed by the caller is not modified"() {
+
+        given:
+        Object[] arguments = [LabelKey.Log_In] as Object[]
+
+        when:
+        translate.from(TestLabelKey.pattern_with_embedded_key, arguments);
+
+        then:
+        arguments[0] == LabelKey.Log_In
+    }
+
+    def "fromAll translates in order, including keys from different bundles and null keys"() {
+
+        when:
+        List<String> translations = translate.fromAll([LabelKey.Cancel, null, DescriptionKey.Auto_Stub, LabelKey.Ok], Locale.GERMANY)
+
+        then:
+        translations.size() == 4
+        translations.get(0) == translate.from(LabelKey.Cancel, Locale.GERMANY)
+        translations.get(1) == "key is null"
+        translations.get(2) == translate.from(DescriptionKey.Auto_Stub, Locale.GERMANY)
+        translations.get(3) == translate.from(LabelKey.Ok, Locale.GERMANY)
+    }
+
+    def "fromAll with an unsupported locale should throw exception"() {
+        when:
+        translate.fromAll([LabelKey.Ok], Locale.FRANCE)
+
+        then:
+        thrown UnsupportedLocaleException
+    }
+
+    def "bundle contains every key of the bundle"() {
+
+        when:
+        Map<I18NKey, String> bundle = translate.bundle(LabelKey, Locale.GERMANY)
+
+        then:
+        bundle.size() == LabelKey.values().length
+        bundle.get(LabelKey.Cancel) == "Stornieren"
+        bundle.get(LabelKey.Ok) == "OK"
+    }
+
     def "disabled supported locales check allows any Locale to be processed"() {
         expect:
         translate.from(false, LabelKey.Ok, Locale.FRANCE).equals("Ok")
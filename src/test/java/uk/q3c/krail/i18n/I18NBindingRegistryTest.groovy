@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.i18n
+
+import com.vaadin.server.ClientConnector
+import com.vaadin.ui.Button
+import com.vaadin.ui.Label
+import spock.lang.Specification
+import uk.q3c.krail.UnitTestFor
+
+/**
+ * Created by David Sowerby on 16/10/15.
+ */
+@UnitTestFor(I18NBindingRegistry)
+class I18NBindingRegistryTest extends Specification {
+
+    I18NBindingRegistry registry
+
+    def setup() {
+        registry = new I18NBindingRegistry()
+    }
+
+    def "register replaces an existing binding, and adds the detach listener only once"() {
+        given:
+        Button button = new Button()
+        I18NBinding binding1 = new I18NBinding("button", LabelKey.Ok, null, null, null)
+        I18NBinding binding2 = new I18NBinding("button", LabelKey.Cancel, null, null, null)
+
+        when:
+        registry.register(button, binding1)
+        registry.register(button, binding2)
+
+        then:
+        registry.size() == 1
+        registry.get(button) == binding2
+        button.getListeners(ClientConnector.DetachEvent).size() == 1
+    }
+
+    def "detach removes the binding"() {
+        given:
+        Button button = new Button()
+        Label label = new Label()
+        registry.register(button, new I18NBinding("button", LabelKey.Ok, null, null, null))
+        registry.register(label, new I18NBinding("label", LabelKey.Ok, null, null, null))
+
+        when:
+        registry.detach(new ClientConnector.DetachEvent(button))
+
+        then:
+        registry.size() == 1
+        registry.get(button) == null
+        registry.get(label) != null
+    }
+
+    def "currentLocaleBindings excludes components with a fixed Locale"() {
+        given:
+        Button button = new Button()
+        Label label = new Label()
+        registry.register(button, new I18NBinding("button", LabelKey.Ok, null, null, null))
+        registry.register(label, new I18NBinding("label", LabelKey.Ok, null, null, Locale.GERMANY))
+
+        expect:
+        registry.currentLocaleBindings().keySet() == [button] as Set
+    }
+
+    def "clear"() {
+        given:
+        registry.register(new Button(), new I18NBinding("button", LabelKey.Ok, null, null, null))
+
+        when:
+        registry.clear()
+
+        then:
+        registry.size() == 0
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.i18n;
+
+import com.vaadin.ui.Button;
+
+/**
+ * Has a hand written {@link I18NBinder}, {@link I18NTestClass10_I18NBinder}, in place of a generated one
+ * <p>
+ * Created by David Sowerby on 16/10/15.
+ */
+public class I18NTestClass10 {
+
+    @Caption(caption = LabelKey.Authentication, description = DescriptionKey.Please_log_in)
+    Button button = new Button();
+
+    @I18N
+    I18NTestClass9 nested = new I18NTestClass9();
+
+    public Button getButton() {
+        return button;
+    }
+}
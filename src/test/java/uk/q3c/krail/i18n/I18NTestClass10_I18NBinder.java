@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.i18n;
+
+/**
+ * Written in the same form as a binder generated by {@link uk.q3c.krail.i18n.apt.I18NBinderProcessor}, but counting its calls
+ * <p>
+ * Created by David Sowerby on 16/10/15.
+ */
+public final class I18NTestClass10_I18NBinder implements I18NBinder<I18NTestClass10> {
+
+    static int bindCount;
+
+    @Override
+    public void bind(I18NTestClass10 target, I18NBinderContext context) {
+        bindCount++;
+        context.apply(target.button, "button", uk.q3c.krail.i18n.LabelKey.Authentication, uk.q3c.krail.i18n.DescriptionKey.Please_log_in, null, "");
+        context.drillDown(target.nested);
+    }
+}
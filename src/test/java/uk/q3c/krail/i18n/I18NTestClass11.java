@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.i18n;
+
+import com.vaadin.ui.Label;
+
+/**
+ * Has no {@link I18NBinder}, so is scanned with reflection, but drills down into {@link I18NTestClass10}, which has one
+ * <p>
+ * Created by David Sowerby on 16/10/15.
+ */
+public class I18NTestClass11 {
+
+    @I18N
+    I18NTestClass10 withBinder = new I18NTestClass10();
+
+    @Caption(caption = LabelKey.Yes, description = DescriptionKey.Confirm_Ok)
+    Label label = new Label();
+}
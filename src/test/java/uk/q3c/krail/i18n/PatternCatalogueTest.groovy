@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.i18n
+
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+import uk.q3c.krail.UnitTestFor
+
+import java.nio.file.Path
+
+/**
+ * Created by David Sowerby on 16/10/15.
+ */
+@UnitTestFor(PatternCatalogue)
+class PatternCatalogueTest extends Specification {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    Path file
+
+    def setup() {
+        file = temporaryFolder.getRoot().toPath().resolve("patterns.kpc")
+    }
+
+    def "written patterns are read back for their key and Locale only"() {
+        given:
+        new PatternCatalogueWriter().put(LabelKey.Yes, Locale.UK, "Yes")
+                                    .put(LabelKey.Yes, Locale.GERMANY, "Ja")
+                                    .put(LabelKey.Export, Locale.UK, "Export")
+                                    .put(DescriptionKey.Log_out_first, Locale.UK, "Abmelden, Größe")
+                                    .write(file)
+
+        when:
+        PatternCatalogue catalogue = PatternCatalogue.open(file)
+
+        then:
+        catalogue.get(LabelKey.Yes, Locale.UK) == Optional.of("Yes")
+        catalogue.get(LabelKey.Yes, Locale.GERMANY) == Optional.of("Ja")
+        catalogue.get(LabelKey.Export, Locale.UK) == Optional.of("Export")
+        catalogue.get(DescriptionKey.Log_out_first, Locale.UK) == Optional.of("Abmelden, Größe")
+        catalogue.get(LabelKey.Export, Locale.GERMANY) == Optional.empty()
+        catalogue.get(LabelKey.Yes, Locale.FRANCE) == Optional.empty()
+        catalogue.get(LabelKey.No, Locale.UK) == Optional.empty()
+        catalogue.get(MessageKey.values()[0], Locale.UK) == Optional.empty()
+        catalogue.entryCount() == 4
+        catalogue.bundleCount() == 3
+    }
+
+    def "every key of a bundle can be found"() {
+        given:
+        PatternCatalogueWriter writer = new PatternCatalogueWriter()
+        LabelKey.values().each { writer.put(it, Locale.UK, it.name() + " value") }
+        writer.write(file)
+
+        when:
+        PatternCatalogue catalogue = PatternCatalogue.open(file)
+
+        then:
+        LabelKey.values().every { catalogue.get(it, Locale.UK) == Optional.of(it.name() + " value") }
+        catalogue.entryCount() == LabelKey.values().length
+    }
+
+    def "put replaces an existing pattern, and write replaces an existing file"() {
+        given:
+        new PatternCatalogueWriter().put(LabelKey.Yes, Locale.UK, "old")
+                                    .write(file)
+        PatternCatalogueWriter writer = new PatternCatalogueWriter().put(LabelKey.Yes, Locale.UK, "first")
+                                                                    .put(LabelKey.Yes, Locale.UK, "second")
+
+        when:
+        writer.write(file)
+
+        then:
+        writer.size() == 1
+        PatternCatalogue.open(file).get(LabelKey.Yes, Locale.UK) == Optional.of("second")
+        temporaryFolder.getRoot().list().length == 1
+    }
+
+    def "a file which is not a catalogue throws I18NException"() {
+        given:
+        file.toFile() << "not a catalogue"
+
+        when:
+        PatternCatalogue.open(file)
+
+        then:
+        thrown(I18NException)
+    }
+}
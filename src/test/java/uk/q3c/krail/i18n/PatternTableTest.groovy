@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.i18n
+
+import spock.lang.Specification
+import uk.q3c.krail.UnitTestFor
+
+/**
+ * Created by David Sowerby on 16/10/15.
+ */
+@UnitTestFor(PatternTable)
+class PatternTableTest extends Specification {
+
+    PatternTable table
+
+    def setup() {
+        table = new PatternTable()
+    }
+
+    def "get returns null when nothing loaded"() {
+        expect:
+        table.get(LabelKey.Ok, Locale.UK) == null
+        table.size() == 0
+    }
+
+    def "put then get, separated by key class and locale"() {
+        when:
+        table.put(LabelKey.Ok, Locale.UK, "Ok")
+        table.put(LabelKey.Ok, Locale.GERMANY, "OK")
+        table.put(DescriptionKey.Auto_Stub, Locale.UK, "auto stub")
+
+        then:
+        table.get(LabelKey.Ok, Locale.UK) == "Ok"
+        table.get(LabelKey.Ok, Locale.GERMANY) == "OK"
+        table.get(LabelKey.Cancel, Locale.UK) == null
+        table.get(DescriptionKey.Auto_Stub, Locale.UK) == "auto stub"
+        table.get(DescriptionKey.Auto_Stub, Locale.GERMANY) == null
+        table.size() == 3
+    }
+
+    def "clear removes all entries"() {
+        given:
+        table.put(LabelKey.Ok, Locale.UK, "Ok")
+
+        when:
+        table.clear()
+
+        then:
+        table.get(LabelKey.Ok, Locale.UK) == null
+        table.size() == 0
+    }
+}
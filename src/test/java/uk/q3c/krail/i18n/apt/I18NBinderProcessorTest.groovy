@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package uk.q3c.krail.i18n.apt
+
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+import uk.q3c.krail.UnitTestFor
+import uk.q3c.krail.i18n.DescriptionKey
+import uk.q3c.krail.i18n.I18NBinder
+import uk.q3c.krail.i18n.I18NBinderContext
+import uk.q3c.krail.i18n.LabelKey
+
+import javax.tools.*
+
+/**
+ * Compiles sample classes with the processor, then compiles and loads the binders it generates
+ * <p>
+ * Created by David Sowerby on 16/10/15.
+ */
+@UnitTestFor(I18NBinderProcessor)
+class I18NBinderProcessorTest extends Specification {
+
+    static final String SAMPLE = '''
+package com.example.i18n;
+
+import com.vaadin.ui.Button;
+import com.vaadin.ui.Label;
+import uk.q3c.krail.i18n.*;
+
+public class Sample {
+
+    @Caption(caption = LabelKey.Authentication, description = DescriptionKey.Please_log_in, locale = "de-DE")
+    public Button button = new Button();
+
+    @I18N
+    public Nested nested = new Nested();
+
+    public static class Nested {
+
+        @Caption(caption = LabelKey.Yes, description = DescriptionKey.Confirm_Ok)
+        public Label label = new Label();
+    }
+}
+'''
+
+    static final String HIDDEN = '''
+package com.example.i18n;
+
+import com.vaadin.ui.Button;
+import uk.q3c.krail.i18n.*;
+
+public class Hidden {
+
+    @Caption(caption = LabelKey.Authentication, description = DescriptionKey.Please_log_in)
+    private Button button = new Button();
+}
+'''
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>()
+    File classDir
+    File generatedDir
+
+    def setup() {
+        classDir = temporaryFolder.newFolder('classes')
+        generatedDir = temporaryFolder.newFolder('generated')
+    }
+
+    def "a binder is generated for each annotated class"() {
+        when:
+        boolean compiled = compile('Sample', SAMPLE)
+
+        then:
+        compiled
+        new File(generatedDir, 'com/example/i18n/Sample_I18NBinder.java').exists()
+        new File(generatedDir, 'com/example/i18n/Sample_Nested_I18NBinder.java').exists()
+        new File(classDir, 'com/example/i18n/Sample_I18NBinder.class').exists()
+        new File(classDir, 'com/example/i18n/Sample_Nested_I18NBinder.class').exists()
+    }
+
+    def "the generated binders apply the annotation values of each field, and drill down"() {
+        given:
+        I18NBinderContext context = Mock(I18NBinderContext)
+        assert compile('Sample', SAMPLE)
+        URLClassLoader classLoader = new URLClassLoader([classDir.toURI().toURL()] as URL[], getClass().getClassLoader())
+        Object sample = classLoader.loadClass('com.example.i18n.Sample').newInstance()
+        I18NBinder<Object> binder = (I18NBinder<Object>) classLoader.loadClass('com.example.i18n.Sample_I18NBinder').newInstance()
+        I18NBinder<Object> nestedBinder = (I18NBinder<Object>) classLoader.loadClass('com.example.i18n.Sample_Nested_I18NBinder').newInstance()
+
+        when:
+        binder.bind(sample, context)
+        nestedBinder.bind(sample.nested, context)
+
+        then:
+        1 * context.apply(sample.button, 'button', LabelKey.Authentication, DescriptionKey.Please_log_in, null, 'de-DE')
+        1 * context.drillDown(sample.nested)
+        1 * context.apply(sample.nested.label, 'label', LabelKey.Yes, DescriptionKey.Confirm_Ok, null, '')
+        0 * context._
+
+        cleanup:
+        classLoader?.close()
+    }
+
+    def "no binder is generated for a class with an annotated field which a binder cannot read"() {
+        when:
+        boolean compiled = compile('Hidden', HIDDEN)
+
+        then:
+        compiled
+        !new File(generatedDir, 'com/example/i18n/Hidden_I18NBinder.java').exists()
+        diagnostics.getDiagnostics()
+                   .any {
+            it.kind == Diagnostic.Kind.NOTE && it.getMessage(Locale.ROOT)
+                                                 .contains('No I18NBinder generated for com.example.i18n.Hidden')
+        }
+    }
+
+    /**
+     * Compiles {@code source} with the processor, against the test class path.  The generated binders are compiled in the same task
+     */
+    private boolean compile(String className, String source) {
+        File sourceFile = new File(temporaryFolder.newFolder('src', 'com', 'example', 'i18n'), className + '.java')
+        sourceFile.text = source
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler()
+        StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, null)
+        try {
+            List<String> options = ['-d', classDir.path, '-s', generatedDir.path, '-classpath', System.getProperty('java.class.path')]
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, null, fileManager.getJavaFileObjects(sourceFile))
+            task.setProcessors([new I18NBinderProcessor()])
+            boolean compiled = task.call()
+            if (!compiled) {
+                diagnostics.getDiagnostics()
+                           .each { println it }
+            }
+            return compiled
+        } finally {
+            fileManager.close()
+        }
+    }
+}
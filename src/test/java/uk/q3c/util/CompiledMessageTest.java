@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2015. David Sowerby
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package uk.q3c.util;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CompiledMessageTest {
+
+    @Test
+    public void compiledOnceFormattedMany() {
+
+        // given
+        CompiledMessage message = CompiledMessage.compile("This is a {1} pattern where the {0} can be in any {2}");
+        // when
+        String result1 = message.format("parameters", "simple", "order");
+        String result2 = message.format("arguments", "compiled", "sequence");
+        // then
+        assertThat(message.isValid()).isTrue();
+        assertThat(message.getParameterCount()).isEqualTo(3);
+        assertThat(result1).isEqualTo("This is a simple pattern where the parameters can be in any order");
+        assertThat(result2).isEqualTo("This is a compiled pattern where the arguments can be in any sequence");
+    }
+
+    @Test
+    public void formatTo() {
+
+        // given
+        CompiledMessage message = CompiledMessage.compile("{1} and {0}");
+        StringBuilder buf = new StringBuilder("start: ");
+        // when
+        message.formatTo(buf, "a", "b");
+        // then
+        assertThat(buf.toString()).isEqualTo("start: b and a");
+    }
+
+    @Test
+    public void escaped() {
+
+        // given
+        CompiledMessage message = CompiledMessage.compile("{0} ignoring \\{1}");
+        // when
+        String result = message.format("value");
+        // then
+        assertThat(message.getParameterCount()).isEqualTo(1);
+        assertThat(result).isEqualTo("value ignoring {1}");
+    }
+
+    @Test
+    public void invalidPatternReturnsPattern() {
+
+        // given
+        CompiledMessage unclosed = CompiledMessage.compile("This is {0 unclosed");
+        CompiledMessage notNumeric = CompiledMessage.compile("This is {a} wrong");
+        // then
+        assertThat(unclosed.isValid()).isFalse();
+        assertThat(unclosed.format("x")).isEqualTo("This is {0 unclosed");
+        assertThat(notNumeric.isValid()).isFalse();
+        assertThat(notNumeric.format("x")).isEqualTo("This is {a} wrong");
+    }
+
+    @Test
+    public void argumentCountMismatchReturnsPattern() {
+
+        // given
+        CompiledMessage message = CompiledMessage.compile("{0} and {1}");
+        // then
+        assertThat(message.format("a")).isEqualTo("{0} and {1}");
+        assertThat(message.format("a", "b", "c")).isEqualTo("{0} and {1}");
+    }
+
+    @Test
+    public void nestedFormatFromArgument() {
+
+        // given
+        CompiledMessage outer = CompiledMessage.compile("outer {0} end");
+        CompiledMessage inner = CompiledMessage.compile("inner {0}");
+        Object argument = new Object() {
+            @Override
+            public String toString() {
+                return inner.format("value");
+            }
+        };
+        // when
+        String result = outer.format(argument);
+        // then
+        assertThat(result).isEqualTo("outer inner value end");
+    }
+
+    @Test
+    public void nullAndArrayArguments() {
+
+        // given
+        CompiledMessage message = CompiledMessage.compile("{0}, {1}");
+        // when
+        String result = message.format(null, new int[]{1, 2});
+        // then
+        assertThat(result).isEqualTo("null, [1, 2]");
+    }
+}